@@ -0,0 +1,14 @@
+--Indexes serving the audit history of the view-audit flow, which finds the records a person owned by their owner
+--column; the revisions of those records are then read through the (id, REV) primary keys of the audit tables
+create index aud_prc_names_owner_idx on aud_prc_names (person_id, id);
+create index aud_prc_identifiers_owner_idx on aud_prc_identifiers (person_id, id);
+create index aud_prc_id_cards_owner_idx on aud_prc_id_cards (person_id, id);
+create index aud_prc_role_records_owner_idx on aud_prc_role_records (person_id, id);
+create index aud_prc_addresses_owner_idx on aud_prc_addresses (role_record_id, id);
+create index aud_prc_emails_owner_idx on aud_prc_emails (role_record_id, id);
+create index aud_prc_phones_owner_idx on aud_prc_phones (role_record_id, id);
+create index aud_prs_names_owner_idx on aud_prs_names (sor_person_id, id);
+create index aud_prs_role_records_owner_idx on aud_prs_role_records (sor_person_id, id);
+create index aud_prs_addresses_owner_idx on aud_prs_addresses (role_record_id, id);
+create index aud_prs_emails_owner_idx on aud_prs_emails (role_record_id, id);
+create index aud_prs_phones_owner_idx on aud_prs_phones (role_record_id, id);
@@ -0,0 +1,13 @@
+--Indexes serving the person change feed (GET /changes), which reads the audit tables by revision and person id
+create index aud_prc_persons_rev_idx on aud_prc_persons (REV, id);
+create index aud_prc_names_rev_idx on aud_prc_names (REV, person_id);
+create index aud_prc_identifiers_rev_idx on aud_prc_identifiers (REV, person_id);
+create index aud_prc_role_records_rev_idx on aud_prc_role_records (REV, person_id);
+create index aud_prc_addresses_rev_idx on aud_prc_addresses (REV, role_record_id);
+create index aud_prc_emails_rev_idx on aud_prc_emails (REV, role_record_id);
+create index aud_prc_phones_rev_idx on aud_prc_phones (REV, role_record_id);
+create index aud_prc_urls_rev_idx on aud_prc_urls (REV, role_record_id);
+create index aud_prc_leaves_rev_idx on aud_prc_leaves_of_absence (REV, role_record_id);
+
+--The feed stops at the revisions younger than its settle time
+create index revision_timestamp_idx on SpringSecurityRevisionEntity (timestamp);
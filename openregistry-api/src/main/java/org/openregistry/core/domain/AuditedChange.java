@@ -0,0 +1,106 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain;
+
+import org.openregistry.core.domain.PersonChange.ChangeType;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A change of a single audited record of a person in a single revision, with the properties that changed in that
+ * revision only.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class AuditedChange implements Serializable {
+
+    /**
+     * The kinds of records the history of a person consists of.
+     */
+    public enum Category {PERSON, ROLE, IDENTIFIER, NAME, EMAIL, PHONE, ADDRESS, ID_CARD}
+
+    private final Category category;
+
+    private final Long recordId;
+
+    private final long revision;
+
+    private final Date revisionDate;
+
+    private final String username;
+
+    private final String comments;
+
+    private final ChangeType changeType;
+
+    private final Map<String, Object> changedProperties;
+
+    public AuditedChange(final Category category, final Long recordId, final long revision, final Date revisionDate, final String username,
+                         final String comments, final ChangeType changeType, final Map<String, Object> changedProperties) {
+        this.category = category;
+        this.recordId = recordId;
+        this.revision = revision;
+        this.revisionDate = revisionDate;
+        this.username = username;
+        this.comments = comments;
+        this.changeType = changeType;
+        this.changedProperties = changedProperties != null ? changedProperties : Collections.<String, Object>emptyMap();
+    }
+
+    public Category getCategory() {
+        return this.category;
+    }
+
+    public Long getRecordId() {
+        return this.recordId;
+    }
+
+    public long getRevision() {
+        return this.revision;
+    }
+
+    public Date getRevisionDate() {
+        return this.revisionDate;
+    }
+
+    public String getUsername() {
+        return this.username;
+    }
+
+    public String getComments() {
+        return this.comments;
+    }
+
+    public ChangeType getChangeType() {
+        return this.changeType;
+    }
+
+    /**
+     * @return the new values of the properties that changed, in declaration order.  Every property that is set for an
+     * added record; none for a deleted one.
+     */
+    public Map<String, Object> getChangedProperties() {
+        return this.changedProperties;
+    }
+}
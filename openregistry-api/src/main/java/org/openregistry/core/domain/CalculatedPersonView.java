@@ -0,0 +1,331 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Denormalized, read-only snapshot of a calculated {@link Person}, holding everything needed to render the person
+ * without touching the lazily loaded associations.  The snapshot is taken whenever the calculated person is saved
+ * and is keyed by the person id and by each primary identifier.
+ * <p>
+ * Time dependent values (i.e. whether a role is active) are computed when they are read, not when the snapshot is taken.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CalculatedPersonView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long personId;
+
+    private final Date dateOfBirth;
+
+    private final String gender;
+
+    private final Map<String, String> attributes;
+
+    private final NameView universityName;
+
+    private final List<NameView> names = new ArrayList<NameView>();
+
+    private final List<IdentifierView> identifiers = new ArrayList<IdentifierView>();
+
+    private final List<IdCardView> idCards = new ArrayList<IdCardView>();
+
+    private final List<RoleView> roles = new ArrayList<RoleView>();
+
+    public CalculatedPersonView(final Person person) {
+        this.personId = person.getId();
+        this.dateOfBirth = person.getDateOfBirth();
+        this.gender = person.getGender();
+        this.attributes = person.getAttributes() != null ? new HashMap<String, String>(person.getAttributes()) : new HashMap<String, String>();
+        this.universityName = person.getOfficialName() != null ? new NameView(person.getUniversityName(), null) : null;
+
+        for (final Name name : person.getNames()) {
+            this.names.add(new NameView(name, name.getType() != null ? name.getType().getDescription() : null));
+        }
+
+        for (final Identifier identifier : person.getIdentifiers()) {
+            this.identifiers.add(new IdentifierView(identifier));
+        }
+
+        for (final IdCard idCard : person.getIdCards()) {
+            this.idCards.add(new IdCardView(idCard));
+        }
+
+        for (final Role role : person.getRoles()) {
+            this.roles.add(new RoleView(role));
+        }
+    }
+
+    public Long getPersonId() {
+        return this.personId;
+    }
+
+    public Date getDateOfBirth() {
+        return this.dateOfBirth;
+    }
+
+    public String getGender() {
+        return this.gender;
+    }
+
+    public Map<String, String> getAttributes() {
+        return Collections.unmodifiableMap(this.attributes);
+    }
+
+    /**
+     * @return the university name, or null if the person has no official name.
+     */
+    public NameView getUniversityName() {
+        return this.universityName;
+    }
+
+    public List<NameView> getNames() {
+        return Collections.unmodifiableList(this.names);
+    }
+
+    public List<IdentifierView> getIdentifiers() {
+        return Collections.unmodifiableList(this.identifiers);
+    }
+
+    public List<IdCardView> getIdCards() {
+        return Collections.unmodifiableList(this.idCards);
+    }
+
+    public List<RoleView> getRoles() {
+        return Collections.unmodifiableList(this.roles);
+    }
+
+    public static final class NameView implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+
+        private final String prefix;
+
+        private final String given;
+
+        private final String middle;
+
+        private final String family;
+
+        private final String suffix;
+
+        private NameView(final Name name, final String type) {
+            this.type = type;
+            this.prefix = name.getPrefix();
+            this.given = name.getGiven();
+            this.middle = name.getMiddle();
+            this.family = name.getFamily();
+            this.suffix = name.getSuffix();
+        }
+
+        /**
+         * @return the description of the name type, or null for the university name.
+         */
+        public String getType() {
+            return this.type;
+        }
+
+        public String getPrefix() {
+            return this.prefix;
+        }
+
+        public String getGiven() {
+            return this.given;
+        }
+
+        public String getMiddle() {
+            return this.middle;
+        }
+
+        public String getFamily() {
+            return this.family;
+        }
+
+        public String getSuffix() {
+            return this.suffix;
+        }
+    }
+
+    public static final class IdentifierView implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+
+        private final String value;
+
+        private final boolean primary;
+
+        private final boolean deleted;
+
+        private IdentifierView(final Identifier identifier) {
+            this.type = identifier.getType().getName();
+            this.value = identifier.getValue();
+            this.primary = identifier.isPrimary();
+            this.deleted = identifier.isDeleted();
+        }
+
+        public String getType() {
+            return this.type;
+        }
+
+        public String getValue() {
+            return this.value;
+        }
+
+        public boolean isPrimary() {
+            return this.primary;
+        }
+
+        public boolean isDeleted() {
+            return this.deleted;
+        }
+    }
+
+    public static final class IdCardView implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String cardNumber;
+
+        private final String cardSecurityValue;
+
+        private final String barCode;
+
+        private final String proximityNumber;
+
+        private final Date creationDate;
+
+        private final Date expirationDate;
+
+        private final Date updateDate;
+
+        private IdCardView(final IdCard idCard) {
+            this.cardNumber = idCard.getCardNumber();
+            this.cardSecurityValue = idCard.getCardSecurityValue();
+            this.barCode = idCard.getBarCode();
+            this.proximityNumber = idCard.getProximityNumber();
+            this.creationDate = idCard.getCreationDate();
+            this.expirationDate = idCard.getExpirationDate();
+            this.updateDate = idCard.getUpdateDate();
+        }
+
+        public String getCardNumber() {
+            return this.cardNumber;
+        }
+
+        public String getCardSecurityValue() {
+            return this.cardSecurityValue;
+        }
+
+        public String getBarCode() {
+            return this.barCode;
+        }
+
+        public String getProximityNumber() {
+            return this.proximityNumber;
+        }
+
+        public Date getCreationDate() {
+            return this.creationDate;
+        }
+
+        public Date getExpirationDate() {
+            return this.expirationDate;
+        }
+
+        public Date getUpdateDate() {
+            return this.updateDate;
+        }
+    }
+
+    public static final class RoleView implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String affiliationType;
+
+        private final String title;
+
+        private final String organizationalUnitName;
+
+        private final String organizationalUnitCode;
+
+        private final String rbhs;
+
+        private final Date start;
+
+        private final Date end;
+
+        private RoleView(final Role role) {
+            final OrganizationalUnit organizationalUnit = role.getOrganizationalUnit();
+            this.affiliationType = role.getAffiliationType() != null ? role.getAffiliationType().getDescription() : null;
+            this.title = role.getTitle();
+            this.organizationalUnitName = organizationalUnit != null ? organizationalUnit.getName() : null;
+            this.organizationalUnitCode = organizationalUnit != null ? organizationalUnit.getLocalCode() : null;
+            this.rbhs = role.getRBHS();
+            this.start = role.getStart();
+            this.end = role.getEnd();
+        }
+
+        public String getAffiliationType() {
+            return this.affiliationType;
+        }
+
+        public String getTitle() {
+            return this.title;
+        }
+
+        public String getOrganizationalUnitName() {
+            return this.organizationalUnitName;
+        }
+
+        public String getOrganizationalUnitCode() {
+            return this.organizationalUnitCode;
+        }
+
+        public String getRBHS() {
+            return this.rbhs;
+        }
+
+        public Date getStart() {
+            return this.start;
+        }
+
+        public Date getEnd() {
+            return this.end;
+        }
+
+        /**
+         * Same rules as {@link Role#isActive()}, evaluated against the current date.
+         */
+        public boolean isActive() {
+            final Date now = new Date();
+            return this.start.compareTo(now) <= 0 && (this.end == null || this.end.compareTo(now) > 0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A revision in which a calculated person, or anything belonging to it, was changed.  Changes are ordered by revision
+ * and then by person id; that position is the cursor the change feed is resumed from.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class PersonChange implements Serializable {
+
+    public enum ChangeType {ADDED, MODIFIED, DELETED}
+
+    private final long revision;
+
+    private final long personId;
+
+    private final ChangeType changeType;
+
+    private final Date revisionDate;
+
+    private final String username;
+
+    private final Map<String, String> primaryIdentifiers;
+
+    public PersonChange(final long revision, final long personId, final ChangeType changeType, final Date revisionDate, final String username,
+                        final Map<String, String> primaryIdentifiers) {
+        this.revision = revision;
+        this.personId = personId;
+        this.changeType = changeType;
+        this.revisionDate = revisionDate;
+        this.username = username;
+        this.primaryIdentifiers = primaryIdentifiers != null ? primaryIdentifiers : Collections.<String, String>emptyMap();
+    }
+
+    public long getRevision() {
+        return this.revision;
+    }
+
+    public long getPersonId() {
+        return this.personId;
+    }
+
+    public ChangeType getChangeType() {
+        return this.changeType;
+    }
+
+    public Date getRevisionDate() {
+        return this.revisionDate;
+    }
+
+    public String getUsername() {
+        return this.username;
+    }
+
+    /**
+     * @return the current primary identifiers of the person, by identifier type.  Empty if the person was deleted.
+     */
+    public Map<String, String> getPrimaryIdentifiers() {
+        return this.primaryIdentifiers;
+    }
+}
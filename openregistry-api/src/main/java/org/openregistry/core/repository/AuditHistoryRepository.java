@@ -0,0 +1,79 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.AuditedChange;
+import org.openregistry.core.domain.AuditedChange.Category;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorPerson;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the audited history of a calculated or SoR person.  The history is read in two steps so that only a page of
+ * it is ever loaded: the revision numbers of the whole history first, which are cheap to read, and then the changes
+ * made in a range of those revisions.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface AuditHistoryRepository {
+
+    /**
+     * Finds the revisions in which any record of the requested categories of the person changed.  Addresses, emails
+     * and phones are read for the current roles of the person.
+     *
+     * @param person the calculated person.
+     * @param categories the categories of records to read.
+     * @param since only revisions made at or after this date are returned.  Null for no lower bound.
+     * @param fromRevision only revisions with this number or higher are returned.  Zero or less for no lower bound.
+     * @param toRevision only revisions with this number or lower are returned.  Zero or less for no upper bound.
+     * @return the distinct revision numbers, ascending.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    List<Long> findRevisionNumbers(Person person, Set<Category> categories, Date since, long fromRevision, long toRevision) throws RepositoryAccessException;
+
+    /**
+     * Same as {@link #findRevisionNumbers(Person, Set, Date, long, long)} for the records of a SoR person, which has
+     * neither identifiers nor id cards.
+     */
+    List<Long> findRevisionNumbers(SorPerson sorPerson, Set<Category> categories, Date since, long fromRevision, long toRevision) throws RepositoryAccessException;
+
+    /**
+     * Finds the changes made to the records of the requested categories of the person in a range of revisions.
+     *
+     * @param person the calculated person.
+     * @param categories the categories of records to read.
+     * @param fromRevision the first revision of the range.
+     * @param toRevision the last revision of the range.
+     * @return the changes, ascending by revision.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    List<AuditedChange> findChanges(Person person, Set<Category> categories, long fromRevision, long toRevision) throws RepositoryAccessException;
+
+    /**
+     * Same as {@link #findChanges(Person, Set, long, long)} for the records of a SoR person.
+     */
+    List<AuditedChange> findChanges(SorPerson sorPerson, Set<Category> categories, long fromRevision, long toRevision) throws RepositoryAccessException;
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+import java.util.List;
+
+/**
+ * Exposes how well the second-level cache regions of the persistence store are doing.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface CacheStatisticsRepository {
+
+    /**
+     * @return true if the persistence store gathers statistics.  Gathering them has a cost, so it is usually off in
+     * production.
+     */
+    boolean isStatisticsEnabled();
+
+    /**
+     * @return the statistics of every cache region since startup, by region name.  The hit, miss and put counts stay
+     * zero unless {@link #isStatisticsEnabled()}.
+     */
+    List<RegionStatistics> getRegionStatistics();
+
+    final class RegionStatistics {
+
+        private final String name;
+
+        private final long hitCount;
+
+        private final long missCount;
+
+        private final long putCount;
+
+        private final long elementCount;
+
+        public RegionStatistics(final String name, final long hitCount, final long missCount, final long putCount, final long elementCount) {
+            this.name = name;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.putCount = putCount;
+            this.elementCount = elementCount;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getHitCount() {
+            return this.hitCount;
+        }
+
+        public long getMissCount() {
+            return this.missCount;
+        }
+
+        public long getPutCount() {
+            return this.putCount;
+        }
+
+        /**
+         * @return the number of entries currently in the region.
+         */
+        public long getElementCount() {
+            return this.elementCount;
+        }
+
+        /**
+         * @return the share of lookups that were hits, between 0 and 1.  Zero if there was no lookup.
+         */
+        public double getHitRatio() {
+            final long lookups = this.hitCount + this.missCount;
+            return lookups == 0 ? 0 : (double) this.hitCount / lookups;
+        }
+    }
+}
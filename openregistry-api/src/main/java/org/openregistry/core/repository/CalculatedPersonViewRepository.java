@@ -0,0 +1,90 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Repository abstraction for the denormalized {@link CalculatedPersonView} read model.  Views are keyed by the person
+ * id and by every primary identifier of the person, so a person can be served with a single indexed lookup.  The read
+ * model is derived from the calculated person and can always be rebuilt; a missing view is not an error.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface CalculatedPersonViewRepository {
+
+    /**
+     * Finds the view stored for the person.
+     *
+     * @param personId the internal id of the calculated person.
+     * @return the view, or null if no view has been stored for the person.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    CalculatedPersonView findByPersonId(Long personId) throws RepositoryAccessException;
+
+    /**
+     * Finds the views stored for several people at once.
+     *
+     * @param personIds the internal ids of the calculated people.
+     * @return the views by person id.  People without a stored view are left out.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Map<Long, CalculatedPersonView> findByPersonIds(Collection<Long> personIds) throws RepositoryAccessException;
+
+    /**
+     * Finds the view of the person with the supplied primary identifier.
+     *
+     * @param identifierType the type of identifier.
+     * @param identifierValue the value of the identifier.
+     * @return the view, or null if no view (or more than one view) is keyed by the identifier.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    CalculatedPersonView findByIdentifier(String identifierType, String identifierValue) throws RepositoryAccessException;
+
+    /**
+     * Stores the view, replacing any view previously stored for the same person.  Only the identifier keys that
+     * differ from the stored ones are inserted or removed.
+     *
+     * @param view the view of the saved person.  Must have a person id.
+     */
+    void saveView(CalculatedPersonView view);
+
+    /**
+     * Stores the view of a newly added person that has no view yet.  Unlike {@link #saveView(CalculatedPersonView)}
+     * this does not read anything, so it does not force pending inserts to be flushed.
+     *
+     * @param view the view of the newly saved person.  Must have a person id.
+     */
+    void addView(CalculatedPersonView view);
+
+    /**
+     * Removes the view of the person along with its identifier keys.  Should be called when the calculated person is deleted.
+     *
+     * @param personId the internal id of the person being removed.
+     */
+    void removeView(Long personId);
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+/**
+ * Stores, for every system of record person, the fingerprint of the election inputs (names, date of birth, SSN,
+ * disclosure settings, etc.) that were last used to recalculate its calculated person.  Comparing the stored
+ * fingerprint with the current one lets an update re-run only the field electors whose inputs actually changed.
+ * The fingerprints are derived data; a missing one simply means a full recalculation.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface ElectionInputsRepository {
+
+    /**
+     * Finds the fingerprint last recorded for the system of record person.
+     *
+     * @param sorPersonId the internal id of the system of record person.
+     * @param personId the internal id of the calculated person the record is currently linked to.
+     * @return the fingerprint, or null if none was recorded or it was recorded for a different calculated person.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    String findElectionInputs(Long sorPersonId, Long personId) throws RepositoryAccessException;
+
+    /**
+     * Records the fingerprint, replacing any fingerprint previously recorded for the system of record person.
+     *
+     * @param sorPersonId the internal id of the system of record person.
+     * @param personId the internal id of the calculated person that was recalculated.
+     * @param electionInputs the fingerprint.
+     */
+    void saveElectionInputs(Long sorPersonId, Long personId, String electionInputs);
+
+    /**
+     * Removes the fingerprint of the system of record person.  Should be called when the record is deleted.
+     *
+     * @param sorPersonId the internal id of the system of record person.
+     */
+    void removeElectionInputs(Long sorPersonId);
+}
@@ -0,0 +1,59 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.Person;
+
+import java.util.List;
+
+/**
+ * Completes partially typed names from the official and preferred names of everyone in the registry, for type-ahead
+ * search fields.  Completions are served from memory.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface NameCompletionIndex {
+
+    /**
+     * @return true if the index is loaded.  Until then every completion is empty.
+     */
+    boolean isAvailable();
+
+    /**
+     * @param prefix the start of a "given family" or "family given" name, in any case and with or without accents.
+     * @param maxCompletions the maximum number of completions to return.
+     * @return the "given family" names starting with the prefix, the names most people have first.
+     */
+    List<String> complete(String prefix, int maxCompletions);
+
+    /**
+     * Updates the names of the person once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person that was added or changed.
+     */
+    void indexAfterCommit(Person person);
+
+    /**
+     * Removes the names of the person once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person that was deleted.
+     */
+    void removeAfterCommit(Person person);
+}
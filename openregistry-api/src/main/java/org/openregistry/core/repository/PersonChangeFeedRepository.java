@@ -0,0 +1,49 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.PersonChange;
+
+import java.util.List;
+
+/**
+ * Reads the changes of calculated people from the audit history, in revision order, so downstream systems only have to
+ * fetch the people that changed.  Pages are addressed by the position of the last change read (keyset pagination), so
+ * a consumer can resume from the last change it processed.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PersonChangeFeedRepository {
+
+    /**
+     * Finds the changes following the supplied position, in ascending revision and person id order.  Every person
+     * changed in a revision is reported once for that revision.
+     *
+     * @param afterRevision only changes in this revision with a greater person id, or in later revisions, are returned.
+     * @param afterPersonId see afterRevision.  Zero to start at the beginning of the revision.
+     * @param maxChanges the maximum number of changes to return.
+     * @return the changes.  Fewer than maxChanges changes may be returned before the end of the feed is reached; only
+     * an empty list means there are no further changes yet.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    List<PersonChange> findChangesAfter(long afterRevision, long afterPersonId, int maxChanges) throws RepositoryAccessException;
+}
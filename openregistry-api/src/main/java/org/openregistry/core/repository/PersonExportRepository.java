@@ -0,0 +1,46 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+
+import java.util.List;
+
+/**
+ * Reads the whole calculated registry one page at a time, for full exports.  Pages are addressed by the last person
+ * id of the previous page (keyset pagination), so reading a page costs the same wherever it is in the registry.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PersonExportRepository {
+
+    /**
+     * Reads the page of people following the supplied person id, in ascending person id order.  The people are
+     * returned as detached views and the persistence context is cleared, so reading any number of pages does not
+     * accumulate managed entities.  Must therefore not be called with pending changes in the persistence context.
+     *
+     * @param afterPersonId only people with a greater id are returned.  Null for the first page.
+     * @param pageSize the maximum number of people to return.
+     * @return the views of the people of the page.  Fewer than pageSize people are returned for the last page.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    List<CalculatedPersonView> findPeopleAfter(Long afterPersonId, int pageSize) throws RepositoryAccessException;
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+/**
+ * The parts of a calculated person a use case needs, so a finder can load them up front in a bounded number of queries
+ * instead of one query per collection as they are first touched.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public enum PersonFetchProfile {
+
+    /**
+     * Names, identifiers, id cards, attributes and roles, without the contact details of the roles.  What a
+     * {@link org.openregistry.core.domain.CalculatedPersonView} reads.
+     */
+    REST_SUMMARY,
+
+    /**
+     * Everything shown on the person detail page: the summary, the urls, email addresses, phones, addresses and leaves
+     * of each role, and the disclosure settings.
+     */
+    UI_DETAIL,
+
+    /**
+     * Names, identifiers and preferred contact email address and phone number; what the reconcilers compare.
+     */
+    RECONCILIATION_CANDIDATE,
+
+    /**
+     * Names, identifiers and roles with their contact details; what recalculating a person from its SoR records
+     * touches.
+     */
+    RECALCULATION
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.Person;
+
+import java.util.Set;
+
+/**
+ * Process-local index of every identifier to the id of the person it belongs to, so that resolving an identifier does
+ * not need to query the identifiers and identifier types tables.
+ * <p>
+ * The index is only a hint: a person it returns must still be checked to have the identifier, and a miss only means
+ * "not found" if the index is {@link #isAuthoritative() authoritative}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PersonIdentifierIndex {
+
+    /**
+     * @param identifierType the name of the identifier type.
+     * @param identifierValue the value of the identifier.
+     * @return the id of the person with the identifier, or null if it is not indexed.
+     */
+    Long findPersonId(String identifierType, String identifierValue);
+
+    /**
+     * Resolves a value regardless of its type, e.g. to check that a proposed identifier is not in use yet.
+     *
+     * @param identifierValue the value of the identifier.
+     * @return the ids of the people with an identifier of any type with the value.  Empty if there are none indexed.
+     */
+    Set<Long> findPersonIds(String identifierValue);
+
+    /**
+     * @return true if the index is loaded and sees every identifier change, so that a miss means the identifier does
+     * not exist.  False if a miss has to be confirmed against the database.
+     */
+    boolean isAuthoritative();
+
+    /**
+     * Indexes the identifiers of the person once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person whose identifiers were added or changed.
+     */
+    void reindexAfterCommit(Person person);
+
+    /**
+     * Removes the identifiers of the person once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person that was deleted.
+     */
+    void removeAfterCommit(Person person);
+}
@@ -45,6 +45,17 @@ public interface PersonRepository {
      */
     Person findByInternalId(Long id) throws RepositoryAccessException;
 
+    /**
+     * Find canonical <code>Person</code> entity in the Open Registry, with the parts the use case needs already loaded.
+     *
+     * @param id a primary key internal identifier for a person in Open Registry person repository
+     * @param profile the parts of the person to load.
+     * @return person found in the Open Registry's person repository or null if no person
+     *         exist in this repository for a given internal id.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Person findByInternalId(Long id, PersonFetchProfile profile) throws RepositoryAccessException;
 
     /**
      * Find canonical <code>Person</code> entity in the Open Registry.
@@ -54,7 +65,7 @@ public interface PersonRepository {
      * @param id a primary key internal identifier for a person in Open Registry.
      * @return person found in the Open Registry's person repository or null if no person
      *  exist in Open Registry for a given internal id.
-
+     * @see PersonFetchProfile#UI_DETAIL
      */
 
     Person fetchCompleteCalculatedPerson(Long id);
@@ -80,6 +91,18 @@ public interface PersonRepository {
      */
     Person findByIdentifier(String identifierType, String identifierValue) throws RepositoryAccessException;
 
+    /**
+     * Finds the <code>Person</code> based on the identifier type and value, with the parts the use case needs already
+     * loaded.
+     * @param identifierType the identifier type
+     * @param identifierValue the identifier value.
+     * @param profile the parts of the person to load.
+     * @return the person.  CANNOT be null.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Person findByIdentifier(String identifierType, String identifierValue, PersonFetchProfile profile) throws RepositoryAccessException;
+
     /**
      * Finds the <code>Person</code> based on the identifier value.  This does a partial match, starting
      * from the beginning.
@@ -99,6 +122,15 @@ public interface PersonRepository {
      */
     SorPerson findBySorIdentifierAndSource(String sorSourceIdentifier, String sorId);
 
+    /**
+     * Locates the System of Record people based on the source and the identifiers the source asserts.
+     *
+     * @param sorSourceIdentifier the source
+     * @param sorIds the identifiers the source uses.
+     * @return the people that were found.  CANNOT be NULL.  CAN be EMPTY.
+     */
+    List<SorPerson> findBySorIdentifiersAndSource(String sorSourceIdentifier, Collection<String> sorIds);
+
     /**
      * Locates the System of Record person based on the source and the Person ID.
      *
@@ -157,6 +189,41 @@ public interface PersonRepository {
      */
     Person savePerson(Person person) throws RepositoryAccessException;
 
+    /**
+     * Persist or update an instance of a canonical <code>Person</code> entity in the Open Registry, optionally leaving
+     * the changes pending until the next flush so that the inserts of several people can be sent to the database
+     * together.
+     *
+     * @param person a person to persist or update in the person repository.
+     * @param flush whether the changes should be flushed to the database immediately.
+     * @return person which has been saved in the repository.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Person savePerson(Person person, boolean flush) throws RepositoryAccessException;
+
+    /**
+     * Persist or update an instance of a canonical <code>Person</code> entity in the Open Registry when the current
+     * transaction commits.  The changes of every person saved this way accumulate and are flushed once at commit,
+     * rows removed from uniquely constrained collections before the rows added to them, so a row can be replaced by
+     * one with the same key in the same transaction.  Queries made in the meantime do not see the pending changes.
+     * Without a transaction the person is saved immediately.
+     *
+     * @param person a person to persist or update in the person repository.
+     * @return person which will be saved in the repository.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Person savePersonAtCommit(Person person) throws RepositoryAccessException;
+
+    /**
+     * Flushes any pending changes to the database.
+     *
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    void flush() throws RepositoryAccessException;
+
     /**
      * Saves the System of Record person.
      *
@@ -167,6 +234,39 @@ public interface PersonRepository {
      */
     SorPerson saveSorPerson(SorPerson person) throws RepositoryAccessException;
 
+    /**
+     * Determines whether the System of Record person, including its roles, has the same content it had when it was
+     * last saved, in which case saving it again would change nothing.
+     *
+     * @param person the person to check.
+     * @return true if the person is unchanged, false if it changed or was never saved.
+     */
+    boolean isSorPersonUnchanged(SorPerson person);
+
+    /**
+     * Computes the hash of the content of a System of Record person that a snapshot record carries: its SoR id, source,
+     * date of birth, gender, SSN and names.  Unlike the content checked by {@link #isSorPersonUnchanged(SorPerson)} it
+     * does not cover the disclosure settings or local attributes, which snapshots do not send.  The hash is stored for
+     * the person when saved.
+     *
+     * @param person the person, which need not have been saved.
+     * @return the snapshot hash.
+     */
+    String getSnapshotHash(SorPerson person);
+
+    /**
+     * Lists the stored snapshot hashes of the System of Record people from the given source a page at a time, in the
+     * repository's order of their SoR ids.
+     *
+     * @param sorSource the source system of record.
+     * @param afterSorId the last SoR id of the previous page, or null for the first page.
+     * @param maxResults the page size.
+     * @return the snapshot hashes by SoR id, in the order listed.  A hash is null if the person was not saved since
+     * snapshot hashes were introduced.  The map is empty after the last page.
+     * @see #getSnapshotHash(SorPerson)
+     */
+    Map<String, String> findSorSnapshotHashes(String sorSource, String afterSorId, int maxResults);
+
     /**
      * Removes the SoR Role from the database.  This method ASSUMES your code is handling the removal of the person's
      * role from the person object BEFORE calling deleteSorRole.
@@ -238,6 +338,14 @@ public interface PersonRepository {
      */
     SorRole saveSorRole(SorRole role);
 
+    /**
+     * Determines whether the sor role has the same content it had when it was last saved.
+     *
+     * @param role the sor role to check.
+     * @return true if the role is unchanged, false if it changed or was never saved.
+     */
+    boolean isSorRoleUnchanged(SorRole role);
+
     List<Person> findByEmailAddressAndPhoneNumber(String email,
                                                   String countryCode, String areaCode, String number);
 
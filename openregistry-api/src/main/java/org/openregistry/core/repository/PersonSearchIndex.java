@@ -0,0 +1,149 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.Person;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Full-text index over the calculated names (including their comparison values), identifiers and email addresses of
+ * every person, so that searching people does not need to scan the names and identifiers tables.
+ * <p>
+ * Searches return the matching people ranked best first.  Every search is paginated, by the position of the first hit
+ * to return and the maximum number of hits to return.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PersonSearchIndex {
+
+    /**
+     * A person matching a search.
+     */
+    final class Hit implements Serializable {
+
+        private final Long personId;
+
+        private final float score;
+
+        private final String displayName;
+
+        public Hit(final Long personId, final float score, final String displayName) {
+            this.personId = personId;
+            this.score = score;
+            this.displayName = displayName;
+        }
+
+        public Long getPersonId() {
+            return this.personId;
+        }
+
+        /**
+         * @return the relevance of the hit.  Only comparable between the hits of one search.
+         */
+        public float getScore() {
+            return this.score;
+        }
+
+        /**
+         * @return the given and family name of the official name of the person, or null if the person has none.
+         */
+        public String getDisplayName() {
+            return this.displayName;
+        }
+    }
+
+    /**
+     * @return true if the index is loaded and can be searched.  If not, searches have to go to the database.
+     */
+    boolean isAvailable();
+
+    /**
+     * Searches the names, identifiers and email addresses for all words of the text.  The last word matches as a
+     * prefix, so the text may be what has been typed so far.
+     *
+     * @param text the words to search for.
+     * @param firstResult the position of the first hit to return, from 0.
+     * @param maxResults the maximum number of hits to return.
+     * @return the hits, best first.
+     */
+    List<Hit> search(String text, int firstResult, int maxResults);
+
+    /**
+     * Searches like {@link #search(String, int, int)}, among the people born on the date only.
+     *
+     * @param text the words to search for.
+     * @param dateOfBirth the date of birth of the people to find, or null for any.
+     * @param firstResult the position of the first hit to return, from 0.
+     * @param maxResults the maximum number of hits to return.
+     * @return the hits, best first.
+     */
+    List<Hit> search(String text, Date dateOfBirth, int firstResult, int maxResults);
+
+    /**
+     * Searches the names for a given name starting with the given name and a family name equal to the family name.
+     * Either may be null, but not both.
+     *
+     * @param givenName the start of the given name.
+     * @param familyName the family name.
+     * @param firstResult the position of the first hit to return, from 0.
+     * @param maxResults the maximum number of hits to return.
+     * @return the hits, best first.
+     */
+    List<Hit> searchByName(String givenName, String familyName, int firstResult, int maxResults);
+
+    /**
+     * Searches like {@link #searchByName(String, String, int, int)}, among the people born on the date only.
+     *
+     * @param givenName the start of the given name.
+     * @param familyName the family name.
+     * @param dateOfBirth the date of birth of the people to find, or null for any.
+     * @param firstResult the position of the first hit to return, from 0.
+     * @param maxResults the maximum number of hits to return.
+     * @return the hits, best first.
+     */
+    List<Hit> searchByName(String givenName, String familyName, Date dateOfBirth, int firstResult, int maxResults);
+
+    /**
+     * Searches for the people with an identifier of any type starting with the prefix (case sensitive).
+     *
+     * @param identifierPrefix the start of the identifier value.
+     * @param firstResult the position of the first hit to return, from 0.
+     * @param maxResults the maximum number of hits to return.
+     * @return the hits, which are all equally relevant.
+     */
+    List<Hit> searchByIdentifierPrefix(String identifierPrefix, int firstResult, int maxResults);
+
+    /**
+     * Indexes the person once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person that was added or changed.
+     */
+    void indexAfterCommit(Person person);
+
+    /**
+     * Removes the person from the index once the current transaction commits (immediately if there is none).
+     *
+     * @param person the person that was deleted.
+     */
+    void removeAfterCommit(Person person);
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository;
+
+import org.openregistry.core.domain.Person;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repository abstraction for the reconciliation candidate index.  The index maps normalized blocking keys
+ * (i.e. family name comparison value plus given name prefix, date of birth, last four digits of the SSN) to the
+ * calculated people that produce them, so that a Reconciler only has to load a small set of candidates.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface ReconciliationCandidateRepository {
+
+    /**
+     * Finds the calculated people that share at least one of the supplied blocking keys.  The people of the most
+     * selective keys, i.e. those shared by the fewest people, come first, so they are the ones kept when there are
+     * more than maxCandidates.
+     *
+     * @param blockingKeys the keys generated for the incoming record.  CANNOT be NULL.
+     * @param maxCandidates the maximum number of people to return.
+     * @return the list of candidates.  CANNOT be NULL.  CAN be EMPTY.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    List<Person> findCandidates(Collection<String> blockingKeys, int maxCandidates) throws RepositoryAccessException;
+
+    /**
+     * Finds the calculated people of each of the supplied blocking keys, for reconciling many records with one
+     * lookup.  Taking the candidates of a record from its keys in the order returned, up to maxCandidates, gives the
+     * same candidates as {@link #findCandidates(Collection, int)} for its keys alone.
+     *
+     * @param blockingKeys the keys generated for the incoming records.  CANNOT be NULL.
+     * @param maxCandidatesPerKey the maximum number of people to return for each key.
+     * @return the people by key, most selective key first.  Keys no one shares are left out.  CANNOT be NULL.
+     * @throws RepositoryAccessException if the operation does not succeed for any number of
+     *                                   technical reasons.
+     */
+    Map<String, List<Person>> findCandidatesByKey(Collection<String> blockingKeys, int maxCandidatesPerKey) throws RepositoryAccessException;
+
+    /**
+     * Replaces the blocking keys stored for the person with the supplied set.  Only the keys that differ from the
+     * stored ones are inserted or removed.
+     *
+     * @param person the saved person.  Must have an id.
+     * @param blockingKeys the current keys for the person.  CANNOT be NULL.
+     */
+    void updateBlockingKeys(Person person, Set<String> blockingKeys);
+
+    /**
+     * Stores the blocking keys for a newly added person that has no keys yet.  Unlike {@link #updateBlockingKeys(Person, Set)}
+     * this does not read the stored keys, so it does not force pending inserts to be flushed.
+     *
+     * @param person the newly saved person.  Must have an id.
+     * @param blockingKeys the keys for the person.  CANNOT be NULL.
+     */
+    void addBlockingKeys(Person person, Set<String> blockingKeys);
+
+    /**
+     * Removes all blocking keys for the person.  Should be called when the calculated person is deleted.
+     *
+     * @param person the person being removed.
+     */
+    void removeBlockingKeys(Person person);
+}
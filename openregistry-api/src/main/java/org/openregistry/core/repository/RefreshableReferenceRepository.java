@@ -0,0 +1,36 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository;
+
+/**
+ * {@link ReferenceRepository} that serves the reference data (types, identifier types, countries, regions, campuses and
+ * organizational units) from memory and can be told to reload it, i.e. after the reference tables were changed outside
+ * of Open Registry.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface RefreshableReferenceRepository extends ReferenceRepository {
+
+    /**
+     * Reloads all reference data from the underlying repository.
+     */
+    void refresh();
+}
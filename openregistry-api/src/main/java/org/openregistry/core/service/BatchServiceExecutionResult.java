@@ -0,0 +1,38 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service;
+
+/**
+ * Result of one item of a batch service invocation.  Where the equivalent single item invocation would have
+ * thrown a checked exception (i.e. a ReconciliationException), the exception is returned here instead so that
+ * the remaining items of the batch can still be processed.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface BatchServiceExecutionResult<T> extends ServiceExecutionResult<T> {
+
+    /**
+     * The exception the equivalent single item invocation would have thrown.
+     *
+     * @return the exception, or null if there was none.
+     */
+    Exception getFailure();
+}
@@ -0,0 +1,63 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.service;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+
+import java.io.IOException;
+
+/**
+ * Exports the whole calculated registry, e.g. for directory provisioning or data warehouse loads.  People are read
+ * and handed over one page at a time, so the export runs in constant memory whatever the size of the registry.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PersonExportService {
+
+    /**
+     * Receives the exported people.
+     */
+    interface PersonExportHandler {
+
+        /**
+         * Called once for every person, in ascending person id order.
+         *
+         * @param person the person to export.
+         * @throws IOException if the person cannot be written.  Aborts the export.
+         */
+        void export(CalculatedPersonView person) throws IOException;
+
+        /**
+         * Called after the people of each page have been exported, e.g. to flush output.
+         *
+         * @throws IOException if the output cannot be flushed.  Aborts the export.
+         */
+        void endOfPage() throws IOException;
+    }
+
+    /**
+     * Exports every calculated person to the handler.  Each page is read in its own read-only transaction.
+     *
+     * @param handler the handler receiving the people.  CANNOT be NULL.
+     * @return the number of people exported.
+     * @throws IOException if the handler failed.
+     */
+    long exportPeople(PersonExportHandler handler) throws IOException;
+}
@@ -66,6 +66,27 @@ public interface PersonService {
      */
     Person findPersonByIdentifier(final String identifierType, final String identifierValue);
 
+    /**
+     * Finds the denormalized, read-only view of the canonical <code>Person</code>.  The view is read with a single
+     * lookup when one has been stored; otherwise it is built from the <code>Person</code> entity.
+     *
+     * @param id a primary key internal identifier for a person in Open Registry.
+     * @return the view of the person, if found.  NULL otherwise.
+     */
+    CalculatedPersonView findCalculatedPersonView(Long id);
+
+    /**
+     * Finds the denormalized, read-only view of the canonical <code>Person</code> by one of the unique identifiers
+     * that the system is aware of.  The view is read with a single lookup when one has been stored for the primary
+     * identifier; otherwise it is built from the <code>Person</code> entity found by
+     * {@link #findPersonByIdentifier(String, String)}.
+     *
+     * @param identifierType the type of identifier
+     * @param identifierValue the value of the identifier
+     * @return the view of the person, if found.  NULL otherwise.
+     */
+    CalculatedPersonView findCalculatedPersonViewByIdentifier(String identifierType, String identifierValue);
+
     /**
      * For a particular Sor Person record for the specified sourceSorIdentifier.
      * @param id person id
@@ -213,6 +234,19 @@ public interface PersonService {
      */
     ServiceExecutionResult<Person> addPersonAndLink(ReconciliationCriteria reconciliationCriteria, Person person) throws IllegalArgumentException, IllegalStateException, SorPersonAlreadyExistsException;
 
+    /**
+     * Adds a chunk of people from one or more Systems of Record.  Each person is handled as {@link #addPerson(ReconciliationCriteria)}
+     * would handle it, except that the whole chunk is reconciled and persisted together, and that a person that cannot be added
+     * does not prevent the others from being added.
+     *
+     * @param reconciliationCriterias the people you are trying to add with their additional reconciliation data.
+     * @return one result per person, in the same order as the criteria.  If the person could not be added because of validation, the
+     * result has > 0 validation errors; if it could not be added because of reconciliation or because the SoR person already exists, the
+     * result's failure is the ReconciliationException or SorPersonAlreadyExistsException that addPerson would have thrown.
+     * @throws IllegalArgumentException if the reconciliationCriterias are not provided.
+     */
+    List<BatchServiceExecutionResult<Person>> addPeople(List<ReconciliationCriteria> reconciliationCriterias) throws IllegalArgumentException;
+
      /**
      * Run the reconciliation logic with the reconciliation criteria and return the reconciliation result.
      *
@@ -232,7 +266,7 @@ public interface PersonService {
     List<PersonMatch> searchForPersonBy(SearchCriteria searchCriteria);
 
     /**
-     * Updates the SorPerson.
+     * Updates the SorPerson.  An update that leaves the SorPerson's content as it was saved does nothing.
      *
      * @param sorPerson the Person to update.
      * @return Result of updating.  Validation errors if they occurred or the sorPerson.
@@ -240,7 +274,8 @@ public interface PersonService {
     ServiceExecutionResult<SorPerson> updateSorPerson(SorPerson sorPerson);
 
     /**
-     * Updates the SorRole for a particular person.
+     * Updates the SorRole for a particular person.  An update that leaves the role's content as it was saved does
+     * nothing.
      *
      * @param sorPerson the person who's role we are updating.  CANNOT BE NULL.
      * @param role the role we are updating.  CANNOT BE NULL.
@@ -248,6 +283,21 @@ public interface PersonService {
      */
     ServiceExecutionResult<SorRole> updateSorRole(SorPerson sorPerson, SorRole role);
 
+    /**
+     * Counts the SorPerson and SorRole updates that did nothing because their content was unchanged.
+     *
+     * @return the number of unchanged updates skipped since startup, by source system of record.  CANNOT be null.
+     */
+    Map<String, Long> getSkippedUpdateCounts();
+
+    /**
+     * Counts how the store of pending reconciliations is doing: the results it holds, the lookups that found or missed
+     * one, and the results it evicted to stay within its bounds or dropped once expired.
+     *
+     * @return the counts since startup, by name.  CANNOT be null.
+     */
+    Map<String, Long> getPendingReconciliationCounts();
+
     /**
      * Removes an SorName.
      *
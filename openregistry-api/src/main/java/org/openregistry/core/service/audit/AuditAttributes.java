@@ -0,0 +1,236 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.audit;
+
+import org.openregistry.core.domain.AuditedChange.Category;
+
+import java.io.Serializable;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The part of the history of a person to show: the kinds of records, the period or range of revisions, and the page
+ * of revisions.  Pages are counted in revisions, newest first unless requested otherwise.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class AuditAttributes implements Serializable {
+
+    private static final int DEFAULT_PAGE_SIZE = 25;
+
+    private int auditPeriod;
+
+    private boolean auditPersonInfo;
+
+    private boolean auditRoles;
+
+    private boolean auditNames;
+
+    private boolean auditIdentifiers;
+
+    private boolean auditAddresses;
+
+    private boolean auditEmails;
+
+    private boolean auditPhones;
+
+    private boolean auditIdCard;
+
+    private long fromRevision;
+
+    private long toRevision;
+
+    private int page;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    private boolean newestFirst = true;
+
+    private int revisionCount;
+
+    /**
+     * @return the number of past months to show, or zero for the whole history.
+     */
+    public int getAuditPeriod() {
+        return this.auditPeriod;
+    }
+
+    public void setAuditPeriod(final int auditPeriod) {
+        this.auditPeriod = auditPeriod;
+    }
+
+    public boolean isAuditPersonInfo() {
+        return this.auditPersonInfo;
+    }
+
+    public void setAuditPersonInfo(final boolean auditPersonInfo) {
+        this.auditPersonInfo = auditPersonInfo;
+    }
+
+    public boolean isAuditRoles() {
+        return this.auditRoles;
+    }
+
+    public void setAuditRoles(final boolean auditRoles) {
+        this.auditRoles = auditRoles;
+    }
+
+    public boolean isAuditNames() {
+        return this.auditNames;
+    }
+
+    public void setAuditNames(final boolean auditNames) {
+        this.auditNames = auditNames;
+    }
+
+    public boolean isAuditIdentifiers() {
+        return this.auditIdentifiers;
+    }
+
+    public void setAuditIdentifiers(final boolean auditIdentifiers) {
+        this.auditIdentifiers = auditIdentifiers;
+    }
+
+    public boolean isAuditAddresses() {
+        return this.auditAddresses;
+    }
+
+    public void setAuditAddresses(final boolean auditAddresses) {
+        this.auditAddresses = auditAddresses;
+    }
+
+    public boolean isAuditEmails() {
+        return this.auditEmails;
+    }
+
+    public void setAuditEmails(final boolean auditEmails) {
+        this.auditEmails = auditEmails;
+    }
+
+    public boolean isAuditPhones() {
+        return this.auditPhones;
+    }
+
+    public void setAuditPhones(final boolean auditPhones) {
+        this.auditPhones = auditPhones;
+    }
+
+    public boolean isAuditIdCard() {
+        return this.auditIdCard;
+    }
+
+    public void setAuditIdCard(final boolean auditIdCard) {
+        this.auditIdCard = auditIdCard;
+    }
+
+    /**
+     * @return the first revision to show, or zero for no lower bound.
+     */
+    public long getFromRevision() {
+        return this.fromRevision;
+    }
+
+    public void setFromRevision(final long fromRevision) {
+        this.fromRevision = fromRevision;
+    }
+
+    /**
+     * @return the last revision to show, or zero for no upper bound.
+     */
+    public long getToRevision() {
+        return this.toRevision;
+    }
+
+    public void setToRevision(final long toRevision) {
+        this.toRevision = toRevision;
+    }
+
+    /**
+     * @return the page of revisions to show, starting at zero.
+     */
+    public int getPage() {
+        return this.page;
+    }
+
+    public void setPage(final int page) {
+        this.page = Math.max(page, 0);
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    public void setPageSize(final int pageSize) {
+        this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+    }
+
+    public boolean isNewestFirst() {
+        return this.newestFirst;
+    }
+
+    public void setNewestFirst(final boolean newestFirst) {
+        this.newestFirst = newestFirst;
+    }
+
+    /**
+     * @return the number of revisions matching these attributes, as found by the last {@link AuditService} call.
+     */
+    public int getRevisionCount() {
+        return this.revisionCount;
+    }
+
+    public void setRevisionCount(final int revisionCount) {
+        this.revisionCount = revisionCount;
+    }
+
+    public int getPageCount() {
+        return (this.revisionCount + this.pageSize - 1) / this.pageSize;
+    }
+
+    public Set<Category> getCategories() {
+        final Set<Category> categories = EnumSet.noneOf(Category.class);
+        if (this.auditPersonInfo) {
+            categories.add(Category.PERSON);
+        }
+        if (this.auditRoles) {
+            categories.add(Category.ROLE);
+        }
+        if (this.auditNames) {
+            categories.add(Category.NAME);
+        }
+        if (this.auditIdentifiers) {
+            categories.add(Category.IDENTIFIER);
+        }
+        if (this.auditAddresses) {
+            categories.add(Category.ADDRESS);
+        }
+        if (this.auditEmails) {
+            categories.add(Category.EMAIL);
+        }
+        if (this.auditPhones) {
+            categories.add(Category.PHONE);
+        }
+        if (this.auditIdCard) {
+            categories.add(Category.ID_CARD);
+        }
+        return categories;
+    }
+}
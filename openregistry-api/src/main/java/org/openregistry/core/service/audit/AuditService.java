@@ -0,0 +1,85 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.audit;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorPerson;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Presents the audited history of a person one page of revisions at a time.  A change is presented as a row: an
+ * ordered map starting with the revision number, time, user and reason of the revision, followed by the record that
+ * changed, the action and only the properties that changed.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface AuditService {
+
+    String REVISION_NUMBER = "RevNo";
+
+    String TIME = "Time";
+
+    String USER = "User";
+
+    String REASON = "Reason";
+
+    String RECORD = "Record";
+
+    String ACTION = "Action";
+
+    /**
+     * Reads the requested page of the history of the calculated person, and records the number of revisions of the
+     * whole history in the attributes.
+     *
+     * @param person the calculated person.
+     * @param auditAttributes the part of the history to read.
+     * @return the rows of the page by kind of record: person, role, identifier, name, email, phone, address or idCard.
+     * The rows of a kind have the same keys in the same order, with null values for the properties that did not change.
+     */
+    Map<String, List<Map<String, Object>>> getAudit(Person person, AuditAttributes auditAttributes);
+
+    /**
+     * Same as {@link #getAudit(Person, AuditAttributes)} for the history of a SoR person.
+     */
+    Map<String, List<Map<String, Object>>> getSorAudit(SorPerson sorPerson, AuditAttributes auditAttributes);
+
+    /**
+     * @param auditResults the rows by kind of record.
+     * @return the rows by revision number, oldest first.
+     */
+    SortedMap<Long, List<Map<String, Object>>> getAuditByRev(Map<String, List<Map<String, Object>>> auditResults);
+
+    /**
+     * @param auditResultsByRev the rows by revision number.
+     * @return the rows by revision number, newest first.
+     */
+    SortedMap<Long, List<Map<String, Object>>> getAuditByRevRevers(Map<Long, List<Map<String, Object>>> auditResultsByRev);
+
+    /**
+     * @param auditResultsByRev the rows by revision number.
+     * @param rev the revision number.
+     * @return the rows of the revision; empty if there are none.
+     */
+    List<Map<String, Object>> getAuditForRev(Map<Long, List<Map<String, Object>>> auditResultsByRev, String rev);
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+
+import java.util.List;
+
+/**
+ * Reconciler that can reconcile a whole chunk of incoming people at once, loading the candidates for the
+ * chunk with a single lookup instead of one lookup per person.
+ * <p>
+ * Note that the people in the chunk are only reconciled against the people already in the registry, not against
+ * each other.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface BatchReconciler extends Reconciler {
+
+    /**
+     * Executes the algorithm used to locate matches for each of the supplied people.
+     *
+     * @param reconciliationCriterias the people to attempt to match.  CANNOT be NULL.
+     * @return the results of the match attempts, in the same order as the criteria.  CANNOT be NULL.
+     */
+    List<ReconciliationResult> reconcile(List<ReconciliationCriteria> reconciliationCriterias);
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+
+import java.util.Map;
+
+/**
+ * Holds the results of reconciliations that need a decision (i.e. MAYBE matches), until the person is either force
+ * added or linked to one of the matches.  Criteria are looked up by their content, so a resubmitted criteria with the
+ * same data finds the result stored for the original one.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface PendingReconciliationStore {
+
+    /**
+     * Stores the reconciliation result for the criteria, replacing any result stored for criteria with the same content.
+     *
+     * @param reconciliationCriteria the criteria that was reconciled.  CANNOT be NULL.
+     * @param reconciliationResult the result of the reconciliation.  CANNOT be NULL.
+     */
+    void put(ReconciliationCriteria reconciliationCriteria, ReconciliationResult reconciliationResult);
+
+    /**
+     * Returns the result stored for criteria with the same content.
+     *
+     * @param reconciliationCriteria the criteria to look up.  CANNOT be NULL.
+     * @return the result, or null if there is none or it has expired.
+     */
+    ReconciliationResult get(ReconciliationCriteria reconciliationCriteria);
+
+    /**
+     * Removes the result stored for criteria with the same content.
+     *
+     * @param reconciliationCriteria the criteria to remove.  CANNOT be NULL.
+     * @return the removed result, or null if there was none or it had expired.
+     */
+    ReconciliationResult remove(ReconciliationCriteria reconciliationCriteria);
+
+    /**
+     * Returns the pending reconciliations of the people that came from the System of Record.
+     *
+     * @param sorSource the System of Record source.
+     * @return the pending criteria and their results.  CANNOT be NULL.  CAN be EMPTY.
+     */
+    Map<ReconciliationCriteria, ReconciliationResult> findBySorSource(String sorSource);
+
+    /**
+     * @return the number of results currently stored.
+     */
+    int size();
+
+    /**
+     * @return the number of lookups that found a result.
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of lookups that found no result, including expired ones.
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of results removed to stay within the size and weight bounds.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of results removed because their time to live had passed.
+     */
+    long getExpirationCount();
+}
@@ -34,6 +34,12 @@ import java.util.Map;
  */
 public interface IntegrationGateway {
 
+    /**
+     * The metadata entry holding the key that asynchronously dispatched messages are ordered by.  Implementations that
+     * deliver messages later, e.g. from an outbox, deliver the messages with the same key in the order they were dispatched.
+     */
+    String ORDERING_KEY = "openregistry.orderingKey";
+
     /**
      * Take the identity data and put into the 'integration processing pipeline' (asynchronously) for the 3rd party systems to consume.
      * The typical implementation could use an ESB endpoint destination with a predefined message flow.
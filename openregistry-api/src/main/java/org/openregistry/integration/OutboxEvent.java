@@ -0,0 +1,67 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.integration;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * An integration message waiting in the outbox to be dispatched by the {@link IntegrationGateway} that actually
+ * delivers it.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface OutboxEvent {
+
+    Long getId();
+
+    String getDestinationId();
+
+    Serializable getMessageBody();
+
+    Map<String, Object> getMetadata();
+
+    /**
+     * @return the key the event is ordered by: events with the same key are delivered in the order they were added.
+     */
+    String getOrderingKey();
+
+    /**
+     * @return the number of failed delivery attempts so far.
+     */
+    int getAttempts();
+
+    /**
+     * @return the earliest time of the next delivery attempt.
+     */
+    Date getNextAttemptTime();
+
+    /**
+     * @return the reason the last delivery attempt failed, or null.
+     */
+    String getLastError();
+
+    /**
+     * @return true if delivering the event has been given up on.
+     */
+    boolean isDeadLetter();
+}
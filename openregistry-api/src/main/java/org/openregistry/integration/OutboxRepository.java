@@ -0,0 +1,106 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.integration;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores integration messages in the same transaction as the change they describe, until they are delivered.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public interface OutboxRepository {
+
+    /**
+     * Adds an event to the outbox, joining the current transaction if there is one.
+     *
+     * @param destinationId the destination to deliver the message to.
+     * @param messageBody the body of the message.
+     * @param metadata the metadata of the message, or null.
+     * @param orderingKey the key the event is ordered by.
+     * @return the stored event.
+     */
+    OutboxEvent addEvent(String destinationId, Serializable messageBody, Map<String, Object> metadata, String orderingKey);
+
+    /**
+     * Finds the events that are due, oldest first.  An event is never returned while an older event with the same
+     * ordering key is waiting for a retry.  Dead letters are neither returned nor hold back other events.
+     *
+     * @param now the current time.
+     * @param maxEvents the maximum number of events to return.
+     * @return the events, in the order they have to be delivered.  Never null.
+     */
+    List<OutboxEvent> findPublishableEvents(Date now, int maxEvents);
+
+    /**
+     * @param events the delivered events to remove from the outbox.
+     */
+    void removeEvents(Collection<OutboxEvent> events);
+
+    /**
+     * Records a failed delivery attempt.
+     *
+     * @param event the event that could not be delivered.
+     * @param nextAttemptTime the earliest time to try again.
+     * @param error the reason of the failure.
+     */
+    void reschedule(OutboxEvent event, Date nextAttemptTime, String error);
+
+    /**
+     * Gives up on delivering an event.  It is kept in the outbox as a dead letter for an administrator to look at.
+     *
+     * @param event the event that could not be delivered.
+     * @param error the reason of the last failure.
+     */
+    void deadLetter(OutboxEvent event, String error);
+
+    /**
+     * @return the number of events waiting to be delivered, not counting the dead letters.
+     */
+    long countEvents();
+
+    /**
+     * @return the number of events given up on.
+     */
+    long countDeadLetters();
+
+    /**
+     * Takes or renews the lease to publish the outbox, which only one publisher holds at a time, in a transaction of
+     * its own.
+     *
+     * @param publisherId the publisher asking for the lease.
+     * @param now the current time.
+     * @param expiryTime when the lease expires unless it is renewed.
+     * @return true if the publisher holds the lease until the expiry time; false if another publisher holds it.
+     */
+    boolean acquireLease(String publisherId, Date now, Date expiryTime);
+
+    /**
+     * Gives up the lease, if the publisher holds it, so another publisher can take it right away.
+     *
+     * @param publisherId the publisher holding the lease.
+     */
+    void releaseLease(String publisherId);
+}
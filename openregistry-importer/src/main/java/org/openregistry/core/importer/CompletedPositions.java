@@ -0,0 +1,79 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.openregistry.core.importer.FeedFileStatistics.Outcome;
+
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Tracks the records of a file that the workers have finished, which they do out of order.  The watermark is the
+ * number of leading records that are all finished, i.e. the position an import can safely resume from.
+ * <p>
+ * The outcomes of the records below the watermark are counted apart from the live statistics, so a checkpoint only
+ * counts the records it covers; the records finished above the watermark are applied and counted again on resume.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class CompletedPositions {
+
+    private long watermark;
+
+    private final FeedFileStatistics statisticsAtWatermark;
+
+    private final SortedMap<Long, Outcome> completedAboveWatermark = new TreeMap<Long, Outcome>();
+
+    /**
+     * @param watermark the position the import resumes from.
+     * @param statisticsAtWatermark the statistics of the records below it, which are counted on as it advances.
+     */
+    CompletedPositions(final long watermark, final FeedFileStatistics statisticsAtWatermark) {
+        this.watermark = watermark;
+        this.statisticsAtWatermark = statisticsAtWatermark;
+    }
+
+    synchronized void complete(final long position, final Outcome outcome) {
+        if (position < this.watermark) {
+            return;
+        }
+
+        this.completedAboveWatermark.put(position, outcome);
+        while (!this.completedAboveWatermark.isEmpty() && this.completedAboveWatermark.firstKey() == this.watermark) {
+            this.statisticsAtWatermark.record(this.completedAboveWatermark.remove(this.watermark));
+            this.watermark++;
+        }
+    }
+
+    synchronized long getWatermark() {
+        return this.watermark;
+    }
+
+    /**
+     * Saves the watermark with the statistics of the records below it.
+     */
+    synchronized void saveTo(final FeedCheckpoint checkpoint) throws IOException {
+        checkpoint.save(this.watermark, this.statisticsAtWatermark);
+    }
+}
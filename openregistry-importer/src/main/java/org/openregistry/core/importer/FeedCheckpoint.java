@@ -0,0 +1,91 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import java.io.*;
+import java.util.Properties;
+
+/**
+ * The progress of the import of a feed file, kept next to it in <i>file</i><code>.checkpoint</code>: the number of
+ * leading records that were applied, along with the statistics of those records.  The checkpoint is replaced atomically, so a
+ * crash leaves either the previous or the new one.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class FeedCheckpoint {
+
+    static final String SUFFIX = ".checkpoint";
+
+    private static final String POSITION = "position";
+
+    private final File file;
+
+    FeedCheckpoint(final File feedFile) {
+        this.file = new File(feedFile.getParentFile(), feedFile.getName() + SUFFIX);
+    }
+
+    boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Restores the statistics from the checkpoint.
+     *
+     * @return the position to resume from, or 0 if there is no checkpoint.
+     */
+    long load(final FeedFileStatistics statistics) throws IOException {
+        if (!this.file.exists()) {
+            return 0;
+        }
+
+        final Properties properties = new Properties();
+        final InputStream inputStream = new FileInputStream(this.file);
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        statistics.restoreCounts(properties);
+        return Long.parseLong(properties.getProperty(POSITION, "0"));
+    }
+
+    void save(final long position, final FeedFileStatistics statistics) throws IOException {
+        final Properties properties = statistics.toProperties();
+        properties.setProperty(POSITION, Long.toString(position));
+
+        final File temporaryFile = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        final OutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            properties.store(outputStream, null);
+        } finally {
+            outputStream.close();
+        }
+
+        // File.renameTo does not replace an existing file on every platform
+        if (!temporaryFile.renameTo(this.file) && !(this.file.delete() && temporaryFile.renameTo(this.file))) {
+            throw new IOException("Unable to replace " + this.file.getAbsolutePath());
+        }
+    }
+
+    void delete() {
+        this.file.delete();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and error statistics of the import of one feed file.  The counters are carried over when an import
+ * resumes after a restart as they were at the position it resumes from (see {@link CompletedPositions}), so the
+ * records applied again are counted once.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class FeedFileStatistics {
+
+    /**
+     * What became of a record.
+     */
+    public enum Outcome {
+        /** The person was added. */
+        ADDED,
+        /** The person was already stored for the SoR and was updated. */
+        UPDATED,
+        /** The record could not be read or did not pass validation. */
+        REJECTED,
+        /** Reconciliation found more than one possible match, or a mismatch. */
+        CONFLICT,
+        /** The record could not be applied because of an unexpected error. */
+        FAILED
+    }
+
+    private final String sorSource;
+
+    private final String fileName;
+
+    private final AtomicLong[] counts = new AtomicLong[Outcome.values().length];
+
+    private volatile long startTime;
+
+    private volatile long endTime;
+
+    private volatile long resumedAt;
+
+    FeedFileStatistics(final String sorSource, final String fileName) {
+        this.sorSource = sorSource;
+        this.fileName = fileName;
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] = new AtomicLong();
+        }
+    }
+
+    public String getSorSource() {
+        return this.sorSource;
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    public long getCount(final Outcome outcome) {
+        return this.counts[outcome.ordinal()].get();
+    }
+
+    /**
+     * @return the number of records applied so far, whatever their outcome.
+     */
+    public long getProcessed() {
+        long processed = 0;
+        for (final AtomicLong count : this.counts) {
+            processed += count.get();
+        }
+        return processed;
+    }
+
+    public long getErrors() {
+        return getCount(Outcome.REJECTED) + getCount(Outcome.CONFLICT) + getCount(Outcome.FAILED);
+    }
+
+    /**
+     * @return the position the import last resumed from, or 0 if it was never interrupted.
+     */
+    public long getResumedAt() {
+        return this.resumedAt;
+    }
+
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * @return when the import finished, or 0 while it is running.
+     */
+    public long getEndTime() {
+        return this.endTime;
+    }
+
+    /**
+     * @return the records applied per second since the import was last started.
+     */
+    public double getRecordsPerSecond() {
+        final long elapsed = (this.endTime != 0 ? this.endTime : System.currentTimeMillis()) - this.startTime;
+        final long processed = getProcessed() - this.resumedAt;
+        return elapsed > 0 ? processed * 1000.0 / elapsed : 0;
+    }
+
+    void record(final Outcome outcome) {
+        this.counts[outcome.ordinal()].incrementAndGet();
+    }
+
+    void started(final long resumedAt) {
+        this.resumedAt = resumedAt;
+        this.startTime = System.currentTimeMillis();
+        this.endTime = 0;
+    }
+
+    void finished() {
+        this.endTime = System.currentTimeMillis();
+    }
+
+    Properties toProperties() {
+        final Properties properties = new Properties();
+        for (final Outcome outcome : Outcome.values()) {
+            properties.setProperty(outcome.name().toLowerCase(), Long.toString(getCount(outcome)));
+        }
+        properties.setProperty("resumed-at", Long.toString(this.resumedAt));
+        properties.setProperty("start-time", Long.toString(this.startTime));
+        properties.setProperty("end-time", Long.toString(this.endTime));
+        properties.setProperty("records-per-second", String.format("%.1f", getRecordsPerSecond()));
+        return properties;
+    }
+
+    /**
+     * @return new statistics of the same file with the same counts.
+     */
+    FeedFileStatistics copyCounts() {
+        final FeedFileStatistics copy = new FeedFileStatistics(this.sorSource, this.fileName);
+        for (int i = 0; i < this.counts.length; i++) {
+            copy.counts[i].set(this.counts[i].get());
+        }
+        return copy;
+    }
+
+    void restoreCounts(final Properties properties) {
+        for (final Outcome outcome : Outcome.values()) {
+            this.counts[outcome.ordinal()].set(Long.parseLong(properties.getProperty(outcome.name().toLowerCase(), "0")));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s: %d added, %d updated, %d rejected, %d conflicts, %d failed (%.1f records/s)", this.sorSource, this.fileName,
+                getCount(Outcome.ADDED), getCount(Outcome.UPDATED), getCount(Outcome.REJECTED), getCount(Outcome.CONFLICT), getCount(Outcome.FAILED),
+                getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,491 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.domain.sor.SorPersonAlreadyExistsException;
+import org.openregistry.core.importer.FeedFileStatistics.Outcome;
+import org.openregistry.core.repository.ReferenceRepository;
+import org.openregistry.core.service.PersonService;
+import org.openregistry.core.service.ServiceExecutionResult;
+import org.openregistry.core.service.reconciliation.ReconciliationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Imports the SoR person feed files dropped into a directory, as an alternative to posting them to the REST API.
+ * Each SoR has a subdirectory named after it, in which XML or CSV files (see {@link PersonRecordReader}) are picked up
+ * once they have not been modified for a while.  Every record is applied as the REST API would apply it: the person
+ * is added, or updated if the SoR already sent it.
+ * <p>
+ * A file is read as a stream by one thread and its records are handed to a fixed number of workers, partitioned by
+ * SoR person id so that the records of one person are applied in order.  The progress is checkpointed next to the
+ * file, so an import that was interrupted resumes where it stopped rather than at the start of the file.  Records
+ * that were applied after the last checkpoint are applied again, which amounts to an update with the same data, and
+ * are only counted once in the statistics.
+ * <p>
+ * When a file is done it is moved to the <code>processed</code> subdirectory with its statistics (<i>file</i><code>.stats</code>)
+ * and the records that could not be applied (<i>file</i><code>.errors</code>).
+ * <p>
+ * The importer can run within the web application, polling the directory, or standalone (see {@link FeedImporterMain}).
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class FeedImporter {
+
+    static final String PROCESSED_DIRECTORY = "processed";
+
+    static final String ERRORS_SUFFIX = ".errors";
+
+    static final String STATISTICS_SUFFIX = ".stats";
+
+    private static final int MAX_RECENT_STATISTICS = 50;
+
+    private static final PersonRecord END_OF_FILE = new PersonRecord();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PersonService personService;
+
+    private final ReferenceRepository referenceRepository;
+
+    private final ObjectFactory<ReconciliationCriteria> reconciliationCriteriaFactory;
+
+    private final File directory;
+
+    private final LinkedList<FeedFileStatistics> recentStatistics = new LinkedList<FeedFileStatistics>();
+
+    private final Object importLock = new Object();
+
+    private int workers = 4;
+
+    private int queueCapacity = 100;
+
+    private int checkpointInterval = 1000;
+
+    private long settleTimeInMillis = 10000;
+
+    private Timer watcher;
+
+    public FeedImporter(final PersonService personService, final ReferenceRepository referenceRepository,
+                        final ObjectFactory<ReconciliationCriteria> reconciliationCriteriaFactory, final File directory) {
+        this.personService = personService;
+        this.referenceRepository = referenceRepository;
+        this.reconciliationCriteriaFactory = reconciliationCriteriaFactory;
+        this.directory = directory;
+    }
+
+    /**
+     * @param workers the number of records applied concurrently.  Defaults to 4.
+     */
+    public void setWorkers(final int workers) {
+        Assert.isTrue(workers > 0, "There must be at least one worker.");
+        this.workers = workers;
+    }
+
+    /**
+     * @param queueCapacity the number of records each worker can have waiting, which bounds how far the reader gets ahead.
+     * Defaults to 100.
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        Assert.isTrue(queueCapacity > 0, "The queue capacity must be positive.");
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param checkpointInterval the number of records read between checkpoints.  Defaults to 1000.
+     */
+    public void setCheckpointInterval(final int checkpointInterval) {
+        Assert.isTrue(checkpointInterval > 0, "The checkpoint interval must be positive.");
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @param settleTimeInSeconds how long a file must go unmodified before it is considered completely written.  Defaults to 10.
+     */
+    public void setSettleTimeInSeconds(final int settleTimeInSeconds) {
+        this.settleTimeInMillis = settleTimeInSeconds * 1000L;
+    }
+
+    /**
+     * Polls the directory every <code>watchIntervalInSeconds</code> seconds and imports the files that were dropped into it.
+     *
+     * @param watchIntervalInSeconds the polling interval.  Zero or less disables the watcher.
+     */
+    public synchronized void setWatchIntervalInSeconds(final int watchIntervalInSeconds) {
+        stopWatching();
+
+        if (watchIntervalInSeconds <= 0) {
+            return;
+        }
+
+        final long period = watchIntervalInSeconds * 1000L;
+        this.watcher = new Timer("feed-importer-watcher", true);
+        this.watcher.schedule(new TimerTask() {
+            public void run() {
+                try {
+                    scan();
+                } catch (final RuntimeException e) {
+                    logger.error("Unable to import the feed files in [" + directory.getAbsolutePath() + "].", e);
+                }
+            }
+        }, period, period);
+    }
+
+    @PreDestroy
+    public synchronized void stopWatching() {
+        if (this.watcher != null) {
+            this.watcher.cancel();
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * @return the statistics of the files imported recently, most recent first, including the one being imported.
+     */
+    public List<FeedFileStatistics> getRecentStatistics() {
+        synchronized (this.recentStatistics) {
+            return new ArrayList<FeedFileStatistics>(this.recentStatistics);
+        }
+    }
+
+    /**
+     * Imports every feed file waiting in the directory, in name order within each SoR.  Interrupted imports are resumed.
+     *
+     * @return the statistics of the files imported.
+     */
+    public List<FeedFileStatistics> scan() {
+        final List<FeedFileStatistics> statistics = new ArrayList<FeedFileStatistics>();
+        final File[] sorDirectories = this.directory.listFiles();
+
+        if (sorDirectories == null) {
+            logger.debug("Feed directory [" + this.directory.getAbsolutePath() + "] does not exist.");
+            return statistics;
+        }
+
+        synchronized (this.importLock) {
+            for (final File sorDirectory : sorDirectories) {
+                final File[] files = sorDirectory.listFiles();
+                if (files == null) {
+                    continue;
+                }
+                Arrays.sort(files);
+
+                for (final File file : files) {
+                    if (isReady(file)) {
+                        statistics.add(importFile(sorDirectory.getName(), file));
+                    }
+                }
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Imports one feed file, resuming from its checkpoint if there is one.  The file is moved to the <code>processed</code>
+     * directory next to it once all its records were applied; if the import is interrupted it is left in place.
+     *
+     * @param sorSource the SoR the file comes from.
+     * @param file the file.
+     * @return the statistics of the import.
+     */
+    public FeedFileStatistics importFile(final String sorSource, final File file) {
+        final FeedFileStatistics statistics = new FeedFileStatistics(sorSource, file.getName());
+
+        synchronized (this.importLock) {
+            synchronized (this.recentStatistics) {
+                this.recentStatistics.addFirst(statistics);
+                if (this.recentStatistics.size() > MAX_RECENT_STATISTICS) {
+                    this.recentStatistics.removeLast();
+                }
+            }
+
+            try {
+                if (new FileImport(sorSource, file, statistics).run()) {
+                    logger.info("Imported feed file " + statistics);
+                }
+            } catch (final IOException e) {
+                logger.error("Unable to import feed file [" + file.getAbsolutePath() + "]; it will be resumed.", e);
+            }
+        }
+        return statistics;
+    }
+
+    private boolean isReady(final File file) {
+        return file.isFile() && PersonRecordReader.isSupported(file)
+                && (new FeedCheckpoint(file).exists() || System.currentTimeMillis() - file.lastModified() >= this.settleTimeInMillis);
+    }
+
+    static int partition(final String sorId, final int partitions) {
+        return (sorId.hashCode() & Integer.MAX_VALUE) % partitions;
+    }
+
+    /**
+     * The import of one file.
+     */
+    private final class FileImport {
+
+        private final String sorSource;
+
+        private final File file;
+
+        private final FeedFileStatistics statistics;
+
+        private final FeedCheckpoint checkpoint;
+
+        private CompletedPositions completedPositions;
+
+        private PrintWriter errors;
+
+        private FileImport(final String sorSource, final File file, final FeedFileStatistics statistics) {
+            this.sorSource = sorSource;
+            this.file = file;
+            this.statistics = statistics;
+            this.checkpoint = new FeedCheckpoint(file);
+        }
+
+        /**
+         * @return true if the whole file was imported, false if the import was interrupted.
+         */
+        boolean run() throws IOException {
+            final long resumeAt = this.checkpoint.load(this.statistics);
+            if (resumeAt > 0) {
+                logger.info(String.format("Resuming import of feed file [%s] at record %d", this.file.getAbsolutePath(), resumeAt));
+            }
+
+            this.statistics.started(resumeAt);
+            this.completedPositions = new CompletedPositions(resumeAt, this.statistics.copyCounts());
+            final PersonRecordReader reader = PersonRecordReader.forFile(this.file);
+            try {
+                this.errors = new PrintWriter(new OutputStreamWriter(new FileOutputStream(sibling(ERRORS_SUFFIX), resumeAt > 0), "UTF-8"));
+            } catch (final IOException e) {
+                reader.close();
+                throw e;
+            }
+
+            final List<BlockingQueue<PersonRecord>> queues = new ArrayList<BlockingQueue<PersonRecord>>(workers);
+            final List<Thread> threads = new ArrayList<Thread>(workers);
+            for (int i = 0; i < workers; i++) {
+                final BlockingQueue<PersonRecord> queue = new ArrayBlockingQueue<PersonRecord>(queueCapacity);
+                final Thread thread = new Thread(new Worker(queue), "feed-importer-" + this.sorSource + "-" + i);
+                queues.add(queue);
+                threads.add(thread);
+                thread.start();
+            }
+
+            boolean interrupted = false;
+            try {
+                long position = 0;
+                long sinceCheckpoint = 0;
+
+                while (true) {
+                    final PersonRecord record;
+                    try {
+                        record = reader.next();
+                    } catch (final IllegalArgumentException e) {
+                        if (position >= resumeAt) {
+                            finished(position, null, Outcome.REJECTED, e.getMessage());
+                        }
+                        position++;
+                        continue;
+                    }
+
+                    if (record == null) {
+                        break;
+                    }
+
+                    position = record.position + 1;
+                    if (record.position < resumeAt) {
+                        continue;
+                    }
+
+                    if (record.systemOfRecordPersonId == null) {
+                        finished(record.position, null, Outcome.REJECTED, "The record has no SoR person id.");
+                    } else {
+                        queues.get(partition(record.systemOfRecordPersonId, queues.size())).put(record);
+                    }
+
+                    if (++sinceCheckpoint == checkpointInterval) {
+                        this.completedPositions.saveTo(this.checkpoint);
+                        sinceCheckpoint = 0;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            } finally {
+                for (final BlockingQueue<PersonRecord> queue : queues) {
+                    try {
+                        if (!interrupted) {
+                            queue.put(END_OF_FILE);
+                        }
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                for (final Thread thread : threads) {
+                    if (interrupted) {
+                        thread.interrupt();
+                    }
+                }
+                for (final Thread thread : threads) {
+                    try {
+                        thread.join();
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                reader.close();
+                this.errors.close();
+            }
+
+            if (interrupted) {
+                this.completedPositions.saveTo(this.checkpoint);
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            this.statistics.finished();
+            writeStatistics();
+            moveToProcessed();
+            this.checkpoint.delete();
+            return true;
+        }
+
+        private void apply(final PersonRecord record) {
+            final String sorId = record.systemOfRecordPersonId;
+            try {
+                final ReconciliationCriteria criteria = PersonRecords.toReconciliationCriteria(record, this.sorSource,
+                        reconciliationCriteriaFactory, referenceRepository);
+                try {
+                    final ServiceExecutionResult<Person> result = personService.addPerson(criteria);
+                    if (result.succeeded()) {
+                        finished(record.position, sorId, Outcome.ADDED, null);
+                    } else {
+                        finished(record.position, sorId, Outcome.REJECTED, describe(result.getValidationErrors()));
+                    }
+                } catch (final SorPersonAlreadyExistsException e) {
+                    update(record);
+                }
+            } catch (final ReconciliationException e) {
+                finished(record.position, sorId, Outcome.CONFLICT, e.getReconciliationType() + ": " + e.getMessage());
+            } catch (final IllegalArgumentException e) {
+                finished(record.position, sorId, Outcome.REJECTED, e.getMessage());
+            } catch (final IllegalStateException e) {
+                finished(record.position, sorId, Outcome.CONFLICT, e.getMessage());
+            } catch (final RuntimeException e) {
+                logger.error(String.format("Unable to apply record %d of feed file [%s]", record.position, this.file.getAbsolutePath()), e);
+                finished(record.position, sorId, Outcome.FAILED, e.toString());
+            }
+        }
+
+        private void update(final PersonRecord record) {
+            final SorPerson sorPerson = personService.findBySorIdentifierAndSource(this.sorSource, record.systemOfRecordPersonId);
+            if (sorPerson == null) {
+                finished(record.position, record.systemOfRecordPersonId, Outcome.FAILED, "The person was deleted while it was being updated.");
+                return;
+            }
+
+            PersonRecords.updateSorPerson(record, sorPerson, referenceRepository);
+            final ServiceExecutionResult<SorPerson> result = personService.updateSorPerson(sorPerson);
+            if (result.getValidationErrors().isEmpty()) {
+                finished(record.position, record.systemOfRecordPersonId, Outcome.UPDATED, null);
+            } else {
+                finished(record.position, record.systemOfRecordPersonId, Outcome.REJECTED, describe(result.getValidationErrors()));
+            }
+        }
+
+        private void finished(final long position, final String sorId, final Outcome outcome, final String error) {
+            if (error != null) {
+                synchronized (this.errors) {
+                    this.errors.println(position + "\t" + (sorId != null ? sorId : "") + "\t" + outcome + "\t" + error);
+                }
+            }
+            this.statistics.record(outcome);
+            this.completedPositions.complete(position, outcome);
+        }
+
+        private String describe(final Set<ConstraintViolation> validationErrors) {
+            final StringBuilder builder = new StringBuilder();
+            for (final ConstraintViolation violation : validationErrors) {
+                builder.append(builder.length() > 0 ? "; " : "").append(String.format("%s: [%s]", violation.getMessage(), violation.getInvalidValue()));
+            }
+            return builder.toString();
+        }
+
+        private void writeStatistics() throws IOException {
+            final OutputStream outputStream = new FileOutputStream(sibling(STATISTICS_SUFFIX));
+            try {
+                this.statistics.toProperties().store(outputStream, this.sorSource + "/" + this.file.getName());
+            } finally {
+                outputStream.close();
+            }
+        }
+
+        private void moveToProcessed() throws IOException {
+            final File processedDirectory = new File(this.file.getParentFile(), PROCESSED_DIRECTORY);
+            if (!processedDirectory.isDirectory() && !processedDirectory.mkdir()) {
+                throw new IOException("Unable to create " + processedDirectory.getAbsolutePath());
+            }
+
+            for (final File source : new File[] {sibling(ERRORS_SUFFIX), sibling(STATISTICS_SUFFIX), this.file}) {
+                final File target = new File(processedDirectory, source.getName());
+                target.delete();
+                if (!source.renameTo(target)) {
+                    throw new IOException("Unable to move " + source.getAbsolutePath() + " to " + processedDirectory.getAbsolutePath());
+                }
+            }
+        }
+
+        private File sibling(final String suffix) {
+            return new File(this.file.getParentFile(), this.file.getName() + suffix);
+        }
+
+        private final class Worker implements Runnable {
+
+            private final BlockingQueue<PersonRecord> queue;
+
+            private Worker(final BlockingQueue<PersonRecord> queue) {
+                this.queue = queue;
+            }
+
+            public void run() {
+                try {
+                    for (PersonRecord record = this.queue.take(); record != END_OF_FILE; record = this.queue.take()) {
+                        apply(record);
+                    }
+                } catch (final InterruptedException e) {
+                    // the import was interrupted; the records left are applied when it resumes
+                }
+            }
+        }
+    }
+}
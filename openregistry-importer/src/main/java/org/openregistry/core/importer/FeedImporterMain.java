@@ -0,0 +1,53 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.FileSystemXmlApplicationContext;
+
+/**
+ * Runs the {@link FeedImporter} outside of the web application: imports every feed file waiting in the directory and
+ * exits, so it can be scheduled, e.g. with cron.  The arguments are the locations of the Spring configuration, which is
+ * the web application's configuration of the services and repositories plus a definition of the importer.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class FeedImporterMain {
+
+    private FeedImporterMain() {
+    }
+
+    public static void main(final String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java " + FeedImporterMain.class.getName() + " <Spring configuration location>...");
+            System.exit(1);
+        }
+
+        final ConfigurableApplicationContext applicationContext = new FileSystemXmlApplicationContext(args);
+        try {
+            for (final FeedFileStatistics statistics : applicationContext.getBean(FeedImporter.class).scan()) {
+                System.out.println(statistics);
+            }
+        } finally {
+            applicationContext.close();
+        }
+    }
+}
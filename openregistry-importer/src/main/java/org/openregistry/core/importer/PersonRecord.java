@@ -0,0 +1,93 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A simple struct-like class holding one person record of a feed file.  It carries the same data as the
+ * <code>open-registry-person</code> representation accepted by the REST API.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class PersonRecord {
+
+    /**
+     * The position of the record in the feed file, starting at 0.
+     */
+    public long position;
+
+    public String systemOfRecordPersonId;
+
+    public Date dateOfBirth;
+
+    public String ssn;
+
+    public String gender;
+
+    public List<Name> names = new ArrayList<Name>();
+
+    public String addressLine1;
+
+    public String addressLine2;
+
+    public String city;
+
+    public String region;
+
+    public String postalCode;
+
+    public String email;
+
+    public String phoneNumber;
+
+    /**
+     * The reconciliation identifiers, keyed by identifier type.
+     */
+    public Map<String, String> identifiers = new LinkedHashMap<String, String>();
+
+    public static final class Name {
+
+        public String nameType;
+
+        public String firstName;
+
+        public String lastName;
+
+        public String middleName;
+
+        public String prefix;
+
+        public String suffix;
+    }
+
+    @Override
+    public String toString() {
+        return "PersonRecord{" +
+                "position=" + position +
+                ", systemOfRecordPersonId='" + systemOfRecordPersonId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads the person records of a feed file one at a time, so that the file never has to be held in memory.
+ * Two formats are supported:
+ * <ul>
+ * <li>XML: an <code>open-registry-people</code> element containing any number of <code>open-registry-person</code>
+ * elements, as accepted by the REST API.  The file is read with a StAX cursor.</li>
+ * <li>CSV: a header row naming the columns, followed by one person per row.  The columns are <code>sor-person-id</code>,
+ * <code>name-type</code>, <code>first</code>, <code>middle</code>, <code>last</code>, <code>prefix</code>, <code>suffix</code>,
+ * <code>dob</code>, <code>ssn</code>, <code>gender</code>, <code>address-line1</code>, <code>address-line2</code>,
+ * <code>city</code>, <code>region</code>, <code>postal-code</code>, <code>email</code>, <code>phone</code> and
+ * <code>identifier.</code><i>TYPE</i>, in any order.</li>
+ * </ul>
+ * Dates are ISO 8601, e.g. <code>1970-01-15</code>.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public abstract class PersonRecordReader implements Closeable {
+
+    private static final DatatypeFactory DATATYPE_FACTORY;
+
+    static {
+        try {
+            DATATYPE_FACTORY = DatatypeFactory.newInstance();
+        } catch (final DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the next person record.
+     *
+     * @return the next record, or null if there are no more records.
+     * @throws IllegalArgumentException if the next record cannot be parsed.  The record still takes up a position; if
+     * the rest of the file can be read the reader skips the record, otherwise it returns null from then on.
+     */
+    public abstract PersonRecord next() throws IllegalArgumentException;
+
+    /**
+     * Returns a reader for the file, based on its extension.
+     *
+     * @throws IllegalArgumentException if the file is neither an XML nor a CSV file.
+     */
+    public static PersonRecordReader forFile(final File file) throws IOException, IllegalArgumentException {
+        final String name = file.getName().toLowerCase();
+        if (name.endsWith(".xml")) {
+            return forXml(new BufferedInputStream(new FileInputStream(file)));
+        }
+        if (name.endsWith(".csv")) {
+            return forCsv(new FileInputStream(file));
+        }
+        throw new IllegalArgumentException("Unsupported feed file: " + file.getName());
+    }
+
+    public static PersonRecordReader forXml(final InputStream inputStream) {
+        return new XmlPersonRecordReader(inputStream);
+    }
+
+    public static PersonRecordReader forCsv(final InputStream inputStream) {
+        return new CsvPersonRecordReader(inputStream);
+    }
+
+    static boolean isSupported(final File file) {
+        final String name = file.getName().toLowerCase();
+        return name.endsWith(".xml") || name.endsWith(".csv");
+    }
+
+    static Date parseDate(final String value) throws IllegalArgumentException {
+        return value != null ? DATATYPE_FACTORY.newXMLGregorianCalendar(value.trim()).toGregorianCalendar().getTime() : null;
+    }
+
+    private static String emptyToNull(final String value) {
+        return value == null || value.trim().length() == 0 ? null : value.trim();
+    }
+
+    private static final class XmlPersonRecordReader extends PersonRecordReader {
+
+        private static final String PERSON_ELEMENT = "open-registry-person";
+
+        private final InputStream inputStream;
+
+        private XMLStreamReader xmlStreamReader;
+
+        private boolean finished;
+
+        private long position;
+
+        private XmlPersonRecordReader(final InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        public PersonRecord next() throws IllegalArgumentException {
+            if (this.finished) {
+                return null;
+            }
+
+            try {
+                if (this.xmlStreamReader == null) {
+                    this.xmlStreamReader = XMLInputFactory.newInstance().createXMLStreamReader(this.inputStream);
+                }
+
+                while (this.xmlStreamReader.hasNext()) {
+                    if (this.xmlStreamReader.isStartElement() && PERSON_ELEMENT.equals(this.xmlStreamReader.getLocalName())) {
+                        return readPerson();
+                    }
+                    this.xmlStreamReader.next();
+                }
+                this.finished = true;
+                return null;
+            } catch (final XMLStreamException e) {
+                this.finished = true;
+                throw new IllegalArgumentException("Unable to read the feed file: " + e.getMessage(), e);
+            }
+        }
+
+        private PersonRecord readPerson() throws XMLStreamException, IllegalArgumentException {
+            final XMLStreamReader xml = this.xmlStreamReader;
+            final PersonRecord record = new PersonRecord();
+            record.position = this.position++;
+            record.systemOfRecordPersonId = emptyToNull(xml.getAttributeValue(null, "sor-person-id"));
+            String error = null;
+
+            while (true) {
+                if (!xml.hasNext()) {
+                    throw new XMLStreamException("Unexpected end of file in record " + record.position);
+                }
+
+                final int event = xml.next();
+                if (event == XMLStreamReader.END_ELEMENT && PERSON_ELEMENT.equals(xml.getLocalName())) {
+                    break;
+                }
+                if (event != XMLStreamReader.START_ELEMENT) {
+                    continue;
+                }
+
+                final String element = xml.getLocalName();
+                if ("dob".equals(element)) {
+                    try {
+                        record.dateOfBirth = parseDate(emptyToNull(xml.getElementText()));
+                    } catch (final IllegalArgumentException e) {
+                        error = "Invalid date of birth in record " + record.position;
+                    }
+                } else if ("ssn".equals(element)) {
+                    record.ssn = emptyToNull(xml.getElementText());
+                } else if ("gender".equals(element)) {
+                    record.gender = emptyToNull(xml.getElementText());
+                } else if ("name".equals(element)) {
+                    final PersonRecord.Name name = new PersonRecord.Name();
+                    name.nameType = emptyToNull(xml.getAttributeValue(null, "type"));
+                    name.firstName = emptyToNull(xml.getAttributeValue(null, "first"));
+                    name.lastName = emptyToNull(xml.getAttributeValue(null, "last"));
+                    name.middleName = emptyToNull(xml.getAttributeValue(null, "middle"));
+                    name.prefix = emptyToNull(xml.getAttributeValue(null, "prefix"));
+                    name.suffix = emptyToNull(xml.getAttributeValue(null, "suffix"));
+                    record.names.add(name);
+                } else if ("address-line1".equals(element)) {
+                    record.addressLine1 = emptyToNull(xml.getElementText());
+                } else if ("address-line2".equals(element)) {
+                    record.addressLine2 = emptyToNull(xml.getElementText());
+                } else if ("city".equals(element)) {
+                    record.city = emptyToNull(xml.getElementText());
+                } else if ("region".equals(element)) {
+                    record.region = emptyToNull(xml.getElementText());
+                } else if ("postal-code".equals(element)) {
+                    record.postalCode = emptyToNull(xml.getElementText());
+                } else if ("email".equals(element)) {
+                    // like the REST API, only the first email and phone are used
+                    final String email = emptyToNull(xml.getElementText());
+                    record.email = record.email != null ? record.email : email;
+                } else if ("phone".equals(element)) {
+                    final String phoneNumber = emptyToNull(xml.getElementText());
+                    record.phoneNumber = record.phoneNumber != null ? record.phoneNumber : phoneNumber;
+                } else if ("identifier".equals(element)) {
+                    final String type = xml.getAttributeValue(null, "type");
+                    record.identifiers.put(type, emptyToNull(xml.getElementText()));
+                }
+            }
+
+            if (error != null) {
+                throw new IllegalArgumentException(error);
+            }
+            return record;
+        }
+
+        public void close() throws IOException {
+            try {
+                if (this.xmlStreamReader != null) {
+                    this.xmlStreamReader.close();
+                }
+            } catch (final XMLStreamException e) {
+                // the input stream is closed below
+            }
+            this.inputStream.close();
+        }
+    }
+
+    private static final class CsvPersonRecordReader extends PersonRecordReader {
+
+        private static final String IDENTIFIER_COLUMN_PREFIX = "identifier.";
+
+        private static final List<String> COLUMNS = Arrays.asList("sor-person-id", "name-type", "first", "middle", "last", "prefix", "suffix",
+                "dob", "ssn", "gender", "address-line1", "address-line2", "city", "region", "postal-code", "email", "phone");
+
+        private final BufferedReader reader;
+
+        private List<String> columns;
+
+        private boolean finished;
+
+        private long position;
+
+        private CsvPersonRecordReader(final InputStream inputStream) {
+            try {
+                this.reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            } catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public PersonRecord next() throws IllegalArgumentException {
+            if (this.finished) {
+                return null;
+            }
+
+            try {
+                if (this.columns == null) {
+                    this.columns = readRow();
+                    if (this.columns == null) {
+                        this.finished = true;
+                        return null;
+                    }
+                    for (final String column : this.columns) {
+                        if (!COLUMNS.contains(column.trim()) && !column.trim().startsWith(IDENTIFIER_COLUMN_PREFIX)) {
+                            this.finished = true;
+                            throw new IllegalArgumentException("Unknown column: " + column);
+                        }
+                    }
+                }
+
+                List<String> row;
+                do {
+                    row = readRow();
+                } while (row != null && row.size() == 1 && row.get(0).trim().length() == 0);
+
+                if (row == null) {
+                    this.finished = true;
+                    return null;
+                }
+                return toRecord(this.position++, row);
+            } catch (final IOException e) {
+                this.finished = true;
+                throw new IllegalArgumentException("Unable to read the feed file: " + e.getMessage(), e);
+            }
+        }
+
+        private PersonRecord toRecord(final long position, final List<String> row) throws IllegalArgumentException {
+            if (row.size() != this.columns.size()) {
+                throw new IllegalArgumentException(String.format("Record %d has %d columns instead of %d", position, row.size(), this.columns.size()));
+            }
+
+            final PersonRecord record = new PersonRecord();
+            final PersonRecord.Name name = new PersonRecord.Name();
+            record.position = position;
+
+            for (int i = 0; i < row.size(); i++) {
+                final String column = this.columns.get(i).trim();
+                final String value = emptyToNull(row.get(i));
+
+                if ("sor-person-id".equals(column)) {
+                    record.systemOfRecordPersonId = value;
+                } else if ("name-type".equals(column)) {
+                    name.nameType = value;
+                } else if ("first".equals(column)) {
+                    name.firstName = value;
+                } else if ("middle".equals(column)) {
+                    name.middleName = value;
+                } else if ("last".equals(column)) {
+                    name.lastName = value;
+                } else if ("prefix".equals(column)) {
+                    name.prefix = value;
+                } else if ("suffix".equals(column)) {
+                    name.suffix = value;
+                } else if ("dob".equals(column)) {
+                    try {
+                        record.dateOfBirth = parseDate(value);
+                    } catch (final IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid date of birth in record " + position);
+                    }
+                } else if ("ssn".equals(column)) {
+                    record.ssn = value;
+                } else if ("gender".equals(column)) {
+                    record.gender = value;
+                } else if ("address-line1".equals(column)) {
+                    record.addressLine1 = value;
+                } else if ("address-line2".equals(column)) {
+                    record.addressLine2 = value;
+                } else if ("city".equals(column)) {
+                    record.city = value;
+                } else if ("region".equals(column)) {
+                    record.region = value;
+                } else if ("postal-code".equals(column)) {
+                    record.postalCode = value;
+                } else if ("email".equals(column)) {
+                    record.email = value;
+                } else if ("phone".equals(column)) {
+                    record.phoneNumber = value;
+                } else if (value != null) {
+                    record.identifiers.put(column.substring(IDENTIFIER_COLUMN_PREFIX.length()), value);
+                }
+            }
+
+            if (name.firstName != null || name.lastName != null) {
+                record.names.add(name);
+            }
+            return record;
+        }
+
+        /**
+         * Reads one row, allowing quoted fields with embedded separators, quotes ("") and line breaks.
+         *
+         * @return the fields of the row, or null at the end of the file.
+         */
+        private List<String> readRow() throws IOException {
+            int c = this.reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            final List<String> fields = new ArrayList<String>();
+            final StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field in record " + this.position);
+                    }
+                    if (c == '"') {
+                        c = this.reader.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = this.reader.read();
+            }
+        }
+
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.openregistry.core.domain.IdentifierType;
+import org.openregistry.core.domain.Type;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.ReferenceRepository;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps person records to the domain the way the REST API maps its person representations.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class PersonRecords {
+
+    /**
+     * The phone number formats accepted by the REST API, e.g. (NNN) NNN-NNNN, +N-NNN-NNN-NNNN or NNN-NNNN xNNN.
+     */
+    private static final Pattern PHONE_NUMBER_PATTERN = Pattern.compile("^(\\+(\\d{1,3})[- ])?(\\(?(\\d{3})\\)?[- ]?)?((\\d{3})[- ]?(\\d{4}))([ ]?x(\\d+))?$");
+
+    private PersonRecords() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record names an unknown identifier type.
+     */
+    static ReconciliationCriteria toReconciliationCriteria(final PersonRecord record, final String sorSource, final ObjectFactory<ReconciliationCriteria> factory,
+                                                           final ReferenceRepository referenceRepository) throws IllegalArgumentException {
+        final ReconciliationCriteria criteria = factory.getObject();
+        final SorPerson sorPerson = criteria.getSorPerson();
+        sorPerson.setSourceSor(sorSource);
+        sorPerson.setSorId(record.systemOfRecordPersonId);
+        addNames(record, sorPerson, referenceRepository);
+        sorPerson.setDateOfBirth(record.dateOfBirth);
+        sorPerson.setSsn(record.ssn);
+        sorPerson.setGender(record.gender);
+
+        criteria.setAddressLine1(record.addressLine1);
+        criteria.setAddressLine2(record.addressLine2);
+        criteria.setCity(record.city);
+        criteria.setRegion(record.region);
+        criteria.setPostalCode(record.postalCode);
+        criteria.setEmailAddress(record.email);
+
+        if (record.phoneNumber != null) {
+            final Matcher matcher = PHONE_NUMBER_PATTERN.matcher(record.phoneNumber);
+            if (matcher.matches()) {
+                criteria.setPhoneCountryCode(matcher.group(2));
+                criteria.setPhoneAreaCode(matcher.group(4));
+                criteria.setPhoneNumber(matcher.group(6) + matcher.group(7));
+                criteria.setPhoneExtension(matcher.group(9));
+            }
+        }
+
+        for (final Map.Entry<String, String> identifier : record.identifiers.entrySet()) {
+            final IdentifierType identifierType = referenceRepository.findIdentifierType(identifier.getKey());
+            if (identifierType == null) {
+                throw new IllegalArgumentException("Unknown identifier type: " + identifier.getKey());
+            }
+            criteria.getIdentifiersByType().put(identifierType, identifier.getValue());
+        }
+        return criteria;
+    }
+
+    /**
+     * Applies the record to a person already stored for the SoR, as an update through the REST API would.
+     */
+    static void updateSorPerson(final PersonRecord record, final SorPerson sorPerson, final ReferenceRepository referenceRepository) {
+        if (record.dateOfBirth != null) {
+            sorPerson.setDateOfBirth(record.dateOfBirth);
+        }
+        if (record.ssn != null) {
+            sorPerson.setSsn(record.ssn);
+        }
+        if (record.gender != null) {
+            sorPerson.setGender(record.gender);
+        }
+        if (!record.names.isEmpty()) {
+            sorPerson.getNames().clear();
+            addNames(record, sorPerson, referenceRepository);
+        }
+    }
+
+    private static void addNames(final PersonRecord record, final SorPerson sorPerson, final ReferenceRepository referenceRepository) {
+        for (final PersonRecord.Name recordName : record.names) {
+            final SorName name = sorPerson.addName();
+            name.setFamily(recordName.lastName);
+            name.setGiven(recordName.firstName);
+            name.setMiddle(recordName.middleName);
+            name.setSuffix(recordName.suffix);
+            name.setPrefix(recordName.prefix);
+
+            final Type type = recordName.nameType != null ? referenceRepository.findType(Type.DataTypes.NAME, recordName.nameType) : null;
+            name.setType(type != null ? type : referenceRepository.findType(Type.DataTypes.NAME, Type.NameTypes.FORMAL));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.junit.Test;
+import org.openregistry.core.importer.FeedFileStatistics.Outcome;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link CompletedPositions}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CompletedPositionsTests {
+
+    @Test
+    public void testWatermarkOnlyAdvancesOverLeadingCompletedPositions() {
+        final CompletedPositions completedPositions = new CompletedPositions(0, new FeedFileStatistics("test", "people.csv"));
+
+        completedPositions.complete(1, Outcome.ADDED);
+        completedPositions.complete(2, Outcome.ADDED);
+        assertEquals(0, completedPositions.getWatermark());
+
+        completedPositions.complete(0, Outcome.ADDED);
+        assertEquals(3, completedPositions.getWatermark());
+
+        completedPositions.complete(4, Outcome.ADDED);
+        assertEquals(3, completedPositions.getWatermark());
+    }
+
+    @Test
+    public void testResumedPositionsBelowWatermarkAreIgnored() {
+        final CompletedPositions completedPositions = new CompletedPositions(10, new FeedFileStatistics("test", "people.csv"));
+
+        completedPositions.complete(3, Outcome.ADDED);
+        assertEquals(10, completedPositions.getWatermark());
+
+        completedPositions.complete(10, Outcome.ADDED);
+        assertEquals(11, completedPositions.getWatermark());
+    }
+
+    @Test
+    public void testCheckpointOnlyCountsRecordsBelowWatermark() throws Exception {
+        final FeedFileStatistics resumed = new FeedFileStatistics("test", "people.csv");
+        resumed.record(Outcome.ADDED);
+        final CompletedPositions completedPositions = new CompletedPositions(1, resumed);
+
+        completedPositions.complete(1, Outcome.UPDATED);
+        completedPositions.complete(3, Outcome.REJECTED);
+
+        final File file = File.createTempFile("people", ".csv");
+        final FeedCheckpoint checkpoint = new FeedCheckpoint(file);
+        try {
+            completedPositions.saveTo(checkpoint);
+
+            final FeedFileStatistics statistics = new FeedFileStatistics("test", "people.csv");
+            assertEquals(2, checkpoint.load(statistics));
+            assertEquals(1, statistics.getCount(Outcome.ADDED));
+            assertEquals(1, statistics.getCount(Outcome.UPDATED));
+            assertEquals(0, statistics.getCount(Outcome.REJECTED));
+        } finally {
+            checkpoint.delete();
+            file.delete();
+        }
+    }
+}
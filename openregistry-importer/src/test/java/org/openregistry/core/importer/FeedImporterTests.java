@@ -0,0 +1,222 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.jasig.openregistry.test.domain.MockReconciliationCriteriaFactory;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.jasig.openregistry.test.repository.MockReferenceRepository;
+import org.jasig.openregistry.test.service.MockPersonService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.domain.sor.SorPersonAlreadyExistsException;
+import org.openregistry.core.importer.FeedFileStatistics.Outcome;
+import org.openregistry.core.service.ServiceExecutionResult;
+
+import javax.validation.ConstraintViolation;
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link FeedImporter}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class FeedImporterTests {
+
+    private File directory;
+
+    private File sorDirectory;
+
+    private RecordingPersonService personService;
+
+    private FeedImporter feedImporter;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = File.createTempFile("feeds", "");
+        this.directory.delete();
+        this.sorDirectory = new File(this.directory, "test");
+        this.sorDirectory.mkdirs();
+
+        this.personService = new RecordingPersonService();
+        this.feedImporter = new FeedImporter(this.personService, new MockReferenceRepository(), new MockReconciliationCriteriaFactory(), this.directory);
+        this.feedImporter.setWorkers(3);
+        this.feedImporter.setQueueCapacity(2);
+        this.feedImporter.setCheckpointInterval(2);
+        this.feedImporter.setSettleTimeInSeconds(0);
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.directory);
+    }
+
+    private static void delete(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (final File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File writeFeed(final String name, final String... rows) throws IOException {
+        final File file = new File(this.sorDirectory, name);
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("sor-person-id,last,first\n");
+            for (final String row : rows) {
+                writer.write(row + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testImportsFileAndMovesItToProcessed() throws Exception {
+        writeFeed("people.csv", "1,Smith,Jane", "existing-2,Jones,Bob", ",Doe,John", "4,Kipling,Rudyard", "5,Austen,Jane");
+
+        final List<FeedFileStatistics> statistics = this.feedImporter.scan();
+
+        assertEquals(1, statistics.size());
+        final FeedFileStatistics fileStatistics = statistics.get(0);
+        assertEquals("test", fileStatistics.getSorSource());
+        assertEquals(3, fileStatistics.getCount(Outcome.ADDED));
+        assertEquals(1, fileStatistics.getCount(Outcome.UPDATED));
+        assertEquals(1, fileStatistics.getCount(Outcome.REJECTED));
+        assertEquals(new HashSet<String>(Arrays.asList("1", "4", "5")), this.personService.getAddedSorIds());
+        assertEquals(Arrays.asList("existing-2"), this.personService.getUpdatedSorIds());
+
+        final File processedDirectory = new File(this.sorDirectory, FeedImporter.PROCESSED_DIRECTORY);
+        assertFalse(new File(this.sorDirectory, "people.csv").exists());
+        assertFalse(new FeedCheckpoint(new File(this.sorDirectory, "people.csv")).exists());
+        assertTrue(new File(processedDirectory, "people.csv").exists());
+        assertTrue(new File(processedDirectory, "people.csv" + FeedImporter.STATISTICS_SUFFIX).exists());
+
+        final BufferedReader errors = new BufferedReader(new FileReader(new File(processedDirectory, "people.csv" + FeedImporter.ERRORS_SUFFIX)));
+        try {
+            assertTrue(errors.readLine().startsWith("2\t\tREJECTED\t"));
+            assertNull(errors.readLine());
+        } finally {
+            errors.close();
+        }
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        final File file = writeFeed("people.csv", "1,Smith,Jane", "2,Jones,Bob", "3,Doe,John", "4,Kipling,Rudyard");
+        final FeedFileStatistics interrupted = new FeedFileStatistics("test", "people.csv");
+        interrupted.record(Outcome.ADDED);
+        interrupted.record(Outcome.ADDED);
+        new FeedCheckpoint(file).save(2, interrupted);
+
+        final FeedFileStatistics statistics = this.feedImporter.importFile("test", file);
+
+        assertEquals(new HashSet<String>(Arrays.asList("3", "4")), this.personService.getAddedSorIds());
+        assertEquals(4, statistics.getCount(Outcome.ADDED));
+        assertEquals(2, statistics.getResumedAt());
+    }
+
+    @Test
+    public void testLeavesFilesThatAreStillBeingWritten() throws Exception {
+        writeFeed("people.csv", "1,Smith,Jane");
+        this.feedImporter.setSettleTimeInSeconds(3600);
+
+        assertTrue(this.feedImporter.scan().isEmpty());
+        assertTrue(new File(this.sorDirectory, "people.csv").exists());
+    }
+
+    @Test
+    public void testPartitionsBySorId() {
+        assertEquals(FeedImporter.partition("12345", 4), FeedImporter.partition("12345", 4));
+        for (int i = 0; i < 100; i++) {
+            final int partition = FeedImporter.partition(Integer.toString(i * 7919), 3);
+            assertTrue(partition >= 0 && partition < 3);
+        }
+    }
+
+    /**
+     * Adds every person, except the ones whose SoR id starts with "existing", which are already stored.
+     */
+    private static final class RecordingPersonService extends MockPersonService {
+
+        private final Set<String> addedSorIds = Collections.synchronizedSet(new HashSet<String>());
+
+        private final List<String> updatedSorIds = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public ServiceExecutionResult<Person> addPerson(final ReconciliationCriteria reconciliationCriteria) throws IllegalArgumentException, SorPersonAlreadyExistsException {
+            final SorPerson sorPerson = reconciliationCriteria.getSorPerson();
+            assertEquals("test", sorPerson.getSourceSor());
+            if (sorPerson.getSorId().startsWith("existing")) {
+                throw new SorPersonAlreadyExistsException(sorPerson);
+            }
+            this.addedSorIds.add(sorPerson.getSorId());
+            return new ServiceExecutionResult<Person>() {
+                public Date getExecutionDate() {
+                    return new Date();
+                }
+
+                public boolean succeeded() {
+                    return true;
+                }
+
+                public Person getTargetObject() {
+                    return null;
+                }
+
+                public Set<ConstraintViolation> getValidationErrors() {
+                    return Collections.emptySet();
+                }
+            };
+        }
+
+        @Override
+        public SorPerson findBySorIdentifierAndSource(final String sorSource, final String sorId) {
+            final MockSorPerson sorPerson = new MockSorPerson();
+            sorPerson.setSorId(sorId);
+            return sorPerson;
+        }
+
+        @Override
+        public ServiceExecutionResult<SorPerson> updateSorPerson(final SorPerson sorPerson) {
+            this.updatedSorIds.add(sorPerson.getSorId());
+            return super.updateSorPerson(sorPerson);
+        }
+
+        Set<String> getAddedSorIds() {
+            return this.addedSorIds;
+        }
+
+        List<String> getUpdatedSorIds() {
+            return this.updatedSorIds;
+        }
+    }
+}
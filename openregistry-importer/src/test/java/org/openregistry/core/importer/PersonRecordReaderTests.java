@@ -0,0 +1,134 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.importer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link PersonRecordReader}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class PersonRecordReaderTests {
+
+    private static ByteArrayInputStream stream(final String content) throws UnsupportedEncodingException {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testReadsXmlRecords() throws Exception {
+        final PersonRecordReader reader = PersonRecordReader.forXml(stream(
+                "<open-registry-people>" +
+                "<open-registry-person sor-person-id=\"1\"><dob>1970-01-15</dob><ssn>123456789</ssn><gender>F</gender>" +
+                "<names><name type=\"FORMAL\" first=\"Jane\" last=\"Smith\"/></names>" +
+                "<reconciliation><address><address-line1>1 Main St</address-line1><city>Newark</city></address>" +
+                "<emails><email>jane@example.org</email><email>other@example.org</email></emails>" +
+                "<identifiers><identifier type=\"NETID\">js1</identifier></identifiers></reconciliation>" +
+                "</open-registry-person>" +
+                "<open-registry-person sor-person-id=\"2\"><names><name first=\"Bob\" last=\"Jones\"/></names></open-registry-person>" +
+                "</open-registry-people>"));
+
+        final PersonRecord first = reader.next();
+        assertEquals(0, first.position);
+        assertEquals("1", first.systemOfRecordPersonId);
+        assertEquals(new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime(), first.dateOfBirth);
+        assertEquals("123456789", first.ssn);
+        assertEquals("Jane", first.names.get(0).firstName);
+        assertEquals("FORMAL", first.names.get(0).nameType);
+        assertEquals("1 Main St", first.addressLine1);
+        assertEquals("Newark", first.city);
+        assertEquals("jane@example.org", first.email);
+        assertEquals("js1", first.identifiers.get("NETID"));
+
+        final PersonRecord second = reader.next();
+        assertEquals(1, second.position);
+        assertEquals("Jones", second.names.get(0).lastName);
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void testSkipsXmlRecordWithInvalidDate() throws Exception {
+        final PersonRecordReader reader = PersonRecordReader.forXml(stream(
+                "<open-registry-people>" +
+                "<open-registry-person sor-person-id=\"1\"><dob>yesterday</dob></open-registry-person>" +
+                "<open-registry-person sor-person-id=\"2\"/>" +
+                "</open-registry-people>"));
+
+        try {
+            reader.next();
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        final PersonRecord record = reader.next();
+        assertEquals(1, record.position);
+        assertEquals("2", record.systemOfRecordPersonId);
+    }
+
+    @Test
+    public void testReadsCsvRecords() throws Exception {
+        final PersonRecordReader reader = PersonRecordReader.forCsv(stream(
+                "sor-person-id,last,first,dob,address-line1,identifier.NETID\r\n" +
+                "1,Smith,Jane,1970-01-15,\"1 Main St, Apt \"\"B\"\"\",js1\r\n" +
+                "\r\n" +
+                "2,O'Brien,\"Bob\",,,\n"));
+
+        final PersonRecord first = reader.next();
+        assertEquals(0, first.position);
+        assertEquals("1", first.systemOfRecordPersonId);
+        assertEquals("Smith", first.names.get(0).lastName);
+        assertEquals("1 Main St, Apt \"B\"", first.addressLine1);
+        assertEquals("js1", first.identifiers.get("NETID"));
+
+        final PersonRecord second = reader.next();
+        assertEquals(1, second.position);
+        assertEquals("Bob", second.names.get(0).firstName);
+        assertNull(second.dateOfBirth);
+        assertTrue(second.identifiers.isEmpty());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testSkipsCsvRowWithWrongNumberOfColumns() throws Exception {
+        final PersonRecordReader reader = PersonRecordReader.forCsv(stream("sor-person-id,last\n1\n2,Jones\n"));
+
+        try {
+            reader.next();
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(1, reader.next().position);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownCsvColumn() throws Exception {
+        PersonRecordReader.forCsv(stream("sor-person-id,shoe-size\n1,42\n")).next();
+    }
+}
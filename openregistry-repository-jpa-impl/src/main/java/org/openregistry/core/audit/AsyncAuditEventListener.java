@@ -0,0 +1,78 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import org.hibernate.envers.event.AuditEventListener;
+import org.hibernate.event.*;
+
+/**
+ * Envers' listener, which also tells the started {@link AsyncAuditWriter}, if there is one, about the transactions
+ * Envers audits.  The writer registers its process with the session after Envers' own, so it gets to journal the
+ * audit rows once Envers saved them.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class AsyncAuditEventListener extends AuditEventListener {
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        super.onPostInsert(event);
+        begin(event.getPersister().getEntityName(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        super.onPostUpdate(event);
+        begin(event.getPersister().getEntityName(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        super.onPostDelete(event);
+        begin(event.getPersister().getEntityName(), event.getSession());
+    }
+
+    @Override
+    public void onPreUpdateCollection(final PreCollectionUpdateEvent event) {
+        super.onPreUpdateCollection(event);
+        begin(event.getAffectedOwnerEntityName(), event.getSession());
+    }
+
+    @Override
+    public void onPreRemoveCollection(final PreCollectionRemoveEvent event) {
+        super.onPreRemoveCollection(event);
+        begin(event.getAffectedOwnerEntityName(), event.getSession());
+    }
+
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        super.onPostRecreateCollection(event);
+        begin(event.getAffectedOwnerEntityName(), event.getSession());
+    }
+
+    private void begin(final String entityName, final EventSource session) {
+        final AsyncAuditWriter asyncAuditWriter = AsyncAuditWriter.getCurrent();
+        // only once Envers registered its own process for the transaction.
+        if (asyncAuditWriter != null && getVerCfg().getEntCfg().isVersioned(entityName)) {
+            asyncAuditWriter.begin(session);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import org.hibernate.HibernateException;
+import org.hibernate.ejb.event.EJB3SaveEventListener;
+import org.hibernate.event.SaveOrUpdateEvent;
+
+import java.util.Map;
+
+/**
+ * Hands the audit rows Envers saves to the started {@link AsyncAuditWriter}, if there is one, instead of inserting
+ * them.  Everything else is saved as usual.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class AsyncAuditSaveEventListener extends EJB3SaveEventListener {
+
+    @Override
+    public void onSaveOrUpdate(final SaveOrUpdateEvent event) throws HibernateException {
+        final AsyncAuditWriter asyncAuditWriter = AsyncAuditWriter.getCurrent();
+        if (asyncAuditWriter != null && asyncAuditWriter.captures(event.getEntityName(), event.getObject())
+                && asyncAuditWriter.capture(event.getSession(), event.getEntityName(), (Map<String, Object>) event.getObject())) {
+            return;
+        }
+        super.onSaveOrUpdate(event);
+    }
+}
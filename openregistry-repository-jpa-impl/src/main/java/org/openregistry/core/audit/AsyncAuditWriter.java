@@ -0,0 +1,411 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import org.hibernate.Session;
+import org.hibernate.action.AfterTransactionCompletionProcess;
+import org.hibernate.action.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.event.EventSource;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Writes the Envers audit rows in the background instead of in the audited transaction.  While a writer is started,
+ * the {@link AsyncAuditSaveEventListener} hands it the rows Envers saves at commit.  Once Envers is done, but before
+ * the transaction commits, they are appended to an {@link AuditJournal} in the given directory, tagged with their
+ * revision.  From there they are written to the audit tables in batches, many transactions per database transaction,
+ * once the transaction committed; the rows of transactions that rolled back are dropped.  Without a started writer,
+ * auditing is synchronous as before.
+ * <p>
+ * The revision rows themselves are still written in the audited transaction, as their ids are needed.  That is also
+ * how the rows of transactions left in the journal by a crash are told apart: they are written only if their revision
+ * exists.  The audit rows reach the tables late, so a {@link PendingAuditRevision} is saved in the audited transaction
+ * and deleted when the rows are written; readers of the audit tables, like the person change feed, stop before the
+ * first pending revision.  A journal lost with the machine (see {@link #setSync(boolean)}) leaves its pending
+ * revisions behind, which have to be deleted by hand.
+ * <p>
+ * Rows are written at least once.  After a crash between writing a batch and recording it in the journal, the batch
+ * is written again one transaction at a time, and the transactions already written are skipped.  Only one writer can
+ * use a journal directory, so every node needs its own.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class AsyncAuditWriter {
+
+    // the prefix of the audit tables and entities configured in persistence.xml.
+    private static final String AUDIT_ENTITY_PREFIX = "aud_";
+
+    private static final ThreadLocal<Boolean> WRITING = new ThreadLocal<Boolean>();
+
+    private static volatile AsyncAuditWriter current;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object writeLock = new Object();
+
+    // the audited transactions in progress, by the session Envers saves their rows in.
+    private final Map<SessionImplementor, CapturedTransaction> capturedTransactions = Collections.synchronizedMap(new WeakHashMap<SessionImplementor, CapturedTransaction>());
+
+    // whether the transactions appended by this process committed, by sequence.
+    private final ConcurrentNavigableMap<Long, Boolean> outcomes = new ConcurrentSkipListMap<Long, Boolean>();
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    private int batchSize = 100;
+
+    private long writeIntervalInMillis = 1000;
+
+    private long maxSegmentSize = 64 * 1024 * 1024L;
+
+    private boolean sync = true;
+
+    private volatile AuditJournal journal;
+
+    private Timer writer;
+
+    public AsyncAuditWriter(final File directory, final PlatformTransactionManager transactionManager) {
+        this.directory = directory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param batchSize the maximum number of audited transactions written in one database transaction.
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param writeIntervalInSeconds how often the journal is written to the audit tables.
+     */
+    public void setWriteIntervalInSeconds(final int writeIntervalInSeconds) {
+        this.writeIntervalInMillis = writeIntervalInSeconds * 1000L;
+    }
+
+    /**
+     * @param maxSegmentSizeInMegabytes the size after which the journal starts a new file.
+     */
+    public void setMaxSegmentSizeInMegabytes(final int maxSegmentSizeInMegabytes) {
+        this.maxSegmentSize = maxSegmentSizeInMegabytes * 1024 * 1024L;
+    }
+
+    /**
+     * @param sync whether the journal is forced to the disk at every commit.  Without it, the rows of the last
+     * transactions are lost if the machine, rather than the application, crashes.
+     */
+    public void setSync(final boolean sync) {
+        this.sync = sync;
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        this.journal = new AuditJournal(this.directory, this.maxSegmentSize, this.sync);
+        if (this.journal.getPendingEntries() > 0) {
+            logger.info("Writing the audit rows of " + this.journal.getPendingEntries() + " transactions left in " + this.directory.getAbsolutePath() + ".");
+        }
+        current = this;
+
+        if (this.writeIntervalInMillis > 0) {
+            this.writer = new Timer("async-audit-writer", true);
+            this.writer.schedule(new TimerTask() {
+                public void run() {
+                    try {
+                        write();
+                    } catch (final Exception e) {
+                        logger.error("Unable to write the audit journal; trying again in the next interval.", e);
+                    }
+                }
+            }, 0, this.writeIntervalInMillis);
+        }
+    }
+
+    /**
+     * Switches back to synchronous auditing and writes what is left in the journal.
+     */
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        if (current == this) {
+            current = null;
+        }
+        if (this.writer != null) {
+            this.writer.cancel();
+            this.writer = null;
+        }
+        if (this.journal == null) {
+            return;
+        }
+
+        try {
+            write();
+        } catch (final Exception e) {
+            logger.error("Unable to write the audit journal; the rows left are written at the next start.", e);
+        }
+        this.journal.close();
+        this.journal = null;
+    }
+
+    static AsyncAuditWriter getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return whether the entity Hibernate is asked to save is an audit row to be written by this writer.
+     */
+    boolean captures(final String entityName, final Object entity) {
+        return !Boolean.TRUE.equals(WRITING.get()) && entity instanceof Map && entityName != null && entityName.startsWith(AUDIT_ENTITY_PREFIX);
+    }
+
+    /**
+     * Prepares to capture the audit rows of the transaction of the session.  Called after each change Envers audits,
+     * so the rows are journaled after Envers saved them.
+     */
+    void begin(final EventSource session) {
+        synchronized (this.capturedTransactions) {
+            if (this.capturedTransactions.containsKey(session)) {
+                return;
+            }
+            final CapturedTransaction capturedTransaction = new CapturedTransaction();
+            this.capturedTransactions.put(session, capturedTransaction);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) capturedTransaction);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) capturedTransaction);
+        }
+    }
+
+    /**
+     * Holds an audit row until the transaction Envers saved it in is about to commit.
+     *
+     * @return false if the row was not saved in a transaction this writer prepared for, e.g. in the temporary session
+     * Envers uses when the session is not flushed; it has to be saved as usual then.
+     */
+    boolean capture(final EventSource session, final String entityName, final Map<String, Object> data) {
+        final CapturedTransaction capturedTransaction = this.capturedTransactions.get(session);
+        if (capturedTransaction == null) {
+            return false;
+        }
+        capturedTransaction.entityNames.add(entityName);
+        capturedTransaction.data.add(data);
+        return true;
+    }
+
+    /**
+     * Writes everything in the journal, up to the first transaction which has not completed yet.
+     *
+     * @return the number of audited transactions written.
+     */
+    public int write() throws IOException {
+        synchronized (this.writeLock) {
+            int written = 0;
+            while (true) {
+                final SortedMap<Long, Serializable> entries = this.journal.read(this.batchSize);
+                final SortedMap<Long, AuditedTransaction> committed = new TreeMap<Long, AuditedTransaction>();
+                final Set<Integer> recoveredRevisions = new HashSet<Integer>();
+                long lastCompleted = 0;
+                boolean completed = true;
+
+                for (final Map.Entry<Long, Serializable> entry : entries.entrySet()) {
+                    final AuditedTransaction transaction = (AuditedTransaction) entry.getValue();
+                    final Boolean outcome = this.outcomes.get(entry.getKey());
+                    if (outcome == null && entry.getKey() > this.journal.getLastSequenceAtOpen()) {
+                        // still committing; read again in the next interval.
+                        this.journal.rewindTo(entry.getKey());
+                        completed = false;
+                        break;
+                    }
+                    if (outcome == null) {
+                        recoveredRevisions.add(transaction.getRevision());
+                    }
+                    if (!Boolean.FALSE.equals(outcome)) {
+                        committed.put(entry.getKey(), transaction);
+                    }
+                    lastCompleted = entry.getKey();
+                }
+
+                if (!recoveredRevisions.isEmpty()) {
+                    // left by an earlier process, which may have crashed before the transaction committed.
+                    final Set<Integer> existingRevisions = findRevisions(recoveredRevisions);
+                    for (final Iterator<Map.Entry<Long, AuditedTransaction>> i = committed.entrySet().iterator(); i.hasNext();) {
+                        final Map.Entry<Long, AuditedTransaction> entry = i.next();
+                        if (!this.outcomes.containsKey(entry.getKey()) && !existingRevisions.contains(entry.getValue().getRevision())) {
+                            logger.info("Dropping audited transaction " + entry.getKey() + " of the journal, as its revision " + entry.getValue().getRevision() + " was not committed.");
+                            i.remove();
+                        }
+                    }
+                }
+
+                if (lastCompleted > 0) {
+                    write(committed, lastCompleted);
+                    this.outcomes.headMap(lastCompleted, true).clear();
+                    written += committed.size();
+                }
+                if (!completed || entries.size() < this.batchSize) {
+                    return written;
+                }
+            }
+        }
+    }
+
+    private void write(final SortedMap<Long, AuditedTransaction> transactions, final long lastCompleted) throws IOException {
+        try {
+            if (!transactions.isEmpty()) {
+                writeInTransaction(transactions.values());
+            }
+        } catch (final RuntimeException e) {
+            // find out which transaction failed; after a crash, the first ones may have been written already.
+            for (final Map.Entry<Long, AuditedTransaction> entry : transactions.entrySet()) {
+                try {
+                    writeInTransaction(Arrays.asList(entry.getValue()));
+                } catch (final RuntimeException e1) {
+                    if (!isConstraintViolation(e1)) {
+                        this.journal.checkpoint(entry.getKey() - 1);
+                        this.journal.rewind();
+                        throw e1;
+                    }
+                    logger.warn("Skipping audited transaction " + entry.getKey() + " of the journal, which is written already.", e1);
+                }
+            }
+        }
+        this.journal.checkpoint(lastCompleted);
+    }
+
+    private void writeInTransaction(final Collection<AuditedTransaction> transactions) {
+        this.transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            protected void doInTransactionWithoutResult(final TransactionStatus transactionStatus) {
+                final Session session = entityManager.unwrap(Session.class);
+                final List<Integer> revisions = new ArrayList<Integer>();
+                WRITING.set(Boolean.TRUE);
+                try {
+                    for (final AuditedTransaction transaction : transactions) {
+                        for (final AuditRow row : transaction.getRows()) {
+                            session.save(row.getEntityName(), row.toEnversData());
+                        }
+                        revisions.add(transaction.getRevision());
+                    }
+                    session.flush();
+                    session.createQuery("delete from pendingAuditRevision p where p.revision in (:revisions)")
+                            .setParameterList("revisions", revisions).executeUpdate();
+                } finally {
+                    WRITING.remove();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return those of the revisions which were committed.
+     */
+    private Set<Integer> findRevisions(final Collection<Integer> revisions) {
+        return this.transactionTemplate.execute(new TransactionCallback<Set<Integer>>() {
+            public Set<Integer> doInTransaction(final TransactionStatus transactionStatus) {
+                final List<Integer> ids = entityManager.createQuery("select r.id from SpringSecurityRevisionEntity r where r.id in (:revisions)")
+                        .setParameter("revisions", revisions).getResultList();
+                return new HashSet<Integer>(ids);
+            }
+        });
+    }
+
+    private static boolean isConstraintViolation(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The audit rows saved in one transaction.  Registered with the session after Envers' own process, so the rows
+     * are journaled after Envers saved them, and before the database commit.
+     */
+    private final class CapturedTransaction implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final List<String> entityNames = new ArrayList<String>();
+
+        private final List<Map<String, Object>> data = new ArrayList<Map<String, Object>>();
+
+        private long sequence;
+
+        public void doBeforeTransactionCompletion(final SessionImplementor session) {
+            if (this.data.isEmpty()) {
+                return;
+            }
+
+            final AuditJournal journal = AsyncAuditWriter.this.journal;
+            if (journal != null) {
+                try {
+                    final List<AuditRow> rows = new ArrayList<AuditRow>();
+                    for (int i = 0; i < this.data.size(); i++) {
+                        rows.add(AuditRow.capture(this.entityNames.get(i), this.data.get(i)));
+                    }
+                    this.sequence = journal.append(new AuditedTransaction(rows.get(0).getRevision(), rows));
+                    ((Session) session).save(new PendingAuditRevision(rows.get(0).getRevision()));
+                    ((Session) session).flush();
+                    return;
+                } catch (final IOException e) {
+                    logger.error("Unable to append to the audit journal; writing the audit rows in the transaction.", e);
+                }
+            }
+
+            // the writer stopped, or the journal failed: save the rows as Envers would have.
+            WRITING.set(Boolean.TRUE);
+            try {
+                for (int i = 0; i < this.data.size(); i++) {
+                    ((Session) session).save(this.entityNames.get(i), this.data.get(i));
+                }
+                ((Session) session).flush();
+            } finally {
+                WRITING.remove();
+            }
+        }
+
+        public void doAfterTransactionCompletion(final boolean success, final SessionImplementor session) {
+            capturedTransactions.remove(session);
+            if (this.sequence > 0) {
+                outcomes.put(this.sequence, success);
+            }
+        }
+    }
+}
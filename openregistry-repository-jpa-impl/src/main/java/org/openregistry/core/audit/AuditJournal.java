@@ -0,0 +1,381 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import java.io.*;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only journal of the audit rows captured at commit, which the {@link AsyncAuditWriter} reads them back
+ * from.  Each audited transaction is one entry with a sequence number, appended before the transaction commits.  The
+ * sequence of the last entry written to the database is kept in <code>audit.checkpoint</code>, which is replaced
+ * atomically; after a crash, the entries after it are read again.
+ * <p>
+ * Entries are appended to segment files named after their first sequence, and a segment is deleted once all of its
+ * entries are checkpointed.  Each entry carries a checksum, so an entry torn by a crash at the end of the last segment
+ * is detected and cut off when the journal is opened.
+ * <p>
+ * The journal holds a lock on <code>audit.lock</code> while it is open, so a second writer pointed at the same
+ * directory, in this or another process, fails to open it instead of appending to the same segments.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class AuditJournal {
+
+    static final String CHECKPOINT_FILE = "audit.checkpoint";
+
+    static final String LOCK_FILE = "audit.lock";
+
+    private static final String SEGMENT_PREFIX = "audit-";
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String SEQUENCE = "sequence";
+
+    // length, sequence and checksum.
+    private static final int HEADER_SIZE = 4 + 8 + 8;
+
+    private final File directory;
+
+    private final long maxSegmentSize;
+
+    private final boolean sync;
+
+    // segment files by the sequence of their first entry.
+    private final SortedMap<Long, File> segments = new TreeMap<Long, File>();
+
+    private long checkpoint;
+
+    private long nextSequence;
+
+    private FileOutputStream segmentOutputStream;
+
+    private DataOutputStream segmentOutput;
+
+    private long segmentSize;
+
+    // where the next read continues.
+    private long readSegment;
+
+    private long readOffset;
+
+    // where the entries returned by the last read start, by sequence.
+    private final Map<Long, long[]> readPositions = new HashMap<Long, long[]>();
+
+    private final RandomAccessFile lockFile;
+
+    private final FileLock lock;
+
+    private final long lastSequenceAtOpen;
+
+    /**
+     * @param directory where the journal is kept.
+     * @param maxSegmentSize the size in bytes after which a new segment is started.
+     * @param sync whether every entry is forced to the disk before {@link #append(Serializable)} returns.
+     */
+    AuditJournal(final File directory, final long maxSegmentSize, final boolean sync) throws IOException {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.sync = sync;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory.getAbsolutePath());
+        }
+        this.lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        this.lock = lock(this.lockFile);
+        if (this.lock == null) {
+            this.lockFile.close();
+            throw new IOException(directory.getAbsolutePath() + " is used by another audit journal.");
+        }
+
+        this.checkpoint = loadCheckpoint();
+        this.nextSequence = this.checkpoint + 1;
+
+        final File[] files = directory.listFiles();
+        for (final File file : files != null ? files : new File[0]) {
+            final String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                this.segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        for (final Iterator<Map.Entry<Long, File>> i = this.segments.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry<Long, File> segment = i.next();
+            final long lastSequence = recover(segment.getKey(), segment.getValue(), !i.hasNext());
+            this.nextSequence = Math.max(this.nextSequence, lastSequence + 1);
+        }
+
+        this.lastSequenceAtOpen = this.nextSequence - 1;
+        rewind();
+        startSegment();
+    }
+
+    private static FileLock lock(final RandomAccessFile lockFile) throws IOException {
+        try {
+            return lockFile.getChannel().tryLock();
+        } catch (final OverlappingFileLockException e) {
+            // held by another journal of this process.
+            return null;
+        }
+    }
+
+    /**
+     * Checks the entries of a segment.
+     *
+     * @return the sequence of the last entry.
+     */
+    private static long recover(final long firstSequence, final File file, final boolean last) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "rw");
+        try {
+            long sequence = firstSequence - 1;
+            long offset = 0;
+            while (offset < input.length()) {
+                input.seek(offset);
+                final Object[] entry = readEntry(input);
+                if (entry == null || (Long) entry[0] != sequence + 1) {
+                    if (!last) {
+                        throw new IOException(file.getAbsolutePath() + " is corrupt at offset " + offset);
+                    }
+                    input.setLength(offset);
+                    break;
+                }
+                sequence++;
+                offset = input.getFilePointer();
+            }
+            return sequence;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return the sequence and the bytes of the entry at the position of the file, or null if it is incomplete or
+     * damaged.
+     */
+    private static Object[] readEntry(final RandomAccessFile input) throws IOException {
+        if (input.length() - input.getFilePointer() < HEADER_SIZE) {
+            return null;
+        }
+        final int length = input.readInt();
+        final long sequence = input.readLong();
+        final long checksum = input.readLong();
+        if (length < 0 || input.length() - input.getFilePointer() < length) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return checksum(bytes) == checksum ? new Object[] {sequence, bytes} : null;
+    }
+
+    private static long checksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private long loadCheckpoint() throws IOException {
+        final File file = new File(this.directory, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        final Properties properties = new Properties();
+        final InputStream inputStream = new FileInputStream(file);
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        return Long.parseLong(properties.getProperty(SEQUENCE, "0"));
+    }
+
+    private void startSegment() throws IOException {
+        final File file = new File(this.directory, String.format("%s%020d%s", SEGMENT_PREFIX, this.nextSequence, SEGMENT_SUFFIX));
+        this.segments.put(this.nextSequence, file);
+        this.segmentOutputStream = new FileOutputStream(file, true);
+        this.segmentOutput = new DataOutputStream(new BufferedOutputStream(this.segmentOutputStream));
+        this.segmentSize = file.length();
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @return the sequence of the entry.
+     */
+    synchronized long append(final Serializable payload) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOutput = new ObjectOutputStream(bytes);
+        objectOutput.writeObject(payload);
+        objectOutput.close();
+        final byte[] entry = bytes.toByteArray();
+
+        if (this.segmentSize >= this.maxSegmentSize) {
+            this.segmentOutput.close();
+            startSegment();
+        }
+
+        final long sequence = this.nextSequence;
+        this.segmentOutput.writeInt(entry.length);
+        this.segmentOutput.writeLong(sequence);
+        this.segmentOutput.writeLong(checksum(entry));
+        this.segmentOutput.write(entry);
+        this.segmentOutput.flush();
+        if (this.sync) {
+            this.segmentOutputStream.getFD().sync();
+        }
+
+        this.segmentSize += HEADER_SIZE + entry.length;
+        this.nextSequence++;
+        return sequence;
+    }
+
+    /**
+     * Reads the entries after the ones read before, from the checkpoint on when the journal was just opened or
+     * rewound.
+     *
+     * @param maxEntries the maximum number of entries to read.
+     * @return the entries by sequence, ascending.
+     */
+    synchronized SortedMap<Long, Serializable> read(final int maxEntries) throws IOException {
+        final SortedMap<Long, Serializable> entries = new TreeMap<Long, Serializable>();
+        this.readPositions.clear();
+
+        while (entries.size() < maxEntries) {
+            final File file = this.segments.get(this.readSegment);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                input.seek(this.readOffset);
+                Object[] entry;
+                while (entries.size() < maxEntries && (entry = readEntry(input)) != null) {
+                    final long offset = this.readOffset;
+                    this.readOffset = input.getFilePointer();
+                    if ((Long) entry[0] > this.checkpoint) {
+                        entries.put((Long) entry[0], deserialize((byte[]) entry[1]));
+                        this.readPositions.put((Long) entry[0], new long[] {this.readSegment, offset});
+                    }
+                }
+            } finally {
+                input.close();
+            }
+
+            if (entries.size() < maxEntries) {
+                final SortedMap<Long, File> later = this.segments.tailMap(this.readSegment + 1);
+                if (later.isEmpty()) {
+                    break;
+                }
+                this.readSegment = later.firstKey();
+                this.readOffset = 0;
+            }
+        }
+        return entries;
+    }
+
+    private static Serializable deserialize(final byte[] bytes) throws IOException {
+        final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (Serializable) input.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IOException(e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Makes the next read start over after the checkpoint, e.g. after the entries read could not be written.
+     */
+    synchronized void rewind() {
+        this.readSegment = this.segments.isEmpty() ? this.nextSequence : this.segments.firstKey();
+        this.readOffset = 0;
+    }
+
+    /**
+     * Makes the next read start at an entry returned by the last read, e.g. one which cannot be written yet; before
+     * any other entry, it starts over after the checkpoint.
+     */
+    synchronized void rewindTo(final long sequence) {
+        final long[] position = this.readPositions.get(sequence);
+        if (position == null) {
+            rewind();
+            return;
+        }
+        this.readSegment = position[0];
+        this.readOffset = position[1];
+    }
+
+    /**
+     * Records that the entries up to the sequence are written, and deletes the segments holding only such entries.
+     */
+    synchronized void checkpoint(final long sequence) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(SEQUENCE, Long.toString(sequence));
+
+        final File file = new File(this.directory, CHECKPOINT_FILE);
+        final File temporaryFile = new File(this.directory, CHECKPOINT_FILE + ".tmp");
+        final FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            properties.store(outputStream, null);
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+
+        // File.renameTo does not replace an existing file on every platform
+        if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+            throw new IOException("Unable to replace " + file.getAbsolutePath());
+        }
+        this.checkpoint = sequence;
+
+        // a segment is done when the next one starts after the checkpoint; the last one is still appended to.
+        final List<Long> firstSequences = new ArrayList<Long>(this.segments.keySet());
+        for (int i = 0; i < firstSequences.size() - 1 && firstSequences.get(i + 1) <= sequence + 1; i++) {
+            final long firstSequence = firstSequences.get(i);
+            if (this.readSegment == firstSequence) {
+                continue;
+            }
+            this.segments.remove(firstSequence).delete();
+        }
+    }
+
+    /**
+     * @return the number of entries appended but not checkpointed yet.
+     */
+    synchronized long getPendingEntries() {
+        return this.nextSequence - 1 - this.checkpoint;
+    }
+
+    /**
+     * @return the sequence of the last entry appended before the journal was opened, that is by an earlier process.
+     */
+    long getLastSequenceAtOpen() {
+        return this.lastSequenceAtOpen;
+    }
+
+    synchronized void close() throws IOException {
+        try {
+            this.segmentOutput.close();
+        } finally {
+            this.lock.release();
+            this.lockFile.close();
+        }
+    }
+}
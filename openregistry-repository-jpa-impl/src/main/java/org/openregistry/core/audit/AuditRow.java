@@ -0,0 +1,79 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An audit row Envers saved at commit, held for the {@link AsyncAuditWriter}.  Envers' data references the revision
+ * entity; only its id is kept, so the row can be serialized to the journal.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class AuditRow implements Serializable {
+
+    // Envers' default names of the composite id and of the revision in it.
+    static final String ORIGINAL_ID = "originalId";
+
+    static final String REVISION = "REV";
+
+    private final String entityName;
+
+    private final HashMap<String, Object> data;
+
+    private AuditRow(final String entityName, final HashMap<String, Object> data) {
+        this.entityName = entityName;
+        this.data = data;
+    }
+
+    static AuditRow capture(final String entityName, final Map<String, Object> enversData) {
+        final HashMap<String, Object> data = new HashMap<String, Object>(enversData);
+        final HashMap<String, Object> originalId = new HashMap<String, Object>((Map<String, Object>) enversData.get(ORIGINAL_ID));
+        originalId.put(REVISION, ((SpringSecurityRevisionEntity) originalId.get(REVISION)).getId());
+        data.put(ORIGINAL_ID, originalId);
+        return new AuditRow(entityName, data);
+    }
+
+    String getEntityName() {
+        return this.entityName;
+    }
+
+    int getRevision() {
+        return (Integer) ((Map<String, Object>) this.data.get(ORIGINAL_ID)).get(REVISION);
+    }
+
+    /**
+     * @return the data in the form Envers saves it, referencing a detached revision entity with the captured id, which
+     * the insert only needs the id of.
+     */
+    Map<String, Object> toEnversData() {
+        final SpringSecurityRevisionEntity revision = new SpringSecurityRevisionEntity();
+        revision.setId(getRevision());
+
+        final Map<String, Object> data = new HashMap<String, Object>(this.data);
+        final Map<String, Object> originalId = new HashMap<String, Object>((Map<String, Object>) this.data.get(ORIGINAL_ID));
+        originalId.put(REVISION, revision);
+        data.put(ORIGINAL_ID, originalId);
+        return data;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The entry of the {@link AuditJournal} for one audited transaction: its revision and the audit rows Envers saved
+ * for it.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class AuditedTransaction implements Serializable {
+
+    private final int revision;
+
+    private final ArrayList<AuditRow> rows;
+
+    AuditedTransaction(final int revision, final List<AuditRow> rows) {
+        this.revision = revision;
+        this.rows = new ArrayList<AuditRow>(rows);
+    }
+
+    int getRevision() {
+        return this.revision;
+    }
+
+    List<AuditRow> getRows() {
+        return this.rows;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A revision whose audit rows are still in the journal of an {@link AsyncAuditWriter}.  Saved in the audited
+ * transaction, so it commits with the revision, and deleted in the transaction writing the audit rows, so readers of
+ * the audit tables can tell how far they are complete.  Not audited.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Entity(name="pendingAuditRevision")
+@Table(name="prc_audit_pending_revisions")
+public class PendingAuditRevision {
+
+    @Id
+    @Column(name="REV")
+    private int revision;
+
+    public PendingAuditRevision() {
+        // nothing else to do
+    }
+
+    public PendingAuditRevision(final int revision) {
+        this.revision = revision;
+    }
+
+    public int getRevision() {
+        return this.revision;
+    }
+}
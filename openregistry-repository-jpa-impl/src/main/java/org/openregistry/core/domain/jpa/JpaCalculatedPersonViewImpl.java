@@ -0,0 +1,73 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Serialized {@link org.openregistry.core.domain.CalculatedPersonView} of a calculated person.  Not audited; the
+ * read model is derived from the calculated person and can always be rebuilt.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="calculatedPersonView")
+@Table(name="prc_person_views")
+public class JpaCalculatedPersonViewImpl {
+
+    @Id
+    @Column(name="person_id")
+    private Long personId;
+
+    @Lob
+    @Column(name="snapshot", nullable=false)
+    private byte[] snapshot;
+
+    @Column(name="last_updated", nullable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastUpdated;
+
+    public JpaCalculatedPersonViewImpl() {
+        // nothing else to do
+    }
+
+    public JpaCalculatedPersonViewImpl(final Long personId, final byte[] snapshot) {
+        this.personId = personId;
+        setSnapshot(snapshot);
+    }
+
+    public Long getPersonId() {
+        return this.personId;
+    }
+
+    public byte[] getSnapshot() {
+        return this.snapshot;
+    }
+
+    public void setSnapshot(final byte[] snapshot) {
+        this.snapshot = snapshot;
+        this.lastUpdated = new Date();
+    }
+
+    public Date getLastUpdated() {
+        return this.lastUpdated;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import org.hibernate.annotations.Index;
+
+import javax.persistence.*;
+
+/**
+ * A single identifier key of the calculated person read model, pointing at the view of the person that holds the
+ * identifier.  Not audited; the read model can always be rebuilt.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="calculatedPersonViewKey")
+@Table(name="prc_person_view_keys")
+@org.hibernate.annotations.Table(appliesTo = "prc_person_view_keys", indexes = {
+        @Index(name = "PRC_PERSON_VIEW_KEYS_ID_IDX", columnNames = {"identifier_value", "identifier_type"}),
+        @Index(name = "PRC_PERSON_VIEW_KEYS_PERSON_IDX", columnNames = "person_id")
+})
+public class JpaCalculatedPersonViewKeyImpl {
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "prc_person_view_keys_seq")
+    @SequenceGenerator(name="prc_person_view_keys_seq",sequenceName="prc_person_view_keys_seq",initialValue=1,allocationSize=50)
+    private Long id;
+
+    @Column(name="person_id", nullable=false)
+    private Long personId;
+
+    @Column(name="identifier_type", nullable=false, length=100)
+    private String identifierType;
+
+    @Column(name="identifier_value", nullable=false, length=100)
+    private String identifierValue;
+
+    public JpaCalculatedPersonViewKeyImpl() {
+        // nothing else to do
+    }
+
+    public JpaCalculatedPersonViewKeyImpl(final Long personId, final String identifierType, final String identifierValue) {
+        this.personId = personId;
+        this.identifierType = identifierType;
+        this.identifierValue = identifierValue;
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public Long getPersonId() {
+        return this.personId;
+    }
+
+    public String getIdentifierType() {
+        return this.identifierType;
+    }
+
+    public String getIdentifierValue() {
+        return this.identifierValue;
+    }
+}
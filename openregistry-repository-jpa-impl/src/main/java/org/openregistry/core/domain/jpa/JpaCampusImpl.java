@@ -38,6 +38,7 @@ import java.util.List;
 @Table(name="prd_campuses",
 		uniqueConstraints= @UniqueConstraint(columnNames={"code", "name"}))
 @Audited
+@Cacheable(true)
 public class JpaCampusImpl extends Entity implements Campus {
 
     @Id()
@@ -19,6 +19,7 @@ import javax.persistence.*;
 @javax.persistence.Entity(name="contactEmailAddress")
 @Table(name="prc_contact_emails")
 @Audited
+@org.hibernate.annotations.BatchSize(size = 50)
 @org.hibernate.annotations.Table(appliesTo = "prc_contact_emails", indexes ={
             @Index(name="CONTACT_EMAIL_ADDRESS_INDEX", columnNames = "address"),
             @Index(name="PRC_CONTACT_EMAILS_EM_ADD_IDX", columnNames = "EMAIL_ADDRESS_T")
@@ -19,6 +19,7 @@ import javax.persistence.*;
 
 @Table(name="prc_contact_phones")
 @Audited
+@org.hibernate.annotations.BatchSize(size = 50)
 @org.hibernate.annotations.Table(appliesTo = "prc_contact_phones", indexes = {
             @Index(name = "CONTACT_PHONE_INDEX", columnNames = {"country_code", "area_code", "phone_number"}),
             @Index(name="PRC_CONTACT_PHONES_ADDR_T_IDX", columnNames = "ADDRESS_T"),
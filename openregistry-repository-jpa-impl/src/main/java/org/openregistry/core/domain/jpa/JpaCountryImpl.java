@@ -38,6 +38,7 @@ import java.util.ArrayList;
 @javax.persistence.Entity(name="country")
 @Table(name="ctd_countries")
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "ctd_countries", indexes = {
         @Index(name="COUNTRY_NAME_INDEX", columnNames = "name"),
         @Index(name="COUNTRY_CODE_INDEX", columnNames = "code")
@@ -57,6 +58,7 @@ public class JpaCountryImpl extends Entity implements Country {
     private String name;
 
     @OneToMany(cascade= CascadeType.ALL, mappedBy="country",targetEntity = JpaRegionImpl.class)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private List<Region> regions;
 
     public Long getId() {
@@ -94,15 +94,19 @@ public class JpaDisclosureSettingsImpl implements DisclosureSettings, Serializab
     private boolean withinGracePeriod = false;
 	
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "disclosureRecord", targetEntity = JpaDisclosureSettingsForAddressImpl.class)
+    @org.hibernate.annotations.BatchSize(size = 50)
     private Set<DisclosureSettingsForAddress> addressDisclosureSettings = new HashSet<DisclosureSettingsForAddress>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "disclosureRecord", targetEntity = JpaDisclosureSettingsForEmailImpl.class)
+    @org.hibernate.annotations.BatchSize(size = 50)
     private Set<DisclosureSettingsForEmail> emailDisclosureSettings = new HashSet<DisclosureSettingsForEmail>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "disclosureRecord", targetEntity = JpaDisclosureSettingsForPhoneImpl.class)
+    @org.hibernate.annotations.BatchSize(size = 50)
     private Set<DisclosureSettingsForPhone> phoneDisclosureSettings = new HashSet<DisclosureSettingsForPhone>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "disclosureRecord", targetEntity = JpaDisclosureSettingsForUrlImpl.class)
+    @org.hibernate.annotations.BatchSize(size = 50)
     private Set<DisclosureSettingsForUrl> urlDisclosureSettings = new HashSet<DisclosureSettingsForUrl>();
 
     @Transient
@@ -39,6 +39,7 @@ import javax.persistence.*;
 @Table(name="prc_emails",
 		uniqueConstraints= @UniqueConstraint(columnNames={"address_t", "role_record_id"}))
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_emails", indexes = @Index(name="EMAIL_ADDRESS_INDEX", columnNames = "address"))
 public class JpaEmailAddressImpl extends Entity implements EmailAddress {
 
@@ -44,6 +44,7 @@ import java.util.Date;
 
 @Table(name="prc_identifiers", uniqueConstraints= @UniqueConstraint(columnNames={"identifier_t", "identifier"}))
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_identifiers", indexes = {
         @Index(name="ID_ID_TYPE_INDEX", columnNames = {"identifier", "identifier_t"}),
         @Index(name="ID_IDENTIFIER_INDEX", columnNames = {"identifier"}),
@@ -38,6 +38,7 @@ import java.util.Date;
 @javax.persistence.Entity(name="loa")
 @Table(name="prc_leaves_of_absence")
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_leaves_of_absence", indexes = {
         @Index(name = "PRC_LEAVE_OF_ABSENCE_LEAVE_IDX", columnNames = "LEAVE_T"),
         @Index(name = "PRC_LEAVE_OF_ABS_ROLE_REC_IDX", columnNames = "ROLE_RECORD_ID")
@@ -39,6 +39,7 @@ import javax.persistence.Table;
 @Table(name="prc_names")
 
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_names", indexes = {
         @Index(name = "NAME_GIVEN_INDEX", columnNames = "given_name"),
         @Index(name = "NAME_FAMILY_INDEX", columnNames = "family_name"),
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 @javax.persistence.Entity(name="organizationalUnit")
 @Table(name="drd_organizational_units")
 @Audited
+@Cacheable(true)
 public class JpaOrganizationalUnitImpl extends Entity implements OrganizationalUnit {
 
     @Id
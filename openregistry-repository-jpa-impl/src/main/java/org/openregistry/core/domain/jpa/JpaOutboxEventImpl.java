@@ -0,0 +1,146 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import org.hibernate.annotations.Index;
+import org.openregistry.integration.OutboxEvent;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An integration message waiting in the outbox.  Not audited; the outbox only holds messages until they are delivered.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="outboxEvent")
+@Table(name="prc_outbox_events")
+@org.hibernate.annotations.Table(appliesTo = "prc_outbox_events", indexes = {
+        @Index(name = "PRC_OUTBOX_EVENTS_KEY_IDX", columnNames = "ordering_key"),
+        @Index(name = "PRC_OUTBOX_EVENTS_NEXT_IDX", columnNames = "next_attempt_time")
+})
+public class JpaOutboxEventImpl implements OutboxEvent {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "prc_outbox_events_seq")
+    @SequenceGenerator(name="prc_outbox_events_seq",sequenceName="prc_outbox_events_seq",initialValue=1,allocationSize=50)
+    private Long id;
+
+    @Column(name="destination_id", nullable=false, length=255)
+    private String destinationId;
+
+    @Lob
+    @Column(name="message_body", nullable=false)
+    private Serializable messageBody;
+
+    // always a HashMap; declared as Serializable so it is stored as a single value rather than mapped as a collection.
+    @Lob
+    @Column(name="metadata")
+    private Serializable metadata;
+
+    @Column(name="ordering_key", nullable=false, length=255)
+    private String orderingKey;
+
+    @Column(name="attempts", nullable=false)
+    private int attempts;
+
+    @Column(name="next_attempt_time", nullable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttemptTime;
+
+    @Column(name="last_error", length=MAX_ERROR_LENGTH)
+    private String lastError;
+
+    @Column(name="dead_letter", nullable=false)
+    private boolean deadLetter;
+
+    public JpaOutboxEventImpl() {
+        // nothing else to do
+    }
+
+    public JpaOutboxEventImpl(final String destinationId, final Serializable messageBody, final Map<String, Object> metadata, final String orderingKey) {
+        this.destinationId = destinationId;
+        this.messageBody = messageBody;
+        this.metadata = metadata != null && !metadata.isEmpty() ? new HashMap<String, Object>(metadata) : null;
+        this.orderingKey = orderingKey;
+        this.nextAttemptTime = new Date();
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public String getDestinationId() {
+        return this.destinationId;
+    }
+
+    public Serializable getMessageBody() {
+        return this.messageBody;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getMetadata() {
+        return this.metadata != null ? (Map<String, Object>) this.metadata : Collections.<String, Object>emptyMap();
+    }
+
+    public String getOrderingKey() {
+        return this.orderingKey;
+    }
+
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    public Date getNextAttemptTime() {
+        return this.nextAttemptTime;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public boolean isDeadLetter() {
+        return this.deadLetter;
+    }
+
+    public void reschedule(final Date nextAttemptTime, final String error) {
+        this.attempts++;
+        this.nextAttemptTime = nextAttemptTime;
+        this.lastError = truncate(error);
+    }
+
+    public void deadLetter(final String error) {
+        this.attempts++;
+        this.deadLetter = true;
+        this.lastError = truncate(error);
+    }
+
+    private static String truncate(final String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The lease to publish the outbox, held by one publisher at a time so the events are delivered in order when a
+ * publisher runs on every node.  Not audited.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="outboxLease")
+@Table(name="prc_outbox_leases")
+public class JpaOutboxLeaseImpl {
+
+    @Id
+    @Column(name="id", length=50)
+    private String id;
+
+    @Column(name="holder", nullable=false, length=100)
+    private String holder;
+
+    @Column(name="expiry_time", nullable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiryTime;
+
+    public JpaOutboxLeaseImpl() {
+        // nothing else to do
+    }
+
+    public JpaOutboxLeaseImpl(final String id, final String holder, final Date expiryTime) {
+        this.id = id;
+        this.holder = holder;
+        this.expiryTime = expiryTime;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getHolder() {
+        return this.holder;
+    }
+
+    public Date getExpiryTime() {
+        return this.expiryTime;
+    }
+}
@@ -46,6 +46,7 @@ import java.util.*;
 @javax.persistence.Entity(name="person")
 @Table(name="prc_persons")
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_persons", indexes = {
         @Index(name = "PRC_PERSONS_CONTACT_EMAIL_IDX", columnNames = "CONTACT_EMAIL_ID"),
         @Index(name = "PRC_PERSONS_CONTACT_PHONE_IDX", columnNames = "CONTACT_PHONE_ID")
@@ -62,16 +63,23 @@ public class JpaPersonImpl extends Entity implements Person {
 
     @OneToMany(cascade=CascadeType.ALL, mappedBy="person", fetch = FetchType.LAZY)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<JpaNameImpl> names = new HashSet<JpaNameImpl>();
 
     @OneToMany(cascade=CascadeType.ALL, mappedBy="person", fetch = FetchType.LAZY, targetEntity = JpaRoleImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<Role> roles = new HashSet<Role>();
 
     @OneToMany(cascade=CascadeType.ALL, mappedBy="person", fetch = FetchType.LAZY,orphanRemoval = true)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<JpaIdentifierImpl> identifiers = new HashSet<JpaIdentifierImpl>();
 
     @OneToMany(cascade=CascadeType.ALL, mappedBy="person", fetch = FetchType.LAZY,orphanRemoval = true)
+    @org.hibernate.annotations.BatchSize(size = 50)
     private Set<JpaIdCardImpl> idCards = new HashSet<JpaIdCardImpl>();
 
 
@@ -101,6 +109,8 @@ public class JpaPersonImpl extends Entity implements Person {
     @CollectionTable(name = "prc_persons_attr", joinColumns = @JoinColumn(name = "person_id"))
     @MapKeyColumn(name = "attribute_type")
     @Column(name = "attribute_value")
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Map<String, String> attributes = new HashMap<String, String>();
 
     public Long getId() {
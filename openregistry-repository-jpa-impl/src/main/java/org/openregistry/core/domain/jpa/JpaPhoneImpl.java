@@ -45,6 +45,7 @@ import javax.persistence.Table;
 				@UniqueConstraint(columnNames={"phone_t", "address_t", "phone_line_order", "role_record_id"})
 		})
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_phones", indexes = {@Index(name = "PHONE_INDEX", columnNames = {"country_code", "area_code", "phone_number"})})
 public class JpaPhoneImpl extends Entity implements Phone {
 
@@ -0,0 +1,73 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import org.hibernate.annotations.Index;
+
+import javax.persistence.*;
+
+/**
+ * A single blocking key of the reconciliation candidate index.  Not audited; the index is derived
+ * from the calculated person and can always be rebuilt.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="reconciliationKey")
+@Table(name="prc_reconciliation_keys")
+@org.hibernate.annotations.Table(appliesTo = "prc_reconciliation_keys", indexes = {
+        @Index(name = "PRC_RECON_KEYS_VALUE_IDX", columnNames = "key_value"),
+        @Index(name = "PRC_RECON_KEYS_PERSON_ID_IDX", columnNames = "person_id")
+})
+public class JpaReconciliationKeyImpl {
+
+    @Id
+    @Column(name="id")
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "prc_reconciliation_keys_seq")
+    @SequenceGenerator(name="prc_reconciliation_keys_seq",sequenceName="prc_reconciliation_keys_seq",initialValue=1,allocationSize=50)
+    private Long id;
+
+    @Column(name="person_id", nullable=false)
+    private Long personId;
+
+    @Column(name="key_value", nullable=false, length=40)
+    private String keyValue;
+
+    public JpaReconciliationKeyImpl() {
+        // nothing else to do
+    }
+
+    public JpaReconciliationKeyImpl(final Long personId, final String keyValue) {
+        this.personId = personId;
+        this.keyValue = keyValue;
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public Long getPersonId() {
+        return this.personId;
+    }
+
+    public String getKeyValue() {
+        return this.keyValue;
+    }
+}
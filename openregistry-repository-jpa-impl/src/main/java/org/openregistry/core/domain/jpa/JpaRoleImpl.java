@@ -28,8 +28,12 @@ import org.hibernate.envers.Audited;
 import org.openregistry.core.domain.sor.SystemOfRecord;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.*;
@@ -50,6 +54,7 @@ import org.slf4j.*;
 @javax.persistence.Entity(name = "role")
 @Table(name = "prc_role_records", uniqueConstraints = @UniqueConstraint(columnNames = {"person_id","affiliation_t","organizational_unit_id"}))
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prc_role_records", indexes = {
         @Index(name = "PRC_ROLE_RECORDS_PRS_STAT_IDX", columnNames = "PERSON_STATUS_T"),
         @Index(name = "PRC_ROLE_RECORDS_SPONSOR_IDX", columnNames = "SPONSOR_T"),
@@ -65,18 +70,26 @@ public class JpaRoleImpl extends Entity implements Role {
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "role", fetch = FetchType.LAZY, targetEntity = JpaUrlImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<Url> urls = new HashSet<Url>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "role", fetch = FetchType.LAZY, targetEntity = JpaEmailAddressImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<EmailAddress> emailAddresses = new HashSet<EmailAddress>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "role", fetch = FetchType.LAZY, targetEntity = JpaPhoneImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<Phone> phones = new HashSet<Phone>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "role", fetch = FetchType.LAZY, targetEntity = JpaAddressImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<Address> addresses = new HashSet<Address>();
 
     @Column(name="sponsor_id", nullable = false)
@@ -95,6 +108,8 @@ public class JpaRoleImpl extends Entity implements Role {
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "role", fetch = FetchType.LAZY, targetEntity = JpaLeaveImpl.class)
     @org.hibernate.annotations.Cascade(org.hibernate.annotations.CascadeType.DELETE_ORPHAN)
+    @org.hibernate.annotations.BatchSize(size = 50)
+    @org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
     private Set<Leave> leaves = new HashSet<Leave>();
 
     @Column(name="title",nullable = false, length = 100)
@@ -356,13 +371,9 @@ public class JpaRoleImpl extends Entity implements Role {
         //this.emailAddresses.clear();
         //this.urls.clear();
 
-        //currently leaves not fully implemented
-        this.leaves.clear();
-        for (final Leave leave : sorRole.getLeaves()) {
-            addLeave(leave);
-        }
-
-        //put in code to work around Hibernate bug.
+        //put in code to work around Hibernate bug.  Rows are matched to the sor role's by key and updated in place,
+        //so only rows that differ are written, and an unchanged collection adds no audit rows.
+        recalculateLeaves(sorRole);
         recalculateAddresses(sorRole);
         recalculateEmailAddresses(sorRole);
         recalculatePhones(sorRole);
@@ -376,24 +387,39 @@ public class JpaRoleImpl extends Entity implements Role {
         this.setRBHS(sorRole.getRBHS());
     }
 
-    protected void recalculateAddresses(SorRole sorRole){
-        //remove addresses from calculated role when they are not in sorRole.
-        //unique constraint guarantees that there can be only one address of a given type per role.
-        Set<Address> addressesToDelete = new HashSet<Address>();
-        for (final Address cAddress: this.addresses) {
-            boolean foundAddress = false;
-            for (final Address sorAddress : sorRole.getAddresses()) {
-                if (sorAddress.getType().getDescription().equals(cAddress.getType().getDescription())) foundAddress = true;
+    protected void recalculateLeaves(SorRole sorRole){
+        //a leave is identified by its reason and start date.
+        final Map<String, Leave> leavesToDelete = new HashMap<String, Leave>();
+        final List<Leave> duplicates = new ArrayList<Leave>();
+        for (final Leave cLeave : this.leaves) {
+            final Leave duplicate = leavesToDelete.put(leaveKey(cLeave), cLeave);
+            if (duplicate != null) duplicates.add(duplicate);
+        }
+
+        for (final Leave sorLeave : sorRole.getLeaves()) {
+            final Leave leave = leavesToDelete.remove(leaveKey(sorLeave));
+            if (leave == null) {
+                addLeave(sorLeave);
+            } else {
+                leave.setEnd(sorLeave.getEnd());
             }
-            if (!foundAddress) addressesToDelete.add(cAddress);
         }
 
-        for (final Address address: addressesToDelete) this.addresses.remove(address);
+        this.leaves.removeAll(leavesToDelete.values());
+        this.leaves.removeAll(duplicates);
+    }
 
-        //add or update roles that are in sorRole in the calculated role.
-        for (final Address sorAddress: sorRole.getAddresses()) {
-            Address address = findAddress(sorAddress.getType());
-        	if (address == null){
+    protected void recalculateAddresses(SorRole sorRole){
+        //unique constraint guarantees that there can be only one address of a given type per role.
+        final Map<String, Address> addressesToDelete = new HashMap<String, Address>();
+        for (final Address cAddress : this.addresses) {
+            addressesToDelete.put(cAddress.getType().getDescription(), cAddress);
+        }
+
+        //add or update addresses that are in sorRole in the calculated role.
+        for (final Address sorAddress : sorRole.getAddresses()) {
+            final Address address = addressesToDelete.remove(sorAddress.getType().getDescription());
+            if (address == null) {
                 addAddress(sorAddress);
             } else {
                 address.setLine1(sorAddress.getLine1());
@@ -407,52 +433,41 @@ public class JpaRoleImpl extends Entity implements Role {
                 address.setRoomNo(sorAddress.getRoomNo());
             }
         }
+
+        //remove addresses from calculated role when they are not in sorRole.
+        this.addresses.removeAll(addressesToDelete.values());
     }
 
     protected void recalculateEmailAddresses(SorRole sorRole){
-         //remove email addresses from calculated role when they are not in sorRole.
         //unique constraint guarantees that there can be only one emailaddress of a given type per role.
-        Set<EmailAddress> emailsToDelete = new HashSet<EmailAddress>();
-        for (final EmailAddress cEmailAddress: this.emailAddresses) {
-            boolean foundAddress = false;
-            for (final EmailAddress sorEmailAddress : sorRole.getEmailAddresses()) {
-                if (sorEmailAddress.getAddressType().getDescription().equals(cEmailAddress.getAddressType().getDescription())) foundAddress = true;
-            }
-            if (!foundAddress) emailsToDelete.add(cEmailAddress);
+        final Map<String, EmailAddress> emailsToDelete = new HashMap<String, EmailAddress>();
+        for (final EmailAddress cEmailAddress : this.emailAddresses) {
+            emailsToDelete.put(cEmailAddress.getAddressType().getDescription(), cEmailAddress);
         }
 
-        for (final EmailAddress email: emailsToDelete) this.emailAddresses.remove(email);
-
-        for (final EmailAddress sorEmailAddress: sorRole.getEmailAddresses()) {
-            EmailAddress emailAddress = findEmailAddress(sorEmailAddress.getAddressType());
-        	if (emailAddress == null){
-        	    addEmailAddress(sorEmailAddress);
+        for (final EmailAddress sorEmailAddress : sorRole.getEmailAddresses()) {
+            final EmailAddress emailAddress = emailsToDelete.remove(sorEmailAddress.getAddressType().getDescription());
+            if (emailAddress == null) {
+                addEmailAddress(sorEmailAddress);
             } else {
                 emailAddress.setAddress(sorEmailAddress.getAddress());
             }
         }
+
+        this.emailAddresses.removeAll(emailsToDelete.values());
     }
 
     protected void recalculatePhones(SorRole sorRole){
-        //remove phones from calculated role when they are not in sorRole.
-        //unique constraint guarantees that there can be only one phone of a given type per role.
-        Set<Phone> phonesToDelete = new HashSet<Phone>();
-        for (final Phone cPhone: this.phones) {
-            boolean found = false;
-            for (final Phone sorPhone : sorRole.getPhones()) {
-                if (sorPhone.getAddressType().getDescription().equals(cPhone.getAddressType().getDescription()) &&
-                    sorPhone.getPhoneType().getDescription().equals(cPhone.getPhoneType().getDescription()) &&
-                    sorPhone.getPhoneLineOrder().compareTo(cPhone.getPhoneLineOrder()) == 0) found = true;
-            }
-            if (!found) phonesToDelete.add(cPhone);
+        //unique constraint guarantees that there can be only one phone of a given type and line order per role.
+        final Map<String, Phone> phonesToDelete = new HashMap<String, Phone>();
+        for (final Phone cPhone : this.phones) {
+            phonesToDelete.put(phoneKey(cPhone), cPhone);
         }
 
-        for (final Phone phone: phonesToDelete) this.phones.remove(phone);
-
-        for (final Phone sorPhone: sorRole.getPhones()) {
-            Phone phone = findPhone(sorPhone.getAddressType(), sorPhone.getPhoneType(), sorPhone.getPhoneLineOrder());
-            if (phone == null){
-        	    addPhone(sorPhone);
+        for (final Phone sorPhone : sorRole.getPhones()) {
+            final Phone phone = phonesToDelete.remove(phoneKey(sorPhone));
+            if (phone == null) {
+                addPhone(sorPhone);
             } else {
                 phone.setCountryCode(sorPhone.getCountryCode());
                 phone.setAreaCode(sorPhone.getAreaCode());
@@ -460,59 +475,39 @@ public class JpaRoleImpl extends Entity implements Role {
                 phone.setExtension(sorPhone.getExtension());
             }
         }
+
+        this.phones.removeAll(phonesToDelete.values());
     }
 
     protected void recalculateUrls(SorRole sorRole){
-         //remove urls from calculated role when they are not in sorRole.
-        Set<Url> urlsToDelete = new HashSet<Url>();
-        for (final Url cUrl: this.urls) {
-            boolean found = false;
-            for (final Url sorUrl : sorRole.getUrls()) {
-                if (sorUrl.getUrl().equals(cUrl)) found = true;
-            }
-            if (!found) urlsToDelete.add(cUrl);
+        //a url is identified by its type and value, so a changed url replaces the row.
+        final Map<String, Url> urlsToDelete = new HashMap<String, Url>();
+        final List<Url> duplicates = new ArrayList<Url>();
+        for (final Url cUrl : this.urls) {
+            final Url duplicate = urlsToDelete.put(urlKey(cUrl), cUrl);
+            if (duplicate != null) duplicates.add(duplicate);
         }
 
-        for (final Url url: urlsToDelete) this.urls.remove(url);
-
-        for (final Url sorUrl: sorRole.getUrls()) {
-            Url url = findUrl(sorUrl);
-        	if (url == null){
-        	    addUrl(sorUrl);
-            } else {
-                url.setUrl(sorUrl.getUrl());
+        for (final Url sorUrl : sorRole.getUrls()) {
+            if (urlsToDelete.remove(urlKey(sorUrl)) == null) {
+                addUrl(sorUrl);
             }
         }
-    }
 
-    protected Address findAddress(Type type){
-        for (final Address address : this.addresses) {
-            if (address.getType().getDescription().equals(type.getDescription())) return address;
-        }
-        return null;
+        this.urls.removeAll(urlsToDelete.values());
+        this.urls.removeAll(duplicates);
     }
 
-    protected EmailAddress findEmailAddress(Type type){
-        for (final EmailAddress emailAddress : this.emailAddresses) {
-            if (emailAddress.getAddressType().getDescription().equals(type.getDescription())) return emailAddress;
-        }
-        return null;
+    private static String leaveKey(final Leave leave) {
+        return leave.getReason().getDescription() + "|" + String.format("%tF", leave.getStart());
     }
 
-    protected Phone findPhone(Type addressType, Type phoneType, Integer phoneLineOrder){
-        for (final Phone phone : this.phones) {
-            if (phone.getAddressType().getDescription().equals(addressType.getDescription()) &&
-                phone.getPhoneType().getDescription().equals(phoneType.getDescription()) &&
-                phone.getPhoneLineOrder().compareTo(phoneLineOrder) == 0) return phone;
-        }
-        return null;
+    private static String phoneKey(final Phone phone) {
+        return phone.getAddressType().getDescription() + "|" + phone.getPhoneType().getDescription() + "|" + phone.getPhoneLineOrder();
     }
 
-    protected Url findUrl(Url sorUrl){
-        for (final Url url : this.urls) {
-            if (sorUrl.equals(url)) return url;
-        }
-        return null;
+    private static String urlKey(final Url url) {
+        return url.getType().getDescription() + "|" + url.getUrl().toExternalForm();
     }
 
     @Override
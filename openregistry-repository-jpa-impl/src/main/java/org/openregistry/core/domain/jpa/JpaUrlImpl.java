@@ -49,6 +49,7 @@ import java.net.URL;
 // TODO disabled for now: uniqueConstraints = @UniqueConstraint(columnNames={"url", "address_t", "role_record_id"})
 
 @Audited
+@Cacheable(true)
 public class JpaUrlImpl extends Entity implements Url {
 
     @Id
@@ -0,0 +1,69 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.domain.jpa.sor;
+
+import javax.persistence.*;
+
+/**
+ * Fingerprint of the election inputs last used to recalculate the calculated person from a system of record person.
+ * Not audited; the fingerprint is derived data and a missing one only means a full recalculation.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@javax.persistence.Entity(name="sorElectionInputs")
+@Table(name="prs_sor_election_inputs")
+public class JpaSorElectionInputsImpl {
+
+    @Id
+    @Column(name="sor_person_id")
+    private Long sorPersonId;
+
+    @Column(name="person_id", nullable=false)
+    private Long personId;
+
+    @Column(name="election_inputs", nullable=false, length=255)
+    private String electionInputs;
+
+    public JpaSorElectionInputsImpl() {
+        // nothing else to do
+    }
+
+    public JpaSorElectionInputsImpl(final Long sorPersonId, final Long personId, final String electionInputs) {
+        this.sorPersonId = sorPersonId;
+        update(personId, electionInputs);
+    }
+
+    public Long getSorPersonId() {
+        return this.sorPersonId;
+    }
+
+    public Long getPersonId() {
+        return this.personId;
+    }
+
+    public String getElectionInputs() {
+        return this.electionInputs;
+    }
+
+    public void update(final Long personId, final String electionInputs) {
+        this.personId = personId;
+        this.electionInputs = electionInputs;
+    }
+}
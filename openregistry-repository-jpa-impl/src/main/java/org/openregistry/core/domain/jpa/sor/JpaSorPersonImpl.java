@@ -30,6 +30,7 @@ import org.openregistry.core.domain.Type;
 import org.openregistry.core.domain.jpa.JpaTypeImpl;
 import org.openregistry.core.domain.internal.Entity;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.springframework.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,7 @@ import java.util.*;
 @Table(name = "prs_sor_persons")
 //, uniqueConstraints = @UniqueConstraint(columnNames = {"source_sor_id", "person_id"}))
 @Audited
+@Cacheable(true)
 @org.hibernate.annotations.Table(appliesTo = "prs_sor_persons", indexes = {@Index(name = "SOR_PERSON_SOURCE_AND_ID_INDEX", columnNames = {"source_sor_id", "id"})})
 public class JpaSorPersonImpl extends Entity implements SorPerson {
 
@@ -117,6 +119,18 @@ public class JpaSorPersonImpl extends Entity implements SorPerson {
     @Column(name = "attribute_value")
     private Map<String, String> sorLocalAttributes = new HashMap<String, String>();
 
+    @Column(name = "content_hash", length = 40)
+    @NotAudited
+    private String contentHash;
+
+    @Column(name = "roles_hash", length = 40)
+    @NotAudited
+    private String rolesHash;
+
+    @Column(name = "snapshot_hash", length = 40)
+    @NotAudited
+    private String snapshotHash;
+
     public List<SorRole> getRoles() {
         return this.roles;
     }
@@ -295,6 +309,39 @@ public class JpaSorPersonImpl extends Entity implements SorPerson {
         return this.sorLocalAttributes;
     }
 
+    /**
+     * @return the hash of this person's content, not including its roles, when it was last saved.
+     */
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
+    public void setContentHash(final String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return the hash of this person's roles when they were last saved.
+     */
+    public String getRolesHash() {
+        return this.rolesHash;
+    }
+
+    public void setRolesHash(final String rolesHash) {
+        this.rolesHash = rolesHash;
+    }
+
+    /**
+     * @return the hash of the content of this person a snapshot record carries when it was last saved.
+     */
+    public String getSnapshotHash() {
+        return this.snapshotHash;
+    }
+
+    public void setSnapshotHash(final String snapshotHash) {
+        this.snapshotHash = snapshotHash;
+    }
+
     @Override
     public List<SorRole> findOpenRolesByAffiliation(Type affiliationType) {
         List<SorRole> rolesToReturn = new ArrayList<SorRole>();
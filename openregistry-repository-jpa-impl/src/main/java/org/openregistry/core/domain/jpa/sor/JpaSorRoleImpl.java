@@ -162,6 +162,10 @@ public class JpaSorRoleImpl extends Entity implements SorRole {
     @JoinColumn(name="affiliation_t")
     private JpaTypeImpl affiliationType;
 
+    @Column(name = "content_hash", length = 40)
+    @NotAudited
+    private String contentHash;
+
     public JpaSorRoleImpl() {
         // nothing to do
     }
@@ -472,6 +476,17 @@ public class JpaSorRoleImpl extends Entity implements SorRole {
         this.RBHS = RBHS;
     }
 
+    /**
+     * @return the hash of this role's content when it was last saved.
+     */
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
+    public void setContentHash(final String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     @Override
     public void addOrUpdateEmail(String emailAddress, Type emailType) {
         boolean updated = false;
@@ -0,0 +1,356 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.*;
+import org.openregistry.core.domain.Type.DataTypes;
+import org.openregistry.core.domain.sor.SystemOfRecord;
+import org.openregistry.core.repository.ReferenceRepository;
+import org.openregistry.core.repository.RefreshableReferenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.*;
+
+/**
+ * Caching decorator over the {@link JpaReferenceRepository}.  All types, identifier types, countries, regions, campuses
+ * and organizational units are loaded at once into immutable indexes, which are rebuilt when {@link #refresh()} is
+ * called, when an organizational unit is updated (once the transaction commits) and when they are older than the
+ * refresh interval (so other nodes pick up changes too).
+ * <p>
+ * The reference data is loaded in its own read-only transaction, so the cached entities are never managed by the
+ * persistence context of a request.  They are detached, fully initialized and only ever referenced by the entities
+ * that use them (no cascades), so they are safe to assign within any persistence context.
+ * <p>
+ * Lookups that miss the cache (i.e. rows added since the last refresh, or ambiguous codes) are passed on to the
+ * underlying repository, so they behave exactly as they did without the cache.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "referenceRepository")
+@Primary
+public final class CachingReferenceRepository implements RefreshableReferenceRepository {
+
+    private static final long DEFAULT_REFRESH_INTERVAL = 10 * 60 * 1000L;
+
+    protected Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ReferenceRepository referenceRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private long refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+    private volatile ReferenceData referenceData;
+
+    @Inject
+    public CachingReferenceRepository(@Named("jpaReferenceRepository") final ReferenceRepository referenceRepository, final PlatformTransactionManager transactionManager) {
+        this.referenceRepository = referenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param refreshInterval the maximum age of the cached reference data in milliseconds.  Zero or less means the
+     * reference data is only reloaded when {@link #refresh()} is called or an organizational unit is updated.
+     */
+    public void setRefreshInterval(final long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public synchronized void refresh() {
+        this.referenceData = load();
+    }
+
+    public List<Person> getPeople() {
+        return this.referenceRepository.getPeople();
+    }
+
+    public Person getPersonById(final Long id) {
+        return this.referenceRepository.getPersonById(id);
+    }
+
+    public List<OrganizationalUnit> getOrganizationalUnits() {
+        return new ArrayList<OrganizationalUnit>(getReferenceData().organizationalUnits);
+    }
+
+    public OrganizationalUnit getOrganizationalUnitById(final Long id) {
+        final OrganizationalUnit organizationalUnit = getReferenceData().organizationalUnitsById.get(id);
+        return organizationalUnit != null ? organizationalUnit : this.referenceRepository.getOrganizationalUnitById(id);
+    }
+
+    public OrganizationalUnit getOrganizationalUnitByCode(final String code) {
+        final OrganizationalUnit organizationalUnit = getReferenceData().organizationalUnitsByCode.get(code);
+        return organizationalUnit != null ? organizationalUnit : this.referenceRepository.getOrganizationalUnitByCode(code);
+    }
+
+    public List<Campus> getCampuses() {
+        return new ArrayList<Campus>(getReferenceData().campuses);
+    }
+
+    public Campus getCampusById(final Long id) {
+        final Campus campus = getReferenceData().campusesById.get(id);
+        return campus != null ? campus : this.referenceRepository.getCampusById(id);
+    }
+
+    public Country getCountryById(final Long id) {
+        final Country country = getReferenceData().countriesById.get(id);
+        return country != null ? country : this.referenceRepository.getCountryById(id);
+    }
+
+    public Country getCountryByCode(final String code) {
+        final Country country = getReferenceData().countriesByCode.get(code);
+        return country != null ? country : this.referenceRepository.getCountryByCode(code);
+    }
+
+    public List<Country> getCountries() {
+        return new ArrayList<Country>(getReferenceData().countries);
+    }
+
+    public List<Region> getRegions() {
+        return new ArrayList<Region>(getReferenceData().regions);
+    }
+
+    public List<Region> getRegionsByCountryCode(final String countryCode) {
+        final List<Region> regions = getReferenceData().regionsByCountryCode.get(countryCode);
+        return regions != null ? new ArrayList<Region>(regions) : new ArrayList<Region>();
+    }
+
+    public Region getRegionByCodeAndCountryId(final String code, final String countryCode) {
+        final Region region = getReferenceData().regionsByCodeAndCountryCode.get(Arrays.asList(code, countryCode));
+        return region != null ? region : this.referenceRepository.getRegionByCodeAndCountryId(code, countryCode);
+    }
+
+    public Region getRegionByCodeOrName(final String code) {
+        // the underlying repository matches the name with LIKE, so patterns are left to it.
+        if (code == null || code.indexOf('%') != -1 || code.indexOf('_') != -1) {
+            return this.referenceRepository.getRegionByCodeOrName(code);
+        }
+
+        final Set<Region> matches = new HashSet<Region>();
+        for (final Region region : getReferenceData().regions) {
+            if (code.equals(region.getCode()) || code.equals(region.getName())) {
+                matches.add(region);
+            }
+        }
+
+        if (matches.isEmpty()) {
+            return this.referenceRepository.getRegionByCodeOrName(code);
+        }
+        return matches.size() == 1 ? matches.iterator().next() : null;
+    }
+
+    public SystemOfRecord findSystemOfRecord(final String systemOfRecord) {
+        return this.referenceRepository.findSystemOfRecord(systemOfRecord);
+    }
+
+    public Type findType(final DataTypes type, final String value) {
+        final Type cachedType = getReferenceData().typesByDescription.get(type).get(value);
+        return cachedType != null ? cachedType : this.referenceRepository.findType(type, value);
+    }
+
+    public Type findType(final DataTypes type, final Enum value) {
+        return findType(type, value.name());
+    }
+
+    public Type getTypeById(final Long id) {
+        final Type type = getReferenceData().typesById.get(id);
+        return type != null ? type : this.referenceRepository.getTypeById(id);
+    }
+
+    public List<IdentifierType> getIdentifierTypes() {
+        return new ArrayList<IdentifierType>(getReferenceData().identifierTypes);
+    }
+
+    public IdentifierType findIdentifierType(final String identifierName) {
+        final IdentifierType identifierType = getReferenceData().identifierTypesByName.get(identifierName);
+        return identifierType != null ? identifierType : this.referenceRepository.findIdentifierType(identifierName);
+    }
+
+    public List<Type> getTypesBy(final DataTypes type) {
+        return new ArrayList<Type>(getReferenceData().typesByDataType.get(type));
+    }
+
+    public Type findValidType(final DataTypes type, final String value) {
+        final Type cachedType = getReferenceData().typesByDescription.get(type).get(value);
+        return cachedType != null ? cachedType : this.referenceRepository.findValidType(type, value);
+    }
+
+    public void updateOrganizationalUnit(final OrganizationalUnit orgUnit) {
+        this.referenceRepository.updateOrganizationalUnit(orgUnit);
+
+        // reloading before the update commits would read the old row again.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private synchronized void invalidate() {
+        this.referenceData = null;
+    }
+
+    private ReferenceData getReferenceData() {
+        final ReferenceData current = this.referenceData;
+        if (current != null && (this.refreshInterval <= 0 || System.currentTimeMillis() - current.loadedAt < this.refreshInterval)) {
+            return current;
+        }
+
+        synchronized (this) {
+            // another thread may have reloaded while this one was waiting.
+            if (this.referenceData == current) {
+                this.referenceData = load();
+            }
+            return this.referenceData;
+        }
+    }
+
+    private ReferenceData load() {
+        final long start = System.currentTimeMillis();
+        final ReferenceData newReferenceData = this.transactionTemplate.execute(new TransactionCallback<ReferenceData>() {
+            public ReferenceData doInTransaction(final TransactionStatus transactionStatus) {
+                return new ReferenceData(referenceRepository);
+            }
+        });
+        log.info(String.format("Loaded reference data in %d ms.", System.currentTimeMillis() - start));
+        return newReferenceData;
+    }
+
+    /**
+     * Immutable snapshot of the reference data.  Codes that are not unique are left out of the code indexes, so
+     * looking them up falls through to the underlying repository.
+     */
+    private static final class ReferenceData {
+
+        private final long loadedAt = System.currentTimeMillis();
+
+        private final Map<DataTypes, List<Type>> typesByDataType = new EnumMap<DataTypes, List<Type>>(DataTypes.class);
+
+        private final Map<DataTypes, Map<String, Type>> typesByDescription = new EnumMap<DataTypes, Map<String, Type>>(DataTypes.class);
+
+        private final Map<Long, Type> typesById = new HashMap<Long, Type>();
+
+        private final List<IdentifierType> identifierTypes;
+
+        private final Map<String, IdentifierType> identifierTypesByName = new HashMap<String, IdentifierType>();
+
+        private final List<Country> countries;
+
+        private final Map<Long, Country> countriesById = new HashMap<Long, Country>();
+
+        private final Map<String, Country> countriesByCode = new HashMap<String, Country>();
+
+        private final List<Region> regions;
+
+        private final Map<String, List<Region>> regionsByCountryCode = new HashMap<String, List<Region>>();
+
+        private final Map<List<String>, Region> regionsByCodeAndCountryCode = new HashMap<List<String>, Region>();
+
+        private final List<Campus> campuses;
+
+        private final Map<Long, Campus> campusesById = new HashMap<Long, Campus>();
+
+        private final List<OrganizationalUnit> organizationalUnits;
+
+        private final Map<Long, OrganizationalUnit> organizationalUnitsById = new HashMap<Long, OrganizationalUnit>();
+
+        private final Map<String, OrganizationalUnit> organizationalUnitsByCode = new HashMap<String, OrganizationalUnit>();
+
+        private ReferenceData(final ReferenceRepository referenceRepository) {
+            for (final DataTypes dataType : DataTypes.values()) {
+                final List<Type> types = referenceRepository.getTypesBy(dataType);
+                final Map<String, Type> typesByDescription = new HashMap<String, Type>();
+                for (final Type type : types) {
+                    putUnique(typesByDescription, type.getDescription(), type);
+                    this.typesById.put(type.getId(), type);
+                }
+                this.typesByDataType.put(dataType, Collections.unmodifiableList(types));
+                this.typesByDescription.put(dataType, typesByDescription);
+            }
+
+            this.identifierTypes = Collections.unmodifiableList(referenceRepository.getIdentifierTypes());
+            for (final IdentifierType identifierType : this.identifierTypes) {
+                putUnique(this.identifierTypesByName, identifierType.getName(), identifierType);
+            }
+
+            this.countries = Collections.unmodifiableList(referenceRepository.getCountries());
+            for (final Country country : this.countries) {
+                // initialize the lazy collection while the country is still attached.
+                country.getRegions().size();
+                this.countriesById.put(country.getId(), country);
+                putUnique(this.countriesByCode, country.getCode(), country);
+            }
+
+            this.regions = Collections.unmodifiableList(referenceRepository.getRegions());
+            for (final Region region : this.regions) {
+                final String countryCode = region.getCountry() != null ? region.getCountry().getCode() : null;
+                List<Region> regionsForCountry = this.regionsByCountryCode.get(countryCode);
+                if (regionsForCountry == null) {
+                    regionsForCountry = new ArrayList<Region>();
+                    this.regionsByCountryCode.put(countryCode, regionsForCountry);
+                }
+                regionsForCountry.add(region);
+                putUnique(this.regionsByCodeAndCountryCode, Arrays.asList(region.getCode(), countryCode), region);
+            }
+
+            for (final List<Region> regionsForCountry : this.regionsByCountryCode.values()) {
+                Collections.sort(regionsForCountry, new Comparator<Region>() {
+                    public int compare(final Region r1, final Region r2) {
+                        return String.valueOf(r1.getName()).compareTo(String.valueOf(r2.getName()));
+                    }
+                });
+            }
+
+            this.campuses = Collections.unmodifiableList(referenceRepository.getCampuses());
+            for (final Campus campus : this.campuses) {
+                this.campusesById.put(campus.getId(), campus);
+            }
+
+            this.organizationalUnits = Collections.unmodifiableList(referenceRepository.getOrganizationalUnits());
+            for (final OrganizationalUnit organizationalUnit : this.organizationalUnits) {
+                this.organizationalUnitsById.put(organizationalUnit.getId(), organizationalUnit);
+                putUnique(this.organizationalUnitsByCode, organizationalUnit.getLocalCode(), organizationalUnit);
+            }
+        }
+
+        private static <K, V> void putUnique(final Map<K, V> map, final K key, final V value) {
+            map.put(key, map.containsKey(key) ? null : value);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.Role;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.util.*;
+
+/**
+ * The people saved with {@link JpaPersonRepository#savePersonAtCommit(Person)} in one transaction, flushed when it
+ * commits.
+ * <p>
+ * Hibernate inserts new rows before it deletes removed ones, so a collection with a unique constraint cannot lose a
+ * row and gain one with the same key in a single flush.  Before the commit flushes, the new elements of those
+ * collections are therefore taken out and everything else is flushed, which deletes the removed rows; then the new
+ * elements are put back for the commit to insert.  When no such collection gained an element, the commit flush is the
+ * only one.
+ * <p>
+ * Automatic flushing before queries is turned off while people are pending, otherwise the first query would insert the
+ * new elements ahead of the deletes.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class DeferredPersonFlush extends TransactionSynchronizationAdapter {
+
+    private final EntityManager entityManager;
+
+    // what this is bound to for the transaction.
+    private final Object resourceKey;
+
+    private final FlushModeType previousFlushMode;
+
+    private final Set<Person> people = Collections.newSetFromMap(new IdentityHashMap<Person, Boolean>());
+
+    /**
+     * @return the deferred flush bound to the current transaction under the key, which is created and registered with
+     * the transaction by the first save, so nested saves in the same transaction share it.
+     */
+    static DeferredPersonFlush forCurrentTransaction(final EntityManager entityManager, final Object resourceKey) {
+        DeferredPersonFlush deferredFlush = (DeferredPersonFlush) TransactionSynchronizationManager.getResource(resourceKey);
+        if (deferredFlush == null) {
+            deferredFlush = new DeferredPersonFlush(entityManager, resourceKey);
+            TransactionSynchronizationManager.bindResource(resourceKey, deferredFlush);
+            TransactionSynchronizationManager.registerSynchronization(deferredFlush);
+        }
+        return deferredFlush;
+    }
+
+    private DeferredPersonFlush(final EntityManager entityManager, final Object resourceKey) {
+        this.entityManager = entityManager;
+        this.resourceKey = resourceKey;
+        this.previousFlushMode = entityManager.getFlushMode();
+        entityManager.setFlushMode(FlushModeType.COMMIT);
+    }
+
+    void add(final Person person) {
+        this.people.add(person);
+    }
+
+    @Override
+    public int getOrder() {
+        // after everything else that changes people before the commit.
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void beforeCommit(final boolean readOnly) {
+        final List<Addition> additions = new ArrayList<Addition>();
+
+        for (final Person person : this.people) {
+            takeOutNewElements(person.getIdentifiers(), additions);
+            takeOutNewElements(person.getRoles(), additions);
+
+            // the roles left are the ones already stored; the elements of new roles come back with their role.
+            for (final Role role : person.getRoles()) {
+                takeOutNewElements(role.getEmailAddresses(), additions);
+                takeOutNewElements(role.getPhones(), additions);
+                takeOutNewElements(role.getAddresses(), additions);
+            }
+        }
+
+        if (additions.isEmpty()) {
+            return;
+        }
+
+        this.entityManager.flush();
+        for (final Addition addition : additions) {
+            addition.putBack();
+        }
+    }
+
+    @Override
+    public void afterCompletion(final int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this.resourceKey);
+        this.people.clear();
+        if (this.entityManager.isOpen()) {
+            this.entityManager.setFlushMode(this.previousFlushMode);
+        }
+    }
+
+    private void takeOutNewElements(final Collection<?> collection, final List<Addition> additions) {
+        for (final Iterator<?> iterator = collection.iterator(); iterator.hasNext();) {
+            final Object element = iterator.next();
+            if (!this.entityManager.contains(element)) {
+                additions.add(new Addition(collection, element));
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Addition {
+
+        private final Collection collection;
+
+        private final Object element;
+
+        private Addition(final Collection collection, final Object element) {
+            this.collection = collection;
+            this.element = element;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void putBack() {
+            this.collection.add(this.element);
+        }
+    }
+}
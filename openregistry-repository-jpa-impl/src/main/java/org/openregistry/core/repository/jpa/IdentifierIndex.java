@@ -0,0 +1,310 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact in-memory map of (identifier type, identifier value) to person id.  Entries are kept in parallel primitive
+ * arrays and the values in a single byte arena (one byte per character, or two for values that are not Latin-1), so an
+ * entry costs about 20 bytes plus its characters instead of the several objects a <code>HashMap</code> entry would.
+ * <p>
+ * The open addressing table is hashed on the value only, so all types of a value share one probe sequence and
+ * {@link #getAll(String)} answers "does this value exist for any type" in a single probe.  Removed entries are only
+ * marked as such and reused if their key comes back; their space is reclaimed when the index is rebuilt.
+ * <p>
+ * Lookups may run concurrently with each other, updates are serialized.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class IdentifierIndex {
+
+    static final long NOT_FOUND = -1L;
+
+    private static final int MAX_TYPES = Byte.MAX_VALUE;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Byte> typeCodes = new HashMap<String, Byte>();
+
+    private byte[] arena;
+
+    private int arenaSize;
+
+    // the entries.  A negative length means two bytes per character.
+    private int[] hashes;
+
+    private int[] offsets;
+
+    private int[] lengths;
+
+    private byte[] types;
+
+    private long[] personIds;
+
+    private int entryCount;
+
+    private int liveCount;
+
+    // entry index + 1 per slot, 0 for an empty slot.
+    private int[] slots;
+
+    IdentifierIndex() {
+        this(1024);
+    }
+
+    IdentifierIndex(final int expectedSize) {
+        final int capacity = Math.max(16, expectedSize);
+        this.arena = new byte[capacity * 8];
+        this.hashes = new int[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.types = new byte[capacity];
+        this.personIds = new long[capacity];
+        this.slots = new int[tableSizeFor(capacity)];
+    }
+
+    /**
+     * @return the id of the person with the identifier, or {@link #NOT_FOUND}.
+     */
+    long get(final String identifierType, final String identifierValue) {
+        this.lock.readLock().lock();
+        try {
+            final Byte type = this.typeCodes.get(identifierType);
+            if (type == null) {
+                return NOT_FOUND;
+            }
+            final int entry = find(type, identifierValue, hash(identifierValue));
+            return entry != -1 ? this.personIds[entry] : NOT_FOUND;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the people with an identifier of any type with the value.  Empty if there are none.
+     */
+    long[] getAll(final String identifierValue) {
+        this.lock.readLock().lock();
+        try {
+            final int hash = hash(identifierValue);
+            final int mask = this.slots.length - 1;
+            long[] result = new long[0];
+
+            for (int slot = hash & mask; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+                final int entry = this.slots[slot] - 1;
+                if (this.personIds[entry] != NOT_FOUND && this.hashes[entry] == hash && valueEquals(entry, identifierValue)) {
+                    result = Arrays.copyOf(result, result.length + 1);
+                    result[result.length - 1] = this.personIds[entry];
+                }
+            }
+            return result;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    void put(final String identifierType, final String identifierValue, final long personId) {
+        this.lock.writeLock().lock();
+        try {
+            final byte type = typeCode(identifierType);
+            final int hash = hash(identifierValue);
+            final int existing = findIncludingRemoved(type, identifierValue, hash);
+
+            if (existing != -1) {
+                if (this.personIds[existing] == NOT_FOUND) {
+                    this.liveCount++;
+                }
+                this.personIds[existing] = personId;
+                return;
+            }
+
+            if ((this.entryCount + 1) * 2 > this.slots.length) {
+                resizeTable();
+            }
+            final int entry = addEntry(type, identifierValue, hash, personId);
+            final int mask = this.slots.length - 1;
+            int slot = hash & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = entry + 1;
+            this.liveCount++;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the identifier, but only if it (still) belongs to the person, so that a late removal cannot undo the
+     * identifier having moved to another person.
+     */
+    void remove(final String identifierType, final String identifierValue, final long personId) {
+        this.lock.writeLock().lock();
+        try {
+            final Byte type = this.typeCodes.get(identifierType);
+            if (type == null) {
+                return;
+            }
+            final int entry = find(type, identifierValue, hash(identifierValue));
+            if (entry != -1 && this.personIds[entry] == personId) {
+                this.personIds[entry] = NOT_FOUND;
+                this.liveCount--;
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.liveCount;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private int find(final byte type, final String value, final int hash) {
+        final int entry = findIncludingRemoved(type, value, hash);
+        return entry != -1 && this.personIds[entry] != NOT_FOUND ? entry : -1;
+    }
+
+    private int findIncludingRemoved(final byte type, final String value, final int hash) {
+        final int mask = this.slots.length - 1;
+        for (int slot = hash & mask; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+            final int entry = this.slots[slot] - 1;
+            if (this.hashes[entry] == hash && this.types[entry] == type && valueEquals(entry, value)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private boolean valueEquals(final int entry, final String value) {
+        final int offset = this.offsets[entry];
+        final int length = this.lengths[entry];
+
+        if (length >= 0) {
+            if (length != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if ((char) (this.arena[offset + i] & 0xff) != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (-length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < -length; i++) {
+            final char c = (char) (((this.arena[offset + 2 * i] & 0xff) << 8) | (this.arena[offset + 2 * i + 1] & 0xff));
+            if (c != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addEntry(final byte type, final String value, final int hash, final long personId) {
+        if (this.entryCount == this.hashes.length) {
+            final int capacity = this.hashes.length * 2;
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.personIds = Arrays.copyOf(this.personIds, capacity);
+        }
+
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) <= 0xff;
+        }
+        final int bytes = latin1 ? value.length() : value.length() * 2;
+        if (this.arenaSize + bytes > this.arena.length) {
+            this.arena = Arrays.copyOf(this.arena, Math.max(this.arena.length * 2, this.arenaSize + bytes));
+        }
+
+        final int offset = this.arenaSize;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (latin1) {
+                this.arena[offset + i] = (byte) c;
+            } else {
+                this.arena[offset + 2 * i] = (byte) (c >>> 8);
+                this.arena[offset + 2 * i + 1] = (byte) c;
+            }
+        }
+        this.arenaSize += bytes;
+
+        final int entry = this.entryCount++;
+        this.hashes[entry] = hash;
+        this.offsets[entry] = offset;
+        this.lengths[entry] = latin1 ? value.length() : -value.length();
+        this.types[entry] = type;
+        this.personIds[entry] = personId;
+        return entry;
+    }
+
+    private void resizeTable() {
+        final int[] newSlots = new int[this.slots.length * 2];
+        final int mask = newSlots.length - 1;
+        for (int entry = 0; entry < this.entryCount; entry++) {
+            int slot = this.hashes[entry] & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = entry + 1;
+        }
+        this.slots = newSlots;
+    }
+
+    private byte typeCode(final String identifierType) {
+        final Byte existing = this.typeCodes.get(identifierType);
+        if (existing != null) {
+            return existing;
+        }
+        if (this.typeCodes.size() == MAX_TYPES) {
+            throw new IllegalStateException("Too many identifier types to index: " + identifierType);
+        }
+        final byte type = (byte) this.typeCodes.size();
+        this.typeCodes.put(identifierType, type);
+        return type;
+    }
+
+    private static int hash(final String value) {
+        // spread the bits, String.hashCode() differs mostly in the low bits for the short numeric values typical here.
+        final int h = value.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(final int expectedSize) {
+        int size = 16;
+        while (size < expectedSize * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.hibernate.envers.AuditReader;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.NotAudited;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.query.AuditEntity;
+import org.hibernate.envers.query.criteria.AuditDisjunction;
+import org.openregistry.core.audit.SpringSecurityRevisionEntity;
+import org.openregistry.core.domain.*;
+import org.openregistry.core.domain.AuditedChange.Category;
+import org.openregistry.core.domain.PersonChange.ChangeType;
+import org.openregistry.core.domain.jpa.*;
+import org.openregistry.core.domain.jpa.sor.*;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.AuditHistoryRepository;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Transient;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * {@link AuditHistoryRepository} reading the Envers audit tables.
+ * <p>
+ * The records of a person are found through the owner column of their audit table, which the indexes in
+ * <code>audit-history-schema.sql</code> serve.  Envers does not store the owner of a deleted record, so the deletions
+ * are found through the ids of the records the person ever owned.  Envers does not record which properties a
+ * revision modified either, so each snapshot is compared with the previous snapshot of the same record.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "auditHistoryRepository")
+public class JpaAuditHistoryRepository implements AuditHistoryRepository {
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final Map<Category, AuditSource> PERSON_SOURCES = new EnumMap<Category, AuditSource>(Category.class);
+
+    private static final Map<Category, AuditSource> SOR_PERSON_SOURCES = new EnumMap<Category, AuditSource>(Category.class);
+
+    static {
+        PERSON_SOURCES.put(Category.PERSON, new AuditSource(JpaPersonImpl.class, "aud_prc_persons", "id", null, false));
+        PERSON_SOURCES.put(Category.ROLE, new AuditSource(JpaRoleImpl.class, "aud_prc_role_records", "person_id", "person", false));
+        PERSON_SOURCES.put(Category.IDENTIFIER, new AuditSource(JpaIdentifierImpl.class, "aud_prc_identifiers", "person_id", "person", false));
+        PERSON_SOURCES.put(Category.NAME, new AuditSource(JpaNameImpl.class, "aud_prc_names", "person_id", "person", false));
+        PERSON_SOURCES.put(Category.EMAIL, new AuditSource(JpaEmailAddressImpl.class, "aud_prc_emails", "role_record_id", "role", true));
+        PERSON_SOURCES.put(Category.PHONE, new AuditSource(JpaPhoneImpl.class, "aud_prc_phones", "role_record_id", "role", true));
+        PERSON_SOURCES.put(Category.ADDRESS, new AuditSource(JpaAddressImpl.class, "aud_prc_addresses", "role_record_id", "role", true));
+        PERSON_SOURCES.put(Category.ID_CARD, new AuditSource(JpaIdCardImpl.class, "aud_prc_id_cards", "person_id", "person", false));
+
+        SOR_PERSON_SOURCES.put(Category.PERSON, new AuditSource(JpaSorPersonImpl.class, "aud_prs_sor_persons", "id", null, false));
+        SOR_PERSON_SOURCES.put(Category.ROLE, new AuditSource(JpaSorRoleImpl.class, "aud_prs_role_records", "sor_person_id", "person", false));
+        SOR_PERSON_SOURCES.put(Category.NAME, new AuditSource(JpaSorNameImpl.class, "aud_prs_names", "sor_person_id", "person", false));
+        SOR_PERSON_SOURCES.put(Category.EMAIL, new AuditSource(JpaSorEmailAddressImpl.class, "aud_prs_emails", "role_record_id", "sorRole", true));
+        SOR_PERSON_SOURCES.put(Category.PHONE, new AuditSource(JpaSorPhoneImpl.class, "aud_prs_phones", "role_record_id", "sorRole", true));
+        SOR_PERSON_SOURCES.put(Category.ADDRESS, new AuditSource(JpaSorAddressImpl.class, "aud_prs_addresses", "role_record_id", "sorRole", true));
+    }
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<Long> findRevisionNumbers(final Person person, final Set<Category> categories, final Date since, final long fromRevision, final long toRevision) throws RepositoryAccessException {
+        final List<Long> roleIds = this.entityManager.createQuery("select r.id from role r where r.person.id = :personId")
+                .setParameter("personId", person.getId()).getResultList();
+        return findRevisionNumbers(PERSON_SOURCES, person.getId(), roleIds, categories, since, fromRevision, toRevision);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<Long> findRevisionNumbers(final SorPerson sorPerson, final Set<Category> categories, final Date since, final long fromRevision, final long toRevision) throws RepositoryAccessException {
+        final List<Long> roleIds = this.entityManager.createQuery("select r.id from sorRole r where r.person.id = :personId")
+                .setParameter("personId", sorPerson.getId()).getResultList();
+        return findRevisionNumbers(SOR_PERSON_SOURCES, sorPerson.getId(), roleIds, categories, since, fromRevision, toRevision);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<AuditedChange> findChanges(final Person person, final Set<Category> categories, final long fromRevision, final long toRevision) throws RepositoryAccessException {
+        final List<Long> roleIds = this.entityManager.createQuery("select r.id from role r where r.person.id = :personId")
+                .setParameter("personId", person.getId()).getResultList();
+        return findChanges(PERSON_SOURCES, person.getId(), roleIds, categories, fromRevision, toRevision);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<AuditedChange> findChanges(final SorPerson sorPerson, final Set<Category> categories, final long fromRevision, final long toRevision) throws RepositoryAccessException {
+        final List<Long> roleIds = this.entityManager.createQuery("select r.id from sorRole r where r.person.id = :personId")
+                .setParameter("personId", sorPerson.getId()).getResultList();
+        return findChanges(SOR_PERSON_SOURCES, sorPerson.getId(), roleIds, categories, fromRevision, toRevision);
+    }
+
+    private List<Long> findRevisionNumbers(final Map<Category, AuditSource> sources, final Long personId, final List<Long> roleIds, final Set<Category> categories,
+                                           final Date since, final long fromRevision, final long toRevision) {
+        final SortedSet<Long> revisions = new TreeSet<Long>();
+        for (final Category category : categories) {
+            final AuditSource source = sources.get(category);
+            if (source == null) {
+                continue;
+            }
+            for (final List<Long> recordIds : partition(findRecordIds(source, personId, roleIds))) {
+                final List<Number> rows = this.entityManager.createNativeQuery("select distinct a.REV from " + source.auditTable + " a " +
+                        "join SpringSecurityRevisionEntity r on r.id = a.REV where a.id in (:recordIds) " +
+                        "and a.REV >= :fromRevision and a.REV <= :toRevision and r.timestamp >= :since")
+                        .setParameter("recordIds", recordIds)
+                        .setParameter("fromRevision", Math.max(fromRevision, 0))
+                        .setParameter("toRevision", toRevision > 0 ? toRevision : Integer.MAX_VALUE)
+                        .setParameter("since", since != null ? since.getTime() : 0L)
+                        .getResultList();
+                for (final Number row : rows) {
+                    revisions.add(row.longValue());
+                }
+            }
+        }
+        return new ArrayList<Long>(revisions);
+    }
+
+    private List<AuditedChange> findChanges(final Map<Category, AuditSource> sources, final Long personId, final List<Long> roleIds, final Set<Category> categories,
+                                            final long fromRevision, final long toRevision) {
+        final AuditReader auditReader = AuditReaderFactory.get(this.entityManager);
+        final List<AuditedChange> changes = new ArrayList<AuditedChange>();
+
+        for (final Category category : categories) {
+            final AuditSource source = sources.get(category);
+            if (source == null) {
+                continue;
+            }
+            for (final List<Long> recordIds : partition(findRecordIds(source, personId, roleIds))) {
+                final AuditDisjunction recordIdIn = AuditEntity.disjunction();
+                for (final Long recordId : recordIds) {
+                    recordIdIn.add(AuditEntity.id().eq(recordId));
+                }
+                final List<Object[]> rows = auditReader.createQuery().forRevisionsOfEntity(source.entityClass, false, true)
+                        .add(recordIdIn)
+                        .add(AuditEntity.revisionNumber().between((int) fromRevision, (int) toRevision))
+                        .addOrder(AuditEntity.revisionNumber().asc())
+                        .getResultList();
+
+                final Map<Long, Map<String, Object>> previousSnapshots = new HashMap<Long, Map<String, Object>>();
+                for (final Object[] row : rows) {
+                    final Object entity = row[0];
+                    final SpringSecurityRevisionEntity revision = (SpringSecurityRevisionEntity) row[1];
+                    final RevisionType revisionType = (RevisionType) row[2];
+                    final Long recordId = source.idOf(entity);
+
+                    final Map<String, Object> previousSnapshot = previousSnapshots.containsKey(recordId) ? previousSnapshots.get(recordId) :
+                            findSnapshotBefore(auditReader, source, recordId, fromRevision);
+                    final Map<String, Object> snapshot = revisionType == RevisionType.DEL ? null : source.snapshotOf(entity);
+                    previousSnapshots.put(recordId, snapshot);
+
+                    changes.add(new AuditedChange(category, recordId, revision.getId(), revision.getRevisionDate(), revision.getUsername(),
+                            revision.getComments(), toChangeType(revisionType), changedProperties(previousSnapshot, snapshot)));
+                }
+            }
+        }
+
+        Collections.sort(changes, new Comparator<AuditedChange>() {
+            public int compare(final AuditedChange o1, final AuditedChange o2) {
+                if (o1.getRevision() != o2.getRevision()) {
+                    return o1.getRevision() < o2.getRevision() ? -1 : 1;
+                }
+                return o1.getCategory().compareTo(o2.getCategory());
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * @return the ids of all the records the person or its current roles ever owned, deleted ones included.
+     */
+    private List<Long> findRecordIds(final AuditSource source, final Long personId, final List<Long> roleIds) {
+        final List<Long> ownerIds = source.ownedByRole ? roleIds : Arrays.asList(personId);
+        final Set<Long> recordIds = new HashSet<Long>();
+        for (final List<Long> ids : partition(ownerIds)) {
+            final List<Number> rows = this.entityManager.createNativeQuery("select distinct a.id from " + source.auditTable + " a where a." + source.ownerColumn + " in (:ownerIds)")
+                    .setParameter("ownerIds", ids).getResultList();
+            for (final Number row : rows) {
+                recordIds.add(row.longValue());
+            }
+        }
+        return new ArrayList<Long>(recordIds);
+    }
+
+    private static Map<String, Object> findSnapshotBefore(final AuditReader auditReader, final AuditSource source, final Long recordId, final long revision) {
+        final Number previousRevision = (Number) auditReader.createQuery().forRevisionsOfEntity(source.entityClass, false, true)
+                .addProjection(AuditEntity.revisionNumber().max())
+                .add(AuditEntity.id().eq(recordId))
+                .add(AuditEntity.revisionNumber().lt((int) revision))
+                .getSingleResult();
+        if (previousRevision == null) {
+            return null;
+        }
+        final Object entity = auditReader.find(source.entityClass, recordId, previousRevision);
+        return entity != null ? source.snapshotOf(entity) : null;
+    }
+
+    private static Map<String, Object> changedProperties(final Map<String, Object> previousSnapshot, final Map<String, Object> snapshot) {
+        final Map<String, Object> changedProperties = new LinkedHashMap<String, Object>();
+        if (snapshot == null) {
+            return changedProperties;
+        }
+        for (final Map.Entry<String, Object> property : snapshot.entrySet()) {
+            final Object value = property.getValue();
+            if (previousSnapshot == null ? value != null : !equal(previousSnapshot.get(property.getKey()), value)) {
+                changedProperties.put(property.getKey(), value);
+            }
+        }
+        return changedProperties;
+    }
+
+    private static boolean equal(final Object o1, final Object o2) {
+        if (o1 instanceof Date && o2 instanceof Date) {
+            return ((Date) o1).getTime() == ((Date) o2).getTime();
+        }
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    private static ChangeType toChangeType(final RevisionType revisionType) {
+        switch (revisionType) {
+            case ADD:
+                return ChangeType.ADDED;
+            case DEL:
+                return ChangeType.DELETED;
+            default:
+                return ChangeType.MODIFIED;
+        }
+    }
+
+    private static <T> List<List<T>> partition(final Collection<T> values) {
+        final List<T> list = new ArrayList<T>(values);
+        final List<List<T>> partitions = new ArrayList<List<T>>();
+        for (int i = 0; i < list.size(); i += MAX_IDS_PER_QUERY) {
+            partitions.add(list.subList(i, Math.min(i + MAX_IDS_PER_QUERY, list.size())));
+        }
+        return partitions;
+    }
+
+    /**
+     * An audited entity belonging to a person, with the audit table and the owner column it is found by.
+     */
+    private static final class AuditSource {
+
+        private final Class<?> entityClass;
+
+        private final String auditTable;
+
+        private final String ownerColumn;
+
+        private final boolean ownedByRole;
+
+        private final Field idField;
+
+        private final List<Field> propertyFields = new ArrayList<Field>();
+
+        private AuditSource(final Class<?> entityClass, final String auditTable, final String ownerColumn, final String ownerProperty, final boolean ownedByRole) {
+            this.entityClass = entityClass;
+            this.auditTable = auditTable;
+            this.ownerColumn = ownerColumn;
+            this.ownedByRole = ownedByRole;
+
+            Field idField = null;
+            for (Class<?> c = entityClass; c != Object.class; c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isAnnotationPresent(NotAudited.class)
+                            || field.isAnnotationPresent(Transient.class)
+                            || Collection.class.isAssignableFrom(field.getType()) || Map.class.isAssignableFrom(field.getType())
+                            || field.getName().equals(ownerProperty)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    if (field.getName().equals("id")) {
+                        idField = field;
+                    } else {
+                        this.propertyFields.add(field);
+                    }
+                }
+            }
+            this.idField = idField;
+        }
+
+        private Long idOf(final Object entity) {
+            try {
+                return (Long) this.idField.get(entity);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @return the displayable properties of the entity by name.  Related reference data is shown by its code or
+         * name, other related entities are left out.
+         */
+        private Map<String, Object> snapshotOf(final Object entity) {
+            final Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+            for (final Field field : this.propertyFields) {
+                try {
+                    final Object value = field.get(entity);
+                    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                            || value instanceof Character || value instanceof Date || value instanceof Enum) {
+                        snapshot.put(field.getName(), value);
+                    } else if (value instanceof Type) {
+                        snapshot.put(field.getName(), ((Type) value).getDescription());
+                    } else if (value instanceof IdentifierType) {
+                        snapshot.put(field.getName(), ((IdentifierType) value).getName());
+                    } else if (value instanceof OrganizationalUnit) {
+                        snapshot.put(field.getName(), ((OrganizationalUnit) value).getName());
+                    } else if (value instanceof Region) {
+                        snapshot.put(field.getName(), ((Region) value).getCode());
+                    } else if (value instanceof Country) {
+                        snapshot.put(field.getName(), ((Country) value).getCode());
+                    } else if (value instanceof Campus) {
+                        snapshot.put(field.getName(), ((Campus) value).getCode());
+                    }
+                } catch (final IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.hibernate.Session;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.openregistry.core.repository.CacheStatisticsRepository;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * Reads the second-level cache statistics Hibernate gathers when <code>hibernate.generate_statistics</code> is on.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "cacheStatisticsRepository")
+public class JpaCacheStatisticsRepository implements CacheStatisticsRepository {
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    public boolean isStatisticsEnabled() {
+        return getStatistics().isStatisticsEnabled();
+    }
+
+    public List<RegionStatistics> getRegionStatistics() {
+        final Statistics statistics = getStatistics();
+        final String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+
+        final List<RegionStatistics> regions = new ArrayList<RegionStatistics>(regionNames.length);
+        for (final String regionName : regionNames) {
+            final SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+            if (region != null) {
+                regions.add(new RegionStatistics(regionName, region.getHitCount(), region.getMissCount(), region.getPutCount(), region.getElementCountInMemory() + region.getElementCountOnDisk()));
+            }
+        }
+        return regions;
+    }
+
+    private Statistics getStatistics() {
+        return this.entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.domain.Type;
+import org.openregistry.core.domain.jpa.JpaCalculatedPersonViewImpl;
+import org.openregistry.core.domain.jpa.JpaCalculatedPersonViewKeyImpl;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Calculated person read model stored in the <code>prc_person_views</code> and <code>prc_person_view_keys</code>
+ * tables.  Views are stored serialized, so reading one is a single indexed query that hydrates no entities.
+ * <p>
+ * The view is keyed by every primary identifier and, as {@link JpaPersonRepository#findByIdentifier(String, String)}
+ * does for the RCN identifier type, by the number of every id card.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "calculatedPersonViewRepository")
+public class JpaCalculatedPersonViewRepository implements CalculatedPersonViewRepository {
+
+    // keeps the "in" lists within what every database accepts.
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    public CalculatedPersonView findByPersonId(final Long personId) throws RepositoryAccessException {
+        final JpaCalculatedPersonViewImpl view = this.entityManager.find(JpaCalculatedPersonViewImpl.class, personId);
+        return view != null ? deserialize(view.getSnapshot()) : null;
+    }
+
+    public Map<Long, CalculatedPersonView> findByPersonIds(final Collection<Long> personIds) throws RepositoryAccessException {
+        final List<Long> ids = new ArrayList<Long>(personIds);
+        final Map<Long, CalculatedPersonView> views = new HashMap<Long, CalculatedPersonView>();
+
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            final List<Object[]> rows = this.entityManager.createQuery("select v.personId, v.snapshot from calculatedPersonView v where v.personId in (:ids)")
+                    .setParameter("ids", ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()))).getResultList();
+
+            for (final Object[] row : rows) {
+                final CalculatedPersonView view = deserialize((byte[]) row[1]);
+                if (view != null) {
+                    views.put((Long) row[0], view);
+                }
+            }
+        }
+        return views;
+    }
+
+    public CalculatedPersonView findByIdentifier(final String identifierType, final String identifierValue) throws RepositoryAccessException {
+        final List<byte[]> snapshots = this.entityManager.createQuery("select v.snapshot from calculatedPersonView v, calculatedPersonViewKey k where k.personId = v.personId and k.identifierValue = :value and k.identifierType = :type")
+                .setParameter("value", identifierValue).setParameter("type", keyType(identifierType)).getResultList();
+
+        // more than one view means the identifier moved between people without both views being refreshed; let the caller fall back.
+        return snapshots.size() == 1 ? deserialize(snapshots.get(0)) : null;
+    }
+
+    public void saveView(final CalculatedPersonView view) {
+        final JpaCalculatedPersonViewImpl existingView = this.entityManager.find(JpaCalculatedPersonViewImpl.class, view.getPersonId());
+        if (existingView == null) {
+            addView(view);
+            return;
+        }
+        existingView.setSnapshot(serialize(view));
+
+        final Set<List<String>> keysToAdd = keysFor(view);
+        final List<JpaCalculatedPersonViewKeyImpl> existingKeys = this.entityManager.createQuery("select k from calculatedPersonViewKey k where k.personId = :personId")
+                .setParameter("personId", view.getPersonId()).getResultList();
+
+        for (final JpaCalculatedPersonViewKeyImpl key : existingKeys) {
+            if (!keysToAdd.remove(Arrays.asList(key.getIdentifierType(), key.getIdentifierValue()))) {
+                this.entityManager.remove(key);
+            }
+        }
+
+        for (final List<String> key : keysToAdd) {
+            this.entityManager.persist(new JpaCalculatedPersonViewKeyImpl(view.getPersonId(), key.get(0), key.get(1)));
+        }
+    }
+
+    public void addView(final CalculatedPersonView view) {
+        this.entityManager.persist(new JpaCalculatedPersonViewImpl(view.getPersonId(), serialize(view)));
+
+        for (final List<String> key : keysFor(view)) {
+            this.entityManager.persist(new JpaCalculatedPersonViewKeyImpl(view.getPersonId(), key.get(0), key.get(1)));
+        }
+    }
+
+    public void removeView(final Long personId) {
+        this.entityManager.createQuery("delete from calculatedPersonViewKey k where k.personId = :personId").setParameter("personId", personId).executeUpdate();
+        this.entityManager.createQuery("delete from calculatedPersonView v where v.personId = :personId").setParameter("personId", personId).executeUpdate();
+    }
+
+    private Set<List<String>> keysFor(final CalculatedPersonView view) {
+        final Set<List<String>> keys = new HashSet<List<String>>();
+
+        for (final CalculatedPersonView.IdentifierView identifier : view.getIdentifiers()) {
+            if (identifier.isPrimary() && !identifier.isDeleted()) {
+                keys.add(Arrays.asList(identifier.getType(), identifier.getValue()));
+            }
+        }
+
+        for (final CalculatedPersonView.IdCardView idCard : view.getIdCards()) {
+            if (idCard.getCardNumber() != null) {
+                keys.add(Arrays.asList(Type.IdentifierTypes.RCN.name(), idCard.getCardNumber()));
+            }
+        }
+        return keys;
+    }
+
+    private String keyType(final String identifierType) {
+        return Type.IdentifierTypes.RCN.name().equalsIgnoreCase(identifierType) ? Type.IdentifierTypes.RCN.name() : identifierType;
+    }
+
+    private byte[] serialize(final CalculatedPersonView view) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(view);
+            out.close();
+            return bytes.toByteArray();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A snapshot written by an incompatible version of the view is treated as missing, so it is rebuilt on the next save.
+     */
+    private CalculatedPersonView deserialize(final byte[] snapshot) {
+        try {
+            final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot));
+            try {
+                return (CalculatedPersonView) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (final Exception e) {
+            logger.warn("Unable to read calculated person view; falling back to the calculated person.", e);
+            return null;
+        }
+    }
+}
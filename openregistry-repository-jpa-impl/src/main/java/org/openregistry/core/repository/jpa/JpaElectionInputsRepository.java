@@ -0,0 +1,59 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.jpa.sor.JpaSorElectionInputsImpl;
+import org.openregistry.core.repository.ElectionInputsRepository;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Election input fingerprints stored in the <code>prs_sor_election_inputs</code> table.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "electionInputsRepository")
+public class JpaElectionInputsRepository implements ElectionInputsRepository {
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    public String findElectionInputs(final Long sorPersonId, final Long personId) throws RepositoryAccessException {
+        final JpaSorElectionInputsImpl inputs = this.entityManager.find(JpaSorElectionInputsImpl.class, sorPersonId);
+        return inputs != null && inputs.getPersonId().equals(personId) ? inputs.getElectionInputs() : null;
+    }
+
+    public void saveElectionInputs(final Long sorPersonId, final Long personId, final String electionInputs) {
+        final JpaSorElectionInputsImpl inputs = this.entityManager.find(JpaSorElectionInputsImpl.class, sorPersonId);
+
+        if (inputs != null) {
+            inputs.update(personId, electionInputs);
+        } else {
+            this.entityManager.persist(new JpaSorElectionInputsImpl(sorPersonId, personId, electionInputs));
+        }
+    }
+
+    public void removeElectionInputs(final Long sorPersonId) {
+        this.entityManager.createQuery("delete from sorElectionInputs i where i.sorPersonId = :sorPersonId").setParameter("sorPersonId", sorPersonId).executeUpdate();
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.Name;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.NameCompletionIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * {@link NameCompletionIndex} over a {@link NameCompletionTrie} loaded from the official and preferred names in the
+ * <code>prc_names</code> table.
+ * <p>
+ * The trie is loaded in the background at startup.  Afterwards each change of a person replaces the names previously
+ * counted for that person, so the names of every person are remembered in a {@link PersonNameTable}.  Only changes
+ * made through this node are seen; the trie is reloaded every reload interval to pick up the others.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "nameCompletionIndex")
+public class JpaNameCompletionIndex implements NameCompletionIndex {
+
+    private static final int MAX_COMPLETIONS = 10;
+
+    private static final long DEFAULT_RELOAD_INTERVAL = 24 * 60 * 60 * 1000L;
+
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object updateLock = new Object();
+
+    private long reloadInterval = DEFAULT_RELOAD_INTERVAL;
+
+    private volatile boolean loading = false;
+
+    private volatile long loadedAt;
+
+    private volatile NameCompletionTrie trie;
+
+    // given and family name pairs of the names counted for each person.
+    private PersonNameTable namesByPerson = new PersonNameTable(0);
+
+    // changes committed while the trie is being loaded, replayed onto the loaded trie.
+    private Map<Long, String[]> changesDuringLoad;
+
+    @Inject
+    public JpaNameCompletionIndex(final PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param reloadInterval the maximum age of the trie in milliseconds.  Zero or less means it is never reloaded.
+     */
+    public void setReloadInterval(final long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        loadInBackground();
+    }
+
+    public boolean isAvailable() {
+        return this.trie != null;
+    }
+
+    public List<String> complete(final String prefix, final int maxCompletions) {
+        if (this.reloadInterval > 0 && this.trie != null && System.currentTimeMillis() - this.loadedAt > this.reloadInterval) {
+            loadInBackground();
+        }
+
+        final NameCompletionTrie current = this.trie;
+        if (current == null || prefix == null || prefix.trim().length() == 0) {
+            return new ArrayList<String>();
+        }
+        return current.complete(prefix, Math.min(maxCompletions, MAX_COMPLETIONS));
+    }
+
+    public void indexAfterCommit(final Person person) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(person.getId(), namesOf(person));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private Long personId;
+
+            private String[] names;
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                this.personId = person.getId();
+                this.names = namesOf(person);
+            }
+
+            @Override
+            public void afterCommit() {
+                update(this.personId, this.names);
+            }
+        });
+    }
+
+    public void removeAfterCommit(final Person person) {
+        final Long personId = person.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(personId, null);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                update(personId, null);
+            }
+        });
+    }
+
+    /**
+     * @return the given and family name of the official name and, if it differs, of the preferred name.
+     */
+    private String[] namesOf(final Person person) {
+        final Name officialName = person.getOfficialName();
+        final Name preferredName = person.getPreferredName();
+        final List<String> names = new ArrayList<String>(4);
+
+        if (officialName != null) {
+            names.add(officialName.getGiven());
+            names.add(officialName.getFamily());
+        }
+        if (preferredName != null && (officialName == null || !equal(preferredName.getGiven(), officialName.getGiven()) || !equal(preferredName.getFamily(), officialName.getFamily()))) {
+            names.add(preferredName.getGiven());
+            names.add(preferredName.getFamily());
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static boolean equal(final String s1, final String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    /**
+     * @param names the new names of the person, null if the person was deleted.
+     */
+    private void update(final Long personId, final String[] names) {
+        if (personId == null) {
+            return;
+        }
+
+        synchronized (this.updateLock) {
+            if (this.trie != null) {
+                apply(this.trie, this.namesByPerson, personId, names);
+            }
+            if (this.changesDuringLoad != null) {
+                this.changesDuringLoad.put(personId, names);
+            }
+        }
+    }
+
+    private static void apply(final NameCompletionTrie trie, final PersonNameTable namesByPerson, final Long personId, final String[] names) {
+        final String[] previousNames = names != null ? namesByPerson.put(personId, names) : namesByPerson.remove(personId);
+        if (Arrays.equals(previousNames, names)) {
+            return;
+        }
+        if (previousNames != null) {
+            for (int i = 0; i < previousNames.length; i += 2) {
+                trie.remove(previousNames[i], previousNames[i + 1]);
+            }
+        }
+        if (names != null) {
+            for (int i = 0; i < names.length; i += 2) {
+                trie.add(names[i], names[i + 1]);
+            }
+        }
+    }
+
+    private void loadInBackground() {
+        synchronized (this.updateLock) {
+            if (this.loading) {
+                return;
+            }
+            this.loading = true;
+        }
+
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    load();
+                } catch (final Exception e) {
+                    logger.error("Unable to load the name completions.", e);
+                } finally {
+                    loading = false;
+                }
+            }
+        }, "name-completion-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void load() {
+        final long start = System.currentTimeMillis();
+        synchronized (this.updateLock) {
+            this.changesDuringLoad = new HashMap<Long, String[]>();
+        }
+
+        try {
+            final Map<Long, List<String>> names = new HashMap<Long, List<String>>();
+            Long lastNameId = 0L;
+            int rows;
+
+            do {
+                final Long afterNameId = lastNameId;
+                final List<Object[]> page = this.transactionTemplate.execute(new TransactionCallback<List<Object[]>>() {
+                    public List<Object[]> doInTransaction(final TransactionStatus transactionStatus) {
+                        return entityManager.createQuery("select n.id, n.person.id, n.given, n.family, n.officialName from name n where n.id > :afterNameId and (n.officialName = true or n.preferredName = true) order by n.id")
+                                .setParameter("afterNameId", afterNameId).setMaxResults(LOAD_PAGE_SIZE).getResultList();
+                    }
+                });
+
+                for (final Object[] row : page) {
+                    List<String> personNames = names.get(row[1]);
+                    if (personNames == null) {
+                        personNames = new ArrayList<String>(4);
+                        names.put((Long) row[1], personNames);
+                    }
+                    // the official name first, as namesOf(Person) has it.
+                    if (Boolean.TRUE.equals(row[4])) {
+                        personNames.add(0, (String) row[3]);
+                        personNames.add(0, (String) row[2]);
+                    } else {
+                        personNames.add((String) row[2]);
+                        personNames.add((String) row[3]);
+                    }
+                    lastNameId = (Long) row[0];
+                }
+                rows = page.size();
+            } while (rows == LOAD_PAGE_SIZE);
+
+            final PersonNameTable newNamesByPerson = new PersonNameTable(names.size());
+            final List<String[]> pairs = new ArrayList<String[]>();
+            for (final Map.Entry<Long, List<String>> entry : names.entrySet()) {
+                final String[] personNames = distinctNames(entry.getValue());
+                newNamesByPerson.put(entry.getKey(), personNames);
+                for (int i = 0; i < personNames.length; i += 2) {
+                    pairs.add(new String[] {personNames[i], personNames[i + 1]});
+                }
+            }
+            names.clear();
+
+            final NameCompletionTrie newTrie = new NameCompletionTrie(MAX_COMPLETIONS);
+            newTrie.addAll(pairs);
+
+            synchronized (this.updateLock) {
+                for (final Map.Entry<Long, String[]> change : this.changesDuringLoad.entrySet()) {
+                    apply(newTrie, newNamesByPerson, change.getKey(), change.getValue());
+                }
+                this.trie = newTrie;
+                this.namesByPerson = newNamesByPerson;
+                this.loadedAt = System.currentTimeMillis();
+            }
+            logger.info(String.format("Loaded the names of %d people for completion in %d ms.", newNamesByPerson.size(), System.currentTimeMillis() - start));
+        } finally {
+            synchronized (this.updateLock) {
+                this.changesDuringLoad = null;
+            }
+        }
+    }
+
+    /**
+     * Drops the preferred name if it is the official name, as {@link #namesOf(Person)} does, and any names past the
+     * official and preferred one.
+     */
+    private static String[] distinctNames(final List<String> names) {
+        if (names.size() >= 4 && equal(names.get(0), names.get(2)) && equal(names.get(1), names.get(3))) {
+            return new String[] {names.get(0), names.get(1)};
+        }
+        return names.subList(0, Math.min(names.size(), 4)).toArray(new String[Math.min(names.size(), 4)]);
+    }
+}
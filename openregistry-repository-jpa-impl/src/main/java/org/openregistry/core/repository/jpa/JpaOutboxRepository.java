@@ -0,0 +1,126 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.jpa.JpaOutboxEventImpl;
+import org.openregistry.core.domain.jpa.JpaOutboxLeaseImpl;
+import org.openregistry.integration.OutboxEvent;
+import org.openregistry.integration.OutboxRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Outbox stored in the <code>prc_outbox_events</code> table.  The publishing lease is the single row of the
+ * <code>prc_outbox_leases</code> table, taken over with a conditional update so that two nodes cannot both hold it.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "outboxRepository")
+public class JpaOutboxRepository implements OutboxRepository {
+
+    private static final String PUBLISHER_LEASE = "publisher";
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public OutboxEvent addEvent(final String destinationId, final Serializable messageBody, final Map<String, Object> metadata, final String orderingKey) {
+        final JpaOutboxEventImpl event = new JpaOutboxEventImpl(destinationId, messageBody, metadata, orderingKey);
+        this.entityManager.persist(event);
+        return event;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<OutboxEvent> findPublishableEvents(final Date now, final int maxEvents) {
+        return (List<OutboxEvent>) this.entityManager.createQuery("select e from outboxEvent e where e.deadLetter = false and e.nextAttemptTime <= :now and not exists " +
+                "(select w.id from outboxEvent w where w.orderingKey = e.orderingKey and w.id < e.id and w.deadLetter = false and w.nextAttemptTime > :now) order by e.id")
+                .setParameter("now", now).setMaxResults(maxEvents).getResultList();
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void removeEvents(final Collection<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final List<Long> ids = new ArrayList<Long>();
+        for (final OutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        this.entityManager.createQuery("delete from outboxEvent e where e.id in (:ids)").setParameter("ids", ids).executeUpdate();
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void reschedule(final OutboxEvent event, final Date nextAttemptTime, final String error) {
+        final JpaOutboxEventImpl storedEvent = this.entityManager.find(JpaOutboxEventImpl.class, event.getId());
+        if (storedEvent != null) {
+            storedEvent.reschedule(nextAttemptTime, error);
+        }
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void deadLetter(final OutboxEvent event, final String error) {
+        final JpaOutboxEventImpl storedEvent = this.entityManager.find(JpaOutboxEventImpl.class, event.getId());
+        if (storedEvent != null) {
+            storedEvent.deadLetter(error);
+        }
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public long countEvents() {
+        return (Long) this.entityManager.createQuery("select count(e) from outboxEvent e where e.deadLetter = false").getSingleResult();
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public long countDeadLetters() {
+        return (Long) this.entityManager.createQuery("select count(e) from outboxEvent e where e.deadLetter = true").getSingleResult();
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean acquireLease(final String publisherId, final Date now, final Date expiryTime) {
+        final int updated = this.entityManager.createQuery("update outboxLease l set l.holder = :holder, l.expiryTime = :expiryTime " +
+                "where l.id = :id and (l.holder = :holder or l.expiryTime < :now)").setParameter("holder", publisherId)
+                .setParameter("expiryTime", expiryTime).setParameter("id", PUBLISHER_LEASE).setParameter("now", now).executeUpdate();
+        if (updated > 0) {
+            return true;
+        }
+        if (this.entityManager.find(JpaOutboxLeaseImpl.class, PUBLISHER_LEASE) != null) {
+            return false;
+        }
+
+        // the first publisher ever; of two at once, the second fails on the primary key.
+        this.entityManager.persist(new JpaOutboxLeaseImpl(PUBLISHER_LEASE, publisherId, expiryTime));
+        this.entityManager.flush();
+        return true;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseLease(final String publisherId) {
+        this.entityManager.createQuery("update outboxLease l set l.expiryTime = :expiryTime where l.id = :id and l.holder = :holder")
+                .setParameter("expiryTime", new Date(0)).setParameter("id", PUBLISHER_LEASE).setParameter("holder", publisherId).executeUpdate();
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.audit.SpringSecurityRevisionEntity;
+import org.openregistry.core.domain.PersonChange;
+import org.openregistry.core.domain.PersonChange.ChangeType;
+import org.openregistry.core.repository.PersonChangeFeedRepository;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * {@link PersonChangeFeedRepository} reading the Envers audit tables of the calculated person and of the entities
+ * belonging to it.
+ * <p>
+ * Each audit table is read with its own keyset query on the revision and the person id, which the indexes in
+ * <code>change-feed-schema.sql</code> serve as range scans, and the results are merged.  Changes to the addresses,
+ * emails, phones, urls and leaves of a role are attributed to the person through the current role; changes to a
+ * role that has been removed since are covered by the removal of the role itself.
+ * <p>
+ * Revision numbers are allocated before the transaction commits, so a revision can become visible after a later one.
+ * The feed therefore stops at the revisions that are younger than the settle time, which has to exceed the duration
+ * of the longest audited transaction.  When the audit rows are written by an {@link org.openregistry.core.audit.AsyncAuditWriter}, a
+ * revision can also be committed before its rows are in the audit tables, so the feed stops before the first
+ * {@link org.openregistry.core.audit.PendingAuditRevision} as well.
+ * <p>
+ * A source that returned a full page may have more changes after its last one, so only the changes up to the
+ * smallest last change of the full pages are complete, and the page is cut there.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "personChangeFeedRepository")
+public class JpaPersonChangeFeedRepository implements PersonChangeFeedRepository {
+
+    private static final long DEFAULT_SETTLE_TIME = 30000;
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    // Envers' revision types.
+    private static final int REVISION_TYPE_ADD = 0;
+
+    private static final int REVISION_TYPE_DELETE = 2;
+
+    private static final ChangeSource[] CHANGE_SOURCES = {
+            new AuditTableChangeSource("aud_prc_persons a", "a.id", true),
+            new AuditTableChangeSource("aud_prc_names a", "a.person_id", false),
+            new AuditTableChangeSource("aud_prc_identifiers a", "a.person_id", false),
+            new AuditTableChangeSource("aud_prc_role_records a", "a.person_id", false),
+            new AuditTableChangeSource("aud_prc_addresses a join prc_role_records r on r.id = a.role_record_id", "r.person_id", false),
+            new AuditTableChangeSource("aud_prc_emails a join prc_role_records r on r.id = a.role_record_id", "r.person_id", false),
+            new AuditTableChangeSource("aud_prc_phones a join prc_role_records r on r.id = a.role_record_id", "r.person_id", false),
+            new AuditTableChangeSource("aud_prc_urls a join prc_role_records r on r.id = a.role_record_id", "r.person_id", false),
+            new AuditTableChangeSource("aud_prc_leaves_of_absence a join prc_role_records r on r.id = a.role_record_id", "r.person_id", false)
+    };
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    private long settleTime = DEFAULT_SETTLE_TIME;
+
+    /**
+     * @param settleTimeInSeconds how old a revision has to be before it is reported.
+     */
+    public void setSettleTimeInSeconds(final int settleTimeInSeconds) {
+        this.settleTime = settleTimeInSeconds * 1000L;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<PersonChange> findChangesAfter(final long afterRevision, final long afterPersonId, final int maxChanges) throws RepositoryAccessException {
+        final Number settledRevision = (Number) this.entityManager.createQuery("select max(r.id) from SpringSecurityRevisionEntity r where r.timestamp <= :cutoff")
+                .setParameter("cutoff", System.currentTimeMillis() - this.settleTime).getSingleResult();
+        final Number pendingRevision = (Number) this.entityManager.createQuery("select min(p.revision) from pendingAuditRevision p").getSingleResult();
+        if (settledRevision == null) {
+            return new ArrayList<PersonChange>();
+        }
+
+        final long lastRevision = pendingRevision != null ? Math.min(settledRevision.longValue(), pendingRevision.longValue() - 1) : settledRevision.longValue();
+        if (lastRevision <= afterRevision) {
+            return new ArrayList<PersonChange>();
+        }
+
+        final SortedMap<ChangeKey, ChangeType> changes = findChanges(this.entityManager, CHANGE_SOURCES, afterRevision, afterPersonId, lastRevision, maxChanges);
+        return toPersonChanges(changes);
+    }
+
+    /**
+     * Merges the changes of the sources after the position, up to the last revision.
+     *
+     * @return at most maxChanges changes, all of those following the position up to the last one.
+     */
+    static SortedMap<ChangeKey, ChangeType> findChanges(final EntityManager entityManager, final ChangeSource[] sources, final long afterRevision,
+                                                        final long afterPersonId, final long lastRevision, final int maxChanges) {
+        final SortedMap<ChangeKey, ChangeType> changes = new TreeMap<ChangeKey, ChangeType>();
+        ChangeKey completeUpTo = null;
+
+        for (final ChangeSource source : sources) {
+            final List<Object[]> rows = source.findChangesAfter(entityManager, afterRevision, afterPersonId, lastRevision, maxChanges);
+
+            ChangeKey key = null;
+            for (final Object[] row : rows) {
+                key = new ChangeKey(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+                if (source.hasRevisionType()) {
+                    changes.put(key, toChangeType(((Number) row[2]).intValue()));
+                } else if (!changes.containsKey(key)) {
+                    changes.put(key, ChangeType.MODIFIED);
+                }
+            }
+
+            if (rows.size() == maxChanges && (completeUpTo == null || key.compareTo(completeUpTo) < 0)) {
+                completeUpTo = key;
+            }
+        }
+
+        final SortedMap<ChangeKey, ChangeType> completeChanges = completeUpTo != null ? changes.headMap(completeUpTo.next()) : changes;
+        if (completeChanges.size() <= maxChanges) {
+            return completeChanges;
+        }
+        final Iterator<ChangeKey> keys = completeChanges.keySet().iterator();
+        for (int i = 0; i < maxChanges; i++) {
+            keys.next();
+        }
+        return completeChanges.headMap(keys.next());
+    }
+
+    private static ChangeType toChangeType(final int revisionType) {
+        switch (revisionType) {
+            case REVISION_TYPE_ADD:
+                return ChangeType.ADDED;
+            case REVISION_TYPE_DELETE:
+                return ChangeType.DELETED;
+            default:
+                return ChangeType.MODIFIED;
+        }
+    }
+
+    private List<PersonChange> toPersonChanges(final SortedMap<ChangeKey, ChangeType> changes) {
+        final Set<Integer> revisionIds = new HashSet<Integer>();
+        final Set<Long> personIds = new HashSet<Long>();
+        for (final Map.Entry<ChangeKey, ChangeType> change : changes.entrySet()) {
+            revisionIds.add((int) change.getKey().revision);
+            if (change.getValue() != ChangeType.DELETED) {
+                personIds.add(change.getKey().personId);
+            }
+        }
+
+        final Map<Integer, SpringSecurityRevisionEntity> revisions = new HashMap<Integer, SpringSecurityRevisionEntity>();
+        for (final List<Integer> ids : partition(revisionIds)) {
+            final List<SpringSecurityRevisionEntity> entities = this.entityManager.createQuery("select r from SpringSecurityRevisionEntity r where r.id in (:ids)")
+                    .setParameter("ids", ids).getResultList();
+            for (final SpringSecurityRevisionEntity entity : entities) {
+                revisions.put(entity.getId(), entity);
+            }
+        }
+
+        final Map<Long, Map<String, String>> primaryIdentifiers = new HashMap<Long, Map<String, String>>();
+        for (final List<Long> ids : partition(personIds)) {
+            final List<Object[]> rows = this.entityManager.createQuery("select i.person.id, i.type.name, i.value from identifier i " +
+                    "where i.person.id in (:ids) and i.primary = true and i.deleted = false").setParameter("ids", ids).getResultList();
+            for (final Object[] row : rows) {
+                Map<String, String> identifiers = primaryIdentifiers.get((Long) row[0]);
+                if (identifiers == null) {
+                    identifiers = new HashMap<String, String>();
+                    primaryIdentifiers.put((Long) row[0], identifiers);
+                }
+                identifiers.put((String) row[1], (String) row[2]);
+            }
+        }
+
+        final List<PersonChange> personChanges = new ArrayList<PersonChange>(changes.size());
+        for (final Map.Entry<ChangeKey, ChangeType> change : changes.entrySet()) {
+            final ChangeKey key = change.getKey();
+            final SpringSecurityRevisionEntity revision = revisions.get((int) key.revision);
+            personChanges.add(new PersonChange(key.revision, key.personId, change.getValue(), revision != null ? revision.getRevisionDate() : null,
+                    revision != null ? revision.getUsername() : null, primaryIdentifiers.get(key.personId)));
+        }
+        return personChanges;
+    }
+
+    private static <T> List<List<T>> partition(final Collection<T> values) {
+        final List<T> list = new ArrayList<T>(values);
+        final List<List<T>> partitions = new ArrayList<List<T>>();
+        for (int i = 0; i < list.size(); i += MAX_IDS_PER_QUERY) {
+            partitions.add(list.subList(i, Math.min(i + MAX_IDS_PER_QUERY, list.size())));
+        }
+        return partitions;
+    }
+
+    /**
+     * Records changes of the calculated person, queried for the changes after a position.
+     */
+    interface ChangeSource {
+
+        /**
+         * @return whether the rows carry Envers' revision type of the person after the revision and the person id.
+         */
+        boolean hasRevisionType();
+
+        /**
+         * @return at most maxChanges rows of the changes following the position, up to the last revision, in
+         * ascending revision and person id order.
+         */
+        List<Object[]> findChangesAfter(EntityManager entityManager, long afterRevision, long afterPersonId, long lastRevision, int maxChanges);
+    }
+
+    /**
+     * An audit table recording changes of the calculated person.
+     */
+    private static final class AuditTableChangeSource implements ChangeSource {
+
+        private final String sql;
+
+        private final boolean hasRevisionType;
+
+        private AuditTableChangeSource(final String from, final String personIdColumn, final boolean hasRevisionType) {
+            this.sql = "select a.REV, " + personIdColumn + (hasRevisionType ? ", a.REVTYPE" : "") + " from " + from +
+                    " where a.REV <= :lastRevision and (a.REV > :afterRevision or (a.REV = :afterRevision and " + personIdColumn + " > :afterPersonId))" +
+                    " order by a.REV, " + personIdColumn;
+            this.hasRevisionType = hasRevisionType;
+        }
+
+        public boolean hasRevisionType() {
+            return this.hasRevisionType;
+        }
+
+        public List<Object[]> findChangesAfter(final EntityManager entityManager, final long afterRevision, final long afterPersonId, final long lastRevision, final int maxChanges) {
+            return entityManager.createNativeQuery(this.sql)
+                    .setParameter("afterRevision", afterRevision)
+                    .setParameter("afterPersonId", afterPersonId)
+                    .setParameter("lastRevision", lastRevision)
+                    .setMaxResults(maxChanges).getResultList();
+        }
+    }
+
+    static final class ChangeKey implements Comparable<ChangeKey> {
+
+        private final long revision;
+
+        private final long personId;
+
+        ChangeKey(final long revision, final long personId) {
+            this.revision = revision;
+            this.personId = personId;
+        }
+
+        long getRevision() {
+            return this.revision;
+        }
+
+        long getPersonId() {
+            return this.personId;
+        }
+
+        private ChangeKey next() {
+            return new ChangeKey(this.revision, this.personId + 1);
+        }
+
+        public int compareTo(final ChangeKey other) {
+            if (this.revision != other.revision) {
+                return this.revision < other.revision ? -1 : 1;
+            }
+            return this.personId < other.personId ? -1 : (this.personId == other.personId ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof ChangeKey && compareTo((ChangeKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (this.revision * 31 + this.personId);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
+import org.openregistry.core.repository.PersonExportRepository;
+import org.openregistry.core.repository.PersonFetchProfile;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.*;
+
+/**
+ * Reads pages of <code>prc_persons</code> by primary key range.  Only the ids are read from <code>prc_persons</code>;
+ * the views come from the stored read model in <code>prc_person_views</code>, one query per page.  The few people
+ * without a stored view are loaded read-only with the {@link PersonFetchProfile#REST_SUMMARY} profile, so each of
+ * their collections costs one query for the whole page, and the persistence context is cleared once their views have
+ * been built.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "personExportRepository")
+public class JpaPersonExportRepository implements PersonExportRepository {
+
+    // keeps the "in" lists within what every database accepts.
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    private final CalculatedPersonViewRepository calculatedPersonViewRepository;
+
+    @Inject
+    public JpaPersonExportRepository(final CalculatedPersonViewRepository calculatedPersonViewRepository) {
+        this.calculatedPersonViewRepository = calculatedPersonViewRepository;
+    }
+
+    public List<CalculatedPersonView> findPeopleAfter(final Long afterPersonId, final int pageSize) throws RepositoryAccessException {
+        final List<CalculatedPersonView> page = new ArrayList<CalculatedPersonView>(pageSize);
+        Long lastPersonId = afterPersonId;
+
+        while (true) {
+            final int maxResults = pageSize - page.size();
+            final List<Long> personIds = findPersonIdsAfter(lastPersonId, maxResults);
+            addViews(personIds, page);
+
+            // a person deleted since its id was read has no view; read on so only the last page is short.
+            if (personIds.size() < maxResults || page.size() == pageSize) {
+                return page;
+            }
+            lastPersonId = personIds.get(personIds.size() - 1);
+        }
+    }
+
+    private List<Long> findPersonIdsAfter(final Long afterPersonId, final int maxResults) {
+        final Query query;
+        if (afterPersonId == null) {
+            query = this.entityManager.createQuery("select p.id from person p order by p.id");
+        } else {
+            query = this.entityManager.createQuery("select p.id from person p where p.id > :afterPersonId order by p.id").setParameter("afterPersonId", afterPersonId);
+        }
+        return query.setHint("org.hibernate.fetchSize", maxResults).setMaxResults(maxResults).getResultList();
+    }
+
+    private void addViews(final List<Long> personIds, final List<CalculatedPersonView> page) {
+        final Map<Long, CalculatedPersonView> views = this.calculatedPersonViewRepository.findByPersonIds(personIds);
+
+        final List<Long> missingPersonIds = new ArrayList<Long>();
+        for (final Long personId : personIds) {
+            if (!views.containsKey(personId)) {
+                missingPersonIds.add(personId);
+            }
+        }
+        views.putAll(calculateViews(missingPersonIds));
+
+        for (final Long personId : personIds) {
+            final CalculatedPersonView view = views.get(personId);
+            if (view != null) {
+                page.add(view);
+            }
+        }
+    }
+
+    private Map<Long, CalculatedPersonView> calculateViews(final List<Long> personIds) {
+        final Map<Long, CalculatedPersonView> views = new HashMap<Long, CalculatedPersonView>();
+        if (personIds.isEmpty()) {
+            return views;
+        }
+
+        final List<Person> people = new ArrayList<Person>(personIds.size());
+        for (int from = 0; from < personIds.size(); from += MAX_IDS_PER_QUERY) {
+            people.addAll(this.entityManager.createQuery("select p from person p where p.id in (:ids)")
+                    .setParameter("ids", personIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, personIds.size())))
+                    .setHint("org.hibernate.readOnly", Boolean.TRUE).getResultList());
+        }
+        new PersonFetchProfileLoader(this.entityManager).load(people, PersonFetchProfile.REST_SUMMARY);
+
+        for (final Person person : people) {
+            views.put(person.getId(), new CalculatedPersonView(person));
+        }
+
+        this.entityManager.clear();
+        return views;
+    }
+}
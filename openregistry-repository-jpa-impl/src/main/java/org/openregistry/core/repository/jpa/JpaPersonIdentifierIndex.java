@@ -0,0 +1,282 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.Identifier;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.PersonIdentifierIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link PersonIdentifierIndex} loaded from the <code>prc_identifiers</code> table into an {@link IdentifierIndex}.
+ * <p>
+ * The index is loaded in the background at startup, paging through the table by primary key, and rebuilt the same way
+ * when it is older than the rebuild interval, so changes made by other nodes are picked up eventually.  Changes made
+ * by this node are applied as their transactions commit.  Until the first load completes every lookup misses.
+ * <p>
+ * The index is only authoritative if configured so, which is only safe when every identifier change goes through this
+ * node (i.e. a single node deployment).
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "personIdentifierIndex")
+public class JpaPersonIdentifierIndex implements PersonIdentifierIndex {
+
+    private static final long DEFAULT_REBUILD_INTERVAL = 60 * 60 * 1000L;
+
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean building = new AtomicBoolean(false);
+
+    private final Object updateLock = new Object();
+
+    private long rebuildInterval = DEFAULT_REBUILD_INTERVAL;
+
+    private boolean authoritative = false;
+
+    private volatile IdentifierIndex index;
+
+    private volatile long builtAt;
+
+    // changes committed while a rebuild is running, replayed onto the rebuilt index.
+    private List<IdentifierChange> changesDuringBuild;
+
+    @Inject
+    public JpaPersonIdentifierIndex(final PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param rebuildInterval the maximum age of the index in milliseconds.  Zero or less means it is never rebuilt.
+     */
+    public void setRebuildInterval(final long rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    /**
+     * @param authoritative true if a miss means the identifier does not exist.  Only set this if no other node or
+     * process changes identifiers.
+     */
+    public void setAuthoritative(final boolean authoritative) {
+        this.authoritative = authoritative;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuildInBackground();
+    }
+
+    public Long findPersonId(final String identifierType, final String identifierValue) {
+        final IdentifierIndex current = currentIndex();
+        if (current == null) {
+            return null;
+        }
+        final long personId = current.get(identifierType, identifierValue);
+        return personId != IdentifierIndex.NOT_FOUND ? personId : null;
+    }
+
+    public Set<Long> findPersonIds(final String identifierValue) {
+        final IdentifierIndex current = currentIndex();
+        final Set<Long> personIds = new HashSet<Long>();
+        if (current != null) {
+            for (final long personId : current.getAll(identifierValue)) {
+                personIds.add(personId);
+            }
+        }
+        return personIds;
+    }
+
+    public boolean isAuthoritative() {
+        return this.authoritative && this.index != null;
+    }
+
+    public void reindexAfterCommit(final Person person) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(new IdentifierChange(person, false));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private IdentifierChange change;
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                // read the identifiers while the persistence context can still load them.
+                this.change = new IdentifierChange(person, false);
+            }
+
+            @Override
+            public void afterCommit() {
+                apply(this.change);
+            }
+        });
+    }
+
+    public void removeAfterCommit(final Person person) {
+        final IdentifierChange change = new IdentifierChange(person, true);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private IdentifierIndex currentIndex() {
+        if (this.rebuildInterval > 0 && this.index != null && System.currentTimeMillis() - this.builtAt > this.rebuildInterval) {
+            rebuildInBackground();
+        }
+        return this.index;
+    }
+
+    private void apply(final IdentifierChange change) {
+        synchronized (this.updateLock) {
+            if (this.index != null) {
+                change.applyTo(this.index);
+            }
+            if (this.changesDuringBuild != null) {
+                this.changesDuringBuild.add(change);
+            }
+        }
+    }
+
+    private void rebuildInBackground() {
+        if (!this.building.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    rebuild();
+                } catch (final Exception e) {
+                    logger.error("Unable to load the identifier index; identifiers are resolved against the database.", e);
+                } finally {
+                    building.set(false);
+                }
+            }
+        }, "identifier-index-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        final long start = System.currentTimeMillis();
+        synchronized (this.updateLock) {
+            this.changesDuringBuild = new ArrayList<IdentifierChange>();
+        }
+
+        try {
+            final IdentifierIndex newIndex = new IdentifierIndex(this.index != null ? this.index.size() : LOAD_PAGE_SIZE);
+            Long lastIdentifierId = 0L;
+            int rows;
+
+            do {
+                final Long afterIdentifierId = lastIdentifierId;
+                final List<Object[]> page = this.transactionTemplate.execute(new TransactionCallback<List<Object[]>>() {
+                    public List<Object[]> doInTransaction(final TransactionStatus transactionStatus) {
+                        return entityManager.createQuery("select i.id, t.name, i.value, i.person.id from identifier i join i.type t where i.id > :afterIdentifierId order by i.id")
+                                .setParameter("afterIdentifierId", afterIdentifierId).setMaxResults(LOAD_PAGE_SIZE).getResultList();
+                    }
+                });
+
+                for (final Object[] row : page) {
+                    newIndex.put((String) row[1], (String) row[2], (Long) row[3]);
+                    lastIdentifierId = (Long) row[0];
+                }
+                rows = page.size();
+            } while (rows == LOAD_PAGE_SIZE);
+
+            synchronized (this.updateLock) {
+                for (final IdentifierChange change : this.changesDuringBuild) {
+                    change.applyTo(newIndex);
+                }
+                this.index = newIndex;
+                this.builtAt = System.currentTimeMillis();
+            }
+            logger.info(String.format("Loaded %d identifiers into the identifier index in %d ms.", newIndex.size(), System.currentTimeMillis() - start));
+        } finally {
+            synchronized (this.updateLock) {
+                this.changesDuringBuild = null;
+            }
+        }
+    }
+
+    /**
+     * The identifiers of a person at the time of a change.
+     */
+    private static final class IdentifierChange {
+
+        private final Long personId;
+
+        private final boolean removed;
+
+        private final List<String[]> identifiers = new ArrayList<String[]>();
+
+        IdentifierChange(final Person person, final boolean removed) {
+            this.personId = person.getId();
+            this.removed = removed;
+            for (final Identifier identifier : person.getIdentifiers()) {
+                this.identifiers.add(new String[] {identifier.getType().getName(), identifier.getValue()});
+            }
+        }
+
+        void applyTo(final IdentifierIndex index) {
+            if (this.personId == null) {
+                return;
+            }
+            for (final String[] identifier : this.identifiers) {
+                if (this.removed) {
+                    index.remove(identifier[0], identifier[1], this.personId);
+                } else {
+                    index.put(identifier[0], identifier[1], this.personId);
+                }
+            }
+        }
+    }
+}
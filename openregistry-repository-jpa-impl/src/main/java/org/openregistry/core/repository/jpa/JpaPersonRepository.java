@@ -26,7 +26,9 @@ import org.openregistry.core.domain.jpa.sor.*;
 import org.openregistry.core.domain.sor.*;
 import org.openregistry.core.repository.*;
 import org.openregistry.core.service.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.*;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.*;
@@ -49,32 +51,75 @@ public class JpaPersonRepository implements PersonRepository {
 
     private final static int MAX_QUERY_LIMIT = 1000;
 
+    @Autowired(required = false)
+    private PersonIdentifierIndex personIdentifierIndex;
+
+    @Autowired(required = false)
+    private PersonSearchIndex personSearchIndex;
+
+    @Autowired(required = false)
+    private NameCompletionIndex nameCompletionIndex;
+
+    public void setPersonIdentifierIndex(final PersonIdentifierIndex personIdentifierIndex) {
+        this.personIdentifierIndex = personIdentifierIndex;
+    }
+
+    public void setPersonSearchIndex(final PersonSearchIndex personSearchIndex) {
+        this.personSearchIndex = personSearchIndex;
+    }
+
+    public void setNameCompletionIndex(final NameCompletionIndex nameCompletionIndex) {
+        this.nameCompletionIndex = nameCompletionIndex;
+    }
+
     public Person findByInternalId(final Long id) throws RepositoryAccessException {
         return this.entityManager.find(JpaPersonImpl.class, id);
     }
-    public Person fetchCompleteCalculatedPerson(Long id){
-        return (Person) this.entityManager.createQuery("Select p from person " +
-                " p left join fetch p.identifiers i left join fetch i.type left join fetch p.names left join fetch p.roles r left join fetch p.disclosureSettings d left join fetch r.urls  left join fetch r.emailAddresses  " +
-                "left join fetch r.phones left join fetch r.addresses left join fetch r.organizationalUnit left join fetch d.addressDisclosureSettings " +
-                "  left join fetch d.emailDisclosureSettings left join fetch d.phoneDisclosureSettings left join fetch d.urlDisclosureSettings  where p.id = :id").setParameter("id", id.longValue()).getSingleResult();
 
+    public Person findByInternalId(final Long id, final PersonFetchProfile profile) throws RepositoryAccessException {
+        return new PersonFetchProfileLoader(this.entityManager).load(findByInternalId(id), profile);
+    }
+
+    public Person fetchCompleteCalculatedPerson(Long id){
+        return findByInternalId(id, PersonFetchProfile.UI_DETAIL);
     }
 
     public SorPerson findSorByInternalId(final Long id) throws RepositoryAccessException {
         return this.entityManager.find(JpaSorPersonImpl.class, id);
     }
 
+    public Person findByIdentifier(final String identifierType, final String identifierValue, final PersonFetchProfile profile) throws RepositoryAccessException {
+        return new PersonFetchProfileLoader(this.entityManager).load(findByIdentifier(identifierType, identifierValue), profile);
+    }
+
     public Person findByIdentifier(final String identifierType, final String identifierValue) throws RepositoryAccessException {
         if (Type.IdentifierTypes.RCN.toString().equalsIgnoreCase(identifierType)) {
             //return (Person) this.entityManager.createQuery("Select p from person p join p.idCards i where i.isPrimary and i.cardNumber = :value").setParameter("value", identifierValue).getSingleResult();
             return (Person) this.entityManager.createQuery("Select p from person p join p.idCards i where i.cardNumber = :value").setParameter("value", identifierValue).getSingleResult();
         } else {
+            if (this.personIdentifierIndex != null) {
+                final Long personId = this.personIdentifierIndex.findPersonId(identifierType, identifierValue);
+
+                if (personId != null) {
+                    // the index may be behind; only trust it if the person really has the identifier.
+                    final Person person = this.entityManager.find(JpaPersonImpl.class, personId);
+                    if (person != null && person.findIdentifierByValue(identifierType, identifierValue) != null) {
+                        return person;
+                    }
+                } else if (this.personIdentifierIndex.isAuthoritative()) {
+                    throw new NoResultException("No person with identifier " + identifierType + " " + identifierValue);
+                }
+            }
             return (Person) this.entityManager.createQuery("Select p from person p join p.identifiers i join i.type t where t.name = :name and i.value = :value").setParameter("name", identifierType).setParameter("value", identifierValue).getSingleResult();
         }
     }
 
     @Override
     public List<Person> findByUnknownIdentifier(final String identifierValue) throws RepositoryAccessException {
+        if (this.personSearchIndex != null && this.personSearchIndex.isAvailable()) {
+            return findRanked(this.personSearchIndex.searchByIdentifierPrefix(identifierValue, 0, MAX_QUERY_LIMIT), null);
+        }
+
         final CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
 
         final CriteriaQuery<JpaPersonImpl> c =criteriaBuilder.createQuery(JpaPersonImpl.class);
@@ -112,6 +157,14 @@ public class JpaPersonRepository implements PersonRepository {
         final Date roleExpDate = searchCriteria.getRoleExpDate();
         final Type roleType = searchCriteria.getAffiliationType();
 
+        if (this.personSearchIndex != null && this.personSearchIndex.isAvailable() && !StringUtils.hasText(sponsorNetID) && organizationalUnit == null && roleExpDate == null && roleType == null) {
+            if (StringUtils.hasText(givenName) || StringUtils.hasText(familyName)) {
+                return findRanked(this.personSearchIndex.searchByName(givenName, familyName, birthDate, 0, MAX_QUERY_LIMIT), birthDate);
+            }
+            if (StringUtils.hasText(searchCriteriaName)) {
+                return findRanked(this.personSearchIndex.search(searchCriteriaName, birthDate, 0, MAX_QUERY_LIMIT), birthDate);
+            }
+        }
 
         final CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
 
@@ -216,6 +269,44 @@ public class JpaPersonRepository implements PersonRepository {
         return new ArrayList<Person>(persons);
     }
 
+    /**
+     * Loads the people of the search index hits, in the order of the hits.
+     *
+     * @param birthDate if not null, only the people born on that date are returned.
+     */
+    private List<Person> findRanked(final List<PersonSearchIndex.Hit> hits, final Date birthDate) {
+        if (hits.isEmpty()) {
+            return new ArrayList<Person>();
+        }
+
+        final List<Long> personIds = new ArrayList<Long>();
+        for (final PersonSearchIndex.Hit hit : hits) {
+            personIds.add(hit.getPersonId());
+        }
+
+        final Query query;
+        if (birthDate != null) {
+            query = this.entityManager.createQuery("select p from person p where p.id in (:ids) and p.dateOfBirth = :dateOfBirth").setParameter("dateOfBirth", birthDate);
+        } else {
+            query = this.entityManager.createQuery("select p from person p where p.id in (:ids)");
+        }
+        final List<JpaPersonImpl> people = query.setParameter("ids", personIds).getResultList();
+
+        final Map<Long, Person> peopleById = new HashMap<Long, Person>();
+        for (final JpaPersonImpl person : people) {
+            peopleById.put(person.getId(), person);
+        }
+
+        final List<Person> rankedPeople = new ArrayList<Person>();
+        for (final Long personId : personIds) {
+            final Person person = peopleById.get(personId);
+            if (person != null) {
+                rankedPeople.add(person);
+            }
+        }
+        return rankedPeople;
+    }
+
     public List<Person> findByFamilyName(final String family) throws RepositoryAccessException {
         return this.entityManager.createQuery("SELECT distinct p FROM person p JOIN  p.names n WHERE n.family = :name")
                 .setParameter("name", family).getResultList();
@@ -228,16 +319,83 @@ public class JpaPersonRepository implements PersonRepository {
 
 
     public Person savePerson(final Person person) throws RepositoryAccessException {
+        return savePerson(person, true);
+    }
+
+    public Person savePerson(final Person person, final boolean flush) throws RepositoryAccessException {
         Person p= this.entityManager.merge(person);
         //the only solution of insert before delete problem
-        this.entityManager.flush();
+        if (flush) {
+            this.entityManager.flush();
+        }
+        indexAfterCommit(p);
         return  p;
     }
 
+    public Person savePersonAtCommit(final Person person) throws RepositoryAccessException {
+        // a detached person is merged with its removed and new elements at once, which only a flush right away can order.
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || (person.getId() != null && !this.entityManager.contains(person))) {
+            return savePerson(person, true);
+        }
+
+        final DeferredPersonFlush deferredFlush = DeferredPersonFlush.forCurrentTransaction(this.entityManager, this);
+
+        // a new person has nothing to remove, so its inserts can be queued now.
+        final Person p = person.getId() == null ? this.entityManager.merge(person) : person;
+        deferredFlush.add(p);
+        indexAfterCommit(p);
+        return p;
+    }
+
+    private void indexAfterCommit(final Person p) {
+        if (this.personIdentifierIndex != null) {
+            this.personIdentifierIndex.reindexAfterCommit(p);
+        }
+        if (this.personSearchIndex != null) {
+            this.personSearchIndex.indexAfterCommit(p);
+        }
+        if (this.nameCompletionIndex != null) {
+            this.nameCompletionIndex.indexAfterCommit(p);
+        }
+    }
+
+    public void flush() throws RepositoryAccessException {
+        this.entityManager.flush();
+    }
+
     public SorPerson saveSorPerson(final SorPerson person) throws RepositoryAccessException {
+        if (person instanceof JpaSorPersonImpl) {
+            updateContentHashes((JpaSorPersonImpl) person);
+        }
         return this.entityManager.merge(person);
     }
 
+    public boolean isSorPersonUnchanged(final SorPerson person) {
+        if (!(person instanceof JpaSorPersonImpl) || ((JpaSorPersonImpl) person).getContentHash() == null || ((JpaSorPersonImpl) person).getRolesHash() == null) {
+            return false;
+        }
+        return ((JpaSorPersonImpl) person).getContentHash().equals(SorContentHash.of(person))
+                && ((JpaSorPersonImpl) person).getRolesHash().equals(SorContentHash.ofRoles(person.getRoles()));
+    }
+
+    public String getSnapshotHash(final SorPerson person) {
+        return SorContentHash.ofSnapshot(person);
+    }
+
+    public Map<String, String> findSorSnapshotHashes(final String sorSource, final String afterSorId, final int maxResults) {
+        final Query query = this.entityManager.createQuery("select s.sorId, s.snapshotHash from sorPerson s where s.sourceSor = :sorSource"
+                + (afterSorId != null ? " and s.sorId > :afterSorId" : "") + " order by s.sorId").setParameter("sorSource", sorSource).setMaxResults(maxResults);
+        if (afterSorId != null) {
+            query.setParameter("afterSorId", afterSorId);
+        }
+
+        final Map<String, String> snapshotHashes = new LinkedHashMap<String, String>();
+        for (final Object[] row : (List<Object[]>) query.getResultList()) {
+            snapshotHashes.put((String) row[0], (String) row[1]);
+        }
+        return snapshotHashes;
+    }
+
     public void deleteSorRole(final SorPerson person, final SorRole role) {
         SorRole sorRoleToDelete = this.entityManager.getReference(role.getClass(), role.getId());
         this.entityManager.remove(sorRoleToDelete);
@@ -249,11 +407,44 @@ public class JpaPersonRepository implements PersonRepository {
     }
 
     public SorRole saveSorRole(final SorRole role) throws RepositoryAccessException {
-        return this.entityManager.merge(role);
+        if (role instanceof JpaSorRoleImpl) {
+            ((JpaSorRoleImpl) role).setContentHash(SorContentHash.of(role));
+        }
+        final SorRole savedRole = this.entityManager.merge(role);
+        if (savedRole.getPerson() instanceof JpaSorPersonImpl) {
+            ((JpaSorPersonImpl) savedRole.getPerson()).setRolesHash(SorContentHash.ofRoles(savedRole.getPerson().getRoles()));
+        }
+        return savedRole;
+    }
+
+    public boolean isSorRoleUnchanged(final SorRole role) {
+        if (!(role instanceof JpaSorRoleImpl) || ((JpaSorRoleImpl) role).getContentHash() == null) {
+            return false;
+        }
+        return ((JpaSorRoleImpl) role).getContentHash().equals(SorContentHash.of(role));
+    }
+
+    private void updateContentHashes(final JpaSorPersonImpl person) {
+        for (final SorRole role : person.getRoles()) {
+            if (role instanceof JpaSorRoleImpl) {
+                ((JpaSorRoleImpl) role).setContentHash(SorContentHash.of(role));
+            }
+        }
+        person.setContentHash(SorContentHash.of(person));
+        person.setSnapshotHash(SorContentHash.ofSnapshot(person));
+        person.setRolesHash(SorContentHash.ofRoles(person.getRoles()));
     }
 
     public SorPerson findBySorIdentifierAndSource(final String sorSource, final String sorId) {
-        return (SorPerson) this.entityManager.createQuery("select s from sorPerson s where s.sourceSor = :sorSource and s.sorId = :sorId").setParameter("sorSource", sorSource).setParameter("sorId", sorId).getSingleResult();
+        return (SorPerson) this.entityManager.createQuery("select s from sorPerson s where s.sourceSor = :sorSource and s.sorId = :sorId").setParameter("sorSource", sorSource).setParameter("sorId", sorId)
+                .setHint("org.hibernate.cacheable", true).setHint("org.hibernate.cacheRegion", "query.sorPersonBySorIdentifier").getSingleResult();
+    }
+
+    public List<SorPerson> findBySorIdentifiersAndSource(final String sorSource, final Collection<String> sorIds) {
+        if (sorIds.isEmpty()) {
+            return new ArrayList<SorPerson>();
+        }
+        return (List<SorPerson>) this.entityManager.createQuery("select s from sorPerson s where s.sourceSor = :sorSource and s.sorId in (:sorIds)").setParameter("sorSource", sorSource).setParameter("sorIds", sorIds).getResultList();
     }
 
     public void deleteSorPerson(final SorPerson sorPerson) {
@@ -278,6 +469,15 @@ public class JpaPersonRepository implements PersonRepository {
     public void deletePerson(final Person person) {
         this.entityManager.remove(person);
         this.entityManager.flush();
+        if (this.personIdentifierIndex != null) {
+            this.personIdentifierIndex.removeAfterCommit(person);
+        }
+        if (this.personSearchIndex != null) {
+            this.personSearchIndex.removeAfterCommit(person);
+        }
+        if (this.nameCompletionIndex != null) {
+            this.nameCompletionIndex.removeAfterCommit(person);
+        }
     }
 
     public List<Person> findByEmailAddressAndPhoneNumber(final String email, final String countryCode, final String areaCode, final String number, final String extension) {
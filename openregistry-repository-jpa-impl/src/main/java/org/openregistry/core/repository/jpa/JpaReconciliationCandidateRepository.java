@@ -0,0 +1,144 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.jpa.JpaReconciliationKeyImpl;
+import org.openregistry.core.repository.PersonFetchProfile;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+import org.openregistry.core.repository.RepositoryAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * Reconciliation candidate index stored in the <code>prc_reconciliation_keys</code> table.
+ * <p>
+ * The keys are counted first, so the people of the most selective keys are read first and those of a key shared by
+ * more people than wanted are capped, rather than an arbitrary subset of all the people being kept.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "reconciliationCandidateRepository")
+public class JpaReconciliationCandidateRepository implements ReconciliationCandidateRepository {
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    public List<Person> findCandidates(final Collection<String> blockingKeys, final int maxCandidates) throws RepositoryAccessException {
+        final Set<Person> candidates = new LinkedHashSet<Person>();
+        for (final List<Person> people : findCandidatesByKey(blockingKeys, maxCandidates).values()) {
+            for (final Person person : people) {
+                if (candidates.size() == maxCandidates) {
+                    return new ArrayList<Person>(candidates);
+                }
+                candidates.add(person);
+            }
+        }
+        return new ArrayList<Person>(candidates);
+    }
+
+    public Map<String, List<Person>> findCandidatesByKey(final Collection<String> blockingKeys, final int maxCandidatesPerKey) throws RepositoryAccessException {
+        final Map<String, List<Person>> candidatesByKey = new LinkedHashMap<String, List<Person>>();
+        if (blockingKeys.isEmpty()) {
+            return candidatesByKey;
+        }
+
+        final List<Object[]> counts = this.entityManager.createQuery("select k.keyValue, count(k) from reconciliationKey k where k.keyValue in (:keys) " +
+                "group by k.keyValue order by count(k), k.keyValue").setParameter("keys", blockingKeys).getResultList();
+
+        final Map<String, List<Long>> personIdsByKey = new LinkedHashMap<String, List<Long>>();
+        final List<String> selectiveKeys = new ArrayList<String>();
+        for (final Object[] count : counts) {
+            final String key = (String) count[0];
+            if (((Number) count[1]).intValue() <= maxCandidatesPerKey) {
+                personIdsByKey.put(key, new ArrayList<Long>());
+                selectiveKeys.add(key);
+            } else {
+                personIdsByKey.put(key, (List<Long>) this.entityManager.createQuery("select k.personId from reconciliationKey k where k.keyValue = :key order by k.personId")
+                        .setParameter("key", key).setMaxResults(maxCandidatesPerKey).getResultList());
+            }
+        }
+
+        if (!selectiveKeys.isEmpty()) {
+            final List<Object[]> keys = this.entityManager.createQuery("select k.keyValue, k.personId from reconciliationKey k where k.keyValue in (:keys) order by k.personId")
+                    .setParameter("keys", selectiveKeys).getResultList();
+            for (final Object[] key : keys) {
+                personIdsByKey.get((String) key[0]).add((Long) key[1]);
+            }
+        }
+
+        final Set<Long> personIds = new HashSet<Long>();
+        for (final List<Long> ids : personIdsByKey.values()) {
+            personIds.addAll(ids);
+        }
+        if (personIds.isEmpty()) {
+            return candidatesByKey;
+        }
+
+        final List<Person> candidates = (List<Person>) this.entityManager.createQuery("select p from person p where p.id in (:ids)").setParameter("ids", personIds).getResultList();
+        new PersonFetchProfileLoader(this.entityManager).load(candidates, PersonFetchProfile.RECONCILIATION_CANDIDATE);
+        final Map<Long, Person> candidatesById = new HashMap<Long, Person>();
+        for (final Person candidate : candidates) {
+            candidatesById.put(candidate.getId(), candidate);
+        }
+
+        for (final Map.Entry<String, List<Long>> entry : personIdsByKey.entrySet()) {
+            final List<Person> people = new ArrayList<Person>(entry.getValue().size());
+            for (final Long personId : entry.getValue()) {
+                final Person person = candidatesById.get(personId);
+                if (person != null) {
+                    people.add(person);
+                }
+            }
+            candidatesByKey.put(entry.getKey(), people);
+        }
+        return candidatesByKey;
+    }
+
+    public void updateBlockingKeys(final Person person, final Set<String> blockingKeys) {
+        final Set<String> keysToAdd = new HashSet<String>(blockingKeys);
+        final List<JpaReconciliationKeyImpl> existingKeys = this.entityManager.createQuery("select k from reconciliationKey k where k.personId = :personId")
+                .setParameter("personId", person.getId()).getResultList();
+
+        for (final JpaReconciliationKeyImpl key : existingKeys) {
+            if (!keysToAdd.remove(key.getKeyValue())) {
+                this.entityManager.remove(key);
+            }
+        }
+
+        for (final String keyValue : keysToAdd) {
+            this.entityManager.persist(new JpaReconciliationKeyImpl(person.getId(), keyValue));
+        }
+    }
+
+    public void addBlockingKeys(final Person person, final Set<String> blockingKeys) {
+        for (final String keyValue : blockingKeys) {
+            this.entityManager.persist(new JpaReconciliationKeyImpl(person.getId(), keyValue));
+        }
+    }
+
+    public void removeBlockingKeys(final Person person) {
+        this.entityManager.createQuery("delete from reconciliationKey k where k.personId = :personId").setParameter("personId", person.getId()).executeUpdate();
+    }
+}
@@ -41,7 +41,7 @@ import java.util.List;
 /**
  * Default implementation of temporary repository.
  */
-@Repository(value = "referenceRepository")
+@Repository(value = "jpaReferenceRepository")
 public final class JpaReferenceRepository implements ReferenceRepository {
 
     protected Logger log = LoggerFactory.getLogger(getClass());
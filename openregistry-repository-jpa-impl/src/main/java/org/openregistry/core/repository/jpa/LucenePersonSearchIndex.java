@@ -0,0 +1,804 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.apache.lucene.analysis.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharTokenizer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openregistry.core.domain.EmailAddress;
+import org.openregistry.core.domain.Identifier;
+import org.openregistry.core.domain.Name;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.PersonChange;
+import org.openregistry.core.domain.Role;
+import org.openregistry.core.repository.PersonChangeFeedRepository;
+import org.openregistry.core.repository.PersonSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * {@link PersonSearchIndex} stored in a local Lucene index.
+ * <p>
+ * Each person is one document.  Names, identifiers and email addresses are split into words of letters and digits,
+ * with case and accents folded, so "Jos&eacute; O'Brien" is found by "jose o brien".  Identifiers are also kept verbatim
+ * for the prefix searches that used to be <code>like</code> queries.
+ * <p>
+ * Changes are applied as their transactions commit and are searchable right away (the searcher is reopened on the
+ * next search).  They are committed to disk every commit interval and on shutdown.  Changes made by other nodes, or
+ * while this node was down, are caught up every catch-up interval from the {@link PersonChangeFeedRepository}, from the
+ * position kept with each commit of the index; they are searchable once the feed reports them, after its settle time.
+ * If the index holds no such position at startup, it is (re)built in the background from the database, and
+ * {@link #isAvailable()} is false until that completes.
+ * <p>
+ * Each node and each webapp needs its own index directory, set with {@link #setIndexDirectory(File)} or the
+ * <code>openregistry.personSearchIndex.directory</code> system property.  Without one, the index is not available and
+ * people are searched in the database.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Repository(value = "personSearchIndex")
+public class LucenePersonSearchIndex implements PersonSearchIndex {
+
+    static final String INDEX_DIRECTORY_PROPERTY = "openregistry.personSearchIndex.directory";
+
+    private static final long DEFAULT_COMMIT_INTERVAL = 60 * 1000L;
+
+    private static final long DEFAULT_CATCH_UP_INTERVAL = 60 * 1000L;
+
+    // how much older than the start of a build the revision the catch-up starts after is; changes committed while the
+    // build runs, but with earlier revisions, are caught up as well.
+    private static final long CATCH_UP_MARGIN = 5 * 60 * 1000L;
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private static final int CATCH_UP_PAGE_SIZE = 1000;
+
+    // the commit data of the index: the version of its fields, and the position in the person change feed.
+    private static final String FORMAT = "format";
+
+    private static final String CURRENT_FORMAT = "2";
+
+    private static final String CAUGHT_UP_REVISION = "caughtUpRevision";
+
+    private static final String CAUGHT_UP_PERSON_ID = "caughtUpPersonId";
+
+    private static final String ID = "id";
+
+    private static final String DISPLAY_NAME = "displayName";
+
+    private static final String NAME = "name";
+
+    private static final String GIVEN_NAME = "given";
+
+    private static final String FAMILY_NAME = "family";
+
+    private static final String IDENTIFIER = "identifier";
+
+    // yyyyMMdd
+    private static final String DATE_OF_BIRTH = "dateOfBirth";
+
+    // identifiers and email addresses, split into words.
+    private static final String TEXT = "text";
+
+    private static final float NAME_BOOST = 2.0f;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Analyzer analyzer = new PersonSearchAnalyzer();
+
+    @PersistenceContext (unitName=  "OpenRegistryPersistence")
+    private EntityManager entityManager;
+
+    @Autowired(required = false)
+    private PersonChangeFeedRepository personChangeFeedRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private File indexDirectory = System.getProperty(INDEX_DIRECTORY_PROPERTY) != null ? new File(System.getProperty(INDEX_DIRECTORY_PROPERTY)) : null;
+
+    private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+    private long catchUpInterval = DEFAULT_CATCH_UP_INTERVAL;
+
+    private IndexWriter indexWriter;
+
+    private IndexReader indexReader;
+
+    private IndexSearcher indexSearcher;
+
+    private boolean searcherStale = false;
+
+    private volatile boolean uncommittedChanges = false;
+
+    private volatile boolean available = false;
+
+    private Timer commitTimer;
+
+    // the position in the person change feed up to which the index has the changes of every node.
+    private long caughtUpRevision;
+
+    private long caughtUpPersonId;
+
+    // people changed while the index is being built, which the build must not overwrite with what it read earlier.
+    private Set<Long> changedDuringBuild;
+
+    @Inject
+    public LucenePersonSearchIndex(final PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param indexDirectory the directory to keep the index in, which no other node or webapp may use.  Defaults to
+     * the <code>openregistry.personSearchIndex.directory</code> system property.
+     */
+    public void setIndexDirectory(final File indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    public void setPersonChangeFeedRepository(final PersonChangeFeedRepository personChangeFeedRepository) {
+        this.personChangeFeedRepository = personChangeFeedRepository;
+    }
+
+    /**
+     * @param commitInterval how often changes are committed to disk, in milliseconds.
+     */
+    public void setCommitInterval(final long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @param catchUpInterval how often the changes of other nodes are caught up, in milliseconds.
+     */
+    public void setCatchUpInterval(final long catchUpInterval) {
+        this.catchUpInterval = catchUpInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (this.indexDirectory == null) {
+            logger.info("No person search index directory is configured (" + INDEX_DIRECTORY_PROPERTY + "); people are searched in the database.");
+            return;
+        }
+
+        final Map<String, String> commitData;
+        try {
+            final Directory directory = FSDirectory.open(this.indexDirectory);
+            commitData = IndexReader.indexExists(directory) ? IndexReader.getCommitUserData(directory) : null;
+            open(directory);
+        } catch (final IOException e) {
+            logger.error("Unable to open the person search index in " + this.indexDirectory.getAbsolutePath() + "; people are searched in the database.", e);
+            return;
+        }
+
+        if (commitData == null || !CURRENT_FORMAT.equals(commitData.get(FORMAT)) || commitData.get(CAUGHT_UP_REVISION) == null) {
+            buildInBackground();
+        } else {
+            synchronized (this) {
+                this.caughtUpRevision = Long.parseLong(commitData.get(CAUGHT_UP_REVISION));
+                this.caughtUpPersonId = Long.parseLong(commitData.get(CAUGHT_UP_PERSON_ID));
+            }
+            logger.info(String.format("Opened the person search index with %d people.", this.indexReader.numDocs()));
+            this.available = true;
+        }
+
+        this.commitTimer = new Timer("person-search-index-commit", true);
+        this.commitTimer.schedule(new TimerTask() {
+            public void run() {
+                commit();
+            }
+        }, this.commitInterval, this.commitInterval);
+        this.commitTimer.schedule(new TimerTask() {
+            public void run() {
+                catchUp();
+            }
+        }, this.catchUpInterval, this.catchUpInterval);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        if (this.commitTimer != null) {
+            this.commitTimer.cancel();
+        }
+        if (this.indexWriter == null) {
+            this.available = false;
+            return;
+        }
+        // committed before the index is marked unavailable, so the commit keeps the position in the change feed
+        this.indexWriter.commit(commitData());
+        this.available = false;
+        this.indexReader.decRef();
+        this.indexWriter.close();
+    }
+
+    /**
+     * Opens the index in the directory, creating it if it does not exist yet.
+     */
+    synchronized void open(final Directory directory) throws IOException {
+        this.indexWriter = new IndexWriter(directory, this.analyzer, IndexWriter.MaxFieldLength.UNLIMITED);
+        this.indexReader = this.indexWriter.getReader();
+        this.indexSearcher = new IndexSearcher(this.indexReader);
+    }
+
+    void setAvailable(final boolean available) {
+        this.available = available;
+    }
+
+    public boolean isAvailable() {
+        return this.available;
+    }
+
+    public List<Hit> search(final String text, final int firstResult, final int maxResults) {
+        return search(text, null, firstResult, maxResults);
+    }
+
+    public List<Hit> search(final String text, final Date dateOfBirth, final int firstResult, final int maxResults) {
+        final List<String> words = words(text);
+        if (words.isEmpty()) {
+            return new ArrayList<Hit>();
+        }
+
+        final BooleanQuery query = new BooleanQuery();
+        for (int i = 0; i < words.size(); i++) {
+            final boolean prefix = i == words.size() - 1;
+            final BooleanQuery wordQuery = new BooleanQuery();
+            wordQuery.add(wordQuery(NAME, words.get(i), prefix, NAME_BOOST), BooleanClause.Occur.SHOULD);
+            wordQuery.add(wordQuery(TEXT, words.get(i), prefix, 1.0f), BooleanClause.Occur.SHOULD);
+            query.add(wordQuery, BooleanClause.Occur.MUST);
+        }
+        addDateOfBirth(query, dateOfBirth);
+        return search(query, firstResult, maxResults);
+    }
+
+    public List<Hit> searchByName(final String givenName, final String familyName, final int firstResult, final int maxResults) {
+        return searchByName(givenName, familyName, null, firstResult, maxResults);
+    }
+
+    public List<Hit> searchByName(final String givenName, final String familyName, final Date dateOfBirth, final int firstResult, final int maxResults) {
+        final BooleanQuery query = new BooleanQuery();
+
+        final List<String> givenWords = words(givenName);
+        for (int i = 0; i < givenWords.size(); i++) {
+            query.add(wordQuery(GIVEN_NAME, givenWords.get(i), i == givenWords.size() - 1, 1.0f), BooleanClause.Occur.MUST);
+        }
+
+        for (final String word : words(familyName)) {
+            query.add(wordQuery(FAMILY_NAME, word, false, 1.0f), BooleanClause.Occur.MUST);
+        }
+
+        if (query.clauses().isEmpty()) {
+            return new ArrayList<Hit>();
+        }
+        addDateOfBirth(query, dateOfBirth);
+        return search(query, firstResult, maxResults);
+    }
+
+    private static void addDateOfBirth(final BooleanQuery query, final Date dateOfBirth) {
+        if (dateOfBirth != null) {
+            query.add(new TermQuery(new Term(DATE_OF_BIRTH, formatDate(dateOfBirth))), BooleanClause.Occur.MUST);
+        }
+    }
+
+    private static String formatDate(final Date date) {
+        return new SimpleDateFormat("yyyyMMdd").format(date);
+    }
+
+    public List<Hit> searchByIdentifierPrefix(final String identifierPrefix, final int firstResult, final int maxResults) {
+        if (identifierPrefix == null || identifierPrefix.length() == 0) {
+            return new ArrayList<Hit>();
+        }
+        return search(new PrefixQuery(new Term(IDENTIFIER, identifierPrefix)), firstResult, maxResults);
+    }
+
+    public void indexAfterCommit(final Person person) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index(new IndexedPerson(person));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private IndexedPerson indexedPerson;
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                // read the person while the persistence context can still load its collections.
+                this.indexedPerson = new IndexedPerson(person);
+            }
+
+            @Override
+            public void afterCommit() {
+                index(this.indexedPerson);
+            }
+        });
+    }
+
+    public void removeAfterCommit(final Person person) {
+        final Long personId = person.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(personId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                remove(personId);
+            }
+        });
+    }
+
+    void index(final IndexedPerson indexedPerson) {
+        if (indexedPerson.personId == null) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (this.changedDuringBuild != null) {
+                    this.changedDuringBuild.add(indexedPerson.personId);
+                }
+            }
+            this.indexWriter.updateDocument(new Term(ID, indexedPerson.personId.toString()), indexedPerson.toDocument());
+            changed();
+        } catch (final IOException e) {
+            logger.error("Unable to index person " + indexedPerson.personId, e);
+        }
+    }
+
+    void remove(final Long personId) {
+        if (personId == null) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (this.changedDuringBuild != null) {
+                    this.changedDuringBuild.add(personId);
+                }
+            }
+            this.indexWriter.deleteDocuments(new Term(ID, personId.toString()));
+            changed();
+        } catch (final IOException e) {
+            logger.error("Unable to remove person " + personId + " from the search index", e);
+        }
+    }
+
+    private synchronized void changed() {
+        this.searcherStale = true;
+        this.uncommittedChanges = true;
+    }
+
+    private void commit() {
+        if (!this.uncommittedChanges) {
+            return;
+        }
+        try {
+            this.uncommittedChanges = false;
+            this.indexWriter.commit(commitData());
+        } catch (final IOException e) {
+            this.uncommittedChanges = true;
+            logger.error("Unable to commit the person search index", e);
+        }
+    }
+
+    /**
+     * @return the position in the person change feed, once the index is complete; an index committed without it is
+     * built again at the next start.
+     */
+    private synchronized Map<String, String> commitData() {
+        final Map<String, String> commitData = new HashMap<String, String>();
+        if (this.available) {
+            commitData.put(FORMAT, CURRENT_FORMAT);
+            commitData.put(CAUGHT_UP_REVISION, Long.toString(this.caughtUpRevision));
+            commitData.put(CAUGHT_UP_PERSON_ID, Long.toString(this.caughtUpPersonId));
+        }
+        return commitData;
+    }
+
+    /**
+     * Applies the changes of people reported by the person change feed since the last catch-up, whichever node made
+     * them.  The changes made by this node are applied again, which does no harm.
+     */
+    void catchUp() {
+        if (!this.available || this.personChangeFeedRepository == null) {
+            return;
+        }
+
+        try {
+            List<PersonChange> changes;
+            while (!(changes = this.personChangeFeedRepository.findChangesAfter(this.caughtUpRevision, this.caughtUpPersonId, CATCH_UP_PAGE_SIZE)).isEmpty()) {
+                final Set<Long> personIds = new LinkedHashSet<Long>();
+                for (final PersonChange change : changes) {
+                    personIds.add(change.getPersonId());
+                }
+
+                final List<Long> ids = new ArrayList<Long>(personIds);
+                final List<IndexedPerson> people = this.transactionTemplate.execute(new TransactionCallback<List<IndexedPerson>>() {
+                    public List<IndexedPerson> doInTransaction(final TransactionStatus transactionStatus) {
+                        return loadPeople(ids);
+                    }
+                });
+                for (final IndexedPerson indexedPerson : people) {
+                    index(indexedPerson);
+                    personIds.remove(indexedPerson.personId);
+                }
+                // the people no longer found were deleted.
+                for (final Long personId : personIds) {
+                    remove(personId);
+                }
+
+                final PersonChange last = changes.get(changes.size() - 1);
+                synchronized (this) {
+                    this.caughtUpRevision = last.getRevision();
+                    this.caughtUpPersonId = last.getPersonId();
+                }
+            }
+        } catch (final Exception e) {
+            logger.error("Unable to catch up the person search index; trying again in the next interval.", e);
+        }
+    }
+
+    private List<Hit> search(final Query query, final int firstResult, final int maxResults) {
+        if (maxResults <= 0) {
+            return new ArrayList<Hit>();
+        }
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            final ScoreDoc[] scoreDocs = searcher.search(query, firstResult + maxResults).scoreDocs;
+            final List<Hit> hits = new ArrayList<Hit>();
+
+            for (int i = firstResult; i < scoreDocs.length; i++) {
+                final Document document = searcher.doc(scoreDocs[i].doc);
+                hits.add(new Hit(Long.valueOf(document.get(ID)), scoreDocs[i].score, document.get(DISPLAY_NAME)));
+            }
+            return hits;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to search the person search index", e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * Reopens the searcher if the index has changed.  The reader of the searcher is reference counted, so a searcher
+     * that is replaced while in use is only closed once released.
+     */
+    private synchronized IndexSearcher acquireSearcher() {
+        if (this.searcherStale) {
+            try {
+                final IndexReader newReader = this.indexReader.reopen();
+                if (newReader != this.indexReader) {
+                    this.indexReader.decRef();
+                    this.indexReader = newReader;
+                    this.indexSearcher = new IndexSearcher(newReader);
+                }
+                this.searcherStale = false;
+            } catch (final IOException e) {
+                logger.error("Unable to reopen the person search index; searching the previous version.", e);
+            }
+        }
+        this.indexReader.incRef();
+        return this.indexSearcher;
+    }
+
+    private void releaseSearcher(final IndexSearcher searcher) {
+        try {
+            searcher.getIndexReader().decRef();
+        } catch (final IOException e) {
+            logger.warn("Unable to close a person search index reader", e);
+        }
+    }
+
+    private Query wordQuery(final String field, final String word, final boolean prefix, final float boost) {
+        final Query query = prefix ? new PrefixQuery(new Term(field, word)) : new TermQuery(new Term(field, word));
+        query.setBoost(boost);
+        return query;
+    }
+
+    private List<String> words(final String text) {
+        final List<String> words = new ArrayList<String>();
+        if (text == null) {
+            return words;
+        }
+        try {
+            final TokenStream tokenStream = this.analyzer.tokenStream(NAME, new StringReader(text));
+            final TermAttribute term = tokenStream.addAttribute(TermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                words.add(term.term());
+            }
+            tokenStream.end();
+            tokenStream.close();
+        } catch (final IOException e) {
+            // cannot happen reading from a string.
+            throw new IllegalStateException(e);
+        }
+        return words;
+    }
+
+    private void buildInBackground() {
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    build();
+                } catch (final Exception e) {
+                    logger.error("Unable to build the person search index; people are searched in the database.", e);
+                }
+            }
+        }, "person-search-index-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads every person page by page, with one query per page for each of names, identifiers and email addresses.
+     * The catch-up then starts a margin before the build, as the build may not see what commits while it runs.
+     */
+    private void build() throws IOException {
+        final long start = System.currentTimeMillis();
+        this.indexWriter.deleteAll();
+        synchronized (this) {
+            this.changedDuringBuild = new HashSet<Long>();
+        }
+
+        try {
+            final Number startRevision = this.transactionTemplate.execute(new TransactionCallback<Number>() {
+                public Number doInTransaction(final TransactionStatus transactionStatus) {
+                    return (Number) entityManager.createQuery("select max(r.id) from SpringSecurityRevisionEntity r where r.timestamp <= :cutoff")
+                            .setParameter("cutoff", start - CATCH_UP_MARGIN).getSingleResult();
+                }
+            });
+
+            Long lastPersonId = 0L;
+            int count = 0;
+            List<IndexedPerson> page;
+
+            do {
+                final Long afterPersonId = lastPersonId;
+                page = this.transactionTemplate.execute(new TransactionCallback<List<IndexedPerson>>() {
+                    public List<IndexedPerson> doInTransaction(final TransactionStatus transactionStatus) {
+                        return loadPage(afterPersonId);
+                    }
+                });
+
+                for (final IndexedPerson indexedPerson : page) {
+                    synchronized (this) {
+                        if (!this.changedDuringBuild.contains(indexedPerson.personId)) {
+                            this.indexWriter.updateDocument(new Term(ID, indexedPerson.personId.toString()), indexedPerson.toDocument());
+                        }
+                    }
+                    count++;
+                }
+                if (!page.isEmpty()) {
+                    lastPersonId = page.get(page.size() - 1).personId;
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+
+            synchronized (this) {
+                this.caughtUpRevision = startRevision != null ? startRevision.longValue() : 0;
+                this.caughtUpPersonId = 0;
+                this.searcherStale = true;
+                this.available = true;
+            }
+            this.uncommittedChanges = true;
+            commit();
+            logger.info(String.format("Built the person search index with %d people in %d ms.", count, System.currentTimeMillis() - start));
+        } finally {
+            synchronized (this) {
+                this.changedDuringBuild = null;
+            }
+        }
+    }
+
+    private List<IndexedPerson> loadPage(final Long afterPersonId) {
+        final List<Long> personIds = this.entityManager.createQuery("select p.id from person p where p.id > :afterPersonId order by p.id")
+                .setParameter("afterPersonId", afterPersonId).setMaxResults(LOAD_PAGE_SIZE).getResultList();
+        return loadPeople(personIds);
+    }
+
+    /**
+     * @return those of the people that exist.
+     */
+    private List<IndexedPerson> loadPeople(final List<Long> personIds) {
+        final Map<Long, IndexedPerson> people = new LinkedHashMap<Long, IndexedPerson>();
+        if (personIds.isEmpty()) {
+            return new ArrayList<IndexedPerson>();
+        }
+
+        final List<Object[]> persons = this.entityManager.createQuery("select p.id, p.dateOfBirth from person p where p.id in (:ids) order by p.id")
+                .setParameter("ids", personIds).getResultList();
+        for (final Object[] person : persons) {
+            final IndexedPerson indexedPerson = new IndexedPerson((Long) person[0]);
+            indexedPerson.setDateOfBirth((Date) person[1]);
+            people.put(indexedPerson.personId, indexedPerson);
+        }
+        if (people.isEmpty()) {
+            return new ArrayList<IndexedPerson>();
+        }
+        final List<Long> ids = new ArrayList<Long>(people.keySet());
+
+        final List<Object[]> names = this.entityManager.createQuery("select n.person.id, n.given, n.middle, n.family, n.givenComparisonValue, n.familyComparisonValue, n.officialName from name n where n.person.id in (:ids)")
+                .setParameter("ids", ids).getResultList();
+        for (final Object[] name : names) {
+            people.get(name[0]).addName((String) name[1], (String) name[2], (String) name[3], (String) name[4], (String) name[5], Boolean.TRUE.equals(name[6]));
+        }
+
+        final List<Object[]> identifiers = this.entityManager.createQuery("select i.person.id, i.value from identifier i where i.person.id in (:ids)")
+                .setParameter("ids", ids).getResultList();
+        for (final Object[] identifier : identifiers) {
+            people.get(identifier[0]).addIdentifier((String) identifier[1]);
+        }
+
+        final List<Object[]> emailAddresses = this.entityManager.createQuery("select r.person.id, e.address from emailAddress e join e.role r where r.person.id in (:ids)")
+                .setParameter("ids", ids).getResultList();
+        for (final Object[] emailAddress : emailAddresses) {
+            people.get(emailAddress[0]).addEmailAddress((String) emailAddress[1]);
+        }
+
+        this.entityManager.clear();
+        return new ArrayList<IndexedPerson>(people.values());
+    }
+
+    /**
+     * The searchable parts of a person.
+     */
+    static final class IndexedPerson {
+
+        private final Long personId;
+
+        private String displayName;
+
+        private Date dateOfBirth;
+
+        private final List<String> names = new ArrayList<String>();
+
+        private final List<String> givenNames = new ArrayList<String>();
+
+        private final List<String> familyNames = new ArrayList<String>();
+
+        private final List<String> identifiers = new ArrayList<String>();
+
+        private final List<String> emailAddresses = new ArrayList<String>();
+
+        IndexedPerson(final Long personId) {
+            this.personId = personId;
+        }
+
+        IndexedPerson(final Person person) {
+            this(person.getId());
+            setDateOfBirth(person.getDateOfBirth());
+            for (final Name name : person.getNames()) {
+                addName(name.getGiven(), name.getMiddle(), name.getFamily(), name.getGivenComparisonValue(), name.getFamilyComparisonValue(), name.isOfficialName());
+            }
+            for (final Identifier identifier : person.getIdentifiers()) {
+                addIdentifier(identifier.getValue());
+            }
+            for (final Role role : person.getRoles()) {
+                for (final EmailAddress emailAddress : role.getEmailAddresses()) {
+                    addEmailAddress(emailAddress.getAddress());
+                }
+            }
+        }
+
+        void addName(final String given, final String middle, final String family, final String givenComparisonValue, final String familyComparisonValue, final boolean official) {
+            addIfPresent(this.names, given, middle, family, givenComparisonValue, familyComparisonValue);
+            addIfPresent(this.givenNames, given, givenComparisonValue);
+            addIfPresent(this.familyNames, family, familyComparisonValue);
+
+            if (official) {
+                this.displayName = given + " " + family;
+            }
+        }
+
+        void setDateOfBirth(final Date dateOfBirth) {
+            this.dateOfBirth = dateOfBirth;
+        }
+
+        void addIdentifier(final String identifier) {
+            this.identifiers.add(identifier);
+        }
+
+        void addEmailAddress(final String emailAddress) {
+            this.emailAddresses.add(emailAddress);
+        }
+
+        Document toDocument() {
+            final Document document = new Document();
+            document.add(new Field(ID, this.personId.toString(), Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS));
+            if (this.displayName != null) {
+                document.add(new Field(DISPLAY_NAME, this.displayName, Field.Store.YES, Field.Index.NO));
+            }
+            if (this.dateOfBirth != null) {
+                document.add(new Field(DATE_OF_BIRTH, formatDate(this.dateOfBirth), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+            for (final String name : this.names) {
+                document.add(new Field(NAME, name, Field.Store.NO, Field.Index.ANALYZED));
+            }
+            for (final String givenName : this.givenNames) {
+                document.add(new Field(GIVEN_NAME, givenName, Field.Store.NO, Field.Index.ANALYZED));
+            }
+            for (final String familyName : this.familyNames) {
+                document.add(new Field(FAMILY_NAME, familyName, Field.Store.NO, Field.Index.ANALYZED));
+            }
+            for (final String identifier : this.identifiers) {
+                document.add(new Field(IDENTIFIER, identifier, Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+                document.add(new Field(TEXT, identifier, Field.Store.NO, Field.Index.ANALYZED));
+            }
+            for (final String emailAddress : this.emailAddresses) {
+                document.add(new Field(TEXT, emailAddress, Field.Store.NO, Field.Index.ANALYZED));
+            }
+            return document;
+        }
+
+        private static void addIfPresent(final List<String> values, final String... candidates) {
+            for (final String candidate : candidates) {
+                if (candidate != null && candidate.length() > 0) {
+                    values.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits on everything but letters and digits, and folds case and accents.
+     */
+    private static final class PersonSearchAnalyzer extends Analyzer {
+
+        public TokenStream tokenStream(final String fieldName, final Reader reader) {
+            return new ASCIIFoldingFilter(new CharTokenizer(reader) {
+                protected boolean isTokenChar(final char c) {
+                    return Character.isLetterOrDigit(c);
+                }
+
+                protected char normalize(final char c) {
+                    return Character.toLowerCase(c);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie of names for autocompletion.  Every node keeps the top completions below it, ranked by the number of people
+ * with the name, so completing a prefix is a walk down the prefix and a copy of at most k names, whatever the number of
+ * names below it.  Adding or removing a name only recomputes the top completions along its path.
+ * <p>
+ * Names are keyed case and accent insensitively, both as "given family" and as "family given", so either part can be
+ * typed first.  The trie is path-compressed: a node is labelled with the characters of the edge leading to it, and
+ * every node but the root ends a name or branches, so there are fewer than two nodes per key rather than one per
+ * character.  Children are kept in arrays sorted by their first character rather than in maps to keep the nodes small.
+ * <p>
+ * Completions may run concurrently with each other, updates are serialized.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class NameCompletionTrie {
+
+    private static final char[] NO_LABEL = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Completion[] NO_COMPLETIONS = new Completion[0];
+
+    private static final Comparator<Completion> BY_RANK = new Comparator<Completion>() {
+        public int compare(final Completion c1, final Completion c2) {
+            return c1.count != c2.count ? c2.count - c1.count : c1.name.compareTo(c2.name);
+        }
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int maxCompletions;
+
+    private final Node root = new Node(NO_LABEL);
+
+    NameCompletionTrie(final int maxCompletions) {
+        this.maxCompletions = maxCompletions;
+    }
+
+    /**
+     * @param prefix what has been typed so far.
+     * @param max the maximum number of completions to return.  At most the max completions of the trie are returned.
+     * @return the names starting with the prefix, most common first.
+     */
+    List<String> complete(final String prefix, final int max) {
+        final String key = normalize(prefix);
+        final List<String> completions = new ArrayList<String>();
+
+        this.lock.readLock().lock();
+        try {
+            Node node = this.root;
+            int i = 0;
+            while (node != null && i < key.length()) {
+                final Node child = node.child(key.charAt(i));
+                // the prefix may end within the label of the last node, all of whose names start with it.
+                if (child == null || commonPrefixLength(child.label, key, i) < Math.min(child.label.length, key.length() - i)) {
+                    node = null;
+                } else {
+                    node = child;
+                    i += child.label.length;
+                }
+            }
+            if (node != null) {
+                for (int j = 0; j < node.top.length && j < max; j++) {
+                    completions.add(node.top[j].name);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return completions;
+    }
+
+    /**
+     * Counts one more person with the name.
+     */
+    void add(final String given, final String family) {
+        update(given, family, 1);
+    }
+
+    /**
+     * Counts one less person with the name.
+     */
+    void remove(final String given, final String family) {
+        update(given, family, -1);
+    }
+
+    /**
+     * Counts one more person for each of the names, ranking the completions once at the end instead of after each
+     * name.
+     *
+     * @param names the given and family name of each person.
+     */
+    void addAll(final Collection<String[]> names) {
+        this.lock.writeLock().lock();
+        try {
+            for (final String[] name : names) {
+                update(name[0], name[1], 1, false);
+            }
+            rank(this.root);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void update(final String given, final String family, final int delta) {
+        this.lock.writeLock().lock();
+        try {
+            update(given, family, delta, true);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void update(final String given, final String family, final int delta, final boolean rank) {
+        final String name = displayName(given, family);
+        if (name == null) {
+            return;
+        }
+
+        updateKey(normalize(name), name, delta, rank);
+        if (given != null && family != null && given.trim().length() > 0 && family.trim().length() > 0) {
+            updateKey(normalize(family + " " + given), name, delta, rank);
+        }
+    }
+
+    private void rank(final Node node) {
+        for (final Node child : node.children) {
+            rank(child);
+        }
+        node.top = topCompletions(node);
+    }
+
+    private void updateKey(final String key, final String name, final int delta, final boolean rank) {
+        final List<Node> path = new ArrayList<Node>();
+        path.add(this.root);
+        int i = 0;
+        while (i < key.length()) {
+            final Node node = path.get(path.size() - 1);
+            final Node child = node.child(key.charAt(i));
+            if (child == null) {
+                if (delta < 0) {
+                    return;
+                }
+                final Node leaf = new Node(key.substring(i).toCharArray());
+                node.addChild(leaf);
+                path.add(leaf);
+                break;
+            }
+
+            final int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length) {
+                if (delta < 0) {
+                    return;
+                }
+                // the key leaves the edge part way: split the edge at that point.
+                final Node split = new Node(Arrays.copyOf(child.label, common));
+                node.replaceChild(split);
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                split.children = new Node[] {child};
+                split.top = child.top;
+                path.add(split);
+            } else {
+                path.add(child);
+            }
+            i += common;
+        }
+
+        final Node leaf = path.get(path.size() - 1);
+        final int index = leaf.indexOfName(name);
+        final int newCount = (index >= 0 ? leaf.counts[index] : 0) + delta;
+        if (newCount > 0) {
+            leaf.setCount(index, name, newCount);
+        } else if (index >= 0) {
+            leaf.removeName(index);
+        }
+
+        for (int j = path.size() - 1; j >= 0; j--) {
+            final Node node = path.get(j);
+            if (j > 0 && node.names == null && node.children.length < 2) {
+                final Node parent = path.get(j - 1);
+                if (node.children.length == 0) {
+                    parent.removeChild(node.label[0]);
+                } else {
+                    // nothing ends at the node any more and it no longer branches: merge it into its only child.
+                    final Node child = node.children[0];
+                    final char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+                    System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+                    child.label = label;
+                    parent.replaceChild(child);
+                }
+            } else if (rank) {
+                node.top = topCompletions(node);
+            }
+        }
+    }
+
+    /**
+     * @return the number of characters of the label that match the key from the offset.
+     */
+    private static int commonPrefixLength(final char[] label, final String key, final int offset) {
+        int length = 0;
+        while (length < label.length && offset + length < key.length() && label[length] == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Merges the names ending at the node with the (ranked) top completions of its children, until there are enough.
+     */
+    private Completion[] topCompletions(final Node node) {
+        final Completion[][] sources = new Completion[node.children.length + 1][];
+        if (node.names == null) {
+            sources[0] = NO_COMPLETIONS;
+        } else {
+            sources[0] = new Completion[node.names.length];
+            for (int i = 0; i < node.names.length; i++) {
+                sources[0][i] = new Completion(node.names[i], node.counts[i]);
+            }
+            Arrays.sort(sources[0], BY_RANK);
+        }
+        for (int j = 0; j < node.children.length; j++) {
+            sources[j + 1] = node.children[j].top;
+        }
+
+        final int[] positions = new int[sources.length];
+        final List<Completion> top = new ArrayList<Completion>(this.maxCompletions);
+        while (top.size() < this.maxCompletions) {
+            int best = -1;
+            for (int s = 0; s < sources.length; s++) {
+                if (positions[s] < sources[s].length && (best == -1 || BY_RANK.compare(sources[s][positions[s]], sources[best][positions[best]]) < 0)) {
+                    best = s;
+                }
+            }
+            if (best == -1) {
+                break;
+            }
+
+            // a name is below two children if its "given family" and "family given" keys start alike, e.g. "Ann Anderson".
+            final Completion candidate = sources[best][positions[best]++];
+            if (!containsName(top, candidate.name)) {
+                top.add(candidate);
+            }
+        }
+        return top.isEmpty() ? NO_COMPLETIONS : top.toArray(new Completion[top.size()]);
+    }
+
+    private static boolean containsName(final List<Completion> completions, final String name) {
+        for (final Completion completion : completions) {
+            if (completion.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String displayName(final String given, final String family) {
+        final String name = ((given != null ? given.trim() : "") + " " + (family != null ? family.trim() : "")).trim();
+        return name.length() > 0 ? name : null;
+    }
+
+    /**
+     * Lower case, without accents and with single spaces.
+     */
+    static String normalize(final String text) {
+        final String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        final StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean space = false;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && builder.length() > 0) {
+                builder.append(' ');
+            }
+            space = false;
+            builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    private static final class Completion {
+
+        private final String name;
+
+        private final int count;
+
+        private Completion(final String name, final int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    private static final class Node {
+
+        // the characters of the edge from the parent; empty only for the root.
+        private char[] label;
+
+        // sorted by the first character of their labels, which differ.
+        private Node[] children = NO_CHILDREN;
+
+        // the names ending here, with the number of people with each.  Usually one, more if only their accents differ.
+        // Null if no name ends here.
+        private String[] names;
+
+        private int[] counts;
+
+        private Completion[] top = NO_COMPLETIONS;
+
+        private Node(final char[] label) {
+            this.label = label;
+        }
+
+        /**
+         * @return the index of the child whose label starts with the character, or (-(insertion point) - 1).
+         */
+        private int indexOf(final char first) {
+            int low = 0;
+            int high = this.children.length - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final char label = this.children[middle].label[0];
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private Node child(final char first) {
+            final int index = indexOf(first);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        private void addChild(final Node child) {
+            final int insertionPoint = -indexOf(child.label[0]) - 1;
+            final Node[] newChildren = new Node[this.children.length + 1];
+
+            System.arraycopy(this.children, 0, newChildren, 0, insertionPoint);
+            newChildren[insertionPoint] = child;
+            System.arraycopy(this.children, insertionPoint, newChildren, insertionPoint + 1, this.children.length - insertionPoint);
+
+            this.children = newChildren;
+        }
+
+        /**
+         * Replaces the child whose label starts with the same character.
+         */
+        private void replaceChild(final Node child) {
+            this.children[indexOf(child.label[0])] = child;
+        }
+
+        private void removeChild(final char first) {
+            final int index = indexOf(first);
+            if (index < 0) {
+                return;
+            }
+            final Node[] newChildren = new Node[this.children.length - 1];
+
+            System.arraycopy(this.children, 0, newChildren, 0, index);
+            System.arraycopy(this.children, index + 1, newChildren, index, this.children.length - index - 1);
+
+            this.children = newChildren;
+        }
+
+        private int indexOfName(final String name) {
+            if (this.names != null) {
+                for (int i = 0; i < this.names.length; i++) {
+                    if (this.names[i].equals(name)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @param index the index of the name, or -1 to add it.
+         */
+        private void setCount(final int index, final String name, final int count) {
+            if (index >= 0) {
+                this.counts[index] = count;
+            } else if (this.names == null) {
+                this.names = new String[] {name};
+                this.counts = new int[] {count};
+            } else {
+                this.names = Arrays.copyOf(this.names, this.names.length + 1);
+                this.counts = Arrays.copyOf(this.counts, this.counts.length + 1);
+                this.names[this.names.length - 1] = name;
+                this.counts[this.counts.length - 1] = count;
+            }
+        }
+
+        private void removeName(final int index) {
+            if (this.names.length == 1) {
+                this.names = null;
+                this.counts = null;
+                return;
+            }
+            final String[] newNames = new String[this.names.length - 1];
+            final int[] newCounts = new int[this.counts.length - 1];
+
+            System.arraycopy(this.names, 0, newNames, 0, index);
+            System.arraycopy(this.counts, 0, newCounts, 0, index);
+            System.arraycopy(this.names, index + 1, newNames, index, this.names.length - index - 1);
+            System.arraycopy(this.counts, index + 1, newCounts, index, this.counts.length - index - 1);
+
+            this.names = newNames;
+            this.counts = newCounts;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.PersonFetchProfile;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * Loads the parts of a {@link PersonFetchProfile} for people already in the persistence context.
+ * <p>
+ * Each collection is loaded for all the people at once with its own fetch join, so a profile costs one query per
+ * collection whatever the number of people or roles, and no query joins two collections (which would multiply their
+ * rows, as the single query of {@link JpaPersonRepository#fetchCompleteCalculatedPerson(Long)} used to).
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class PersonFetchProfileLoader {
+
+    // keeps the "in" lists within what every database accepts.
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final String NAMES_QUERY = "select p from person p left join fetch p.names where p.id in (:ids)";
+
+    private static final String IDENTIFIERS_QUERY = "select p from person p left join fetch p.identifiers i left join fetch i.type where p.id in (:ids)";
+
+    private static final String ROLES_QUERY = "select p from person p left join fetch p.roles r left join fetch r.organizationalUnit where p.id in (:ids)";
+
+    private static final String CONTACTS_QUERY = "select p from person p left join fetch p.emailAddress left join fetch p.phoneNumber where p.id in (:ids)";
+
+    private static final String[] SUMMARY_QUERIES = {
+            NAMES_QUERY,
+            IDENTIFIERS_QUERY,
+            "select p from person p left join fetch p.idCards where p.id in (:ids)",
+            "select p from person p left join fetch p.attributes where p.id in (:ids)",
+            ROLES_QUERY
+    };
+
+    private static final String[] ROLE_CONTACT_QUERIES = {
+            "select r from role r left join fetch r.urls where r.person.id in (:ids)",
+            "select r from role r left join fetch r.emailAddresses where r.person.id in (:ids)",
+            "select r from role r left join fetch r.phones where r.person.id in (:ids)",
+            "select r from role r left join fetch r.addresses where r.person.id in (:ids)",
+            "select r from role r left join fetch r.leaves where r.person.id in (:ids)"
+    };
+
+    private static final String[] DISCLOSURE_QUERIES = {
+            "select d from disclosure d left join fetch d.addressDisclosureSettings where d.person.id in (:ids)",
+            "select d from disclosure d left join fetch d.emailDisclosureSettings where d.person.id in (:ids)",
+            "select d from disclosure d left join fetch d.phoneDisclosureSettings where d.person.id in (:ids)",
+            "select d from disclosure d left join fetch d.urlDisclosureSettings where d.person.id in (:ids)"
+    };
+
+    private static final Map<PersonFetchProfile, List<String>> QUERIES = new EnumMap<PersonFetchProfile, List<String>>(PersonFetchProfile.class);
+
+    static {
+        QUERIES.put(PersonFetchProfile.REST_SUMMARY, queries(SUMMARY_QUERIES));
+        QUERIES.put(PersonFetchProfile.UI_DETAIL, queries(SUMMARY_QUERIES, ROLE_CONTACT_QUERIES, DISCLOSURE_QUERIES, new String[] {CONTACTS_QUERY}));
+        QUERIES.put(PersonFetchProfile.RECONCILIATION_CANDIDATE, queries(new String[] {NAMES_QUERY, IDENTIFIERS_QUERY, CONTACTS_QUERY}));
+        QUERIES.put(PersonFetchProfile.RECALCULATION, queries(new String[] {NAMES_QUERY, IDENTIFIERS_QUERY, ROLES_QUERY}, ROLE_CONTACT_QUERIES));
+    }
+
+    private final EntityManager entityManager;
+
+    PersonFetchProfileLoader(final EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param person the person to load the profile of, may be null.
+     * @param profile the parts to load.
+     * @return the person.
+     */
+    <T extends Person> T load(final T person, final PersonFetchProfile profile) {
+        if (person != null) {
+            load(Collections.singletonList(person), profile);
+        }
+        return person;
+    }
+
+    /**
+     * @param people the people to load the profile of.
+     * @param profile the parts to load.
+     */
+    void load(final Collection<? extends Person> people, final PersonFetchProfile profile) {
+        final List<Long> ids = new ArrayList<Long>(people.size());
+        for (final Person person : people) {
+            if (person.getId() != null) {
+                ids.add(person.getId());
+            }
+        }
+
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            final List<Long> page = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+            for (final String query : QUERIES.get(profile)) {
+                // the results are the managed instances the caller already holds, now with the collection loaded.
+                this.entityManager.createQuery(query).setParameter("ids", page).getResultList();
+            }
+        }
+    }
+
+    private static List<String> queries(final String[]... groups) {
+        final List<String> queries = new ArrayList<String>();
+        for (final String[] group : groups) {
+            queries.addAll(Arrays.asList(group));
+        }
+        return Collections.unmodifiableList(queries);
+    }
+}
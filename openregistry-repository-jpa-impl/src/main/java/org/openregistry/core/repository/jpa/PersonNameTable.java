@@ -0,0 +1,197 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The names counted for each person by the {@link JpaNameCompletionIndex}, so they can be taken out of the
+ * {@link NameCompletionTrie} when the person changes.  It is kept compact as it holds every person: each distinct given
+ * or family name is stored once and numbered, and each person takes a 24 byte slot of an open-addressing table
+ * with the numbers of the given and family name of its (at most two) names.
+ * <p>
+ * Names are never forgotten, as they are few compared with the people; the table is built again whenever the trie is
+ * reloaded.  Instances are not thread-safe.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class PersonNameTable {
+
+    private static final int MAX_NAMES = 2;
+
+    private static final int SLOT_SIZE = 2 * MAX_NAMES;
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private static final int NO_NAME = -1;
+
+    private final Map<String, Integer> numbers = new HashMap<String, Integer>();
+
+    private final List<String> names = new ArrayList<String>();
+
+    private long[] personIds;
+
+    private int[] slots;
+
+    private int size = 0;
+
+    /**
+     * @param expectedSize the number of people expected, to size the table.
+     */
+    PersonNameTable(final int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(final int capacity) {
+        this.personIds = new long[capacity];
+        Arrays.fill(this.personIds, FREE);
+        this.slots = new int[capacity * SLOT_SIZE];
+    }
+
+    /**
+     * @return the number of people.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @param names the given and family name of each of the person's names, as pairs.  Names past the second are
+     * dropped.
+     * @return the names held for the person before, null if there were none.
+     */
+    String[] put(final long personId, final String[] names) {
+        if (this.size * 4 >= this.personIds.length * 3) {
+            grow();
+        }
+
+        int slot = indexOf(personId);
+        final String[] previousNames;
+        if (slot >= 0) {
+            previousNames = get(slot);
+        } else {
+            previousNames = null;
+            slot = -slot - 1;
+            this.personIds[slot] = personId;
+            this.size++;
+        }
+
+        final int length = Math.min(names.length, SLOT_SIZE);
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            this.slots[slot * SLOT_SIZE + i] = i < length ? number(names[i]) : NO_NAME;
+        }
+        return previousNames;
+    }
+
+    /**
+     * @return the names held for the person, null if there were none.
+     */
+    String[] remove(final long personId) {
+        int slot = indexOf(personId);
+        if (slot < 0) {
+            return null;
+        }
+        final String[] previousNames = get(slot);
+        this.size--;
+
+        // shifts back the people after the slot that would no longer be found past the freed slot (linear probing).
+        final int mask = this.personIds.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (this.personIds[next] == FREE) {
+                break;
+            }
+            final int home = home(this.personIds[next]);
+            if (slot <= next ? (slot < home && home <= next) : (slot < home || home <= next)) {
+                continue;
+            }
+            this.personIds[slot] = this.personIds[next];
+            System.arraycopy(this.slots, next * SLOT_SIZE, this.slots, slot * SLOT_SIZE, SLOT_SIZE);
+            slot = next;
+        }
+        this.personIds[slot] = FREE;
+        return previousNames;
+    }
+
+    /**
+     * @return the slot of the person, or (-(free slot) - 1) if the person is not in the table.
+     */
+    private int indexOf(final long personId) {
+        final int mask = this.personIds.length - 1;
+        int slot = home(personId);
+        while (this.personIds[slot] != FREE) {
+            if (this.personIds[slot] == personId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private int home(final long personId) {
+        final int hash = (int) (personId ^ (personId >>> 32)) * 0x9e3779b9;
+        return (hash ^ (hash >>> 16)) & (this.personIds.length - 1);
+    }
+
+    private String[] get(final int slot) {
+        int length = SLOT_SIZE;
+        while (length > 0 && this.slots[slot * SLOT_SIZE + length - 1] == NO_NAME) {
+            length--;
+        }
+        final String[] names = new String[length];
+        for (int i = 0; i < length; i++) {
+            names[i] = this.names.get(this.slots[slot * SLOT_SIZE + i]);
+        }
+        return names;
+    }
+
+    private int number(final String name) {
+        final Integer number = this.numbers.get(name);
+        if (number != null) {
+            return number;
+        }
+        this.names.add(name);
+        this.numbers.put(name, this.names.size() - 1);
+        return this.names.size() - 1;
+    }
+
+    private void grow() {
+        final long[] oldPersonIds = this.personIds;
+        final int[] oldSlots = this.slots;
+        allocate(oldPersonIds.length * 2);
+
+        for (int i = 0; i < oldPersonIds.length; i++) {
+            if (oldPersonIds[i] != FREE) {
+                final int slot = -indexOf(oldPersonIds[i]) - 1;
+                this.personIds[slot] = oldPersonIds[i];
+                System.arraycopy(oldSlots, i * SLOT_SIZE, this.slots, slot * SLOT_SIZE, SLOT_SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.openregistry.core.domain.*;
+import org.openregistry.core.domain.sor.SorDisclosureSettings;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.domain.sor.SorRole;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Computes the SHA-1 hash of the canonical form of a system of record person or role, the content a feed can send.
+ * Collections are hashed independent of their order, reference data by id and dates by day, so a record sent again
+ * unchanged hashes the same as the stored one.  A person's hash does not cover its roles, which are sent separately
+ * and hashed on their own.  A person's snapshot hash only covers the content a snapshot record carries, leaving out
+ * the disclosure settings and local attributes.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class SorContentHash {
+
+    private static final char SEPARATOR = '\u001f';
+
+    private static final String NULL = "\u0000";
+
+    private final StringBuilder builder = new StringBuilder();
+
+    private SorContentHash() {
+        // only created by of()
+    }
+
+    public static String of(final SorPerson sorPerson) {
+        final SorContentHash hash = new SorContentHash().appendSnapshotContent(sorPerson);
+
+        final SorDisclosureSettings disclosureSettings = sorPerson.getDisclosureSettings();
+        if (disclosureSettings == null) {
+            hash.append((String) null);
+        } else {
+            hash.append(disclosureSettings.getDisclosureCode()).append(String.valueOf(disclosureSettings.isWithinGracePeriod()));
+        }
+
+        hash.appendAll(new TreeMap<String, String>(sorPerson.getSorLocalAttributes()).entrySet());
+
+        return hash.digest();
+    }
+
+    public static String ofSnapshot(final SorPerson sorPerson) {
+        return new SorContentHash().appendSnapshotContent(sorPerson).digest();
+    }
+
+    private SorContentHash appendSnapshotContent(final SorPerson sorPerson) {
+        append(sorPerson.getSorId()).append(sorPerson.getSourceSor()).append(sorPerson.getDateOfBirth())
+                .append(sorPerson.getGender()).append(sorPerson.getSsn());
+
+        final List<String> names = new ArrayList<String>();
+        for (final SorName name : sorPerson.getNames()) {
+            names.add(new SorContentHash().append(name.getType()).append(name.getPrefix()).append(name.getGiven())
+                    .append(name.getMiddle()).append(name.getFamily()).append(name.getSuffix()).toString());
+        }
+        return appendAll(names);
+    }
+
+    /**
+     * @return the hash of the set of roles, computed from the hash of each role.
+     */
+    public static String ofRoles(final Collection<SorRole> sorRoles) {
+        final List<String> roles = new ArrayList<String>();
+        for (final SorRole sorRole : sorRoles) {
+            roles.add(of(sorRole));
+        }
+        return new SorContentHash().appendAll(roles).digest();
+    }
+
+    public static String of(final SorRole sorRole) {
+        final SorContentHash hash = new SorContentHash();
+        hash.append(sorRole.getSorId()).append(sorRole.getAffiliationType()).append(sorRole.getOrganizationalUnit())
+                .append(sorRole.getTitle()).append(String.valueOf(sorRole.getPercentage())).append(sorRole.getPersonStatus())
+                .append(sorRole.getSponsorId() == null ? null : sorRole.getSponsorId().toString()).append(sorRole.getSponsorType())
+                .append(sorRole.getStart()).append(sorRole.getEnd()).append(sorRole.getTerminationReason())
+                .append(sorRole.getPHI()).append(sorRole.getRBHS());
+
+        final List<String> addresses = new ArrayList<String>();
+        for (final Address address : sorRole.getAddresses()) {
+            addresses.add(new SorContentHash().append(address.getType()).append(address.getLine1()).append(address.getLine2())
+                    .append(address.getLine3()).append(address.getBldgNo()).append(address.getRoomNo()).append(address.getCity())
+                    .append(address.getRegion()).append(address.getPostalCode()).append(address.getCountry()).toString());
+        }
+        hash.appendAll(addresses);
+
+        final List<String> phones = new ArrayList<String>();
+        for (final Phone phone : sorRole.getPhones()) {
+            phones.add(new SorContentHash().append(phone.getAddressType()).append(phone.getPhoneType())
+                    .append(phone.getPhoneLineOrder() == null ? null : phone.getPhoneLineOrder().toString()).append(phone.getCountryCode())
+                    .append(phone.getAreaCode()).append(phone.getNumber()).append(phone.getExtension()).toString());
+        }
+        hash.appendAll(phones);
+
+        final List<String> emailAddresses = new ArrayList<String>();
+        for (final EmailAddress emailAddress : sorRole.getEmailAddresses()) {
+            emailAddresses.add(new SorContentHash().append(emailAddress.getAddressType()).append(emailAddress.getAddress()).toString());
+        }
+        hash.appendAll(emailAddresses);
+
+        final List<String> urls = new ArrayList<String>();
+        for (final Url url : sorRole.getUrls()) {
+            urls.add(new SorContentHash().append(url.getType()).append(url.getUrl() == null ? null : url.getUrl().toExternalForm()).toString());
+        }
+        hash.appendAll(urls);
+
+        final List<String> leaves = new ArrayList<String>();
+        for (final Leave leave : sorRole.getLeaves()) {
+            leaves.add(new SorContentHash().append(leave.getReason()).append(leave.getStart()).append(leave.getEnd()).toString());
+        }
+        hash.appendAll(leaves);
+
+        return hash.digest();
+    }
+
+    private SorContentHash append(final String value) {
+        this.builder.append(value == null ? NULL : value).append(SEPARATOR);
+        return this;
+    }
+
+    private SorContentHash append(final Date date) {
+        return append(date == null ? null : String.format("%tF", date));
+    }
+
+    private SorContentHash append(final Type type) {
+        return append(type == null ? null : String.valueOf(type.getId()));
+    }
+
+    private SorContentHash append(final OrganizationalUnit organizationalUnit) {
+        return append(organizationalUnit == null ? null : String.valueOf(organizationalUnit.getId()));
+    }
+
+    private SorContentHash append(final Region region) {
+        return append(region == null ? null : region.getCode()).append(region == null ? null : region.getCountry());
+    }
+
+    private SorContentHash append(final Country country) {
+        return append(country == null ? null : String.valueOf(country.getId()));
+    }
+
+    private SorContentHash appendAll(final Collection<?> elements) {
+        final List<String> values = new ArrayList<String>(elements.size());
+        for (final Object element : elements) {
+            values.add(element.toString());
+        }
+        Collections.sort(values);
+        this.builder.append('[');
+        for (final String value : values) {
+            append(value);
+        }
+        this.builder.append(']');
+        return this;
+    }
+
+    private String digest() {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(this.builder.toString().getBytes("UTF-8"));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String toString() {
+        return this.builder.toString();
+    }
+}
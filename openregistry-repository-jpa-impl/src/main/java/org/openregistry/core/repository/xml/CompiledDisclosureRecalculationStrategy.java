@@ -0,0 +1,181 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.xml;
+
+import org.openregistry.core.service.DisclosureRecalculationStrategy;
+
+import java.util.*;
+
+/**
+ * {@link DisclosureRecalculationStrategy} compiled from a {@link XmlBasedDisclosureRecalculationStrategyImpl}.  All
+ * fall backs to the default flag (default affiliation, default type, default property) and all flag value comparisons
+ * are resolved once when the specification is loaded, so every disclosure decision is a couple of hash lookups
+ * instead of a scan of the specification.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CompiledDisclosureRecalculationStrategy implements DisclosureRecalculationStrategy {
+
+    private final String name;
+
+    private final String description;
+
+    private final Map<String, Lookup<AffiliationSettings>> affiliationsByCode;
+
+    CompiledDisclosureRecalculationStrategy(final String name, final String description, final Map<String, Lookup<AffiliationSettings>> affiliationsByCode) {
+        this.name = name;
+        this.description = description;
+        this.affiliationsByCode = affiliationsByCode;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    public boolean isAddressLinesPublic(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAddressSettings(disclosureCode, addressType, affiliationType).addressLinesPublic, disclosureCode, affiliationType, addressType);
+    }
+
+    public boolean isAddressBuildingPublic(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAddressSettings(disclosureCode, addressType, affiliationType).buildingPublic, disclosureCode, affiliationType, addressType);
+    }
+
+    public boolean isAddressRegionPublic(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAddressSettings(disclosureCode, addressType, affiliationType).regionPublic, disclosureCode, affiliationType, addressType);
+    }
+
+    public boolean isEmailPublic(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAffiliation(disclosureCode, affiliationType).emailTypes.get(addressType), disclosureCode, affiliationType, addressType);
+    }
+
+    public boolean isPhonePublic(final String disclosureCode, final String addressType, final String phoneType, final String affiliationType) {
+        final Lookup<Boolean> phoneTypes = require(findAffiliation(disclosureCode, affiliationType).phoneTypes.get(addressType), disclosureCode, affiliationType, addressType);
+        return require(phoneTypes.get(phoneType), disclosureCode, affiliationType, addressType);
+    }
+
+    public boolean isUrlPublic(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAffiliation(disclosureCode, affiliationType).urlTypes.get(addressType), disclosureCode, affiliationType, addressType);
+    }
+
+    public HashSet<String> getSpecificaddressTypes(final String disclosureCode, final String affiliationType) {
+        return new HashSet<String>(findAffiliation(disclosureCode, affiliationType).addressTypes.keys());
+    }
+
+    public HashSet<String> getSpecificEmailTypes(final String disclosureCode, final String affiliationType) {
+        return new HashSet<String>(findAffiliation(disclosureCode, affiliationType).emailTypes.keys());
+    }
+
+    public HashSet<String> getSpecificPhoneTypes(final String disclosureCode, final String affiliationType) {
+        return new HashSet<String>(findAffiliation(disclosureCode, affiliationType).phoneTypes.keys());
+    }
+
+    public HashSet<String> getSpecificUrlTypes(final String disclosureCode, final String affiliationType) {
+        return new HashSet<String>(findAffiliation(disclosureCode, affiliationType).urlTypes.keys());
+    }
+
+    public HashMap<String, HashSet<String>> getSpecificPhoneTypesWithAddress(final String disclosureCode, final String affiliationType) {
+        final Lookup<Lookup<Boolean>> phoneTypes = findAffiliation(disclosureCode, affiliationType).phoneTypes;
+        final HashMap<String, HashSet<String>> phoneTypesByAddressType = new HashMap<String, HashSet<String>>();
+        for (final String addressType : phoneTypes.keys()) {
+            phoneTypesByAddressType.put(addressType, new HashSet<String>(phoneTypes.get(addressType).keys()));
+        }
+        return phoneTypesByAddressType;
+    }
+
+    private AffiliationSettings findAffiliation(final String disclosureCode, final String affiliationType) {
+        final Lookup<AffiliationSettings> affiliations = this.affiliationsByCode.get(disclosureCode);
+        if (affiliations == null) {
+            throw new IllegalStateException("Disclosure code "+disclosureCode+" is not a valid code");
+        }
+        return require(affiliations.get(affiliationType), disclosureCode, affiliationType, null);
+    }
+
+    private AddressSettings findAddressSettings(final String disclosureCode, final String addressType, final String affiliationType) {
+        return require(findAffiliation(disclosureCode, affiliationType).addressTypes.get(addressType), disclosureCode, affiliationType, addressType);
+    }
+
+    private static <T> T require(final T value, final String disclosureCode, final String affiliationType, final String type) {
+        if (value == null) {
+            throw new IllegalStateException("Disclosure code " + disclosureCode + " does not specify affiliation " + affiliationType
+                    + (type != null ? " and type " + type : "") + " and has no default for it");
+        }
+        return value;
+    }
+
+    /**
+     * Values keyed by name, with the value specified under the default flag name already resolved.
+     */
+    static final class Lookup<T> {
+
+        private final Map<String, T> values = new HashMap<String, T>();
+
+        private T defaultValue;
+
+        void put(final String key, final T value, final boolean isDefault) {
+            if (isDefault) {
+                this.defaultValue = value;
+            } else {
+                this.values.put(key, value);
+            }
+        }
+
+        T get(final String key) {
+            final T value = this.values.get(key);
+            return value != null ? value : this.defaultValue;
+        }
+
+        /**
+         * @return the names that were specified explicitly, i.e. without the default flag name.
+         */
+        Set<String> keys() {
+            return this.values.keySet();
+        }
+    }
+
+    static final class AffiliationSettings {
+
+        final Lookup<AddressSettings> addressTypes = new Lookup<AddressSettings>();
+
+        final Lookup<Boolean> emailTypes = new Lookup<Boolean>();
+
+        final Lookup<Lookup<Boolean>> phoneTypes = new Lookup<Lookup<Boolean>>();
+
+        final Lookup<Boolean> urlTypes = new Lookup<Boolean>();
+    }
+
+    static final class AddressSettings {
+
+        final Boolean addressLinesPublic;
+
+        final Boolean buildingPublic;
+
+        final Boolean regionPublic;
+
+        AddressSettings(final Boolean addressLinesPublic, final Boolean buildingPublic, final Boolean regionPublic) {
+            this.addressLinesPublic = addressLinesPublic;
+            this.buildingPublic = buildingPublic;
+            this.regionPublic = regionPublic;
+        }
+    }
+}
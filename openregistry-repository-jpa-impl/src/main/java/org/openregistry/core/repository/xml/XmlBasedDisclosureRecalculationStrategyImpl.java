@@ -29,6 +29,9 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 import org.openregistry.core.domain.DisclosureSettings;
 import org.openregistry.core.domain.DisclosureSettings.PropertyNames;
+import org.openregistry.core.repository.xml.CompiledDisclosureRecalculationStrategy.AddressSettings;
+import org.openregistry.core.repository.xml.CompiledDisclosureRecalculationStrategy.AffiliationSettings;
+import org.openregistry.core.repository.xml.CompiledDisclosureRecalculationStrategy.Lookup;
 import org.openregistry.core.service.DisclosureRecalculationStrategy;
 
 @XmlRootElement(name = "specification")
@@ -344,6 +347,59 @@ public class XmlBasedDisclosureRecalculationStrategyImpl implements
 		return false;	
 	}
 	
+	/**
+	 * Compiles this specification into lookup tables with all the default flag fall backs resolved.
+	 * @return the compiled strategy, which answers every question the same way as this one.
+	 */
+	public CompiledDisclosureRecalculationStrategy compile() {
+		final Map<String, Lookup<AffiliationSettings>> affiliationsByCode = new HashMap<String, Lookup<AffiliationSettings>>();
+		for (DisclosureCodeSpecification spec: this.specs) {
+			if (affiliationsByCode.containsKey(spec.code)) {
+				continue;
+			}
+			final Lookup<AffiliationSettings> affiliations = new Lookup<AffiliationSettings>();
+			for (Affiliation aff: spec.affiliations) {
+				final AffiliationSettings settings = new AffiliationSettings();
+				for (TypeWithProperties t: aff.addressTypes) {
+					settings.addressTypes.put(t.name, new AddressSettings(isPublic(t, PropertyNames.ADDRESS_LINES_IND.name()),
+						isPublic(t, PropertyNames.BUILDING_IND.name()), isPublic(t, PropertyNames.REGION_IND.name())), isDefault(t.name));
+				}
+				for (TypeWithProperties t: aff.emailTypes) {
+					settings.emailTypes.put(t.name, isPublic(t, defaultFlagName), isDefault(t.name));
+				}
+				for (TypeWithProperties t: aff.phoneTypes) {
+					final Lookup<Boolean> phoneTypes = new Lookup<Boolean>();
+					for (Property p: t.properties) {
+						phoneTypes.put(p.name, isPublic(p), isDefault(p.name));
+					}
+					settings.phoneTypes.put(t.name, phoneTypes, isDefault(t.name));
+				}
+				for (TypeWithProperties t: aff.urlTypes) {
+					settings.urlTypes.put(t.name, isPublic(t, defaultFlagName), isDefault(t.name));
+				}
+				affiliations.put(aff.name, settings, isDefault(aff.name));
+			}
+			affiliationsByCode.put(spec.code, affiliations);
+		}
+		return new CompiledDisclosureRecalculationStrategy(this.internalName, this.internalDescription, affiliationsByCode);
+	}
+
+	private boolean isDefault(String name) {
+		return name.equals(this.defaultFlagName);
+	}
+
+	private Boolean isPublic(TypeWithProperties type, String propName) {
+		Property prop = type.findProperty(propName, defaultFlagName);
+		return prop != null ? isPublic(prop) : null;
+	}
+
+	private Boolean isPublic(Property prop) {
+		if (prop.value == null) {
+			return null;
+		}
+		return !prop.value.equals(this.hiddenFlagValue) && prop.value.equals(this.asSpecifiedFlagValue);
+	}
+
 	/**
 	 * Finds the disclosure strategy for the given code
 	 * Returns null if it does not exist
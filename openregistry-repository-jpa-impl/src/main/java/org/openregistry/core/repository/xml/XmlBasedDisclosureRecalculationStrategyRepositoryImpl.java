@@ -55,7 +55,8 @@ public class XmlBasedDisclosureRecalculationStrategyRepositoryImpl implements
 			&& disclosureCalculationStrategyFile.getName().endsWith(".xml"));
 		
 		final FileReader fileReader = new FileReader(disclosureCalculationStrategyFile);
-		disclosureRecalcualationStrategy = (DisclosureRecalculationStrategy) unMarshaller.unmarshal(fileReader);
+		final XmlBasedDisclosureRecalculationStrategyImpl specification = (XmlBasedDisclosureRecalculationStrategyImpl) unMarshaller.unmarshal(fileReader);
+		disclosureRecalcualationStrategy = specification.compile();
         logger.info("Loaded Xml Disclosure recalculation strategy spec with name [" 
         		+ disclosureRecalcualationStrategy.getName()+"] description ["
         		+ disclosureRecalcualationStrategy.getDescription()+"]");
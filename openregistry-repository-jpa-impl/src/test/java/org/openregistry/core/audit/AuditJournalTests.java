@@ -0,0 +1,186 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.audit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link AuditJournal}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class AuditJournalTests {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = File.createTempFile("audit", "");
+        this.directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private File[] segments() {
+        return this.directory.listFiles(new FilenameFilter() {
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(".journal");
+            }
+        });
+    }
+
+    @Test
+    public void testReadsEntriesInOrder() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1024, false);
+        assertEquals(1, journal.append("a"));
+        assertEquals(2, journal.append("b"));
+        assertEquals(3, journal.append("c"));
+
+        final SortedMap<Long, Serializable> first = journal.read(2);
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<Long>(first.keySet()));
+        assertEquals("b", first.get(2L));
+        assertEquals(Arrays.<Serializable>asList("c"), new ArrayList<Serializable>(journal.read(2).values()));
+        assertTrue(journal.read(2).isEmpty());
+
+        journal.append("d");
+        assertEquals(Arrays.<Serializable>asList("d"), new ArrayList<Serializable>(journal.read(2).values()));
+        assertEquals(4, journal.getPendingEntries());
+        journal.close();
+    }
+
+    @Test
+    public void testRewindsToCheckpoint() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1024, false);
+        journal.append("a");
+        journal.append("b");
+        journal.append("c");
+        journal.read(10);
+        journal.checkpoint(1);
+
+        journal.rewind();
+        assertEquals(Arrays.asList(2L, 3L), new ArrayList<Long>(journal.read(10).keySet()));
+        assertEquals(2, journal.getPendingEntries());
+        journal.close();
+    }
+
+    @Test
+    public void testRewindsToEntryOfLastRead() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1, false);
+        journal.append("a");
+        journal.append("b");
+        journal.append("c");
+        journal.read(10);
+        journal.checkpoint(1);
+
+        journal.rewindTo(3);
+        assertEquals(Arrays.<Serializable>asList("c"), new ArrayList<Serializable>(journal.read(10).values()));
+        journal.rewindTo(1);
+        assertEquals(Arrays.asList(2L, 3L), new ArrayList<Long>(journal.read(10).keySet()));
+        journal.close();
+    }
+
+    @Test
+    public void testLocksDirectory() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1024, false);
+        try {
+            new AuditJournal(this.directory, 1024, false);
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            // expected
+        }
+        journal.close();
+
+        new AuditJournal(this.directory, 1024, false).close();
+    }
+
+    @Test
+    public void testResumesAfterCheckpointWhenReopened() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1024, true);
+        journal.append("a");
+        journal.append("b");
+        journal.checkpoint(1);
+        journal.close();
+
+        final AuditJournal reopened = new AuditJournal(this.directory, 1024, false);
+        assertEquals(1, reopened.getPendingEntries());
+        assertEquals(2, reopened.getLastSequenceAtOpen());
+        assertEquals(3, reopened.append("c"));
+        assertEquals(Arrays.asList(2L, 3L), new ArrayList<Long>(reopened.read(10).keySet()));
+        reopened.close();
+    }
+
+    @Test
+    public void testCutsOffTornEntry() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1024, false);
+        journal.append("a");
+        journal.append("b");
+        journal.close();
+
+        final File segment = segments()[0];
+        final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 1);
+        file.close();
+
+        final AuditJournal reopened = new AuditJournal(this.directory, 1024, false);
+        assertEquals(2, reopened.append("c"));
+        assertEquals(Arrays.<Serializable>asList("a", "c"), new ArrayList<Serializable>(reopened.read(10).values()));
+        reopened.close();
+    }
+
+    @Test
+    public void testDeletesCheckpointedSegments() throws Exception {
+        final AuditJournal journal = new AuditJournal(this.directory, 1, false);
+        journal.append("a");
+        journal.append("b");
+        journal.append("c");
+        assertEquals(3, segments().length);
+
+        assertEquals(3, journal.read(10).size());
+        journal.checkpoint(2);
+        assertEquals(1, segments().length);
+
+        journal.rewind();
+        assertEquals(Arrays.<Serializable>asList("c"), new ArrayList<Serializable>(journal.read(10).values()));
+        journal.close();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.domain.jpa;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.EmailAddress;
+import org.openregistry.core.domain.Leave;
+import org.openregistry.core.domain.Url;
+import org.openregistry.core.domain.jpa.sor.JpaSorEmailAddressImpl;
+import org.openregistry.core.domain.jpa.sor.JpaSorLeaveImpl;
+import org.openregistry.core.domain.jpa.sor.JpaSorPersonImpl;
+import org.openregistry.core.domain.jpa.sor.JpaSorRoleImpl;
+import org.openregistry.core.domain.jpa.sor.JpaSorUrlImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URL;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the recalculation of a {@link JpaRoleImpl} from its sor role.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class JpaRoleImplTests {
+
+    private JpaSorRoleImpl sorRole;
+
+    private JpaRoleImpl role;
+
+    private JpaSorEmailAddressImpl sorEmailAddress;
+
+    private JpaSorUrlImpl sorUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        final JpaTypeImpl type = constructType("Staff");
+
+        this.sorRole = new JpaSorRoleImpl(type, new JpaSorPersonImpl());
+        this.sorRole.setOrganizationalUnit(new JpaOrganizationalUnitImpl());
+        this.sorRole.setPersonStatus(type);
+        this.sorRole.setSponsorType(type);
+        this.sorRole.setTitle("Lecturer");
+        this.sorRole.setStart(new GregorianCalendar(2010, Calendar.SEPTEMBER, 1).getTime());
+
+        final JpaSorLeaveImpl sorLeave = new JpaSorLeaveImpl();
+        sorLeave.setReason(constructType("Sabbatical"));
+        sorLeave.setStart(new GregorianCalendar(2011, Calendar.JANUARY, 1).getTime());
+        this.sorRole.getLeaves().add(sorLeave);
+
+        this.sorEmailAddress = new JpaSorEmailAddressImpl(this.sorRole);
+        this.sorEmailAddress.setAddressType(constructType("Campus"));
+        this.sorEmailAddress.setAddress("lecturer@example.edu");
+        this.sorRole.addEmailAddress(this.sorEmailAddress);
+
+        this.sorUrl = new JpaSorUrlImpl(this.sorRole);
+        this.sorUrl.setType(constructType("Home Page"));
+        this.sorUrl.setUrl(new URL("http://www.example.edu/~lecturer"));
+        this.sorRole.addUrl(this.sorUrl);
+
+        this.role = new JpaRoleImpl(this.sorRole, new JpaPersonImpl());
+    }
+
+    private JpaTypeImpl constructType(final String description) {
+        final JpaTypeImpl type = new JpaTypeImpl();
+        ReflectionTestUtils.setField(type, "description", description);
+        return type;
+    }
+
+    @Test
+    public void testUnchangedCollectionsKeepTheirRows() {
+        final Leave leave = this.role.getLeaves().iterator().next();
+        final EmailAddress emailAddress = this.role.getEmailAddresses().iterator().next();
+        final Url url = this.role.getUrls().iterator().next();
+
+        this.sorRole.setTitle("Senior Lecturer");
+        this.role.recalculate(this.sorRole);
+
+        assertEquals("Senior Lecturer", this.role.getTitle());
+        assertEquals(1, this.role.getLeaves().size());
+        assertSame(leave, this.role.getLeaves().iterator().next());
+        assertEquals(1, this.role.getEmailAddresses().size());
+        assertSame(emailAddress, this.role.getEmailAddresses().iterator().next());
+        assertEquals(1, this.role.getUrls().size());
+        assertSame(url, this.role.getUrls().iterator().next());
+    }
+
+    @Test
+    public void testChangedValuesUpdateRowsWithTheSameKey() throws Exception {
+        final EmailAddress emailAddress = this.role.getEmailAddresses().iterator().next();
+        final Url url = this.role.getUrls().iterator().next();
+
+        this.sorEmailAddress.setAddress("professor@example.edu");
+        this.sorUrl.setUrl(new URL("http://www.example.edu/~professor"));
+        this.role.recalculate(this.sorRole);
+
+        assertSame(emailAddress, this.role.getEmailAddresses().iterator().next());
+        assertEquals("professor@example.edu", emailAddress.getAddress());
+        assertEquals(1, this.role.getUrls().size());
+        assertNotSame(url, this.role.getUrls().iterator().next());
+        assertEquals("http://www.example.edu/~professor", this.role.getUrls().iterator().next().getUrl().toExternalForm());
+    }
+
+    @Test
+    public void testRemovedElementsAreRemoved() {
+        this.sorRole.getLeaves().clear();
+        this.sorRole.getEmailAddresses().clear();
+        this.role.recalculate(this.sorRole);
+
+        assertTrue(this.role.getLeaves().isEmpty());
+        assertTrue(this.role.getEmailAddresses().isEmpty());
+        assertEquals(1, this.role.getUrls().size());
+    }
+}
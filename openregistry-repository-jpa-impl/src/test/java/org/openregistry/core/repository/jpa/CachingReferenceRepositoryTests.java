@@ -0,0 +1,101 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.jasig.openregistry.test.domain.MockType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.OrganizationalUnit;
+import org.openregistry.core.domain.Type;
+import org.openregistry.core.repository.ReferenceRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link CachingReferenceRepository}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CachingReferenceRepositoryTests {
+
+    private ReferenceRepository referenceRepository;
+
+    private CachingReferenceRepository cachingReferenceRepository;
+
+    @Before
+    public void setUp() {
+        this.referenceRepository = mock(ReferenceRepository.class);
+        for (final Type.DataTypes dataType : Type.DataTypes.values()) {
+            when(this.referenceRepository.getTypesBy(dataType)).thenReturn(new ArrayList<Type>());
+        }
+        when(this.referenceRepository.getTypesBy(Type.DataTypes.NAME)).thenReturn(new ArrayList<Type>(Arrays.asList(
+                new MockType("NAME", "FORMAL"), new MockType("NAME", "CHOSEN"))));
+
+        this.cachingReferenceRepository = new CachingReferenceRepository(this.referenceRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    public void testTypesAreLoadedOnce() {
+        assertEquals("FORMAL", this.cachingReferenceRepository.findType(Type.DataTypes.NAME, "FORMAL").getDescription());
+        assertEquals("CHOSEN", this.cachingReferenceRepository.findType(Type.DataTypes.NAME, Type.NameTypes.CHOSEN).getDescription());
+        assertEquals(2, this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME).size());
+
+        verify(this.referenceRepository, times(1)).getTypesBy(Type.DataTypes.NAME);
+        verify(this.referenceRepository, never()).findType(any(Type.DataTypes.class), anyString());
+    }
+
+    @Test
+    public void testMissFallsThroughToRepository() {
+        final Type type = new MockType("NAME", "AKA");
+        when(this.referenceRepository.findType(Type.DataTypes.NAME, "AKA")).thenReturn(type);
+
+        assertSame(type, this.cachingReferenceRepository.findType(Type.DataTypes.NAME, "AKA"));
+        assertNull(this.cachingReferenceRepository.findValidType(Type.DataTypes.NAME, "MAIDEN"));
+    }
+
+    @Test
+    public void testReturnedListsDoNotChangeCache() {
+        final List<Type> types = this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME);
+        types.clear();
+
+        assertEquals(2, this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME).size());
+    }
+
+    @Test
+    public void testRefreshAndUpdateReload() {
+        this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME);
+        this.cachingReferenceRepository.refresh();
+        this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME);
+        verify(this.referenceRepository, times(2)).getTypesBy(Type.DataTypes.NAME);
+
+        final OrganizationalUnit organizationalUnit = mock(OrganizationalUnit.class);
+        this.cachingReferenceRepository.updateOrganizationalUnit(organizationalUnit);
+        this.cachingReferenceRepository.getTypesBy(Type.DataTypes.NAME);
+        verify(this.referenceRepository).updateOrganizationalUnit(organizationalUnit);
+        verify(this.referenceRepository, times(3)).getTypesBy(Type.DataTypes.NAME);
+    }
+}
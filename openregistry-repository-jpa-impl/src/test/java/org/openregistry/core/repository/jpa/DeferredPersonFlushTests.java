@@ -0,0 +1,185 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.jasig.openregistry.test.domain.MockIdentifierType;
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openregistry.core.domain.Identifier;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link DeferredPersonFlush}, run through the synchronizations of a transaction the way the
+ * transaction manager would.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DeferredPersonFlushTests {
+
+    private EntityManager entityManager;
+
+    private MockPerson person;
+
+    private Identifier storedIdentifier;
+
+    private final List<String> events = new ArrayList<String>();
+
+    @Before
+    public void setUp() {
+        this.entityManager = mock(EntityManager.class);
+        when(this.entityManager.getFlushMode()).thenReturn(FlushModeType.AUTO);
+        when(this.entityManager.isOpen()).thenReturn(true);
+
+        this.person = new MockPerson();
+        this.storedIdentifier = this.person.getIdentifiers().iterator().next();
+        when(this.entityManager.contains(this.storedIdentifier)).thenReturn(true);
+
+        doAnswer(new Answer<Object>() {
+            public Object answer(final InvocationOnMock invocation) {
+                events.add("flush " + person.getIdentifiers().size());
+                return null;
+            }
+        }).when(this.entityManager).flush();
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testNewElementsAreTakenOutOfTheFirstFlush() {
+        final Identifier newIdentifier = this.person.addIdentifier(new MockIdentifierType("SSN", false), "123456789");
+
+        DeferredPersonFlush.forCurrentTransaction(this.entityManager, this).add(this.person);
+        verify(this.entityManager).setFlushMode(FlushModeType.COMMIT);
+        commit();
+
+        assertEquals(Arrays.asList("flush 1"), this.events);
+        assertTrue(this.person.getIdentifiers().contains(this.storedIdentifier));
+        assertTrue(this.person.getIdentifiers().contains(newIdentifier));
+        verify(this.entityManager).setFlushMode(FlushModeType.AUTO);
+        assertNull(TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Test
+    public void testNothingNewLeavesTheCommitFlushAlone() {
+        DeferredPersonFlush.forCurrentTransaction(this.entityManager, this).add(this.person);
+        commit();
+
+        verify(this.entityManager, never()).flush();
+        verify(this.entityManager).setFlushMode(FlushModeType.AUTO);
+        assertNull(TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Test
+    public void testRollbackDoesNotFlush() {
+        final Identifier newIdentifier = this.person.addIdentifier(new MockIdentifierType("SSN", false), "123456789");
+
+        DeferredPersonFlush.forCurrentTransaction(this.entityManager, this).add(this.person);
+        rollback();
+
+        verify(this.entityManager, never()).flush();
+        assertTrue(this.person.getIdentifiers().contains(newIdentifier));
+        verify(this.entityManager).setFlushMode(FlushModeType.AUTO);
+        assertNull(TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Test
+    public void testNestedSavesShareOneFlush() {
+        final MockPerson otherPerson = new MockPerson("otherId", false, false);
+        when(this.entityManager.contains(otherPerson.getIdentifiers().iterator().next())).thenReturn(true);
+        final Identifier newIdentifier = this.person.addIdentifier(new MockIdentifierType("SSN", false), "123456789");
+        final Identifier otherNewIdentifier = otherPerson.addIdentifier(new MockIdentifierType("SSN", false), "987654321");
+
+        final DeferredPersonFlush deferredFlush = DeferredPersonFlush.forCurrentTransaction(this.entityManager, this);
+        deferredFlush.add(this.person);
+        assertSame(deferredFlush, DeferredPersonFlush.forCurrentTransaction(this.entityManager, this));
+        DeferredPersonFlush.forCurrentTransaction(this.entityManager, this).add(otherPerson);
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        verify(this.entityManager, times(1)).setFlushMode(FlushModeType.COMMIT);
+
+        commit();
+
+        assertEquals(Arrays.asList("flush 1"), this.events);
+        assertTrue(this.person.getIdentifiers().contains(newIdentifier));
+        assertTrue(otherPerson.getIdentifiers().contains(otherNewIdentifier));
+    }
+
+    @Test
+    public void testFlushesAfterTheOtherSynchronizations() {
+        this.person.addIdentifier(new MockIdentifierType("SSN", false), "123456789");
+
+        DeferredPersonFlush.forCurrentTransaction(this.entityManager, this).add(this.person);
+        // registered later, but ordered before the flush like the service's synchronization.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE - 1;
+            }
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                events.add("before flush " + person.getIdentifiers().size());
+            }
+        });
+        commit();
+
+        assertEquals(Arrays.asList("before flush 2", "flush 1"), this.events);
+    }
+
+    private void commit() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerBeforeCompletion();
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void rollback() {
+        TransactionSynchronizationUtils.triggerBeforeCompletion();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private void complete(final int status) {
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link IdentifierIndex}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class IdentifierIndexTests {
+
+    @Test
+    public void testPutAndGet() {
+        final IdentifierIndex index = new IdentifierIndex();
+        index.put("NETID", "jdoe", 1L);
+        index.put("IID", "JDOE", 1L);
+        index.put("NETID", "jsmith", 2L);
+
+        assertEquals(1L, index.get("NETID", "jdoe"));
+        assertEquals(1L, index.get("IID", "JDOE"));
+        assertEquals(2L, index.get("NETID", "jsmith"));
+        assertEquals(IdentifierIndex.NOT_FOUND, index.get("IID", "jdoe"));
+        assertEquals(IdentifierIndex.NOT_FOUND, index.get("SSN", "jdoe"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testGetAllFindsEveryType() {
+        final IdentifierIndex index = new IdentifierIndex();
+        index.put("NETID", "12345", 1L);
+        index.put("RUID", "12345", 2L);
+        index.put("NETID", "54321", 3L);
+
+        final long[] personIds = index.getAll("12345");
+        Arrays.sort(personIds);
+        assertArrayEquals(new long[] {1L, 2L}, personIds);
+        assertEquals(0, index.getAll("99999").length);
+    }
+
+    @Test
+    public void testMovedIdentifierIsNotRemovedByItsFormerPerson() {
+        final IdentifierIndex index = new IdentifierIndex();
+        index.put("NETID", "jdoe", 1L);
+        index.put("NETID", "jdoe", 2L);
+        index.remove("NETID", "jdoe", 1L);
+
+        assertEquals(2L, index.get("NETID", "jdoe"));
+
+        index.remove("NETID", "jdoe", 2L);
+        assertEquals(IdentifierIndex.NOT_FOUND, index.get("NETID", "jdoe"));
+        assertEquals(0, index.getAll("jdoe").length);
+        assertEquals(0, index.size());
+
+        index.put("NETID", "jdoe", 3L);
+        assertEquals(3L, index.get("NETID", "jdoe"));
+    }
+
+    @Test
+    public void testNonLatin1Values() {
+        final IdentifierIndex index = new IdentifierIndex();
+        index.put("NETID", "\u0142ukasz", 1L);
+        index.put("NETID", "lukasz", 2L);
+
+        assertEquals(1L, index.get("NETID", "\u0142ukasz"));
+        assertEquals(2L, index.get("NETID", "lukasz"));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        final IdentifierIndex index = new IdentifierIndex(16);
+        for (long i = 0; i < 10000; i++) {
+            index.put(i % 2 == 0 ? "NETID" : "RUID", String.valueOf(i), i);
+        }
+
+        assertEquals(10000, index.size());
+        for (long i = 0; i < 10000; i++) {
+            assertEquals(i, index.get(i % 2 == 0 ? "NETID" : "RUID", String.valueOf(i)));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.junit.Test;
+import org.openregistry.core.domain.PersonChange.ChangeType;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the merge of the audit tables by {@link JpaPersonChangeFeedRepository}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class JpaPersonChangeFeedRepositoryTests {
+
+    /**
+     * The rows of an audit table, each of the revision, the person id and, with a revision type, Envers' revision type.
+     */
+    private static final class RowsChangeSource implements JpaPersonChangeFeedRepository.ChangeSource {
+
+        private final boolean hasRevisionType;
+
+        private final List<long[]> rows;
+
+        private RowsChangeSource(final boolean hasRevisionType, final long[]... rows) {
+            this.hasRevisionType = hasRevisionType;
+            this.rows = Arrays.asList(rows);
+        }
+
+        public boolean hasRevisionType() {
+            return this.hasRevisionType;
+        }
+
+        public List<Object[]> findChangesAfter(final EntityManager entityManager, final long afterRevision, final long afterPersonId, final long lastRevision, final int maxChanges) {
+            final List<Object[]> changes = new ArrayList<Object[]>();
+            for (final long[] row : this.rows) {
+                if (changes.size() < maxChanges && row[0] <= lastRevision && (row[0] > afterRevision || (row[0] == afterRevision && row[1] > afterPersonId))) {
+                    changes.add(this.hasRevisionType ? new Object[] {row[0], row[1], (int) row[2]} : new Object[] {row[0], row[1]});
+                }
+            }
+            return changes;
+        }
+    }
+
+    private static List<String> toStrings(final SortedMap<JpaPersonChangeFeedRepository.ChangeKey, ChangeType> changes) {
+        final List<String> strings = new ArrayList<String>();
+        for (final Map.Entry<JpaPersonChangeFeedRepository.ChangeKey, ChangeType> change : changes.entrySet()) {
+            strings.add(change.getKey().getRevision() + "/" + change.getKey().getPersonId() + " " + change.getValue());
+        }
+        return strings;
+    }
+
+    private static SortedMap<JpaPersonChangeFeedRepository.ChangeKey, ChangeType> findChanges(final JpaPersonChangeFeedRepository.ChangeSource[] sources,
+                                                                                             final long afterRevision, final long afterPersonId, final long lastRevision, final int maxChanges) {
+        return JpaPersonChangeFeedRepository.findChanges(null, sources, afterRevision, afterPersonId, lastRevision, maxChanges);
+    }
+
+    @Test
+    public void testMergesSourcesOncePerPersonAndRevision() {
+        final JpaPersonChangeFeedRepository.ChangeSource[] sources = {
+                new RowsChangeSource(false, new long[] {1, 10}, new long[] {2, 11}, new long[] {3, 10}, new long[] {3, 12}),
+                new RowsChangeSource(true, new long[] {1, 10, 0}, new long[] {3, 10, 1}, new long[] {4, 11, 2}),
+                new RowsChangeSource(false, new long[] {2, 11}, new long[] {5, 10})};
+
+        assertEquals(Arrays.asList("1/10 ADDED", "2/11 MODIFIED", "3/10 MODIFIED", "3/12 MODIFIED", "4/11 DELETED"),
+                toStrings(findChanges(sources, 0, 0, 4, 100)));
+    }
+
+    @Test
+    public void testCutsAtFirstFullPage() {
+        final JpaPersonChangeFeedRepository.ChangeSource[] sources = {
+                new RowsChangeSource(false, new long[] {3, 1}, new long[] {4, 1}),
+                new RowsChangeSource(false, new long[] {1, 1}, new long[] {2, 1}, new long[] {2, 5}),
+                new RowsChangeSource(false, new long[] {2, 3})};
+
+        // the second source may have more changes after 2/1, so 2/3, 3/1 and 4/1 are not complete yet.
+        assertEquals(Arrays.asList("1/1 MODIFIED", "2/1 MODIFIED"), toStrings(findChanges(sources, 0, 0, 10, 2)));
+    }
+
+    @Test
+    public void testReturnsAtMostMaxChanges() {
+        final JpaPersonChangeFeedRepository.ChangeSource[] sources = {
+                new RowsChangeSource(false, new long[] {1, 1}, new long[] {1, 2}),
+                new RowsChangeSource(false, new long[] {1, 3}, new long[] {1, 4}),
+                new RowsChangeSource(false, new long[] {1, 5})};
+
+        assertEquals(Arrays.asList("1/1 MODIFIED", "1/2 MODIFIED"), toStrings(findChanges(sources, 0, 0, 10, 2)));
+    }
+
+    @Test
+    public void testResumesInsideRevision() {
+        final JpaPersonChangeFeedRepository.ChangeSource[] sources = {
+                new RowsChangeSource(true, new long[] {1, 1, 0}, new long[] {1, 4, 0}, new long[] {1, 7, 0}, new long[] {2, 4, 2}),
+                new RowsChangeSource(false, new long[] {1, 2}, new long[] {1, 4}, new long[] {1, 5}, new long[] {1, 8}, new long[] {2, 3}),
+                new RowsChangeSource(false, new long[] {1, 3}, new long[] {1, 6}, new long[] {2, 1}, new long[] {3, 1})};
+
+        final List<String> changes = new ArrayList<String>();
+        long afterRevision = 0;
+        long afterPersonId = 0;
+        int pages = 0;
+        for (SortedMap<JpaPersonChangeFeedRepository.ChangeKey, ChangeType> page = findChanges(sources, afterRevision, afterPersonId, 2, 3); !page.isEmpty();
+                page = findChanges(sources, afterRevision, afterPersonId, 2, 3)) {
+            assertTrue(page.size() <= 3);
+            changes.addAll(toStrings(page));
+            afterRevision = page.lastKey().getRevision();
+            afterPersonId = page.lastKey().getPersonId();
+            pages++;
+        }
+
+        assertEquals(Arrays.asList("1/1 ADDED", "1/2 MODIFIED", "1/3 MODIFIED", "1/4 ADDED", "1/5 MODIFIED", "1/6 MODIFIED", "1/7 ADDED",
+                "1/8 MODIFIED", "2/1 MODIFIED", "2/3 MODIFIED", "2/4 DELETED"), changes);
+        assertTrue(pages > 3);
+    }
+}
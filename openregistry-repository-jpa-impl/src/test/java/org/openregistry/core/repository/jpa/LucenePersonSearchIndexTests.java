@@ -0,0 +1,162 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.repository.PersonSearchIndex;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test cases for {@link LucenePersonSearchIndex}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class LucenePersonSearchIndexTests {
+
+    private LucenePersonSearchIndex searchIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        this.searchIndex = new LucenePersonSearchIndex(mock(PlatformTransactionManager.class));
+        this.searchIndex.open(new RAMDirectory());
+        this.searchIndex.setAvailable(true);
+
+        this.searchIndex.index(person(1L, "Rudyard", "Kipling", "rkipling", "rudyard.kipling@example.edu"));
+        this.searchIndex.index(person(2L, "Rudolph", "Valentino", "rvalenti", "rudy@example.edu"));
+        this.searchIndex.index(person(3L, "Jos\u00e9", "O'Brien", "jobrien", "jose.obrien@example.edu"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.searchIndex.stop();
+    }
+
+    private LucenePersonSearchIndex.IndexedPerson person(final Long personId, final String given, final String family, final String netId, final String emailAddress) {
+        final LucenePersonSearchIndex.IndexedPerson person = new LucenePersonSearchIndex.IndexedPerson(personId);
+        person.addName(given, null, family, given.toUpperCase(), family.toUpperCase(), true);
+        person.addIdentifier(netId);
+        person.addEmailAddress(emailAddress);
+        return person;
+    }
+
+    @Test
+    public void testLastWordIsPrefix() {
+        final List<PersonSearchIndex.Hit> hits = this.searchIndex.search("Ru", 0, 10);
+
+        assertEquals(2, hits.size());
+        assertEquals("Rudyard Kipling", this.searchIndex.search("rudyard kip", 0, 10).get(0).getDisplayName());
+    }
+
+    @Test
+    public void testFoldsCaseAndAccents() {
+        final List<PersonSearchIndex.Hit> hits = this.searchIndex.search("jose o brien", 0, 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(Long.valueOf(3L), hits.get(0).getPersonId());
+    }
+
+    @Test
+    public void testSearchesIdentifiersAndEmailAddresses() {
+        assertEquals(Long.valueOf(2L), this.searchIndex.search("rvalenti", 0, 10).get(0).getPersonId());
+        assertEquals(Long.valueOf(1L), this.searchIndex.search("kipling example", 0, 10).get(0).getPersonId());
+    }
+
+    @Test
+    public void testNameMatchesRankFirst() {
+        this.searchIndex.index(person(4L, "Anna", "Smith", "valentino", "anna@example.edu"));
+
+        final List<PersonSearchIndex.Hit> hits = this.searchIndex.search("valentino", 0, 10);
+        assertEquals(2, hits.size());
+        assertEquals(Long.valueOf(2L), hits.get(0).getPersonId());
+    }
+
+    @Test
+    public void testSearchByName() {
+        assertEquals(1, this.searchIndex.searchByName("Rud", "Kipling", 0, 10).size());
+        assertEquals(0, this.searchIndex.searchByName("Rud", "Kip", 0, 10).size());
+        assertEquals(2, this.searchIndex.searchByName("Ru", null, 0, 10).size());
+    }
+
+    @Test
+    public void testFiltersByDateOfBirthBeforeLimit() {
+        final Date dateOfBirth = new GregorianCalendar(1980, Calendar.MARCH, 1).getTime();
+        final LucenePersonSearchIndex.IndexedPerson person = person(4L, "Rudi", "Kipling", "rkipli2", "rudi@example.edu");
+        person.setDateOfBirth(dateOfBirth);
+        this.searchIndex.index(person);
+
+        assertEquals(1, this.searchIndex.searchByName("Ru", null, dateOfBirth, 0, 1).size());
+        assertEquals(Long.valueOf(4L), this.searchIndex.searchByName("Ru", null, dateOfBirth, 0, 1).get(0).getPersonId());
+        assertEquals(Long.valueOf(4L), this.searchIndex.search("kipling", dateOfBirth, 0, 1).get(0).getPersonId());
+        assertTrue(this.searchIndex.search("kipling", new GregorianCalendar(1980, Calendar.MARCH, 2).getTime(), 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchByIdentifierPrefixIsCaseSensitive() {
+        assertEquals(2, this.searchIndex.searchByIdentifierPrefix("r", 0, 10).size());
+        assertEquals(0, this.searchIndex.searchByIdentifierPrefix("R", 0, 10).size());
+    }
+
+    @Test
+    public void testPagination() {
+        final List<PersonSearchIndex.Hit> all = this.searchIndex.search("example", 0, 10);
+        final List<PersonSearchIndex.Hit> secondPage = this.searchIndex.search("example", 1, 1);
+
+        assertEquals(3, all.size());
+        assertEquals(1, secondPage.size());
+        assertEquals(all.get(1).getPersonId(), secondPage.get(0).getPersonId());
+    }
+
+    @Test
+    public void testShutdownKeepsPositionInChangeFeed() throws Exception {
+        final RAMDirectory directory = new RAMDirectory();
+        final LucenePersonSearchIndex searchIndex = new LucenePersonSearchIndex(mock(PlatformTransactionManager.class));
+        searchIndex.open(directory);
+        searchIndex.setAvailable(true);
+        searchIndex.index(person(1L, "Rudyard", "Kipling", "rkipling", "rudyard.kipling@example.edu"));
+
+        searchIndex.stop();
+
+        final Map<String, String> commitData = IndexReader.getCommitUserData(directory);
+        assertEquals("2", commitData.get("format"));
+        assertNotNull(commitData.get("caughtUpRevision"));
+    }
+
+    @Test
+    public void testUpdatesAndRemovalsAreSearchable() {
+        this.searchIndex.index(person(1L, "Joseph", "Kipling", "jkipling", "joseph.kipling@example.edu"));
+        assertEquals(1, this.searchIndex.search("ru", 0, 10).size());
+
+        this.searchIndex.remove(2L);
+        assertTrue(this.searchIndex.search("ru", 0, 10).isEmpty());
+    }
+}
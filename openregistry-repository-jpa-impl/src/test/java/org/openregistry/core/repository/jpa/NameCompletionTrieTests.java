@@ -0,0 +1,124 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.jpa;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link NameCompletionTrie}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class NameCompletionTrieTests {
+
+    private NameCompletionTrie trie;
+
+    @Before
+    public void setUp() {
+        this.trie = new NameCompletionTrie(3);
+        this.trie.add("Rudyard", "Kipling");
+        this.trie.add("Ruth", "Kipling");
+        this.trie.add("Ruth", "Kipling");
+        this.trie.add("Rupert", "Brooke");
+        this.trie.add("Robert", "Frost");
+    }
+
+    @Test
+    public void testMostCommonNamesFirst() {
+        assertEquals(Arrays.asList("Ruth Kipling", "Rudyard Kipling", "Rupert Brooke"), this.trie.complete("ru", 10));
+        assertEquals(Arrays.asList("Ruth Kipling", "Robert Frost"), this.trie.complete("R", 2));
+    }
+
+    @Test
+    public void testFamilyNameFirst() {
+        assertEquals(Arrays.asList("Ruth Kipling", "Rudyard Kipling"), this.trie.complete("kipling r", 10));
+        assertEquals(Arrays.asList("Rudyard Kipling"), this.trie.complete("Kipling  Rud", 10));
+    }
+
+    @Test
+    public void testAccentsAndCaseIgnored() {
+        this.trie.add("Jos\u00e9", "N\u00fa\u00f1ez");
+
+        assertEquals(Arrays.asList("Jos\u00e9 N\u00fa\u00f1ez"), this.trie.complete("JOSE NUN", 10));
+        assertEquals(Arrays.asList("Jos\u00e9 N\u00fa\u00f1ez"), this.trie.complete("n\u00fa\u00f1", 10));
+    }
+
+    @Test
+    public void testRemove() {
+        this.trie.remove("Ruth", "Kipling");
+        assertEquals(Arrays.asList("Rudyard Kipling", "Ruth Kipling"), this.trie.complete("kip", 10));
+
+        this.trie.remove("Ruth", "Kipling");
+        assertEquals(Arrays.asList("Rudyard Kipling"), this.trie.complete("kip", 10));
+        assertTrue(this.trie.complete("ruth", 10).isEmpty());
+
+        this.trie.remove("Nobody", "Known");
+        assertEquals(Arrays.asList("Robert Frost"), this.trie.complete("ro", 10));
+    }
+
+    @Test
+    public void testAddAllRanksLikeAdd() {
+        final List<String[]> names = new ArrayList<String[]>();
+        names.add(new String[] {"Rudyard", "Kipling"});
+        names.add(new String[] {"Ruth", "Kipling"});
+        names.add(new String[] {"Ruth", "Kipling"});
+        names.add(new String[] {"Rupert", "Brooke"});
+        names.add(new String[] {"Robert", "Frost"});
+
+        final NameCompletionTrie loaded = new NameCompletionTrie(3);
+        loaded.addAll(names);
+
+        for (final String prefix : new String[] {"r", "ru", "kipling", "frost r", "z"}) {
+            assertEquals(this.trie.complete(prefix, 10), loaded.complete(prefix, 10));
+        }
+    }
+
+    @Test
+    public void testEdgesAreSplitAndMerged() {
+        this.trie.add("Rob", "Roy");
+        assertEquals(Arrays.asList("Rob Roy", "Robert Frost"), this.trie.complete("rob", 10));
+        assertEquals(Arrays.asList("Robert Frost"), this.trie.complete("rober", 10));
+        assertEquals(Arrays.asList("Rob Roy"), this.trie.complete("rob r", 10));
+
+        this.trie.remove("Robert", "Frost");
+        assertEquals(Arrays.asList("Rob Roy"), this.trie.complete("ro", 10));
+        assertTrue(this.trie.complete("robe", 10).isEmpty());
+
+        this.trie.add("Robert", "Frost");
+        this.trie.remove("Rob", "Roy");
+        assertEquals(Arrays.asList("Robert Frost"), this.trie.complete("rob", 10));
+        assertEquals(Arrays.asList("Robert Frost"), this.trie.complete("frost rob", 10));
+    }
+
+    @Test
+    public void testMissingNameParts() {
+        this.trie.add(null, "Prince");
+        this.trie.add("", null);
+
+        assertEquals(Arrays.asList("Prince"), this.trie.complete("pri", 10));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link PersonNameTable}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class PersonNameTableTests {
+
+    private final PersonNameTable table = new PersonNameTable(0);
+
+    @Test
+    public void testPutReturnsPreviousNames() {
+        assertNull(this.table.put(1L, new String[] {"Ruth", "Kipling"}));
+        assertArrayEquals(new String[] {"Ruth", "Kipling"}, this.table.put(1L, new String[] {"Ruth", "Kipling", "Ruthie", null}));
+        assertArrayEquals(new String[] {"Ruth", "Kipling", "Ruthie", null}, this.table.put(1L, new String[0]));
+        assertArrayEquals(new String[0], this.table.remove(1L));
+        assertNull(this.table.remove(1L));
+        assertEquals(0, this.table.size());
+    }
+
+    @Test
+    public void testManyPeopleSurviveGrowthAndRemoval() {
+        for (long personId = 1; personId <= 1000; personId++) {
+            this.table.put(personId, new String[] {"Given" + personId % 7, "Family" + personId});
+        }
+        for (long personId = 2; personId <= 1000; personId += 2) {
+            assertArrayEquals(new String[] {"Given" + personId % 7, "Family" + personId}, this.table.remove(personId));
+        }
+
+        assertEquals(500, this.table.size());
+        for (long personId = 1; personId <= 1000; personId++) {
+            final String[] names = this.table.put(personId, new String[] {"Given", "Family"});
+            if (personId % 2 == 0) {
+                assertNull(names);
+            } else {
+                assertArrayEquals(new String[] {"Given" + personId % 7, "Family" + personId}, names);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.repository.jpa;
+
+import org.jasig.openregistry.test.domain.MockSorDisclosureSettings;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.junit.Test;
+import org.openregistry.core.domain.sor.SorName;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link SorContentHash}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SorContentHashTests {
+
+    private MockSorPerson constructSorPerson() {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setSorId("123");
+        sorPerson.setSourceSor("or-webapp");
+        sorPerson.setDateOfBirth(new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime());
+        sorPerson.setGender("F");
+        addName(sorPerson, "Jane", "Smith");
+        addName(sorPerson, "J", "Smith");
+        sorPerson.getSorLocalAttributes().put("LOCAL_ID", "42");
+        return sorPerson;
+    }
+
+    private void addName(final MockSorPerson sorPerson, final String given, final String family) {
+        final SorName name = sorPerson.addName();
+        name.setGiven(given);
+        name.setFamily(family);
+    }
+
+    @Test
+    public void testSameContentHashesTheSame() {
+        final String hash = SorContentHash.of(constructSorPerson());
+
+        assertEquals(40, hash.length());
+        assertEquals(hash, SorContentHash.of(constructSorPerson()));
+    }
+
+    @Test
+    public void testNameOrderAndTimeOfDayAreIgnored() {
+        final MockSorPerson sorPerson = constructSorPerson();
+        final MockSorPerson reordered = constructSorPerson();
+        reordered.getNames().add(reordered.getNames().remove(0));
+        reordered.setDateOfBirth(new GregorianCalendar(1970, Calendar.JANUARY, 15, 13, 30).getTime());
+
+        assertEquals(SorContentHash.of(sorPerson), SorContentHash.of(reordered));
+    }
+
+    @Test
+    public void testChangedContentHashesDifferently() {
+        final String hash = SorContentHash.of(constructSorPerson());
+
+        final MockSorPerson renamed = constructSorPerson();
+        renamed.getNames().get(0).setFamily("Jones");
+        assertFalse(hash.equals(SorContentHash.of(renamed)));
+
+        final MockSorPerson withSsn = constructSorPerson();
+        withSsn.setSsn("123456789");
+        assertFalse(hash.equals(SorContentHash.of(withSsn)));
+
+        final MockSorPerson withAttribute = constructSorPerson();
+        withAttribute.getSorLocalAttributes().put("LOCAL_ID", "43");
+        assertFalse(hash.equals(SorContentHash.of(withAttribute)));
+    }
+
+    @Test
+    public void testSnapshotHashOnlyCoversSnapshotContent() {
+        final MockSorPerson sorPerson = constructSorPerson();
+        final MockSorPerson fromSnapshot = constructSorPerson();
+        fromSnapshot.getSorLocalAttributes().clear();
+        sorPerson.setDisclosureSettings(new MockSorDisclosureSettings("DEFAULT", new Date(), false));
+
+        assertEquals(SorContentHash.ofSnapshot(sorPerson), SorContentHash.ofSnapshot(fromSnapshot));
+        assertFalse(SorContentHash.of(sorPerson).equals(SorContentHash.of(fromSnapshot)));
+
+        fromSnapshot.setSsn("123456789");
+        assertFalse(SorContentHash.ofSnapshot(sorPerson).equals(SorContentHash.ofSnapshot(fromSnapshot)));
+    }
+
+    @Test
+    public void testNullIsNotTheEmptyString() {
+        final MockSorPerson sorPerson = constructSorPerson();
+        final MockSorPerson withEmptyGender = constructSorPerson();
+        sorPerson.setGender(null);
+        withEmptyGender.setGender("");
+
+        assertFalse(SorContentHash.of(sorPerson).equals(SorContentHash.of(withEmptyGender)));
+    }
+}
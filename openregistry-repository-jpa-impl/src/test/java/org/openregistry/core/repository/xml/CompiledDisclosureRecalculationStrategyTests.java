@@ -0,0 +1,108 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.xml;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link CompiledDisclosureRecalculationStrategy}.  Every question is checked against the
+ * {@link XmlBasedDisclosureRecalculationStrategyImpl} it was compiled from.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CompiledDisclosureRecalculationStrategyTests {
+
+    static final String[] CODES = {"1", "2", "5"};
+
+    static final String[] AFFILIATIONS = {"FACULTY", "STAFF", "STUDENT", "DEFAULT"};
+
+    static final String[] TYPES = {"HOME", "OFFICE", "CAMPUS", "DEFAULT"};
+
+    static final String[] PHONE_TYPES = {"CELL", "LANDLINE", "FAX", "DEFAULT"};
+
+    private XmlBasedDisclosureRecalculationStrategyImpl specification;
+
+    private CompiledDisclosureRecalculationStrategy compiled;
+
+    static XmlBasedDisclosureRecalculationStrategyImpl loadSpecification() throws Exception {
+        final InputStream inputStream = CompiledDisclosureRecalculationStrategyTests.class.getResourceAsStream("/sample-disclosure-recalculation-strategy.xml");
+        try {
+            return (XmlBasedDisclosureRecalculationStrategyImpl) JAXBContext.newInstance(XmlBasedDisclosureRecalculationStrategyImpl.class).createUnmarshaller().unmarshal(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        this.specification = loadSpecification();
+        this.compiled = this.specification.compile();
+    }
+
+    @Test
+    public void testSameNameAndDescription() {
+        assertEquals(this.specification.getName(), this.compiled.getName());
+        assertEquals(this.specification.getDescription(), this.compiled.getDescription());
+    }
+
+    @Test
+    public void testSameDecisions() {
+        for (final String code : CODES) {
+            for (final String affiliation : AFFILIATIONS) {
+                for (final String type : TYPES) {
+                    final String message = code + "/" + affiliation + "/" + type;
+                    assertEquals(message, this.specification.isAddressLinesPublic(code, type, affiliation), this.compiled.isAddressLinesPublic(code, type, affiliation));
+                    assertEquals(message, this.specification.isAddressBuildingPublic(code, type, affiliation), this.compiled.isAddressBuildingPublic(code, type, affiliation));
+                    assertEquals(message, this.specification.isAddressRegionPublic(code, type, affiliation), this.compiled.isAddressRegionPublic(code, type, affiliation));
+                    assertEquals(message, this.specification.isEmailPublic(code, type, affiliation), this.compiled.isEmailPublic(code, type, affiliation));
+                    assertEquals(message, this.specification.isUrlPublic(code, type, affiliation), this.compiled.isUrlPublic(code, type, affiliation));
+
+                    for (final String phoneType : PHONE_TYPES) {
+                        assertEquals(message + "/" + phoneType, this.specification.isPhonePublic(code, type, phoneType, affiliation), this.compiled.isPhonePublic(code, type, phoneType, affiliation));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameSpecificTypes() {
+        for (final String code : CODES) {
+            for (final String affiliation : AFFILIATIONS) {
+                assertEquals(this.specification.getSpecificaddressTypes(code, affiliation), this.compiled.getSpecificaddressTypes(code, affiliation));
+                assertEquals(this.specification.getSpecificEmailTypes(code, affiliation), this.compiled.getSpecificEmailTypes(code, affiliation));
+                assertEquals(this.specification.getSpecificPhoneTypes(code, affiliation), this.compiled.getSpecificPhoneTypes(code, affiliation));
+                assertEquals(this.specification.getSpecificUrlTypes(code, affiliation), this.compiled.getSpecificUrlTypes(code, affiliation));
+                assertEquals(this.specification.getSpecificPhoneTypesWithAddress(code, affiliation), this.compiled.getSpecificPhoneTypesWithAddress(code, affiliation));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownCode() {
+        this.compiled.isEmailPublic("99", "HOME", "FACULTY");
+    }
+}
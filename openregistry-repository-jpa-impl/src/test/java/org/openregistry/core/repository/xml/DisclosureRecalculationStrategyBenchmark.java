@@ -0,0 +1,93 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.repository.xml;
+
+import org.openregistry.core.service.DisclosureRecalculationStrategy;
+
+import static org.openregistry.core.repository.xml.CompiledDisclosureRecalculationStrategyTests.*;
+
+/**
+ * Micro-benchmark comparing the scanning {@link XmlBasedDisclosureRecalculationStrategyImpl} with the
+ * {@link CompiledDisclosureRecalculationStrategy} on the sample specification.  Not a test; run it by hand with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.openregistry.core.repository.xml.DisclosureRecalculationStrategyBenchmark -Dexec.classpathScope=test</code>.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DisclosureRecalculationStrategyBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+
+    private static final int ROUNDS = 10;
+
+    private static final int ITERATIONS = 20000;
+
+    public static void main(final String[] args) throws Exception {
+        final XmlBasedDisclosureRecalculationStrategyImpl specification = loadSpecification();
+        final CompiledDisclosureRecalculationStrategy compiled = specification.compile();
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            run(specification);
+            run(compiled);
+        }
+
+        long scanning = 0;
+        long indexed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            scanning += run(specification);
+            indexed += run(compiled);
+        }
+
+        final long decisions = (long) ROUNDS * ITERATIONS * decisionsPerIteration();
+        System.out.println(String.format("scanning: %.1f ns/decision", (double) scanning / decisions));
+        System.out.println(String.format("compiled: %.1f ns/decision", (double) indexed / decisions));
+    }
+
+    private static int decisionsPerIteration() {
+        return CODES.length * AFFILIATIONS.length * TYPES.length * (5 + PHONE_TYPES.length);
+    }
+
+    private static long run(final DisclosureRecalculationStrategy strategy) {
+        int publicCount = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (final String code : CODES) {
+                for (final String affiliation : AFFILIATIONS) {
+                    for (final String type : TYPES) {
+                        publicCount += strategy.isAddressLinesPublic(code, type, affiliation) ? 1 : 0;
+                        publicCount += strategy.isAddressBuildingPublic(code, type, affiliation) ? 1 : 0;
+                        publicCount += strategy.isAddressRegionPublic(code, type, affiliation) ? 1 : 0;
+                        publicCount += strategy.isEmailPublic(code, type, affiliation) ? 1 : 0;
+                        publicCount += strategy.isUrlPublic(code, type, affiliation) ? 1 : 0;
+                        for (final String phoneType : PHONE_TYPES) {
+                            publicCount += strategy.isPhonePublic(code, type, phoneType, affiliation) ? 1 : 0;
+                        }
+                    }
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        // keeps the JIT from eliminating the calls
+        if (publicCount < 0) {
+            System.out.println(publicCount);
+        }
+        return elapsed;
+    }
+}
@@ -39,23 +39,35 @@ public final class SoRSpecificationThreadLocalAspect {
 
     @Around("(execution (public * org.openregistry.core.service.PersonService+.*(..))) && args(sorPerson, ..)")
     public  Object populateThreadLocalForSoRSpecification(final ProceedingJoinPoint proceedingJoinPoint, final SorPerson sorPerson) throws Throwable {
-        try {
-            final SoRSpecification soRSpecification = sorPerson != null ? this.systemOfRecordRepository.findSoRSpecificationById(sorPerson.getSourceSor()) : null;
-            SystemOfRecordHolder.setCurrentSystemOfRecord(soRSpecification);
-            return proceedingJoinPoint.proceed();
-        } finally {
-            SystemOfRecordHolder.clearCurrentSystemOfRecord();
-        }
+        return proceedWithSoRSpecification(proceedingJoinPoint, sorPerson);
     }
 
     @Around("(execution (public * org.openregistry.core.service.PersonService+.*(..))) && args(reconciliationCriteria, ..)")
     public  Object populateThreadLocalForSoRSpecification(final ProceedingJoinPoint proceedingJoinPoint, final ReconciliationCriteria reconciliationCriteria) throws Throwable {
+        return proceedWithSoRSpecification(proceedingJoinPoint, reconciliationCriteria != null ? reconciliationCriteria.getSorPerson() : null);
+    }
+
+    /**
+     * Nested service calls for the same SoR reuse the specification already set by the outermost call instead of
+     * looking it up again, and leave it in place for the rest of the outer call when they complete.
+     */
+    private Object proceedWithSoRSpecification(final ProceedingJoinPoint proceedingJoinPoint, final SorPerson sorPerson) throws Throwable {
+        final SoRSpecification current = SystemOfRecordHolder.getCurrentSystemOfRecord();
+
+        if (current != null && sorPerson != null && sorPerson.getSourceSor() != null && sorPerson.getSourceSor().equalsIgnoreCase(current.getSoR())) {
+            return proceedingJoinPoint.proceed();
+        }
+
         try {
-            final SoRSpecification soRSpecification =  reconciliationCriteria != null ? this.systemOfRecordRepository.findSoRSpecificationById(reconciliationCriteria.getSorPerson().getSourceSor()) : null;
+            final SoRSpecification soRSpecification = sorPerson != null ? this.systemOfRecordRepository.findSoRSpecificationById(sorPerson.getSourceSor()) : null;
             SystemOfRecordHolder.setCurrentSystemOfRecord(soRSpecification);
             return proceedingJoinPoint.proceed();
         } finally {
-            SystemOfRecordHolder.clearCurrentSystemOfRecord();
+            if (current != null) {
+                SystemOfRecordHolder.setCurrentSystemOfRecord(current);
+            } else {
+                SystemOfRecordHolder.clearCurrentSystemOfRecord();
+            }
         }
     }
 
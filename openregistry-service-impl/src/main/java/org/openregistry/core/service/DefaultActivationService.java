@@ -20,7 +20,11 @@
 package org.openregistry.core.service;
 
 import org.openregistry.core.domain.*;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
 import org.openregistry.core.repository.PersonRepository;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+import org.openregistry.core.service.reconciliation.ReconciliationBlockingKeys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
@@ -42,6 +46,12 @@ public final class DefaultActivationService implements ActivationService {
 
     private final PersonRepository personRepository;
 
+    @Autowired(required = false)
+    private ReconciliationCandidateRepository reconciliationCandidateRepository;
+
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
+
     private DateGenerator startDateGenerator = new CurrentDateTimeDateGenerator();
 
     private DateGenerator endDateGenerator = new AdditiveDateTimeDateGenerator(Calendar.DAY_OF_MONTH, 2);
@@ -56,7 +66,7 @@ public final class DefaultActivationService implements ActivationService {
         Assert.notNull(person, "person cannot be null.");
         final Date startDate = this.startDateGenerator.getNewDate();
         final ActivationKey key = person.generateNewActivationKey(startDate, this.endDateGenerator.getNewDate(startDate));
-        this.personRepository.savePerson(person);
+        savePerson(person);
         return key;
     }
 
@@ -86,7 +96,7 @@ public final class DefaultActivationService implements ActivationService {
 
         if (currentKey.hasLock(lock)) {
             person.removeCurrentActivationKey();
-            this.personRepository.savePerson(person);
+            savePerson(person);
         } else {
             throw new LockingException("You do not hold the lock for this key.");
         }
@@ -127,12 +137,27 @@ public final class DefaultActivationService implements ActivationService {
         }
 
         key.lock(lock);
-        this.personRepository.savePerson(person);
+        savePerson(person);
 
         return key;
     }
 
 
+    /**
+     * Saves the calculated person and brings its reconciliation blocking keys and its calculated person view up to
+     * date, as {@link DefaultPersonService} does.
+     */
+    protected Person savePerson(final Person person) {
+        final Person savedPerson = this.personRepository.savePerson(person);
+        if (this.reconciliationCandidateRepository != null) {
+            this.reconciliationCandidateRepository.updateBlockingKeys(savedPerson, ReconciliationBlockingKeys.forPerson(savedPerson));
+        }
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(savedPerson));
+        }
+        return savedPerson;
+    }
+
     protected Person findPerson(final String identifierType, final String identifierValue) throws PersonNotFoundException {
         try {
             return this.personRepository.findByIdentifier(identifierType, identifierValue);
@@ -148,4 +173,12 @@ public final class DefaultActivationService implements ActivationService {
     public void setEndDateGenerator(final DateGenerator endDateGenerator) {
         this.endDateGenerator = endDateGenerator;
     }
+
+    public void setReconciliationCandidateRepository(final ReconciliationCandidateRepository reconciliationCandidateRepository) {
+        this.reconciliationCandidateRepository = reconciliationCandidateRepository;
+    }
+
+    public void setCalculatedPersonViewRepository(final CalculatedPersonViewRepository calculatedPersonViewRepository) {
+        this.calculatedPersonViewRepository = calculatedPersonViewRepository;
+    }
 }
\ No newline at end of file
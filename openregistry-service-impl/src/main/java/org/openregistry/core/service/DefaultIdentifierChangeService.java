@@ -21,12 +21,18 @@ package org.openregistry.core.service;
 
 
 import org.apache.commons.lang.StringUtils;
+import org.openregistry.core.domain.CalculatedPersonView;
 import org.openregistry.core.domain.IdentifierType;
 import org.openregistry.core.domain.Identifier;
 import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
+import org.openregistry.core.repository.PersonIdentifierIndex;
+import org.openregistry.core.repository.PersonSearchIndex;
 import org.openregistry.core.repository.PersonRepository;
+import org.openregistry.integration.IdentifierChangeEventNotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,6 +56,18 @@ public class DefaultIdentifierChangeService implements IdentifierChangeService {
     @Inject
      private  PersonRepository personRepository;
 
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
+
+    @Autowired(required = false)
+    private PersonIdentifierIndex personIdentifierIndex;
+
+    @Autowired(required = false)
+    private PersonSearchIndex personSearchIndex;
+
+    @Autowired(required = false)
+    private IdentifierChangeEventNotificationService identifierChangeEventNotificationService;
+
     @Transactional(propagation = Propagation.REQUIRED,noRollbackFor = IllegalArgumentException.class)
     public boolean change(Identifier internalId, String changedId) {
         //check if both identifier are of the same type
@@ -90,6 +108,22 @@ public class DefaultIdentifierChangeService implements IdentifierChangeService {
         providedId.setDeleted(false);
         currId.setPrimary(false);
         currId.setDeleted(true);
+
+        // the view is keyed by the primary identifiers, so it has to follow the change right away.
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(person));
+        }
+        if (this.personIdentifierIndex != null) {
+            this.personIdentifierIndex.reindexAfterCommit(person);
+        }
+        if (this.personSearchIndex != null) {
+            this.personSearchIndex.indexAfterCommit(person);
+        }
+        // sent within the transaction, so an outbox backed gateway stores the event together with the change.
+        if (this.identifierChangeEventNotificationService != null) {
+            this.identifierChangeEventNotificationService.createAndSendEventMessageFor(internalId.getType().getName(), internalId.getValue(),
+                    internalId.getType().getName(), changedId);
+        }
         return true;
     }
     public Person findPersonByIdentifier(final String identifierType, final String identifierValue) {
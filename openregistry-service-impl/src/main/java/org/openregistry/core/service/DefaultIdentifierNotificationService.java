@@ -29,7 +29,12 @@ import org.openregistry.core.domain.IdentifierType;
 import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.Role;
 import org.openregistry.core.domain.Type;
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
 import org.openregistry.core.repository.PersonRepository;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+import org.openregistry.core.service.reconciliation.ReconciliationBlockingKeys;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Default implementation of <code>IdentifierNotificationService</code>
@@ -44,6 +49,12 @@ public class DefaultIdentifierNotificationService implements
     private final DateGenerator dateGenerator = new CurrentDateTimeDateGenerator();
     private final DateGenerator endDateGenerator;
     private final IdentiferNotificationStrategy notificationStrategy;
+
+    @Autowired(required = false)
+    private ReconciliationCandidateRepository reconciliationCandidateRepository;
+
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
     
     @Inject
     public DefaultIdentifierNotificationService(
@@ -55,6 +66,14 @@ public class DefaultIdentifierNotificationService implements
         this.endDateGenerator = new AdditiveDateTimeDateGenerator(Calendar.DAY_OF_MONTH, daysForActivationKey);
     }
 
+    public void setReconciliationCandidateRepository(final ReconciliationCandidateRepository reconciliationCandidateRepository) {
+        this.reconciliationCandidateRepository = reconciliationCandidateRepository;
+    }
+
+    public void setCalculatedPersonViewRepository(final CalculatedPersonViewRepository calculatedPersonViewRepository) {
+        this.calculatedPersonViewRepository = calculatedPersonViewRepository;
+    }
+
 	/**
 	 * Sends an email notification to the Person's preferred email address
 	 */
@@ -107,10 +126,25 @@ public class DefaultIdentifierNotificationService implements
 					} else {
 						person.setIdentifierNotified(identifierType, this.dateGenerator.getNewDate());
 						this.notificationStrategy.notifyPerson(person, role, addressType, idToNotifyAbout, activationKeyString);
-						this.personRepository.savePerson(personToUpdate);		
+						savePerson(personToUpdate);
 					}
 				}
 			}
 		}
 	}
+
+    /**
+     * Saves the calculated person and brings its reconciliation blocking keys and its calculated person view up to
+     * date, as {@link DefaultPersonService} does.
+     */
+    protected Person savePerson(final Person person) {
+        final Person savedPerson = this.personRepository.savePerson(person);
+        if (this.reconciliationCandidateRepository != null) {
+            this.reconciliationCandidateRepository.updateBlockingKeys(savedPerson, ReconciliationBlockingKeys.forPerson(savedPerson));
+        }
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(savedPerson));
+        }
+        return savedPerson;
+    }
 }
@@ -0,0 +1,98 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.service;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.repository.PersonExportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Default implementation of the {@link PersonExportService}.  Pages through the registry with the
+ * {@link PersonExportRepository}, one short read-only transaction per page, so the export neither holds a
+ * transaction open while the output is being written nor keeps more than one page in memory.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named("personExportService")
+public class DefaultPersonExportService implements PersonExportService {
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PersonExportRepository personExportRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    @Inject
+    public DefaultPersonExportService(final PersonExportRepository personExportRepository, final PlatformTransactionManager transactionManager) {
+        this.personExportRepository = personExportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void setPageSize(final int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public long exportPeople(final PersonExportHandler handler) throws IOException {
+        long count = 0;
+        Long lastPersonId = null;
+
+        while (true) {
+            final List<CalculatedPersonView> page = findPeopleAfter(lastPersonId);
+
+            for (final CalculatedPersonView person : page) {
+                handler.export(person);
+                lastPersonId = person.getPersonId();
+            }
+            count += page.size();
+
+            if (!page.isEmpty()) {
+                handler.endOfPage();
+            }
+
+            if (page.size() < this.pageSize) {
+                logger.info("Exported " + count + " people.");
+                return count;
+            }
+        }
+    }
+
+    private List<CalculatedPersonView> findPeopleAfter(final Long afterPersonId) {
+        return this.transactionTemplate.execute(new TransactionCallback<List<CalculatedPersonView>>() {
+            public List<CalculatedPersonView> doInTransaction(final TransactionStatus transactionStatus) {
+                return personExportRepository.findPeopleAfter(afterPersonId, pageSize);
+            }
+        });
+    }
+}
@@ -36,6 +36,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.*;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.*;
 import org.springframework.util.StringUtils;
 
@@ -43,6 +45,9 @@ import javax.annotation.Resource;
 import javax.inject.*;
 import javax.validation.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 
@@ -105,11 +110,24 @@ public class DefaultPersonService implements PersonService {
     private ObjectFactory<Person> personObjectFactory;
 
     @Autowired(required = false)
-    private Map<ReconciliationCriteria, ReconciliationResult> criteriaCache = new EhCacheBackedMapImpl<ReconciliationCriteria, ReconciliationResult>();
+    private PendingReconciliationStore pendingReconciliationStore = new BoundedPendingReconciliationStore();
 
     @Autowired(required = false)
     private List<IdentifierAssigner> identifierAssigners = new ArrayList<IdentifierAssigner>();
 
+    @Autowired(required = false)
+    private ReconciliationCandidateRepository reconciliationCandidateRepository;
+
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
+
+    @Autowired(required = false)
+    private ElectionInputsRepository electionInputsRepository;
+
+    private boolean deferredFlush = false;
+
+    private final ConcurrentMap<String, AtomicLong> skippedUpdateCounts = new ConcurrentHashMap<String, AtomicLong>();
+
     @Inject
     private IdentifierChangeService identifierChangeService;
 
@@ -140,14 +158,35 @@ public class DefaultPersonService implements PersonService {
         this.personObjectFactory = personObjectFactory;
     }
 
-    public void setCriteriaCache(final Map<ReconciliationCriteria, ReconciliationResult> criteriaCache) {
-        this.criteriaCache = criteriaCache;
+    public void setPendingReconciliationStore(final PendingReconciliationStore pendingReconciliationStore) {
+        this.pendingReconciliationStore = pendingReconciliationStore;
     }
 
     public void setIdentifierAssigners(final List<IdentifierAssigner> identifierAssigners) {
         this.identifierAssigners = identifierAssigners;
     }
 
+    public void setReconciliationCandidateRepository(final ReconciliationCandidateRepository reconciliationCandidateRepository) {
+        this.reconciliationCandidateRepository = reconciliationCandidateRepository;
+    }
+
+    public void setCalculatedPersonViewRepository(final CalculatedPersonViewRepository calculatedPersonViewRepository) {
+        this.calculatedPersonViewRepository = calculatedPersonViewRepository;
+    }
+
+    public void setElectionInputsRepository(final ElectionInputsRepository electionInputsRepository) {
+        this.electionInputsRepository = electionInputsRepository;
+    }
+
+    /**
+     * @param deferredFlush true to save the calculated people changed by an operation once, when it commits, rather
+     * than every time the operation saves them.  Off by default; the webapps' applicationContext shows how to turn it on.
+     * @see PersonRepository#savePersonAtCommit(Person)
+     */
+    public void setDeferredFlush(final boolean deferredFlush) {
+        this.deferredFlush = deferredFlush;
+    }
+
     public void setValidator(final Validator validator) {
         this.validator = validator;
     }
@@ -168,6 +207,31 @@ public class DefaultPersonService implements PersonService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public CalculatedPersonView findCalculatedPersonView(final Long id) {
+        final CalculatedPersonView view = this.calculatedPersonViewRepository != null ? this.calculatedPersonViewRepository.findByPersonId(id) : null;
+        if (view != null) {
+            return view;
+        }
+
+        final Person person = this.personRepository.findByInternalId(id, PersonFetchProfile.REST_SUMMARY);
+        return person != null ? new CalculatedPersonView(person) : null;
+    }
+
+    @Transactional(readOnly = true)
+    public CalculatedPersonView findCalculatedPersonViewByIdentifier(final String identifierType, final String identifierValue) {
+        final CalculatedPersonView view = this.calculatedPersonViewRepository != null ? this.calculatedPersonViewRepository.findByIdentifier(identifierType, identifierValue) : null;
+        if (view != null) {
+            return view;
+        }
+
+        try {
+            return new CalculatedPersonView(this.personRepository.findByIdentifier(identifierType, identifierValue, PersonFetchProfile.REST_SUMMARY));
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
     @Transactional(readOnly = true)
     public SorPerson findByPersonIdAndSorIdentifier(final Long personId, final String sorSourceIdentifier) {
         try {
@@ -237,6 +301,10 @@ public class DefaultPersonService implements PersonService {
         final Person person = this.personRepository.findByInternalId(sorPerson.getPersonId());
         Assert.notNull(person, "person cannot be null.");
 
+        if (this.electionInputsRepository != null) {
+            this.electionInputsRepository.removeElectionInputs(sorPerson.getId());
+        }
+
         if (mistake) {
             Set<Role> rolesToDelete = new HashSet<Role>();
 
@@ -256,7 +324,7 @@ public class DefaultPersonService implements PersonService {
             final Number number = this.personRepository.getCountOfSoRRecordsForPerson(person);
 
             if (number.intValue() == 1) {
-                this.personRepository.deletePerson(person);
+                deletePerson(person);
             }
 
             this.personRepository.deleteSorPerson(sorPerson);
@@ -275,10 +343,10 @@ public class DefaultPersonService implements PersonService {
         }
 
         this.personRepository.deleteSorPerson(sorPerson);
-        this.personRepository.savePerson(person);
+        savePerson(person);
 
        Person p= recalculatePersonBiodemInfo(person, sorPerson, RecalculationType.DELETE, mistake);
-        this.personRepository.savePerson(p);
+        savePerson(p);
         return true;
     }
 
@@ -316,7 +384,7 @@ public class DefaultPersonService implements PersonService {
 
         sorPerson.getRoles().remove(sorRole);
         this.personRepository.saveSorPerson(sorPerson);
-        this.personRepository.savePerson(person);
+        savePerson(person);
         return true;
     }
 
@@ -342,12 +410,12 @@ public class DefaultPersonService implements PersonService {
         }
 
         final SorPerson newSorPerson = this.personRepository.saveSorPerson(sorPerson);
-        Person person = this.personRepository.findByInternalId(newSorPerson.getPersonId());
+        Person person = this.personRepository.findByInternalId(newSorPerson.getPersonId(), PersonFetchProfile.RECALCULATION);
         final SorRole newSorRole = newSorPerson.findSorRoleBySorRoleId(sorRole.getSorId());
         //let sor role elector decide if this new role can be converted to calculated one
         sorRoleElector.addSorRole(newSorRole,person);
         person = recalculatePersonBiodemInfo(person, newSorPerson, RecalculationType.UPDATE, false);
-        this.personRepository.savePerson(person);
+        savePerson(person);
         logger.info("validateAndSaveRoleForSorPerson end");
         return new GeneralServiceExecutionResult<SorRole>(newSorRole);
     }
@@ -429,7 +497,7 @@ public class DefaultPersonService implements PersonService {
             return new GeneralServiceExecutionResult<Person>(addNewSorPersonAndLinkWithMatchedCalculatedPerson(reconciliationCriteria, result));
     }
 
-    this.criteriaCache.put(reconciliationCriteria, result);
+    this.pendingReconciliationStore.put(reconciliationCriteria, result);
     logger.info("addPerson start");
     throw new ReconciliationException(result);
 }
@@ -437,13 +505,13 @@ public class DefaultPersonService implements PersonService {
     public ServiceExecutionResult<Person> forceAddPerson(final ReconciliationCriteria reconciliationCriteria) throws IllegalArgumentException, IllegalStateException {
         Assert.notNull(reconciliationCriteria, "reconciliationCriteria cannot be null.");
         logger.info("forceAddPerson start");
-        final ReconciliationResult result = this.criteriaCache.get(reconciliationCriteria);
+        final ReconciliationResult result = this.pendingReconciliationStore.get(reconciliationCriteria);
 
         if (result == null) {
             throw new IllegalStateException("No ReconciliationResult found for provided criteria.");
         }
 
-        this.criteriaCache.remove(reconciliationCriteria);
+        this.pendingReconciliationStore.remove(reconciliationCriteria);
         logger.info("forceAddPerson end");
         return new GeneralServiceExecutionResult<Person>(saveSorPersonAndConvertToCalculatedPerson(reconciliationCriteria));
     }
@@ -452,7 +520,7 @@ public class DefaultPersonService implements PersonService {
         Assert.notNull(reconciliationCriteria, "reconciliationCriteria cannot be null.");
         Assert.notNull(person, "person cannot be null.");
         logger.info(" addPersonAndLink start");
-        final ReconciliationResult result = this.criteriaCache.get(reconciliationCriteria);
+        final ReconciliationResult result = this.pendingReconciliationStore.get(reconciliationCriteria);
 
         if (result == null) {
             throw new IllegalStateException("No ReconciliationResult found for provided criteria.");
@@ -469,6 +537,65 @@ public class DefaultPersonService implements PersonService {
         throw new IllegalStateException("Person not found in ReconciliationResult.");
     }
 
+    public List<BatchServiceExecutionResult<Person>> addPeople(final List<ReconciliationCriteria> reconciliationCriterias) throws IllegalArgumentException {
+        Assert.notNull(reconciliationCriterias, "reconciliationCriterias cannot be null");
+        logger.info("addPeople start: " + reconciliationCriterias.size() + " people");
+        final List<BatchServiceExecutionResult<Person>> results = new ArrayList<BatchServiceExecutionResult<Person>>(Collections.<BatchServiceExecutionResult<Person>>nCopies(reconciliationCriterias.size(), null));
+        final Map<List<String>, SorPerson> existingSorPeople = findExistingSorPeople(reconciliationCriterias);
+        final List<ReconciliationCriteria> criteriasToReconcile = new ArrayList<ReconciliationCriteria>();
+        final List<Integer> positionsToReconcile = new ArrayList<Integer>();
+
+        // validation errors are returned per person instead of rolling back, so that the rest of the chunk is still added
+        for (int i = 0; i < reconciliationCriterias.size(); i++) {
+            final ReconciliationCriteria reconciliationCriteria = reconciliationCriterias.get(i);
+            final SorPerson existingSorPerson = existingSorPeople.get(sorKey(reconciliationCriteria.getSorPerson()));
+
+            if (existingSorPerson != null) {
+                results.set(i, new GeneralBatchServiceExecutionResult<Person>(new SorPersonAlreadyExistsException(existingSorPerson)));
+                continue;
+            }
+
+            final Set validationErrors = this.validator.validate(reconciliationCriteria);
+            if (!validationErrors.isEmpty()) {
+                logger.info("validation errors: " + validationErrors);
+                results.set(i, new GeneralBatchServiceExecutionResult<Person>(validationErrors));
+                continue;
+            }
+
+            criteriasToReconcile.add(reconciliationCriteria);
+            positionsToReconcile.add(i);
+        }
+
+        final List<ReconciliationResult> reconciliationResults = reconcile(criteriasToReconcile);
+        // blocking keys of the people added by this chunk; the batch reconciliation above could not see them
+        final Set<String> addedBlockingKeys = new HashSet<String>();
+
+        for (int i = 0; i < criteriasToReconcile.size(); i++) {
+            final ReconciliationCriteria reconciliationCriteria = criteriasToReconcile.get(i);
+            final SorPerson addedSorPerson = existingSorPeople.get(sorKey(reconciliationCriteria.getSorPerson()));
+
+            if (addedSorPerson != null) {
+                results.set(positionsToReconcile.get(i), new GeneralBatchServiceExecutionResult<Person>(new SorPersonAlreadyExistsException(addedSorPerson)));
+                continue;
+            }
+
+            ReconciliationResult result = reconciliationResults.get(i);
+            if (!Collections.disjoint(addedBlockingKeys, ReconciliationBlockingKeys.forSorPerson(reconciliationCriteria.getSorPerson()))) {
+                result = this.reconciler.reconcile(reconciliationCriteria);
+            }
+
+            results.set(positionsToReconcile.get(i), addReconciledPerson(reconciliationCriteria, result, addedBlockingKeys));
+
+            if (results.get(positionsToReconcile.get(i)).succeeded()) {
+                existingSorPeople.put(sorKey(reconciliationCriteria.getSorPerson()), reconciliationCriteria.getSorPerson());
+            }
+        }
+
+        this.personRepository.flush();
+        logger.info("addPeople end");
+        return results;
+    }
+
     public ServiceExecutionResult<ReconciliationResult> reconcile(final ReconciliationCriteria reconciliationCriteria) throws IllegalArgumentException {
          Assert.notNull(reconciliationCriteria, "reconciliationCriteria cannot be null");
          logger.info("reconcile start");
@@ -516,6 +643,12 @@ public class DefaultPersonService implements PersonService {
      * @return serviceExecutionResult.
      */
     public ServiceExecutionResult<SorPerson> updateSorPerson(final SorPerson sorPerson) {
+        // feeds re-send unchanged people all the time.
+        if (this.personRepository.isSorPersonUnchanged(sorPerson)) {
+            countSkippedUpdate(sorPerson.getSourceSor());
+            return new GeneralServiceExecutionResult<SorPerson>(sorPerson);
+        }
+
         final Set validationErrors = this.validator.validate(sorPerson);
 
         if (!validationErrors.isEmpty()) {
@@ -566,7 +699,7 @@ public class DefaultPersonService implements PersonService {
         }
 
         person = recalculatePersonBiodemInfo(person, savedSorPerson, RecalculationType.UPDATE, false);
-        person =this.personRepository.savePerson(person);
+        person =savePerson(person);
 
         return new GeneralServiceExecutionResult<SorPerson>(savedSorPerson);
     }
@@ -575,6 +708,11 @@ public class DefaultPersonService implements PersonService {
         Assert.notNull(sorPerson, "sorPerson cannot be null.");
         Assert.notNull(sorRole, "sorRole cannot be null.");
 
+        if (this.personRepository.isSorRoleUnchanged(sorRole)) {
+            countSkippedUpdate(sorPerson.getSourceSor());
+            return new GeneralServiceExecutionResult<SorRole>(sorRole);
+        }
+
         final Set validationErrors = this.validator.validate(sorRole);
 
         if (!validationErrors.isEmpty()) {
@@ -590,18 +728,48 @@ public class DefaultPersonService implements PersonService {
 
         final SorRole savedSorRole = this.personRepository.saveSorRole(sorRole);
 
-        final Person person = this.personRepository.findByInternalId(sorPerson.getPersonId());
+        final Person person = this.personRepository.findByInternalId(sorPerson.getPersonId(), PersonFetchProfile.RECALCULATION);
         final Role role = person.findRoleBySoRRoleId(savedSorRole.getId());
         if(role!=null){
            //update calculated role only if that role was previously converted to calculated one by sorRoleElector
           role.recalculate(savedSorRole);
-          this.personRepository.savePerson(person);
+          savePerson(person);
         }
         //else //do nothing i.e. don't update the calculated role if SorRoleElector Previously decided not to convert this sor role to calculated role
 
         return new GeneralServiceExecutionResult<SorRole>(savedSorRole);
     }
 
+    public Map<String, Long> getSkippedUpdateCounts() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : this.skippedUpdateCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public Map<String, Long> getPendingReconciliationCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        counts.put("size", (long) this.pendingReconciliationStore.size());
+        counts.put("hits", this.pendingReconciliationStore.getHitCount());
+        counts.put("misses", this.pendingReconciliationStore.getMissCount());
+        counts.put("evictions", this.pendingReconciliationStore.getEvictionCount());
+        counts.put("expirations", this.pendingReconciliationStore.getExpirationCount());
+        return counts;
+    }
+
+    private void countSkippedUpdate(final String sorSource) {
+        AtomicLong count = this.skippedUpdateCounts.get(sorSource);
+        if (count == null) {
+            final AtomicLong newCount = new AtomicLong();
+            count = this.skippedUpdateCounts.putIfAbsent(sorSource, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
     public boolean removeSorName(SorPerson sorPerson, Long nameId) {
         SorName name = sorPerson.findNameByNameId(nameId);
         if (name == null) return false;
@@ -633,7 +801,7 @@ public class DefaultPersonService implements PersonService {
          Set <? extends Identifier> oldIdentifiers= fromPerson.getIdentifiers();
         Set<? extends IdCard> oldIdCards =fromPerson.getIdCards();
 
-        this.personRepository.deletePerson(fromPerson);
+        deletePerson(fromPerson);
         logger.info("moveAllSystemOfRecordPerson: Deleted From Person");
         for(Identifier identifier:oldIdentifiers){
 
@@ -667,7 +835,7 @@ public class DefaultPersonService implements PersonService {
         }
 
 
-        this.personRepository.savePerson(toPerson);
+        savePerson(toPerson);
 
         return true;
     }
@@ -682,8 +850,8 @@ public class DefaultPersonService implements PersonService {
     public boolean moveSystemOfRecordPerson(Person fromPerson, Person toPerson, SorPerson movingSorPerson) {
         movingSorPerson.setPersonId(toPerson.getId());
         updateCalculatedPersonsOnMoveOfSor(toPerson, fromPerson, movingSorPerson);
-        this.personRepository.savePerson(fromPerson);
-        this.personRepository.savePerson(toPerson);
+        savePerson(fromPerson);
+        savePerson(toPerson);
         this.personRepository.saveSorPerson(movingSorPerson);
         return true;
     }
@@ -703,8 +871,8 @@ public class DefaultPersonService implements PersonService {
         //remove identifiers assigned to new person from old person
         fromPerson.getIdentifiers().removeAll(savedPerson.getIdentifiers());
         updateCalculatedPersonsOnMoveOfSor(savedPerson, fromPerson, movingSorPerson);
-        fromPerson =this.personRepository.savePerson(fromPerson);
-       savedPerson= this.personRepository.savePerson(savedPerson);
+        fromPerson =savePerson(fromPerson);
+       savedPerson= savePerson(savedPerson);
         movingSorPerson.setPersonId(savedPerson.getId());
         this.personRepository.saveSorPerson(movingSorPerson);
         return true;
@@ -776,70 +944,110 @@ public class DefaultPersonService implements PersonService {
     }
 
     protected Person recalculatePersonBiodemInfo(final Person person, final SorPerson sorPerson, final RecalculationType recalculationType, boolean mistake) {
+        final SorPersonElectionInputs electionInputs = SorPersonElectionInputs.forSorPerson(sorPerson);
+        final Set<SorPersonElectionInputs.Input> changedInputs = findChangedElectionInputs(person, sorPerson, electionInputs, recalculationType);
+        if (changedInputs.isEmpty()) {
+            logger.info("recalculatePersonBiodemInfo: no election inputs changed, skipping");
+            return person;
+        }
+
         final List<SorPerson> sorPersons = this.personRepository.getSoRRecordsForPerson(person);
-        logger.info("recalculatePersonBiodemInfo: start");
+        logger.info("recalculatePersonBiodemInfo: start, changed inputs: " + changedInputs);
         if (recalculationType == RecalculationType.ADD || (recalculationType == RecalculationType.DELETE && !mistake)) {
             sorPersons.add(sorPerson);
         }
+        final boolean deleted = recalculationType == RecalculationType.DELETE;
+
+        if (changedInputs.contains(SorPersonElectionInputs.Input.NAMES)) {
+            copySorNamesToPerson(person, sorPersons);
+            final SorName preferredName = this.preferredNameFieldElector.elect(sorPerson, sorPersons, deleted);
+            final SorName officialName = this.officialNameFieldElector.elect(sorPerson, sorPersons, deleted);
+            electPreferredAndOfficialNames(person, preferredName, officialName);
+        }
 
-        copySorNamesToPerson(person, sorPersons);
-
-        final Date birthDate = this.birthDateFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final String gender = this.genderFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final SorName preferredName = this.preferredNameFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final SorName officialName = this.officialNameFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final EmailAddress emailAddress = this.preferredContactEmailAddressFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final Phone phone = this.preferredContactPhoneNumberFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        final Map<String,String> attributes =this.attributesElector.elect(sorPerson,sorPersons,recalculationType == RecalculationType.DELETE);
-        final SorDisclosureSettings disclosure = this.disclosureFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-     
-        final String  ssn = this.ssnFieldElector.elect(sorPerson, sorPersons, recalculationType == RecalculationType.DELETE);
-        Identifier primarySSN=person.getPrimaryIdentifiersByType().get("SSN");
-        //check if the elector elcted some ssn and person does have previous ssn assigned to it
-        if(!org.apache.commons.lang.StringUtils.isEmpty(ssn) && primarySSN!=null ){
-            try{
-              this.identifierChangeService.change(person.getPrimaryIdentifiersByType().get("SSN"),ssn);
-            }catch (IllegalArgumentException e){
-                logger.debug(e.getStackTrace().toString());
-            }//all other exception should be propogated
+        if (changedInputs.contains(SorPersonElectionInputs.Input.DATE_OF_BIRTH)) {
+            person.setDateOfBirth(this.birthDateFieldElector.elect(sorPerson, sorPersons, deleted));
+        }
 
+        if (changedInputs.contains(SorPersonElectionInputs.Input.GENDER)) {
+            person.setGender(this.genderFieldElector.elect(sorPerson, sorPersons, deleted));
         }
-        
-        person.setDateOfBirth(birthDate);
-        person.setGender(gender);
-        person.getPreferredContactEmailAddress().update(emailAddress);
-        person.getPreferredContactPhoneNumber().update(phone);
-        person.calculateDisclosureSettings(disclosure);
-        person.setAttributes(attributes);
 
-        
-        String affiliation = "";
-        Type affiliationType=null;
-        if(disclosure!=null){
-        	logger.info("after person.calculateDisclosureSettings, disclosure code : " + disclosure.getDisclosureCode());
-        }else{
-        	logger.info("Disclosure is null");
-        }
-       List<SorRole> sorroles = sorPerson.getRoles();
-        for(SorRole role:sorroles){
-        	if(role!=null){
-        		logger.info("Role = " + role.getTitle());
-        		if(role.getAffiliationType()!=null){
-        			logger.info("Role desc= " + role.getAffiliationType().getDescription());
-        			affiliation=role.getAffiliationType().getDescription();
-            		
-            		if  (person.getDisclosureSettings() != null) {
-                    	logger.info("recalculating disclosure setting 1...");
-                    	//person.getDisclosureSettings().recalculate(this.strategyRepository.getDisclosureRecalculationStrategy());
-                    	person.getDisclosureSettings().recalculate(this.strategyRepository.getDisclosureRecalculationStrategy(),affiliation,referenceRepository);
-                    }
-            	}
-        	}
+        if (changedInputs.contains(SorPersonElectionInputs.Input.SSN)) {
+            final String ssn = this.ssnFieldElector.elect(sorPerson, sorPersons, deleted);
+            Identifier primarySSN=person.getPrimaryIdentifiersByType().get("SSN");
+            //check if the elector elcted some ssn and person does have previous ssn assigned to it
+            if(!org.apache.commons.lang.StringUtils.isEmpty(ssn) && primarySSN!=null ){
+                try{
+                  this.identifierChangeService.change(person.getPrimaryIdentifiersByType().get("SSN"),ssn);
+                }catch (IllegalArgumentException e){
+                    logger.debug(e.getStackTrace().toString());
+                }//all other exception should be propogated
+
+            }
         }
-       
-    
+
+        if (changedInputs.contains(SorPersonElectionInputs.Input.CONTACTS)) {
+            person.getPreferredContactEmailAddress().update(this.preferredContactEmailAddressFieldElector.elect(sorPerson, sorPersons, deleted));
+            person.getPreferredContactPhoneNumber().update(this.preferredContactPhoneNumberFieldElector.elect(sorPerson, sorPersons, deleted));
+        }
+
+        if (changedInputs.contains(SorPersonElectionInputs.Input.ATTRIBUTES)) {
+            person.setAttributes(this.attributesElector.elect(sorPerson, sorPersons, deleted));
+        }
+
+        if (changedInputs.contains(SorPersonElectionInputs.Input.DISCLOSURE)) {
+            final SorDisclosureSettings disclosure = this.disclosureFieldElector.elect(sorPerson, sorPersons, deleted);
+            person.calculateDisclosureSettings(disclosure);
+            if(disclosure!=null){
+                logger.info("after person.calculateDisclosureSettings, disclosure code : " + disclosure.getDisclosureCode());
+            }else{
+                logger.info("Disclosure is null");
+            }
+        }
+
+        // the field level disclosure defaults depend on the disclosure code and on the affiliations only
+        if ((changedInputs.contains(SorPersonElectionInputs.Input.DISCLOSURE) || changedInputs.contains(SorPersonElectionInputs.Input.AFFILIATIONS))
+                && person.getDisclosureSettings() != null) {
+            final Set<String> affiliations = new LinkedHashSet<String>();
+            for (final SorRole role : sorPerson.getRoles()) {
+                if (role != null && role.getAffiliationType() != null) {
+                    affiliations.add(role.getAffiliationType().getDescription());
+                }
+            }
+
+            for (final String affiliation : affiliations) {
+                logger.info("recalculating disclosure setting for affiliation " + affiliation);
+                person.getDisclosureSettings().recalculate(this.strategyRepository.getDisclosureRecalculationStrategy(),affiliation,referenceRepository);
+            }
+        }
+
         //SSN election is happening in the ssn identifier assigner.
-       
+
+        if (this.electionInputsRepository != null && recalculationType != RecalculationType.DELETE && person.getId() != null && sorPerson.getId() != null) {
+            this.electionInputsRepository.saveElectionInputs(sorPerson.getId(), person.getId(), electionInputs.toString());
+        }
+        logger.info("recalculatePersonBiodemInfo: end");
+//        return this.personRepository.savePerson(person);
+          return person;
+    }
+
+    /**
+     * Determines which election inputs of the system of record person changed since the calculated person was last
+     * recalculated from it.  Only updates of a record whose previous fingerprint is known can be recalculated
+     * incrementally; additions and deletions change the set of records the electors choose from, so every input
+     * is considered changed.
+     */
+    private Set<SorPersonElectionInputs.Input> findChangedElectionInputs(final Person person, final SorPerson sorPerson,
+                                                                         final SorPersonElectionInputs electionInputs, final RecalculationType recalculationType) {
+        if (recalculationType != RecalculationType.UPDATE || this.electionInputsRepository == null || person.getId() == null || sorPerson.getId() == null) {
+            return EnumSet.allOf(SorPersonElectionInputs.Input.class);
+        }
+
+        return electionInputs.changedSince(SorPersonElectionInputs.valueOf(this.electionInputsRepository.findElectionInputs(sorPerson.getId(), person.getId())));
+    }
+
+    protected void electPreferredAndOfficialNames(final Person person, final SorName preferredName, final SorName officialName) {
         boolean preferred = false;
         boolean official = false;
 
@@ -861,9 +1069,6 @@ public class DefaultPersonService implements PersonService {
                 break;
             }
         }
-        logger.info("recalculatePersonBiodemInfo: end");
-//        return this.personRepository.savePerson(person);
-          return person;
     }
 
     /**
@@ -919,6 +1124,18 @@ public class DefaultPersonService implements PersonService {
      * @return the newly saved Person.
      */
     protected Person saveSorPersonAndConvertToCalculatedPerson(final ReconciliationCriteria reconciliationCriteria) {
+        return saveSorPersonAndConvertToCalculatedPerson(reconciliationCriteria, true);
+    }
+
+    /**
+     * Current workflow for converting an SorPerson into the actual Person.
+     *
+     * @param reconciliationCriteria the original search criteria.
+     * @param flush whether the calculated person should be flushed immediately.  If not, the caller must flush
+     * the person repository before the transaction completes.
+     * @return the newly saved Person.
+     */
+    protected Person saveSorPersonAndConvertToCalculatedPerson(final ReconciliationCriteria reconciliationCriteria, final boolean flush) {
         if (!StringUtils.hasText(reconciliationCriteria.getSorPerson().getSorId())) {
             reconciliationCriteria.getSorPerson().setSorId(this.identifierGenerator.generateNextString());
         }
@@ -934,7 +1151,7 @@ public class DefaultPersonService implements PersonService {
         // Save Sor Person
         final SorPerson sorPerson = this.personRepository.saveSorPerson(reconciliationCriteria.getSorPerson());
          Person savedPerson = recalculatePersonBiodemInfo(this.personObjectFactory.getObject(), sorPerson, RecalculationType.ADD, false);
-        savedPerson =this.personRepository.savePerson(savedPerson);
+        savedPerson = savePerson(savedPerson, flush);
 
         for (final IdentifierAssigner ia : this.identifierAssigners) {
             ia.addIdentifierTo(sorPerson, savedPerson);
@@ -947,7 +1164,13 @@ public class DefaultPersonService implements PersonService {
             sorRoleElector.addSorRole(newSorRole,savedPerson);
         }
 
-        final Person newPerson = this.personRepository.savePerson(savedPerson);
+        final Person newPerson = savePerson(savedPerson, flush);
+        if (!flush && this.reconciliationCandidateRepository != null) {
+            this.reconciliationCandidateRepository.addBlockingKeys(newPerson, ReconciliationBlockingKeys.forPerson(newPerson));
+        }
+        if (!flush && this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.addView(new CalculatedPersonView(newPerson));
+        }
 
         logger.info("Verifying Number of calculated Roles: "+ newPerson.getRoles().size());
 
@@ -992,7 +1215,7 @@ public class DefaultPersonService implements PersonService {
             ia.addIdentifierTo(sorPerson, person);
         }
         Person p =  recalculatePersonBiodemInfo(person, savedSorPerson, RecalculationType.UPDATE, false);
-        return this.personRepository.savePerson(p);
+        return savePerson(p);
     }
 
     protected Person addNewSorPersonAndLinkWithMatchedCalculatedPerson(final ReconciliationCriteria reconciliationCriteria, final ReconciliationResult result) throws SorPersonAlreadyExistsException{
@@ -1012,6 +1235,174 @@ public class DefaultPersonService implements PersonService {
         }
     }
 
+    /**
+     * Saves the calculated person and brings its reconciliation blocking keys and its calculated person view up to date.
+     *
+     * @param person the person to save.
+     * @return the saved person.
+     */
+    protected Person savePerson(final Person person) {
+        if (this.deferredFlush && TransactionSynchronizationManager.isSynchronizationActive()) {
+            return savePersonAtCommit(person);
+        }
+
+        final Person savedPerson = this.personRepository.savePerson(person);
+        updateBlockingKeysAndView(savedPerson);
+        return savedPerson;
+    }
+
+    /**
+     * Saves the calculated person when the transaction commits, bringing its blocking keys and view up to date once
+     * then however many times it was saved.
+     */
+    private Person savePersonAtCommit(final Person person) {
+        final Person savedPerson = this.personRepository.savePersonAtCommit(person);
+
+        PeopleSavedAtCommit peopleSavedAtCommit = (PeopleSavedAtCommit) TransactionSynchronizationManager.getResource(this);
+        if (peopleSavedAtCommit == null) {
+            peopleSavedAtCommit = new PeopleSavedAtCommit();
+            TransactionSynchronizationManager.bindResource(this, peopleSavedAtCommit);
+            TransactionSynchronizationManager.registerSynchronization(peopleSavedAtCommit);
+        }
+        peopleSavedAtCommit.people.add(savedPerson);
+        return savedPerson;
+    }
+
+    private void updateBlockingKeysAndView(final Person savedPerson) {
+        if (this.reconciliationCandidateRepository != null) {
+            this.reconciliationCandidateRepository.updateBlockingKeys(savedPerson, ReconciliationBlockingKeys.forPerson(savedPerson));
+        }
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(savedPerson));
+        }
+    }
+
+    private final class PeopleSavedAtCommit extends TransactionSynchronizationAdapter {
+
+        private final Set<Person> people = Collections.newSetFromMap(new IdentityHashMap<Person, Boolean>());
+
+        @Override
+        public int getOrder() {
+            // before the repository flushes the people.
+            return LOWEST_PRECEDENCE - 1;
+        }
+
+        @Override
+        public void beforeCommit(final boolean readOnly) {
+            for (final Person person : this.people) {
+                updateBlockingKeysAndView(person);
+            }
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DefaultPersonService.this);
+        }
+    }
+
+    /**
+     * Saves the calculated person, optionally without flushing.  A person saved without flushing does not get its
+     * blocking keys or view updated, since reading the stored ones would flush the pending inserts anyway.
+     *
+     * @param person the person to save.
+     * @param flush whether the person should be flushed immediately.
+     * @return the saved person.
+     */
+    protected Person savePerson(final Person person, final boolean flush) {
+        return flush ? savePerson(person) : this.personRepository.savePerson(person, false);
+    }
+
+    /**
+     * Adds the reconciled person the same way {@link #addPerson(ReconciliationCriteria)} does, returning the
+     * exceptions addPerson would throw as failures.
+     */
+    protected BatchServiceExecutionResult<Person> addReconciledPerson(final ReconciliationCriteria reconciliationCriteria, final ReconciliationResult result, final Set<String> addedBlockingKeys) {
+        try {
+            final Person person;
+            switch (result.getReconciliationType()) {
+                case NONE:
+                    person = saveSorPersonAndConvertToCalculatedPerson(reconciliationCriteria, false);
+                    break;
+
+                case EXACT:
+                    person = addNewSorPersonAndLinkWithMatchedCalculatedPerson(reconciliationCriteria, result);
+                    break;
+
+                default:
+                    this.pendingReconciliationStore.put(reconciliationCriteria, result);
+                    return new GeneralBatchServiceExecutionResult<Person>(new ReconciliationException(result));
+            }
+            addedBlockingKeys.addAll(ReconciliationBlockingKeys.forPerson(person));
+            return new GeneralBatchServiceExecutionResult<Person>(person);
+        } catch (final SorPersonAlreadyExistsException e) {
+            return new GeneralBatchServiceExecutionResult<Person>(e);
+        }
+    }
+
+    /**
+     * Reconciles a chunk of people, with a single candidate lookup if the reconciler supports it.
+     */
+    protected List<ReconciliationResult> reconcile(final List<ReconciliationCriteria> reconciliationCriterias) {
+        if (this.reconciler instanceof BatchReconciler) {
+            return ((BatchReconciler) this.reconciler).reconcile(reconciliationCriterias);
+        }
+
+        final List<ReconciliationResult> results = new ArrayList<ReconciliationResult>(reconciliationCriterias.size());
+        for (final ReconciliationCriteria reconciliationCriteria : reconciliationCriterias) {
+            results.add(this.reconciler.reconcile(reconciliationCriteria));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the SoR people of the chunk that already exist, with one query per System of Record.
+     *
+     * @return the existing SoR people keyed by {@link #sorKey(SorPerson)}.
+     */
+    private Map<List<String>, SorPerson> findExistingSorPeople(final List<ReconciliationCriteria> reconciliationCriterias) {
+        final Map<String, Set<String>> sorIdsBySource = new HashMap<String, Set<String>>();
+        for (final ReconciliationCriteria reconciliationCriteria : reconciliationCriterias) {
+            final SorPerson sorPerson = reconciliationCriteria.getSorPerson();
+            if (sorPerson.getSorId() == null) {
+                continue;
+            }
+
+            Set<String> sorIds = sorIdsBySource.get(sorPerson.getSourceSor());
+            if (sorIds == null) {
+                sorIds = new HashSet<String>();
+                sorIdsBySource.put(sorPerson.getSourceSor(), sorIds);
+            }
+            sorIds.add(sorPerson.getSorId());
+        }
+
+        final Map<List<String>, SorPerson> existingSorPeople = new HashMap<List<String>, SorPerson>();
+        for (final Map.Entry<String, Set<String>> entry : sorIdsBySource.entrySet()) {
+            for (final SorPerson sorPerson : this.personRepository.findBySorIdentifiersAndSource(entry.getKey(), entry.getValue())) {
+                existingSorPeople.put(sorKey(sorPerson), sorPerson);
+            }
+        }
+        return existingSorPeople;
+    }
+
+    private List<String> sorKey(final SorPerson sorPerson) {
+        return Arrays.asList(sorPerson.getSourceSor(), sorPerson.getSorId());
+    }
+
+    /**
+     * Deletes the calculated person along with its reconciliation blocking keys and its calculated person view.
+     *
+     * @param person the person to delete.
+     */
+    protected void deletePerson(final Person person) {
+        if (this.reconciliationCandidateRepository != null) {
+            this.reconciliationCandidateRepository.removeBlockingKeys(person);
+        }
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.removeView(person.getId());
+        }
+        this.personRepository.deletePerson(person);
+    }
+
     /**
      * Expose person repository to subclasses
      * @return
@@ -1121,7 +1512,7 @@ public class DefaultPersonService implements PersonService {
         }
 
         try {
-            this.personRepository.savePerson(person);
+            savePerson(person);
             logger.info("sor person is saved");
         } catch (Exception e) {
             logger.error("Error in saving the Person for the chosen name");
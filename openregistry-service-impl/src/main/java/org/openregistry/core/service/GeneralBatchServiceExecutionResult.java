@@ -0,0 +1,58 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service;
+
+import javax.validation.ConstraintViolation;
+import java.util.Set;
+
+/**
+ * Implementation of a <code>BatchServiceExecutionResult</code>
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ * @see org.openregistry.core.service.BatchServiceExecutionResult
+ */
+public class GeneralBatchServiceExecutionResult<T> extends GeneralServiceExecutionResult<T> implements BatchServiceExecutionResult<T> {
+
+    private final Exception failure;
+
+    public GeneralBatchServiceExecutionResult(final T targetObject) {
+        super(targetObject, null);
+        this.failure = null;
+    }
+
+    public GeneralBatchServiceExecutionResult(final Set<ConstraintViolation> validationErrors) {
+        super(null, validationErrors);
+        this.failure = null;
+    }
+
+    public GeneralBatchServiceExecutionResult(final Exception failure) {
+        super(null, null);
+        this.failure = failure;
+    }
+
+    public Exception getFailure() {
+        return this.failure;
+    }
+
+    public boolean succeeded() {
+        return this.failure == null && super.succeeded();
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.service;
+
+import org.openregistry.core.domain.EmailAddress;
+import org.openregistry.core.domain.Phone;
+import org.openregistry.core.domain.Type;
+import org.openregistry.core.domain.sor.SorDisclosureSettings;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.domain.sor.SorRole;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Fingerprint of the parts of a {@link SorPerson} that feed the field electors.  Each {@link Input} is digested
+ * separately, so comparing the fingerprint of an updated record with the one recorded at its previous recalculation
+ * tells which electors need to be re-run.  The string form is what gets stored in the
+ * {@link org.openregistry.core.repository.ElectionInputsRepository}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SorPersonElectionInputs {
+
+    /**
+     * The groups of election inputs, each one consumed by a distinct set of electors.
+     */
+    public enum Input {NAMES, DATE_OF_BIRTH, GENDER, SSN, CONTACTS, ATTRIBUTES, DISCLOSURE, AFFILIATIONS}
+
+    private static final int DIGEST_LENGTH = 8;
+
+    private static final char SEPARATOR = ':';
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String[] digests;
+
+    private SorPersonElectionInputs(final String[] digests) {
+        this.digests = digests;
+    }
+
+    public static SorPersonElectionInputs forSorPerson(final SorPerson sorPerson) {
+        final String[] digests = new String[Input.values().length];
+        digests[Input.NAMES.ordinal()] = digest(names(sorPerson));
+        digests[Input.DATE_OF_BIRTH.ordinal()] = digest(sorPerson.getDateOfBirth() != null ? String.valueOf(sorPerson.getDateOfBirth().getTime()) : null);
+        digests[Input.GENDER.ordinal()] = digest(sorPerson.getGender());
+        digests[Input.SSN.ordinal()] = digest(sorPerson.getSsn());
+        digests[Input.CONTACTS.ordinal()] = digest(contacts(sorPerson));
+        digests[Input.ATTRIBUTES.ordinal()] = digest(sorPerson.getSorLocalAttributes() != null ? new TreeMap<String, String>(sorPerson.getSorLocalAttributes()).toString() : null);
+        digests[Input.DISCLOSURE.ordinal()] = digest(disclosure(sorPerson.getDisclosureSettings()));
+        digests[Input.AFFILIATIONS.ordinal()] = digest(affiliations(sorPerson));
+        return new SorPersonElectionInputs(digests);
+    }
+
+    /**
+     * Parses the string form produced by {@link #toString()}.
+     *
+     * @param value the stored fingerprint.  CAN be null.
+     * @return the fingerprint, or null if the value is null or was produced with a different set of inputs.
+     */
+    public static SorPersonElectionInputs valueOf(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        final String[] digests = value.split(String.valueOf(SEPARATOR), -1);
+        return digests.length == Input.values().length ? new SorPersonElectionInputs(digests) : null;
+    }
+
+    /**
+     * Determines which inputs differ from a previously recorded fingerprint.
+     *
+     * @param previous the previous fingerprint.  CAN be null, in which case every input is considered changed.
+     * @return the changed inputs.  Empty if nothing the electors look at has changed.
+     */
+    public Set<Input> changedSince(final SorPersonElectionInputs previous) {
+        if (previous == null) {
+            return EnumSet.allOf(Input.class);
+        }
+
+        final Set<Input> changed = EnumSet.noneOf(Input.class);
+        for (final Input input : Input.values()) {
+            if (!this.digests[input.ordinal()].equals(previous.digests[input.ordinal()])) {
+                changed.add(input);
+            }
+        }
+        return changed;
+    }
+
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final String digest : this.digests) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(digest);
+        }
+        return builder.toString();
+    }
+
+    private static String names(final SorPerson sorPerson) {
+        final StringBuilder builder = new StringBuilder();
+        for (final SorName name : sorPerson.getNames()) {
+            append(builder, description(name.getType()), name.getPrefix(), name.getGiven(), name.getMiddle(), name.getFamily(), name.getSuffix());
+        }
+        return builder.toString();
+    }
+
+    private static String contacts(final SorPerson sorPerson) {
+        final StringBuilder builder = new StringBuilder();
+        for (final SorRole role : sorPerson.getRoles()) {
+            for (final EmailAddress emailAddress : role.getEmailAddresses()) {
+                append(builder, "E", description(emailAddress.getAddressType()), emailAddress.getAddress());
+            }
+
+            for (final Phone phone : role.getPhones()) {
+                append(builder, "P", description(phone.getAddressType()), description(phone.getPhoneType()), String.valueOf(phone.getPhoneLineOrder()),
+                        phone.getCountryCode(), phone.getAreaCode(), phone.getNumber(), phone.getExtension());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String disclosure(final SorDisclosureSettings disclosureSettings) {
+        if (disclosureSettings == null) {
+            return null;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        append(builder, disclosureSettings.getDisclosureCode(), String.valueOf(disclosureSettings.isWithinGracePeriod()),
+                disclosureSettings.getLastUpdateDate() != null ? String.valueOf(disclosureSettings.getLastUpdateDate().getTime()) : null);
+        return builder.toString();
+    }
+
+    private static String affiliations(final SorPerson sorPerson) {
+        final StringBuilder builder = new StringBuilder();
+        for (final SorRole role : sorPerson.getRoles()) {
+            append(builder, description(role.getAffiliationType()));
+        }
+        return builder.toString();
+    }
+
+    private static String description(final Type type) {
+        return type != null ? type.getDescription() : null;
+    }
+
+    private static void append(final StringBuilder builder, final String... values) {
+        for (final String value : values) {
+            builder.append(value != null ? value : "\u0000").append('\u001f');
+        }
+        builder.append('\u001e');
+    }
+
+    private static String digest(final String value) {
+        if (value == null || value.length() == 0) {
+            return "";
+        }
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            final char[] chars = new char[DIGEST_LENGTH * 2];
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(chars);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.audit;
+
+import org.openregistry.core.domain.AuditedChange;
+import org.openregistry.core.domain.AuditedChange.Category;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.AuditHistoryRepository;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.*;
+
+/**
+ * Default implementation of {@link AuditService}.  The revision numbers of the whole history are read to count and
+ * page it, and then only the changes of the revisions on the requested page are loaded.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named("auditService")
+public class DefaultAuditService implements AuditService {
+
+    private final AuditHistoryRepository auditHistoryRepository;
+
+    @Inject
+    public DefaultAuditService(final AuditHistoryRepository auditHistoryRepository) {
+        this.auditHistoryRepository = auditHistoryRepository;
+    }
+
+    public Map<String, List<Map<String, Object>>> getAudit(final Person person, final AuditAttributes auditAttributes) {
+        final Set<Category> categories = auditAttributes.getCategories();
+        final List<Long> revisions = categories.isEmpty() ? Collections.<Long>emptyList() :
+                this.auditHistoryRepository.findRevisionNumbers(person, categories, since(auditAttributes), auditAttributes.getFromRevision(), auditAttributes.getToRevision());
+
+        final List<Long> page = selectPage(revisions, auditAttributes);
+        if (page.isEmpty()) {
+            return new LinkedHashMap<String, List<Map<String, Object>>>();
+        }
+        return toRows(this.auditHistoryRepository.findChanges(person, categories, page.get(0), page.get(page.size() - 1)), auditAttributes.isNewestFirst());
+    }
+
+    public Map<String, List<Map<String, Object>>> getSorAudit(final SorPerson sorPerson, final AuditAttributes auditAttributes) {
+        final Set<Category> categories = auditAttributes.getCategories();
+        final List<Long> revisions = categories.isEmpty() ? Collections.<Long>emptyList() :
+                this.auditHistoryRepository.findRevisionNumbers(sorPerson, categories, since(auditAttributes), auditAttributes.getFromRevision(), auditAttributes.getToRevision());
+
+        final List<Long> page = selectPage(revisions, auditAttributes);
+        if (page.isEmpty()) {
+            return new LinkedHashMap<String, List<Map<String, Object>>>();
+        }
+        return toRows(this.auditHistoryRepository.findChanges(sorPerson, categories, page.get(0), page.get(page.size() - 1)), auditAttributes.isNewestFirst());
+    }
+
+    public SortedMap<Long, List<Map<String, Object>>> getAuditByRev(final Map<String, List<Map<String, Object>>> auditResults) {
+        final SortedMap<Long, List<Map<String, Object>>> rowsByRevision = new TreeMap<Long, List<Map<String, Object>>>();
+        for (final List<Map<String, Object>> rows : auditResults.values()) {
+            for (final Map<String, Object> row : rows) {
+                final Long revision = (Long) row.get(REVISION_NUMBER);
+                List<Map<String, Object>> revisionRows = rowsByRevision.get(revision);
+                if (revisionRows == null) {
+                    revisionRows = new ArrayList<Map<String, Object>>();
+                    rowsByRevision.put(revision, revisionRows);
+                }
+                revisionRows.add(row);
+            }
+        }
+        return rowsByRevision;
+    }
+
+    public SortedMap<Long, List<Map<String, Object>>> getAuditByRevRevers(final Map<Long, List<Map<String, Object>>> auditResultsByRev) {
+        final SortedMap<Long, List<Map<String, Object>>> rowsByRevision = new TreeMap<Long, List<Map<String, Object>>>(Collections.reverseOrder());
+        rowsByRevision.putAll(auditResultsByRev);
+        return rowsByRevision;
+    }
+
+    public List<Map<String, Object>> getAuditForRev(final Map<Long, List<Map<String, Object>>> auditResultsByRev, final String rev) {
+        try {
+            final List<Map<String, Object>> rows = auditResultsByRev.get(Long.valueOf(rev));
+            return rows != null ? rows : new ArrayList<Map<String, Object>>();
+        } catch (final NumberFormatException e) {
+            return new ArrayList<Map<String, Object>>();
+        }
+    }
+
+    private static Date since(final AuditAttributes auditAttributes) {
+        if (auditAttributes.getAuditPeriod() <= 0) {
+            return null;
+        }
+        final Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -auditAttributes.getAuditPeriod());
+        return calendar.getTime();
+    }
+
+    /**
+     * Records the number of revisions in the attributes and returns the revisions of the requested page, ascending.
+     * A page past the end is moved to the last page.
+     */
+    static List<Long> selectPage(final List<Long> revisions, final AuditAttributes auditAttributes) {
+        auditAttributes.setRevisionCount(revisions.size());
+        if (revisions.isEmpty()) {
+            auditAttributes.setPage(0);
+            return revisions;
+        }
+
+        auditAttributes.setPage(Math.min(auditAttributes.getPage(), auditAttributes.getPageCount() - 1));
+        final int offset = auditAttributes.getPage() * auditAttributes.getPageSize();
+        if (auditAttributes.isNewestFirst()) {
+            final int end = revisions.size() - offset;
+            return revisions.subList(Math.max(end - auditAttributes.getPageSize(), 0), end);
+        }
+        return revisions.subList(offset, Math.min(offset + auditAttributes.getPageSize(), revisions.size()));
+    }
+
+    private static Map<String, List<Map<String, Object>>> toRows(final List<AuditedChange> changes, final boolean newestFirst) {
+        final Map<String, List<Map<String, Object>>> rowsByCategory = new LinkedHashMap<String, List<Map<String, Object>>>();
+        for (final Category category : Category.values()) {
+            final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+            for (final AuditedChange change : changes) {
+                if (change.getCategory() == category) {
+                    rows.add(toRow(change));
+                }
+            }
+            if (!rows.isEmpty()) {
+                if (newestFirst) {
+                    Collections.reverse(rows);
+                }
+                rowsByCategory.put(keyOf(category), withSameColumns(rows));
+            }
+        }
+        return rowsByCategory;
+    }
+
+    /**
+     * A change only holds the properties that changed, so the rows of a category are given every property any of them
+     * holds, in the same order, null where the property did not change; the columns then match the first row.
+     */
+    private static List<Map<String, Object>> withSameColumns(final List<Map<String, Object>> rows) {
+        final Set<String> columns = new LinkedHashSet<String>();
+        for (final Map<String, Object> row : rows) {
+            columns.addAll(row.keySet());
+        }
+
+        final List<Map<String, Object>> alignedRows = new ArrayList<Map<String, Object>>(rows.size());
+        for (final Map<String, Object> row : rows) {
+            final Map<String, Object> alignedRow = new LinkedHashMap<String, Object>();
+            for (final String column : columns) {
+                alignedRow.put(column, row.get(column));
+            }
+            alignedRows.add(alignedRow);
+        }
+        return alignedRows;
+    }
+
+    private static Map<String, Object> toRow(final AuditedChange change) {
+        final Map<String, Object> row = new LinkedHashMap<String, Object>();
+        row.put(REVISION_NUMBER, change.getRevision());
+        row.put(TIME, change.getRevisionDate());
+        row.put(USER, change.getUsername());
+        row.put(REASON, change.getComments());
+        row.put(RECORD, keyOf(change.getCategory()) + " " + change.getRecordId());
+        row.put(ACTION, change.getChangeType().name().toLowerCase());
+        row.putAll(change.getChangedProperties());
+        return row;
+    }
+
+    /**
+     * @return the name of the category in lower camel case, e.g. idCard.
+     */
+    static String keyOf(final Category category) {
+        final StringBuilder key = new StringBuilder();
+        for (final String word : category.name().toLowerCase().split("_")) {
+            key.append(key.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return key.toString();
+    }
+}
@@ -19,23 +19,59 @@
 
 package org.openregistry.core.service.identifier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.support.incrementer.*;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 /*
  * Class which implements the IdentifierGenerator interface and wraps
  * an org.springframework.jdbc.support.incrementer.AbstractDataFieldMaxValueIncrementer.
  * A db-specific implementation is injected at runtime.
+ *
+ * With a block size above 1, every value of the incrementer reserves the block of that many identifiers starting
+ * at value * block size, which are handed out without going back to the database.  The blocks reserved by different
+ * JVMs sharing the incrementer never overlap as long as they all use the same block size; it may be raised, but never
+ * lowered.  Identifiers of a block not used up before shutdown are skipped.
+ *
+ * When identifiers are handed out fast enough to use up a block's remainder in about two round trips, the next block
+ * is reserved ahead by the caller reaching that point, so the others do not wait for the database.
  */
 
 public class DBIdentifierGenerator implements IdentifierGenerator {
 
-	private AbstractDataFieldMaxValueIncrementer incrementer;
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final AbstractDataFieldMaxValueIncrementer incrementer;
+
+	private final AtomicReference<Block> currentBlock = new AtomicReference<Block>(new Block(0, 0, -1));
+
+	// guards the fields below and the round trips to the incrementer.
+	private final Object reserveLock = new Object();
+
+	private int blockSize = 1;
+
+	private long reservedBlockStart = -1;
+
+	private long reserveTimeInNanos;
 
 	public DBIdentifierGenerator(AbstractDataFieldMaxValueIncrementer incrementer) {
 		super();
 		this.incrementer = incrementer;
 	}
 
+	/**
+	 * @param blockSize the number of identifiers reserved per value of the incrementer.  It has to be the same for
+	 * every JVM sharing the incrementer.  1, the default, uses the values of the incrementer as they are.
+	 */
+	public void setBlockSize(final int blockSize) {
+		synchronized (this.reserveLock) {
+			this.blockSize = blockSize;
+		}
+	}
+
 	/**
 	 * Generates the next value in the generator and returns it as a long.
 	 *
@@ -43,7 +79,7 @@ public class DBIdentifierGenerator implements IdentifierGenerator {
 	 */
 	@Override
 	public long generateNextLong() {
-		return incrementer.nextLongValue();
+		return nextValue();
 	}
 
 	/**
@@ -53,7 +89,17 @@ public class DBIdentifierGenerator implements IdentifierGenerator {
 	 */
 	@Override
 	public String generateNextString() {
-		return incrementer.nextStringValue();
+		final String value = Long.toString(nextValue());
+		final int paddingLength = incrementer.getPaddingLength();
+		if (value.length() >= paddingLength) {
+			return value;
+		}
+
+		final StringBuilder paddedValue = new StringBuilder(paddingLength);
+		for (int i = value.length(); i < paddingLength; i++) {
+			paddedValue.append('0');
+		}
+		return paddedValue.append(value).toString();
 	}
 
 	/**
@@ -63,6 +109,94 @@ public class DBIdentifierGenerator implements IdentifierGenerator {
 	 */
 	@Override
 	public int generateNextInt() {
-		return incrementer.nextIntValue();
+		final long value = nextValue();
+		if (value > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The next identifier " + value + " does not fit in an int.");
+		}
+		return (int) value;
+	}
+
+	private long nextValue() {
+		while (true) {
+			final Block block = this.currentBlock.get();
+			final long value = block.next.getAndIncrement();
+			if (value < block.end) {
+				if (value == block.reserveNextAt) {
+					reserveNextBlock();
+				}
+				return value;
+			}
+			replace(block);
+		}
+	}
+
+	private void replace(final Block usedUpBlock) {
+		synchronized (this.reserveLock) {
+			if (this.currentBlock.get() != usedUpBlock) {
+				return;
+			}
+
+			final long start = this.reservedBlockStart >= 0 ? this.reservedBlockStart : reserve();
+			this.reservedBlockStart = -1;
+			final long end = start + this.blockSize;
+
+			// the identifiers used up while the database is asked for the next block, twice over for safety.
+			final long elapsedTime = Math.max(System.nanoTime() - usedUpBlock.startTime, 1);
+			final double usedDuringReserve = (double) (usedUpBlock.end - usedUpBlock.start) * this.reserveTimeInNanos / elapsedTime;
+			final long margin = Math.min((long) Math.ceil(2 * usedDuringReserve), this.blockSize / 2);
+
+			this.currentBlock.set(new Block(start, end, margin > 0 ? end - margin : -1));
+		}
+	}
+
+	private void reserveNextBlock() {
+		synchronized (this.reserveLock) {
+			if (this.reservedBlockStart >= 0) {
+				return;
+			}
+			try {
+				this.reservedBlockStart = reserve();
+			} catch (final RuntimeException e) {
+				logger.warn("Unable to reserve the next block of identifiers ahead; it is reserved when the current one is used up.", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the first identifier of a newly reserved block.
+	 */
+	private long reserve() {
+		final long startTime = System.nanoTime();
+		final long value = incrementer.nextLongValue();
+		this.reserveTimeInNanos = System.nanoTime() - startTime;
+
+		if (value > Long.MAX_VALUE / this.blockSize) {
+			throw new IllegalStateException("The block of identifiers for " + value + " exceeds the range of a long.");
+		}
+		return value * this.blockSize;
+	}
+
+	/**
+	 * A range of reserved identifiers, handed out through a counter.  Once it passes the end, the block is used up.
+	 */
+	private static final class Block {
+
+		private final long start;
+
+		private final long end;
+
+		private final AtomicLong next;
+
+		// the identifier whose caller reserves the next block, or -1 for none.
+		private final long reserveNextAt;
+
+		private final long startTime = System.nanoTime();
+
+		private Block(final long start, final long end, final long reserveNextAt) {
+			this.start = start;
+			this.end = end;
+			this.next = new AtomicLong(start);
+			this.reserveNextAt = reserveNextAt;
+		}
 	}
 }
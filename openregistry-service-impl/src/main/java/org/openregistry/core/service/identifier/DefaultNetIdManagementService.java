@@ -1,15 +1,20 @@
 package org.openregistry.core.service.identifier;
 
+import org.openregistry.core.domain.CalculatedPersonView;
 import org.openregistry.core.domain.Identifier;
 import org.openregistry.core.domain.IdentifierType;
 import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.Type;
 import org.openregistry.core.domain.validation.IdentifierFormatValidator;
 import org.openregistry.core.repository.AuxiliaryIdentifierRepository;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
+import org.openregistry.core.repository.PersonIdentifierIndex;
+import org.openregistry.core.repository.PersonSearchIndex;
 import org.openregistry.core.repository.ReferenceRepository;
 import org.openregistry.core.service.GeneralServiceExecutionResult;
 import org.openregistry.core.service.PersonService;
 import org.openregistry.core.service.ServiceExecutionResult;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,6 +42,15 @@ public class DefaultNetIdManagementService implements NetIdManagementService {
     @Inject
     private IdentifierFormatValidator identifierFormatValidatorImpl;
 
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
+
+    @Autowired(required = false)
+    private PersonIdentifierIndex personIdentifierIndex;
+
+    @Autowired(required = false)
+    private PersonSearchIndex personSearchIndex;
+
     @Inject
     public DefaultNetIdManagementService(PersonService personService,
                                          ReferenceRepository referenceRepository,
@@ -61,11 +75,14 @@ public class DefaultNetIdManagementService implements NetIdManagementService {
         if (person == null) {
             throw new IllegalArgumentException(format("The person with the provided netid [%s] does not exist", currentNetIdValue));
         }
-        Person person2 = this.personService.findPersonByIdentifier(netIdTypeCode, newNetIdValue);
-        //if person can't be found by netid try to see if it is persons own iid
-        if(person2==null ){
-
-             person2 = this.personService.findPersonByIdentifier(Type.IdentifierTypes.IID.toString(),   newNetIdValue.toUpperCase());
+        Person person2 = null;
+        if (!isKnownUnused(newNetIdValue) || !isKnownUnused(newNetIdValue.toUpperCase())) {
+            person2 = this.personService.findPersonByIdentifier(netIdTypeCode, newNetIdValue);
+            //if person can't be found by netid try to see if it is persons own iid
+            if(person2==null ){
+
+                 person2 = this.personService.findPersonByIdentifier(Type.IdentifierTypes.IID.toString(),   newNetIdValue.toUpperCase());
+            }
         }
 
 
@@ -107,6 +124,7 @@ public class DefaultNetIdManagementService implements NetIdManagementService {
         currentNetId.setPrimary(false);
         currentNetId.setDeleted(true);
 
+        identifiersChanged(person);
         return new GeneralServiceExecutionResult<Identifier>(providedId);
     }
 
@@ -118,7 +136,7 @@ public class DefaultNetIdManagementService implements NetIdManagementService {
             throw new IllegalArgumentException("NetId is not according to accepted format");
         }
 
-        if ((this.personService.findPersonByIdentifier(netIdTypeCode, newNonPrimaryNetIdValue) != null)) {
+        if (!isKnownUnused(newNonPrimaryNetIdValue) && this.personService.findPersonByIdentifier(netIdTypeCode, newNonPrimaryNetIdValue) != null) {
             throw new IllegalStateException(format("The person with the proposed new netid [%s] already exists.", newNonPrimaryNetIdValue));
         }
 
@@ -141,7 +159,33 @@ public class DefaultNetIdManagementService implements NetIdManagementService {
         final IdentifierType idType = this.referenceRepository.findIdentifierType(this.netIdTypeCode);
         final Identifier newNetId = person.addIdentifier(idType, newNonPrimaryNetIdValue);
         newNetId.setPrimary(false);
+
+        identifiersChanged(person);
         return new GeneralServiceExecutionResult<Identifier>(newNetId);
     }
 
+    /**
+     * The identifiers are changed on the person directly, so the calculated person view and the indexes have to follow
+     * here.
+     */
+    private void identifiersChanged(final Person person) {
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(person));
+        }
+        if (this.personIdentifierIndex != null) {
+            this.personIdentifierIndex.reindexAfterCommit(person);
+        }
+        if (this.personSearchIndex != null) {
+            this.personSearchIndex.indexAfterCommit(person);
+        }
+    }
+
+    /**
+     * @return true if the authoritative identifier index has no identifier of any type with the value, so it cannot
+     * be in use as a netid or iid.
+     */
+    private boolean isKnownUnused(final String identifierValue) {
+        return this.personIdentifierIndex != null && this.personIdentifierIndex.isAuthoritative() && this.personIdentifierIndex.findPersonIds(identifierValue).isEmpty();
+    }
+
 }
@@ -1,10 +1,13 @@
 package org.openregistry.core.service.identitycard;
 
+import org.openregistry.core.domain.CalculatedPersonView;
 import org.openregistry.core.domain.IdCard;
 import org.openregistry.core.domain.Identifier;
 import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.sor.SorDisclosureSettings;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
 import org.openregistry.core.service.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,9 +28,14 @@ public class DefaultIdCardManagementService implements  IdCardManagementService
 
     @Resource(name="idCardGenerator")
     private IdCardGenerator idCardGenerator = new DefaultIdCardGenerator();
+
+    @Autowired(required = false)
+    private CalculatedPersonViewRepository calculatedPersonViewRepository;
+
     @Override
     public ServiceExecutionResult<IdCard> generateNewIdCard(Person p) {
         this.idCardGenerator.addIDCard(p);
+        refreshView(p);
         return new GeneralServiceExecutionResult<IdCard>(p.getPrimaryIdCard());
 
     }
@@ -37,6 +45,7 @@ public class DefaultIdCardManagementService implements  IdCardManagementService
         IdCard card =p.getPrimaryIdCard();
         if(card==null)      throw new IllegalStateException(format("Primary Id card doesn't exist for this person"));
         card.setProximityNumber(proximityNumber);
+        refreshView(p);
         return new GeneralServiceExecutionResult<IdCard>(card);
 
     }
@@ -48,6 +57,21 @@ public class DefaultIdCardManagementService implements  IdCardManagementService
         if(card.getExpirationDate() !=null)      throw new IllegalStateException(format("Unexpired primary card for this person doesn't exist"));
 
         card.setExpirationDate(new Date()) ;
+        refreshView(p);
         return new GeneralServiceExecutionResult<IdCard>(card);
     }
+
+    /**
+     * Brings the calculated person view up to date with the person's cards, as {@link DefaultPersonService} does when
+     * it saves the person.
+     */
+    private void refreshView(final Person person) {
+        if (this.calculatedPersonViewRepository != null) {
+            this.calculatedPersonViewRepository.saveView(new CalculatedPersonView(person));
+        }
+    }
+
+    public void setCalculatedPersonViewRepository(final CalculatedPersonViewRepository calculatedPersonViewRepository) {
+        this.calculatedPersonViewRepository = calculatedPersonViewRepository;
+    }
 }
@@ -0,0 +1,515 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.openregistry.core.domain.IdentifierType;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * In-memory {@link PendingReconciliationStore} bounded by the number of entries and by their total weight.  The weight
+ * of an entry is one plus its number of person matches.
+ * <p>
+ * Entries are keyed by a 128 bit digest of the criteria content rather than by the criteria themselves.  Eviction
+ * follows W-TinyLFU.  New entries go into a small LRU window.  An entry leaving the window competes with the LRU victim
+ * of the main space, which is a segmented LRU.  The entry that a count-min sketch of recent accesses says was used
+ * more often is kept, so a burst of one-off conflicts cannot flush out the ones still being worked on.  Entries also
+ * expire after a time to live.
+ * <p>
+ * All operations are O(1), except findBySorSource, which is proportional to the number of pending entries of that
+ * SoR.  This class is thread-safe.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class BoundedPendingReconciliationStore implements PendingReconciliationStore {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 20000;
+
+    private static final long DEFAULT_MAXIMUM_WEIGHT = 100000;
+
+    private static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+    private enum Segment {WINDOW, PROBATION, PROTECTED}
+
+    private final long maximumWeight;
+
+    private final int maximumWindowSize;
+
+    private final int maximumMainSize;
+
+    private final int maximumProtectedSize;
+
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    private final Map<Key, Node> nodes = new HashMap<Key, Node>();
+
+    private final LinkedHashMap<Key, Node> windowNodes = new LinkedHashMap<Key, Node>();
+
+    private final LinkedHashMap<Key, Node> probationNodes = new LinkedHashMap<Key, Node>();
+
+    private final LinkedHashMap<Key, Node> protectedNodes = new LinkedHashMap<Key, Node>();
+
+    private final Map<String, Set<Key>> keysBySorSource = new HashMap<String, Set<Key>>();
+
+    private final FrequencySketch sketch;
+
+    private long weight;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private long expirationCount;
+
+    public BoundedPendingReconciliationStore() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    public BoundedPendingReconciliationStore(final int maximumSize, final long maximumWeight) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.isTrue(maximumWeight > 0, "maximumWeight must be greater than 0");
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowSize = Math.max(1, maximumSize / 100);
+        this.maximumMainSize = maximumSize - this.maximumWindowSize;
+        this.maximumProtectedSize = this.maximumMainSize * 4 / 5;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @param timeToLive the time, in milliseconds, a result stays in the store after it was put.
+     */
+    public void setTimeToLive(final long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public synchronized void put(final ReconciliationCriteria reconciliationCriteria, final ReconciliationResult reconciliationResult) {
+        final Key key = Key.of(reconciliationCriteria);
+        this.sketch.increment(key.hashCode());
+
+        final Node existing = this.nodes.get(key);
+        if (existing != null) {
+            removeNode(existing);
+        }
+
+        final Node node = new Node(key, reconciliationCriteria, reconciliationResult, System.currentTimeMillis() + this.timeToLive);
+        this.nodes.put(key, node);
+        this.windowNodes.put(key, node);
+        this.weight += node.weight;
+
+        Set<Key> keys = this.keysBySorSource.get(node.sorSource);
+        if (keys == null) {
+            keys = new HashSet<Key>();
+            this.keysBySorSource.put(node.sorSource, keys);
+        }
+        keys.add(key);
+
+        evict();
+    }
+
+    public synchronized ReconciliationResult get(final ReconciliationCriteria reconciliationCriteria) {
+        final Key key = Key.of(reconciliationCriteria);
+        this.sketch.increment(key.hashCode());
+        final Node node = this.nodes.get(key);
+
+        if (node == null || node.isExpired(System.currentTimeMillis())) {
+            if (node != null) {
+                removeNode(node);
+                this.expirationCount++;
+            }
+            this.missCount++;
+            return null;
+        }
+
+        this.hitCount++;
+        onAccess(node);
+        return node.reconciliationResult;
+    }
+
+    public synchronized ReconciliationResult remove(final ReconciliationCriteria reconciliationCriteria) {
+        final Node node = this.nodes.get(Key.of(reconciliationCriteria));
+        if (node == null) {
+            return null;
+        }
+
+        removeNode(node);
+        if (node.isExpired(System.currentTimeMillis())) {
+            this.expirationCount++;
+            return null;
+        }
+        return node.reconciliationResult;
+    }
+
+    public synchronized Map<ReconciliationCriteria, ReconciliationResult> findBySorSource(final String sorSource) {
+        final Map<ReconciliationCriteria, ReconciliationResult> pending = new LinkedHashMap<ReconciliationCriteria, ReconciliationResult>();
+        final Set<Key> keys = this.keysBySorSource.get(sorSource);
+        if (keys == null) {
+            return pending;
+        }
+
+        final long now = System.currentTimeMillis();
+        for (final Key key : new ArrayList<Key>(keys)) {
+            final Node node = this.nodes.get(key);
+            if (node.isExpired(now)) {
+                removeNode(node);
+                this.expirationCount++;
+            } else {
+                pending.put(node.reconciliationCriteria, node.reconciliationResult);
+            }
+        }
+        return pending;
+    }
+
+    public synchronized int size() {
+        return this.nodes.size();
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    public synchronized long getExpirationCount() {
+        return this.expirationCount;
+    }
+
+    /**
+     * Moves the node to the most recently used end of its segment.  A node accessed in probation is promoted to the
+     * protected segment, demoting the least recently used protected node if the segment is full.
+     */
+    private void onAccess(final Node node) {
+        switch (node.segment) {
+            case WINDOW:
+                this.windowNodes.remove(node.key);
+                this.windowNodes.put(node.key, node);
+                break;
+
+            case PROBATION:
+                this.probationNodes.remove(node.key);
+                node.segment = Segment.PROTECTED;
+                this.protectedNodes.put(node.key, node);
+
+                if (this.protectedNodes.size() > this.maximumProtectedSize) {
+                    final Node demoted = first(this.protectedNodes);
+                    this.protectedNodes.remove(demoted.key);
+                    demoted.segment = Segment.PROBATION;
+                    this.probationNodes.put(demoted.key, demoted);
+                }
+                break;
+
+            case PROTECTED:
+                this.protectedNodes.remove(node.key);
+                this.protectedNodes.put(node.key, node);
+                break;
+        }
+    }
+
+    private void evict() {
+        final long now = System.currentTimeMillis();
+
+        while (this.windowNodes.size() > this.maximumWindowSize) {
+            final Node candidate = first(this.windowNodes);
+            this.windowNodes.remove(candidate.key);
+
+            if (this.probationNodes.size() + this.protectedNodes.size() < this.maximumMainSize) {
+                admit(candidate);
+                continue;
+            }
+
+            final Node victim = this.probationNodes.isEmpty() ? first(this.protectedNodes) : first(this.probationNodes);
+            if (victim == null) {
+                // no main space at all
+                candidate.segment = null;
+                evictNode(candidate, now);
+            } else if (victim.isExpired(now) || this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode())) {
+                evictNode(victim, now);
+                admit(candidate);
+            } else {
+                candidate.segment = null;
+                evictNode(candidate, now);
+            }
+        }
+
+        while (this.weight > this.maximumWeight) {
+            Node victim = first(this.probationNodes);
+            if (victim == null) {
+                victim = first(this.protectedNodes);
+            }
+            if (victim == null) {
+                victim = first(this.windowNodes);
+            }
+            evictNode(victim, now);
+        }
+    }
+
+    private void admit(final Node node) {
+        node.segment = Segment.PROBATION;
+        this.probationNodes.put(node.key, node);
+    }
+
+    private void evictNode(final Node node, final long now) {
+        removeNode(node);
+        if (node.isExpired(now)) {
+            this.expirationCount++;
+        } else {
+            this.evictionCount++;
+        }
+    }
+
+    private void removeNode(final Node node) {
+        this.nodes.remove(node.key);
+        if (node.segment != null) {
+            segmentFor(node).remove(node.key);
+        }
+        this.weight -= node.weight;
+
+        final Set<Key> keys = this.keysBySorSource.get(node.sorSource);
+        keys.remove(node.key);
+        if (keys.isEmpty()) {
+            this.keysBySorSource.remove(node.sorSource);
+        }
+    }
+
+    private Map<Key, Node> segmentFor(final Node node) {
+        switch (node.segment) {
+            case WINDOW:
+                return this.windowNodes;
+            case PROBATION:
+                return this.probationNodes;
+            default:
+                return this.protectedNodes;
+        }
+    }
+
+    private static Node first(final LinkedHashMap<Key, Node> segment) {
+        return segment.isEmpty() ? null : segment.values().iterator().next();
+    }
+
+    private static final class Node {
+
+        private final Key key;
+
+        private final ReconciliationCriteria reconciliationCriteria;
+
+        private final ReconciliationResult reconciliationResult;
+
+        private final String sorSource;
+
+        private final int weight;
+
+        private final long expirationTime;
+
+        private Segment segment = Segment.WINDOW;
+
+        private Node(final Key key, final ReconciliationCriteria reconciliationCriteria, final ReconciliationResult reconciliationResult, final long expirationTime) {
+            this.key = key;
+            this.reconciliationCriteria = reconciliationCriteria;
+            this.reconciliationResult = reconciliationResult;
+            this.sorSource = reconciliationCriteria.getSorPerson().getSourceSor();
+            this.weight = 1 + reconciliationResult.getMatches().size();
+            this.expirationTime = expirationTime;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= this.expirationTime;
+        }
+    }
+
+    /**
+     * 128 bit MD5 digest of the content of a ReconciliationCriteria: the SoR person's source, id, date of birth,
+     * gender, SSN and names, and the contact, address and identifier data.  The SoR roles are not part of the digest.
+     */
+    static final class Key {
+
+        private final long high;
+
+        private final long low;
+
+        private Key(final long high, final long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static Key of(final ReconciliationCriteria reconciliationCriteria) {
+            try {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                final DataOutputStream out = new DataOutputStream(bytes);
+                final SorPerson sorPerson = reconciliationCriteria.getSorPerson();
+
+                write(out, sorPerson.getSourceSor());
+                write(out, sorPerson.getSorId());
+                write(out, sorPerson.getDateOfBirth() != null ? String.valueOf(sorPerson.getDateOfBirth().getTime()) : null);
+                write(out, sorPerson.getGender());
+                write(out, sorPerson.getSsn());
+
+                out.writeInt(sorPerson.getNames().size());
+                for (final SorName name : sorPerson.getNames()) {
+                    write(out, name.getType() != null ? name.getType().getDescription() : null);
+                    write(out, name.getPrefix());
+                    write(out, name.getGiven());
+                    write(out, name.getMiddle());
+                    write(out, name.getFamily());
+                    write(out, name.getSuffix());
+                }
+
+                write(out, reconciliationCriteria.getEmailAddress());
+                write(out, reconciliationCriteria.getPhoneCountryCode());
+                write(out, reconciliationCriteria.getPhoneAreaCode());
+                write(out, reconciliationCriteria.getPhoneNumber());
+                write(out, reconciliationCriteria.getPhoneExtension());
+                write(out, reconciliationCriteria.getAddressLine1());
+                write(out, reconciliationCriteria.getAddressLine2());
+                write(out, reconciliationCriteria.getCity());
+                write(out, reconciliationCriteria.getRegion());
+                write(out, reconciliationCriteria.getPostalCode());
+
+                final Map<String, String> identifiers = new TreeMap<String, String>();
+                if (reconciliationCriteria.getIdentifiersByType() != null) {
+                    for (final Map.Entry<IdentifierType, String> entry : reconciliationCriteria.getIdentifiersByType().entrySet()) {
+                        identifiers.put(entry.getKey().getName(), entry.getValue());
+                    }
+                }
+                out.writeInt(identifiers.size());
+                for (final Map.Entry<String, String> entry : identifiers.entrySet()) {
+                    write(out, entry.getKey());
+                    write(out, entry.getValue());
+                }
+                out.flush();
+
+                final byte[] digest = MessageDigest.getInstance("MD5").digest(bytes.toByteArray());
+                return new Key(toLong(digest, 0), toLong(digest, 8));
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static void write(final DataOutputStream out, final String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static long toLong(final byte[] bytes, final int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                value = (value << 8) | (bytes[i] & 0xff);
+            }
+            return value;
+        }
+
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key that = (Key) o;
+            return this.high == that.high && this.low == that.low;
+        }
+
+        public int hashCode() {
+            return (int) (this.high ^ (this.high >>> 32));
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters, used to estimate how often a key was accessed recently.  All counters are
+     * halved once the number of increments reaches ten times the maximum size, so old popularity fades away.
+     */
+    static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+        private static final int MAXIMUM_COUNT = 15;
+
+        private final byte[] table;
+
+        private final int width;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        FrequencySketch(final int maximumSize) {
+            int width = 16;
+            while (width < maximumSize) {
+                width <<= 1;
+            }
+            this.width = width;
+            this.table = new byte[width * SEEDS.length];
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        void increment(final int hash) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                final int index = indexOf(hash, row);
+                if (this.table[index] < MAXIMUM_COUNT) {
+                    this.table[index]++;
+                    added = true;
+                }
+            }
+
+            if (added && ++this.additions >= this.sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(final int hash) {
+            int frequency = MAXIMUM_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, this.table[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(final int hash, final int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            h ^= h >>> 16;
+            return row * this.width + (h & (this.width - 1));
+        }
+
+        private void reset() {
+            for (int i = 0; i < this.table.length; i++) {
+                this.table[i] = (byte) (this.table[i] >> 1);
+            }
+            this.additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+public class FieldMatchImpl implements FieldMatch {
+
+    private final String fieldName;
+
+    private final MatchType matchType;
+
+    public FieldMatchImpl(final String fieldName, final MatchType matchType) {
+        this.fieldName = fieldName;
+        this.matchType = matchType;
+    }
+
+    public String getFieldName() {
+        return this.fieldName;
+    }
+
+    public MatchType getMatchType() {
+        return this.matchType;
+    }
+
+    public String toString() {
+        return this.fieldName + "=" + this.matchType;
+    }
+}
@@ -28,7 +28,7 @@ import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.sor.ReconciliationCriteria;
 import org.openregistry.core.domain.sor.SorName;
 import org.openregistry.core.domain.sor.SorPerson;
-import org.openregistry.core.repository.PersonRepository;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
 import org.openregistry.core.service.reconciliation.ReconciliationResult.ReconciliationType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,31 +41,56 @@ import javax.inject.Inject;
  * @author steiner
  * @version $Revision$ $Date$
  */
-public final class NameReconciler implements Reconciler {
+public final class NameReconciler implements BatchReconciler {
 
 	private static final long serialVersionUID = -7509304431552307514L;
 
-	private final PersonRepository personRepository;
+	private static final int DEFAULT_MAX_CANDIDATES = 50;
+
+	private final ReconciliationCandidateRepository reconciliationCandidateRepository;
+
+	private int maxCandidates = DEFAULT_MAX_CANDIDATES;
 	
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     @Inject
-    public NameReconciler(final PersonRepository personRepository) {
-        this.personRepository = personRepository;
+    public NameReconciler(final ReconciliationCandidateRepository reconciliationCandidateRepository) {
+        this.reconciliationCandidateRepository = reconciliationCandidateRepository;
+    }
+
+    public void setMaxCandidates(final int maxCandidates) {
+        this.maxCandidates = maxCandidates;
     }
 	
 	/* 
 	 * @see org.openregistry.core.service.reconciliation.Reconciler#reconcile(org.openregistry.core.domain.sor.ReconciliationCriteria)
 	 */
 	public ReconciliationResult reconcile(final ReconciliationCriteria reconciliationCriteria) {
+		// one bounded candidate lookup for the whole record instead of one family name scan per name
+		final List<Person> candidates = this.reconciliationCandidateRepository.findCandidates(ReconciliationBlockingKeys.forSorPerson(reconciliationCriteria.getSorPerson()), this.maxCandidates);
+		return reconcile(reconciliationCriteria, candidates);
+	}
+
+	public List<ReconciliationResult> reconcile(final List<ReconciliationCriteria> reconciliationCriterias) {
+		final ReconciliationCandidateSet candidateSet = new ReconciliationCandidateSet(this.reconciliationCandidateRepository, reconciliationCriterias, this.maxCandidates);
+		final List<ReconciliationResult> results = new ArrayList<ReconciliationResult>(reconciliationCriterias.size());
+
+		for (int i = 0; i < reconciliationCriterias.size(); i++) {
+			results.add(reconcile(reconciliationCriterias.get(i), candidateSet.getCandidates(i)));
+		}
+		return results;
+	}
+
+	private ReconciliationResult reconcile(final ReconciliationCriteria reconciliationCriteria, final List<Person> candidates) {
 		final List<PersonMatch> exactMatches = new ArrayList<PersonMatch>();
 		final List<PersonMatch> partialMatches = new ArrayList<PersonMatch>();
 		
 		final List<SorName> names = reconciliationCriteria.getSorPerson().getNames();  // TODO deal with multiple names properly
 		logger.info("Reconcile: found " + names.size() + " name(s)");
+		logger.info("Reconcile: found " + candidates.size() + " candidate(s)");
 		for(final SorName name: names) {
 			logger.info("Reconcile: checking name: " + name.getGiven() + " " + name.getFamily());
-			final List<Person> matches = this.personRepository.findByFamilyName(name.getFamily());
+			final List<Person> matches = findByFamilyName(candidates, name.getFamily());
 			logger.info("Reconcile: found " + matches.size() + " possible match(es)");
 			for(Person match: matches) {
 				if (name.getGiven().equals(match.getOfficialName().getGiven())) {  // TODO use all names
@@ -99,6 +124,19 @@ public final class NameReconciler implements Reconciler {
 		}
 	}
 
+    private List<Person> findByFamilyName(final List<Person> candidates, final String family) {
+        final List<Person> matches = new ArrayList<Person>();
+        for (final Person candidate : candidates) {
+            for (final Name name : candidate.getNames()) {
+                if (name.getFamily() != null && name.getFamily().equals(family)) {
+                    matches.add(candidate);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
     public boolean reconcilesToSamePerson(final SorPerson person){
         return true;
     }
@@ -0,0 +1,494 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.openregistry.core.domain.*;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+import org.openregistry.core.service.reconciliation.ReconciliationResult.ReconciliationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.*;
+
+/**
+ * Fellegi-Sunter style Reconciler.  Every field (family name, given name, date of birth, SSN, gender, email and
+ * phone) has an agreement and a disagreement weight derived from its m (probability of agreement for a true match)
+ * and u (probability of agreement for a random pair) probabilities.  A candidate's score is the sum of the weights;
+ * candidates above <code>exactThreshold</code> are EXACT and those above <code>maybeThreshold</code> are MAYBE.
+ * <p>
+ * The comparators and their weights are built once.  The incoming record is normalized once per reconciliation, and
+ * candidates come from the bounded {@link ReconciliationCandidateRepository} lookup.  Comparators run in descending
+ * order of agreement weight.  Scoring of a candidate stops as soon as the remaining fields can no longer lift it to
+ * MAYBE, so each candidate costs at most one comparison per field.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class ProbabilisticReconciler implements BatchReconciler {
+
+    private static final long serialVersionUID = 3390461707405786921L;
+
+    private static final int DEFAULT_MAX_CANDIDATES = 50;
+
+    private static final int MAX_NAMES_PER_CANDIDATE = 10;
+
+    private static final String SSN_IDENTIFIER_TYPE = "SSN";
+
+    private final ReconciliationCandidateRepository reconciliationCandidateRepository;
+
+    private final FieldComparator[] comparators;
+
+    /** maxRemainingWeight[i] is the best score still reachable from comparator i onwards. */
+    private final double[] maxRemainingWeight;
+
+    private double exactThreshold = 20.0;
+
+    private double maybeThreshold = 8.0;
+
+    private int maxCandidates = DEFAULT_MAX_CANDIDATES;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    public ProbabilisticReconciler(final ReconciliationCandidateRepository reconciliationCandidateRepository) {
+        this.reconciliationCandidateRepository = reconciliationCandidateRepository;
+        this.comparators = new FieldComparator[] {
+            new SsnComparator(0.98, 0.0001),
+            new EmailComparator(0.6, 0.0001),
+            new PhoneComparator(0.6, 0.0005),
+            new DateOfBirthComparator(0.97, 0.003),
+            new FamilyNameComparator(0.95, 0.005),
+            new GivenNameComparator(0.9, 0.02),
+            new GenderComparator(0.98, 0.5)
+        };
+        Arrays.sort(this.comparators, new Comparator<FieldComparator>() {
+            public int compare(final FieldComparator c1, final FieldComparator c2) {
+                return Double.compare(c2.agreementWeight, c1.agreementWeight);
+            }
+        });
+
+        this.maxRemainingWeight = new double[this.comparators.length + 1];
+        for (int i = this.comparators.length - 1; i >= 0; i--) {
+            this.maxRemainingWeight[i] = this.maxRemainingWeight[i + 1] + this.comparators[i].agreementWeight;
+        }
+    }
+
+    public void setExactThreshold(final double exactThreshold) {
+        this.exactThreshold = exactThreshold;
+    }
+
+    public void setMaybeThreshold(final double maybeThreshold) {
+        this.maybeThreshold = maybeThreshold;
+    }
+
+    public void setMaxCandidates(final int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public ReconciliationResult reconcile(final ReconciliationCriteria reconciliationCriteria) {
+        final List<Person> candidates = this.reconciliationCandidateRepository.findCandidates(ReconciliationBlockingKeys.forSorPerson(reconciliationCriteria.getSorPerson()), this.maxCandidates);
+        return reconcile(reconciliationCriteria, candidates);
+    }
+
+    public List<ReconciliationResult> reconcile(final List<ReconciliationCriteria> reconciliationCriterias) {
+        final ReconciliationCandidateSet candidateSet = new ReconciliationCandidateSet(this.reconciliationCandidateRepository, reconciliationCriterias, this.maxCandidates);
+        final List<ReconciliationResult> results = new ArrayList<ReconciliationResult>(reconciliationCriterias.size());
+
+        for (int i = 0; i < reconciliationCriterias.size(); i++) {
+            results.add(reconcile(reconciliationCriterias.get(i), candidateSet.getCandidates(i)));
+        }
+        return results;
+    }
+
+    private ReconciliationResult reconcile(final ReconciliationCriteria reconciliationCriteria, final List<Person> candidates) {
+        final IncomingRecord record = new IncomingRecord(reconciliationCriteria);
+        logger.info("Reconcile: found " + candidates.size() + " candidate(s)");
+
+        final List<PersonMatch> matches = new ArrayList<PersonMatch>();
+        int exactMatches = 0;
+
+        for (final Person candidate : candidates) {
+            final List<FieldMatch> fieldMatches = new ArrayList<FieldMatch>();
+            final double score = score(candidate, record, fieldMatches);
+
+            if (score >= this.maybeThreshold) {
+                if (score >= this.exactThreshold) {
+                    exactMatches++;
+                }
+                matches.add(new PersonMatchImpl(candidate, toConfidenceLevel(score), fieldMatches));
+            }
+        }
+
+        logger.info("Reconcile: finished matching: " + exactMatches + "," + (matches.size() - exactMatches));
+        if (matches.isEmpty()) {
+            return new ReconciliationResultImpl(ReconciliationType.NONE, Collections.<PersonMatch>emptyList());
+        }
+
+        if (exactMatches == 1 && matches.size() == 1) {
+            return new ReconciliationResultImpl(ReconciliationType.EXACT, matches);
+        }
+
+        Collections.sort(matches, Collections.reverseOrder());
+        return new ReconciliationResultImpl(ReconciliationType.MAYBE, matches);
+    }
+
+    public boolean reconcilesToSamePerson(final SorPerson sorPerson) {
+        return true;
+    }
+
+    /**
+     * Scores the candidate, filling in the matched fields.  Returns Double.NEGATIVE_INFINITY as soon as the candidate
+     * can no longer reach the MAYBE threshold.
+     */
+    private double score(final Person candidate, final IncomingRecord record, final List<FieldMatch> fieldMatches) {
+        double score = 0.0;
+
+        for (int i = 0; i < this.comparators.length; i++) {
+            final FieldComparator comparator = this.comparators[i];
+            final Comparison comparison = comparator.compare(candidate, record);
+            score += comparator.weightFor(comparison);
+
+            if (comparison.matchType != null) {
+                fieldMatches.add(new FieldMatchImpl(comparator.fieldName, comparison.matchType));
+            }
+
+            if (score + this.maxRemainingWeight[i + 1] < this.maybeThreshold) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Scales the score so that the EXACT threshold maps to 100, in line with the 100/50 levels of NameReconciler.
+     */
+    private int toConfidenceLevel(final double score) {
+        final int confidence = (int) Math.round(100.0 * score / this.exactThreshold);
+        return Math.max(0, Math.min(100, confidence));
+    }
+
+    /**
+     * Outcome of comparing one field.  Partial agreements keep the FieldMatch type that explains them.
+     */
+    enum Comparison {
+        EXACT(FieldMatch.MatchType.EXACT),
+        FUZZY(FieldMatch.MatchType.FUZZY),
+        TRANSPOSED(FieldMatch.MatchType.TRANSPOSED),
+        DISAGREE(null),
+        MISSING(null);
+
+        private final FieldMatch.MatchType matchType;
+
+        Comparison(final FieldMatch.MatchType matchType) {
+            this.matchType = matchType;
+        }
+    }
+
+    /**
+     * Normalized form of the incoming record, computed once per reconciliation.
+     */
+    static final class IncomingRecord {
+
+        final String[] givens;
+
+        final String[] families;
+
+        final String[] givenCodes;
+
+        final String[] familyCodes;
+
+        final int[] dateOfBirth;
+
+        final String gender;
+
+        final String ssn;
+
+        final String email;
+
+        final String phone;
+
+        IncomingRecord(final ReconciliationCriteria criteria) {
+            final SorPerson sorPerson = criteria.getSorPerson();
+            final DoubleMetaphone doubleMetaphone = new DoubleMetaphone();
+            final List<SorName> names = sorPerson.getNames();
+
+            this.givens = new String[names.size()];
+            this.families = new String[names.size()];
+            this.givenCodes = new String[names.size()];
+            this.familyCodes = new String[names.size()];
+
+            for (int i = 0; i < names.size(); i++) {
+                this.givens[i] = upperCase(names.get(i).getGiven());
+                this.families[i] = upperCase(names.get(i).getFamily());
+                this.givenCodes[i] = this.givens[i] != null ? doubleMetaphone.encode(this.givens[i]) : null;
+                this.familyCodes[i] = this.families[i] != null ? doubleMetaphone.encode(this.families[i]) : null;
+            }
+
+            this.dateOfBirth = toDateParts(sorPerson.getDateOfBirth());
+            this.gender = upperCase(sorPerson.getGender());
+            this.ssn = digits(sorPerson.getSsn());
+            this.email = criteria.getEmailAddress() != null ? criteria.getEmailAddress().trim().toLowerCase() : null;
+            this.phone = digits(concat(criteria.getPhoneAreaCode(), criteria.getPhoneNumber()));
+        }
+    }
+
+    abstract static class FieldComparator {
+
+        final String fieldName;
+
+        final double agreementWeight;
+
+        final double partialAgreementWeight;
+
+        final double disagreementWeight;
+
+        FieldComparator(final String fieldName, final double m, final double u) {
+            this.fieldName = fieldName;
+            this.agreementWeight = log2(m / u);
+            this.partialAgreementWeight = this.agreementWeight / 2;
+            this.disagreementWeight = log2((1 - m) / (1 - u));
+        }
+
+        final double weightFor(final Comparison comparison) {
+            switch (comparison) {
+                case EXACT:
+                    return this.agreementWeight;
+                case FUZZY:
+                case TRANSPOSED:
+                    return this.partialAgreementWeight;
+                case DISAGREE:
+                    return this.disagreementWeight;
+                default:
+                    return 0.0;
+            }
+        }
+
+        abstract Comparison compare(Person candidate, IncomingRecord record);
+    }
+
+    static final class FamilyNameComparator extends FieldComparator {
+
+        FamilyNameComparator(final double m, final double u) {
+            super("names.family", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            return compareNames(candidate, record.families, record.familyCodes, record.givens, true);
+        }
+    }
+
+    static final class GivenNameComparator extends FieldComparator {
+
+        GivenNameComparator(final double m, final double u) {
+            super("names.given", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            return compareNames(candidate, record.givens, record.givenCodes, record.families, false);
+        }
+    }
+
+    static final class DateOfBirthComparator extends FieldComparator {
+
+        DateOfBirthComparator(final double m, final double u) {
+            super("dateOfBirth", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            final int[] candidateDate = toDateParts(candidate.getDateOfBirth());
+            if (record.dateOfBirth == null || candidateDate == null) {
+                return Comparison.MISSING;
+            }
+
+            if (Arrays.equals(record.dateOfBirth, candidateDate)) {
+                return Comparison.EXACT;
+            }
+
+            // month and day swapped (i.e. 03/04 versus 04/03)
+            if (record.dateOfBirth[0] == candidateDate[0] && record.dateOfBirth[1] == candidateDate[2] && record.dateOfBirth[2] == candidateDate[1]) {
+                return Comparison.TRANSPOSED;
+            }
+            return Comparison.DISAGREE;
+        }
+    }
+
+    static final class SsnComparator extends FieldComparator {
+
+        SsnComparator(final double m, final double u) {
+            super("ssn", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            final Identifier identifier = candidate.getPrimaryIdentifiersByType().get(SSN_IDENTIFIER_TYPE);
+            final String candidateSsn = identifier != null ? digits(identifier.getValue()) : null;
+            if (record.ssn == null || candidateSsn == null) {
+                return Comparison.MISSING;
+            }
+
+            if (record.ssn.equals(candidateSsn)) {
+                return Comparison.EXACT;
+            }
+            return isAdjacentTransposition(record.ssn, candidateSsn) ? Comparison.TRANSPOSED : Comparison.DISAGREE;
+        }
+    }
+
+    static final class GenderComparator extends FieldComparator {
+
+        GenderComparator(final double m, final double u) {
+            super("gender", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            if (record.gender == null || candidate.getGender() == null) {
+                return Comparison.MISSING;
+            }
+            return record.gender.equalsIgnoreCase(candidate.getGender()) ? Comparison.EXACT : Comparison.DISAGREE;
+        }
+    }
+
+    static final class EmailComparator extends FieldComparator {
+
+        EmailComparator(final double m, final double u) {
+            super("emailAddress", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            final ContactEmailAddress emailAddress = candidate.getPreferredContactEmailAddress();
+            if (record.email == null || emailAddress == null || emailAddress.getAddress() == null) {
+                return Comparison.MISSING;
+            }
+            return record.email.equalsIgnoreCase(emailAddress.getAddress().trim()) ? Comparison.EXACT : Comparison.DISAGREE;
+        }
+    }
+
+    static final class PhoneComparator extends FieldComparator {
+
+        PhoneComparator(final double m, final double u) {
+            super("phoneNumber", m, u);
+        }
+
+        Comparison compare(final Person candidate, final IncomingRecord record) {
+            final ContactPhone phone = candidate.getPreferredContactPhoneNumber();
+            final String candidatePhone = phone != null ? digits(concat(phone.getAreaCode(), phone.getNumber())) : null;
+            if (record.phone == null || candidatePhone == null) {
+                return Comparison.MISSING;
+            }
+            return record.phone.equals(candidatePhone) ? Comparison.EXACT : Comparison.DISAGREE;
+        }
+    }
+
+    /**
+     * Compares one name part of the incoming names against the candidate's names and returns the best outcome.
+     *
+     * @param values the incoming name part (i.e. family names), upper case.
+     * @param codes the phonetic codes of the incoming name part.
+     * @param otherValues the other incoming name part, used to detect given/family transpositions.
+     * @param family whether the family name is being compared.
+     */
+    private static Comparison compareNames(final Person candidate, final String[] values, final String[] codes, final String[] otherValues, final boolean family) {
+        Comparison best = Comparison.MISSING;
+        int compared = 0;
+
+        for (final Name name : candidate.getNames()) {
+            if (compared++ == MAX_NAMES_PER_CANDIDATE) {
+                break;
+            }
+
+            final String candidateValue = family ? name.getFamily() : name.getGiven();
+            final String candidateOtherValue = family ? name.getGiven() : name.getFamily();
+            final String candidateCode = family ? name.getFamilyComparisonValue() : name.getGivenComparisonValue();
+
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null || candidateValue == null) {
+                    continue;
+                }
+
+                if (values[i].equalsIgnoreCase(candidateValue)) {
+                    return Comparison.EXACT;
+                }
+
+                if (best.ordinal() > Comparison.FUZZY.ordinal() && (codes[i] != null && codes[i].equals(candidateCode)
+                        || (!family && (values[i].startsWith(candidateValue.toUpperCase()) || candidateValue.toUpperCase().startsWith(values[i]))))) {
+                    best = Comparison.FUZZY;
+                } else if (best.ordinal() > Comparison.TRANSPOSED.ordinal() && otherValues[i] != null && candidateOtherValue != null
+                        && values[i].equalsIgnoreCase(candidateOtherValue) && otherValues[i].equalsIgnoreCase(candidateValue)) {
+                    best = Comparison.TRANSPOSED;
+                } else if (best == Comparison.MISSING) {
+                    best = Comparison.DISAGREE;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean isAdjacentTransposition(final String value1, final String value2) {
+        if (value1.length() != value2.length()) {
+            return false;
+        }
+
+        int i = 0;
+        while (i < value1.length() && value1.charAt(i) == value2.charAt(i)) {
+            i++;
+        }
+
+        return i < value1.length() - 1 && value1.charAt(i) == value2.charAt(i + 1) && value1.charAt(i + 1) == value2.charAt(i)
+                && value1.substring(i + 2).equals(value2.substring(i + 2));
+    }
+
+    private static int[] toDateParts(final Date date) {
+        if (date == null) {
+            return null;
+        }
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return new int[] {calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)};
+    }
+
+    private static String upperCase(final String value) {
+        return value != null && value.trim().length() > 0 ? value.trim().toUpperCase() : null;
+    }
+
+    private static String digits(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        final String digits = value.replaceAll("[^0-9]", "");
+        return digits.length() > 0 ? digits : null;
+    }
+
+    private static String concat(final String value1, final String value2) {
+        if (value1 == null) {
+            return value2;
+        }
+        return value2 != null ? value1 + value2 : value1;
+    }
+
+    private static double log2(final double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
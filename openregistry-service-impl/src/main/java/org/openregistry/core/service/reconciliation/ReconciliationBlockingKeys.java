@@ -0,0 +1,125 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.openregistry.core.domain.Identifier;
+import org.openregistry.core.domain.Name;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.domain.sor.SorPerson;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generates the normalized blocking keys used by the reconciliation candidate index.  The same keys are generated
+ * for a calculated {@link Person} (when it is saved) and for an incoming {@link SorPerson} (when it is reconciled),
+ * so two records are candidates for each other whenever they share at least one key:
+ * <ul>
+ * <li>family name comparison value and the first letters of the given name</li>
+ * <li>date of birth and family name comparison value (catches nicknames)</li>
+ * <li>last four digits of the SSN and date of birth (catches name changes)</li>
+ * </ul>
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class ReconciliationBlockingKeys {
+
+    private static final int GIVEN_NAME_PREFIX_LENGTH = 3;
+
+    private static final String SSN_IDENTIFIER_TYPE = "SSN";
+
+    private ReconciliationBlockingKeys() {
+        // static utility
+    }
+
+    public static Set<String> forPerson(final Person person) {
+        final Set<String> keys = new HashSet<String>();
+        final String dateOfBirth = formatDate(person.getDateOfBirth());
+        final Identifier ssn = person.getPrimaryIdentifiersByType().get(SSN_IDENTIFIER_TYPE);
+
+        for (final Name name : person.getNames()) {
+            addNameKeys(keys, name.getFamilyComparisonValue(), name.getGiven(), dateOfBirth);
+        }
+        addSsnKey(keys, ssn != null ? ssn.getValue() : null, dateOfBirth);
+        return keys;
+    }
+
+    public static Set<String> forSorPerson(final SorPerson sorPerson) {
+        final Set<String> keys = new HashSet<String>();
+        final String dateOfBirth = formatDate(sorPerson.getDateOfBirth());
+        final DoubleMetaphone doubleMetaphone = new DoubleMetaphone();
+
+        for (final SorName name : sorPerson.getNames()) {
+            addNameKeys(keys, name.getFamily() != null ? doubleMetaphone.encode(name.getFamily()) : null, name.getGiven(), dateOfBirth);
+        }
+        addSsnKey(keys, sorPerson.getSsn(), dateOfBirth);
+        return keys;
+    }
+
+    private static void addNameKeys(final Set<String> keys, final String familyComparisonValue, final String given, final String dateOfBirth) {
+        if (familyComparisonValue == null || familyComparisonValue.length() == 0) {
+            return;
+        }
+
+        final String givenPrefix = normalize(given, GIVEN_NAME_PREFIX_LENGTH);
+        if (givenPrefix.length() > 0) {
+            keys.add("N:" + familyComparisonValue + ":" + givenPrefix);
+        }
+
+        if (dateOfBirth != null) {
+            keys.add("D:" + dateOfBirth + ":" + familyComparisonValue);
+        }
+    }
+
+    private static void addSsnKey(final Set<String> keys, final String ssn, final String dateOfBirth) {
+        if (ssn == null || dateOfBirth == null) {
+            return;
+        }
+
+        final String digits = ssn.replaceAll("[^0-9]", "");
+        if (digits.length() >= 4) {
+            keys.add("S:" + digits.substring(digits.length() - 4) + ":" + dateOfBirth);
+        }
+    }
+
+    private static String normalize(final String value, final int maxLength) {
+        if (value == null) {
+            return "";
+        }
+
+        final StringBuilder builder = new StringBuilder(maxLength);
+        for (int i = 0; i < value.length() && builder.length() < maxLength; i++) {
+            final char c = value.charAt(i);
+            if (Character.isLetter(c)) {
+                builder.append(Character.toUpperCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String formatDate(final Date date) {
+        return date != null ? new SimpleDateFormat("yyyyMMdd").format(date) : null;
+    }
+}
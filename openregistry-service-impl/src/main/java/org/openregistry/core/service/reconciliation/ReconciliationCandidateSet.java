@@ -0,0 +1,83 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+
+import java.util.*;
+
+/**
+ * Candidates for a chunk of incoming people, loaded with a single lookup on the union of their blocking keys.  The
+ * lookup is capped per key rather than in total, and each person of the chunk takes the candidates of its own keys,
+ * most selective key first, so the result is the same as a separate lookup per person.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class ReconciliationCandidateSet {
+
+    private final List<Set<String>> keysByPerson;
+
+    private final Map<String, List<Person>> candidatesByKey;
+
+    private final int maxCandidates;
+
+    ReconciliationCandidateSet(final ReconciliationCandidateRepository reconciliationCandidateRepository, final List<ReconciliationCriteria> reconciliationCriterias, final int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+        this.keysByPerson = new ArrayList<Set<String>>(reconciliationCriterias.size());
+        final Set<String> allKeys = new HashSet<String>();
+
+        for (final ReconciliationCriteria reconciliationCriteria : reconciliationCriterias) {
+            final Set<String> keys = ReconciliationBlockingKeys.forSorPerson(reconciliationCriteria.getSorPerson());
+            this.keysByPerson.add(keys);
+            allKeys.addAll(keys);
+        }
+
+        this.candidatesByKey = reconciliationCandidateRepository.findCandidatesByKey(allKeys, maxCandidates);
+    }
+
+    /**
+     * Returns the candidates of the person at the supplied position of the chunk.
+     *
+     * @param index the position of the person in the chunk.
+     * @return the candidates, at most maxCandidates of them.  CANNOT be NULL.
+     */
+    List<Person> getCandidates(final int index) {
+        final Set<String> keys = this.keysByPerson.get(index);
+        final Set<Person> candidates = new LinkedHashSet<Person>();
+
+        // most selective key first
+        for (final Map.Entry<String, List<Person>> entry : this.candidatesByKey.entrySet()) {
+            if (!keys.contains(entry.getKey())) {
+                continue;
+            }
+
+            for (final Person person : entry.getValue()) {
+                if (candidates.size() == this.maxCandidates) {
+                    return new ArrayList<Person>(candidates);
+                }
+                candidates.add(person);
+            }
+        }
+        return new ArrayList<Person>(candidates);
+    }
+}
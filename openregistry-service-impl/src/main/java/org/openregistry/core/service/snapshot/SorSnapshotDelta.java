@@ -0,0 +1,270 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.snapshot;
+
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Works out what changed between a full snapshot of the people of one system of record and the people stored for it,
+ * so a nightly extract can be applied at the cost of the records that changed rather than of the whole population.
+ * <p>
+ * The snapshot's people are added with the record they came from and spooled to disk sorted by SoR id.  The SoR ids
+ * and snapshot hashes of the stored people are read a page at a time and sorted the same way, and a merge of the two
+ * reports each person that is new, whose snapshot hash differs, or that is no longer in the snapshot.  The snapshot
+ * hash only covers what a snapshot record carries (see {@link PersonRepository#getSnapshotHash(SorPerson)}), so a
+ * stored person with e.g. local attributes is not reported changed every night.  The record is carried through
+ * opaquely, so the caller can apply it the way it would apply the single record.
+ * <p>
+ * {@link #compare()} only counts the differences, e.g. to check how many people a snapshot would remove before
+ * {@link #apply(Handler)} removes them; the stored people are read once for both.
+ * <p>
+ * Instances are not thread-safe and must be closed to delete their temporary files.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SorSnapshotDelta {
+
+    /**
+     * Receives the differences, in SoR id order.
+     */
+    public interface Handler {
+
+        /**
+         * A person in the snapshot that is not stored.
+         */
+        void added(int position, String sorId, String record);
+
+        /**
+         * A stored person whose content in the snapshot differs.
+         */
+        void changed(int position, String sorId, String record);
+
+        /**
+         * A person that occurs in the snapshot more than once.  Only the first occurrence is compared.
+         */
+        void duplicated(int position, String sorId);
+
+        /**
+         * A stored person that is no longer in the snapshot.
+         */
+        void removed(String sorId);
+    }
+
+    /**
+     * The number of people of each kind of difference.
+     */
+    public static final class Summary {
+
+        private int added;
+
+        private int changed;
+
+        private int removed;
+
+        private int unchanged;
+
+        private int duplicated;
+
+        public int getAdded() {
+            return this.added;
+        }
+
+        public int getChanged() {
+            return this.changed;
+        }
+
+        public int getRemoved() {
+            return this.removed;
+        }
+
+        public int getUnchanged() {
+            return this.unchanged;
+        }
+
+        public int getDuplicated() {
+            return this.duplicated;
+        }
+
+        /**
+         * @return the number of people stored before the snapshot is applied.
+         */
+        public int getStored() {
+            return this.changed + this.removed + this.unchanged;
+        }
+    }
+
+    private static final Handler COUNTING_HANDLER = new Handler() {
+        public void added(final int position, final String sorId, final String record) {
+            // only counted
+        }
+
+        public void changed(final int position, final String sorId, final String record) {
+            // only counted
+        }
+
+        public void duplicated(final int position, final String sorId) {
+            // only counted
+        }
+
+        public void removed(final String sorId) {
+            // only counted
+        }
+    };
+
+    private static final int RUN_SIZE = 10000;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PersonRepository personRepository;
+
+    private final String sorSource;
+
+    private final SortedRecordSpool incoming = new SortedRecordSpool(RUN_SIZE);
+
+    private final SortedRecordSpool stored = new SortedRecordSpool(RUN_SIZE);
+
+    private int size = 0;
+
+    private boolean storedLoaded = false;
+
+    public SorSnapshotDelta(final PersonRepository personRepository, final String sorSource) {
+        this.personRepository = personRepository;
+        this.sorSource = sorSource;
+    }
+
+    /**
+     * Adds a person of the snapshot.
+     *
+     * @param position the position of the record in the snapshot.
+     * @param sorPerson the person built from the record.  CANNOT be null and must have a SoR id.
+     * @param record the record, handed back if the person was added or changed.
+     * @throws IllegalArgumentException if the person has no SoR id.
+     */
+    public void add(final int position, final SorPerson sorPerson, final String record) throws IOException, IllegalArgumentException {
+        Assert.hasText(sorPerson.getSorId(), "The person has no SoR id.");
+        this.incoming.add(sorPerson.getSorId(), this.personRepository.getSnapshotHash(sorPerson), position, record);
+        this.size++;
+    }
+
+    /**
+     * @return the number of people added so far.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Compares the snapshot with the stored people without reporting the differences.
+     *
+     * @return the number of differences of each kind.
+     */
+    public Summary compare() throws IOException {
+        return merge(COUNTING_HANDLER);
+    }
+
+    /**
+     * Compares the snapshot with the stored people and reports the differences to the handler.
+     *
+     * @return the number of differences of each kind.
+     */
+    public Summary apply(final Handler handler) throws IOException {
+        final Summary summary = merge(handler);
+        logger.info(String.format("Snapshot of SoR %s: %d people added, %d changed, %d removed and %d unchanged",
+                this.sorSource, summary.added, summary.changed, summary.removed, summary.unchanged));
+        return summary;
+    }
+
+    private void loadStored() throws IOException {
+        if (this.storedLoaded) {
+            return;
+        }
+        String afterSorId = null;
+        for (Map<String, String> page = this.personRepository.findSorSnapshotHashes(this.sorSource, null, PAGE_SIZE); !page.isEmpty();
+                page = this.personRepository.findSorSnapshotHashes(this.sorSource, afterSorId, PAGE_SIZE)) {
+            for (final Map.Entry<String, String> entry : page.entrySet()) {
+                this.stored.add(entry.getKey(), entry.getValue(), -1, null);
+                afterSorId = entry.getKey();
+            }
+        }
+        this.storedLoaded = true;
+    }
+
+    private Summary merge(final Handler handler) throws IOException {
+        loadStored();
+
+        final Iterator<SortedRecordSpool.Record> incomingRecords = this.incoming.sorted();
+        final Iterator<SortedRecordSpool.Record> storedRecords = this.stored.sorted();
+        SortedRecordSpool.Record incomingRecord = incomingRecords.hasNext() ? incomingRecords.next() : null;
+        SortedRecordSpool.Record storedRecord = storedRecords.hasNext() ? storedRecords.next() : null;
+        String previousSorId = null;
+        final Summary summary = new Summary();
+
+        while (incomingRecord != null || storedRecord != null) {
+            if (incomingRecord != null && incomingRecord.key.equals(previousSorId)) {
+                handler.duplicated(incomingRecord.position, incomingRecord.key);
+                summary.duplicated++;
+                incomingRecord = incomingRecords.hasNext() ? incomingRecords.next() : null;
+                continue;
+            }
+
+            final int comparison = incomingRecord == null ? 1 : (storedRecord == null ? -1 : incomingRecord.key.compareTo(storedRecord.key));
+            if (comparison < 0) {
+                handler.added(incomingRecord.position, incomingRecord.key, incomingRecord.payload);
+                summary.added++;
+            } else if (comparison > 0) {
+                handler.removed(storedRecord.key);
+                summary.removed++;
+            } else if (!incomingRecord.hash.equals(storedRecord.hash)) {
+                handler.changed(incomingRecord.position, incomingRecord.key, incomingRecord.payload);
+                summary.changed++;
+            } else {
+                summary.unchanged++;
+            }
+
+            if (comparison <= 0) {
+                previousSorId = incomingRecord.key;
+                incomingRecord = incomingRecords.hasNext() ? incomingRecords.next() : null;
+            }
+            if (comparison >= 0) {
+                storedRecord = storedRecords.hasNext() ? storedRecords.next() : null;
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Deletes the temporary files.
+     */
+    public void close() {
+        this.incoming.close();
+        this.stored.close();
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.snapshot;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * External merge sort of snapshot records by key.  Records are buffered in memory and written out as sorted runs to
+ * temporary files whenever the buffer is full; reading merges the runs, so memory use is bounded by the buffer size and
+ * the number of runs whatever the number of records.  Records with the same key come out in the order they were added.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class SortedRecordSpool {
+
+    private static final Comparator<Record> BY_KEY = new Comparator<Record>() {
+        public int compare(final Record r1, final Record r2) {
+            final int result = r1.key.compareTo(r2.key);
+            return result != 0 ? result : (r1.sequence < r2.sequence ? -1 : (r1.sequence == r2.sequence ? 0 : 1));
+        }
+    };
+
+    private final int runSize;
+
+    private final List<Record> buffer = new ArrayList<Record>();
+
+    private final List<File> runs = new ArrayList<File>();
+
+    private long sequence = 0;
+
+    SortedRecordSpool(final int runSize) {
+        this.runSize = runSize;
+    }
+
+    static final class Record {
+
+        final String key;
+
+        final String hash;
+
+        final int position;
+
+        final String payload;
+
+        private final long sequence;
+
+        private Record(final String key, final String hash, final int position, final String payload, final long sequence) {
+            this.key = key;
+            this.hash = hash;
+            this.position = position;
+            this.payload = payload;
+            this.sequence = sequence;
+        }
+    }
+
+    void add(final String key, final String hash, final int position, final String payload) throws IOException {
+        this.buffer.add(new Record(key, hash, position, payload, this.sequence++));
+        if (this.buffer.size() == this.runSize) {
+            writeRun();
+        }
+    }
+
+    /**
+     * Returns the records sorted by key.  No records can be added afterwards.
+     */
+    Iterator<Record> sorted() throws IOException {
+        if (this.runs.isEmpty()) {
+            Collections.sort(this.buffer, BY_KEY);
+            return this.buffer.iterator();
+        }
+
+        if (!this.buffer.isEmpty()) {
+            writeRun();
+        }
+        return new MergingIterator(this.runs);
+    }
+
+    /**
+     * Deletes the temporary files.
+     */
+    void close() {
+        for (final File run : this.runs) {
+            run.delete();
+        }
+        this.runs.clear();
+        this.buffer.clear();
+    }
+
+    private void writeRun() throws IOException {
+        Collections.sort(this.buffer, BY_KEY);
+        final File run = File.createTempFile("sor-snapshot", ".run");
+        this.runs.add(run);
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+        try {
+            for (final Record record : this.buffer) {
+                writeString(out, record.key);
+                writeString(out, record.hash);
+                out.writeInt(record.position);
+                writeString(out, record.payload);
+                out.writeLong(record.sequence);
+            }
+        } finally {
+            out.close();
+        }
+        this.buffer.clear();
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static final class RunReader {
+
+        private final DataInputStream in;
+
+        private Record current;
+
+        private RunReader(final File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+            advance();
+        }
+
+        private void advance() throws IOException {
+            try {
+                this.current = new Record(readString(this.in), readString(this.in), this.in.readInt(), readString(this.in), this.in.readLong());
+            } catch (final EOFException e) {
+                this.current = null;
+                this.in.close();
+            }
+        }
+    }
+
+    private static final class MergingIterator implements Iterator<Record> {
+
+        private final PriorityQueue<RunReader> readers = new PriorityQueue<RunReader>(11, new Comparator<RunReader>() {
+            public int compare(final RunReader r1, final RunReader r2) {
+                return BY_KEY.compare(r1.current, r2.current);
+            }
+        });
+
+        private MergingIterator(final List<File> runs) throws IOException {
+            for (final File run : runs) {
+                final RunReader reader = new RunReader(run);
+                if (reader.current != null) {
+                    this.readers.add(reader);
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return !this.readers.isEmpty();
+        }
+
+        public Record next() {
+            final RunReader reader = this.readers.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+
+            final Record record = reader.current;
+            try {
+                reader.advance();
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to read the snapshot run: " + e.getMessage(), e);
+            }
+            if (reader.current != null) {
+                this.readers.add(reader);
+            }
+            return record;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.integration.internal;
+
+import org.openregistry.integration.IntegrationGateway;
+import org.openregistry.integration.IntegrationProcessingException;
+import org.openregistry.integration.OutboxRepository;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * <code>IntegrationGateway</code> that writes asynchronously dispatched messages to an {@link OutboxRepository} instead
+ * of sending them, so they are stored in the same transaction as the change they describe and are only published, by
+ * an {@link OutboxPublisher}, if that transaction commits.  Synchronous requests are passed on to the gateway that
+ * delivers the messages.
+ * <p>
+ * Messages are ordered by the {@link IntegrationGateway#ORDERING_KEY} metadata entry, e.g. the person they are about.
+ * Messages without one are ordered by their destination.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class OutboxIntegrationGateway implements IntegrationGateway {
+
+    private final OutboxRepository outboxRepository;
+
+    private final IntegrationGateway deliveringGateway;
+
+    public OutboxIntegrationGateway(final OutboxRepository outboxRepository, final IntegrationGateway deliveringGateway) {
+        this.outboxRepository = outboxRepository;
+        this.deliveringGateway = deliveringGateway;
+    }
+
+    public void dispatch(final String destinationId, final Object messageBody) throws IntegrationProcessingException {
+        dispatch(destinationId, messageBody, null);
+    }
+
+    public void dispatch(final String destinationId, final Object messageBody, final Map<String, Object> metadata) throws IntegrationProcessingException {
+        Assert.isInstanceOf(Serializable.class, messageBody, "The message body has to be Serializable to be stored in the outbox.");
+        final Object orderingKey = metadata != null ? metadata.get(ORDERING_KEY) : null;
+
+        try {
+            this.outboxRepository.addEvent(destinationId, (Serializable) messageBody, metadata, orderingKey != null ? orderingKey.toString() : destinationId);
+        } catch (final RuntimeException e) {
+            throw new IntegrationProcessingException(e);
+        }
+    }
+
+    public <T> T sendMessageAndReceiveResponse(final String destinationId, final Object messageBody, final Class<T> requiredType)
+            throws IntegrationProcessingException, IllegalArgumentException {
+        return this.deliveringGateway.sendMessageAndReceiveResponse(destinationId, messageBody, requiredType);
+    }
+
+    public <T> T sendMessageAndReceiveResponse(final String destinationId, final Object messageBody, final Map<String, Object> metadata, final Class<T> requiredType)
+            throws IntegrationProcessingException, IllegalArgumentException {
+        return this.deliveringGateway.sendMessageAndReceiveResponse(destinationId, messageBody, metadata, requiredType);
+    }
+}
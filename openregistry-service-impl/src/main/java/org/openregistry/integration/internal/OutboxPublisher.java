@@ -0,0 +1,226 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.integration.internal;
+
+import org.openregistry.integration.IntegrationGateway;
+import org.openregistry.integration.OutboxEvent;
+import org.openregistry.integration.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+
+/**
+ * Drains the {@link OutboxRepository} in batches, handing each event to the gateway that delivers it and removing the
+ * delivered events afterwards.  Delivery is at least once: an event delivered just before a failure to remove it is
+ * delivered again.
+ * <p>
+ * A failed event is retried with an exponentially growing delay, and the events after it with the same ordering key
+ * wait until it is delivered.  After the maximum number of attempts the event is kept as a dead letter, and the events
+ * after it go on.
+ * <p>
+ * A publisher can run on every node: only the one holding the outbox lease publishes, and it renews the lease before
+ * every batch.  The lease time has to exceed the time it takes to deliver a batch, or another node may take over
+ * while it is delivered.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class OutboxPublisher {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final OutboxRepository outboxRepository;
+
+    private final IntegrationGateway deliveringGateway;
+
+    private final Object publishLock = new Object();
+
+    private final String publisherId = UUID.randomUUID().toString();
+
+    private int batchSize = 100;
+
+    private long initialRetryDelayInMillis = 10000;
+
+    private long maxRetryDelayInMillis = 60 * 60 * 1000L;
+
+    private int maxAttempts = 20;
+
+    private long leaseTimeInMillis = 60 * 1000L;
+
+    private volatile boolean leaseAcquired = false;
+
+    private Timer publisher;
+
+    public OutboxPublisher(final OutboxRepository outboxRepository, final IntegrationGateway deliveringGateway) {
+        this.outboxRepository = outboxRepository;
+        this.deliveringGateway = deliveringGateway;
+    }
+
+    /**
+     * @param batchSize the maximum number of events read from the outbox at once.
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param initialRetryDelayInSeconds the delay before the first retry of a failed event; every further retry
+     * doubles it.
+     */
+    public void setInitialRetryDelayInSeconds(final int initialRetryDelayInSeconds) {
+        this.initialRetryDelayInMillis = initialRetryDelayInSeconds * 1000L;
+    }
+
+    /**
+     * @param maxRetryDelayInSeconds the maximum delay between two retries of a failed event.
+     */
+    public void setMaxRetryDelayInSeconds(final int maxRetryDelayInSeconds) {
+        this.maxRetryDelayInMillis = maxRetryDelayInSeconds * 1000L;
+    }
+
+    /**
+     * @param maxAttempts the number of failed attempts after which an event is kept as a dead letter.  Zero or less
+     * means it is retried forever.
+     */
+    public void setMaxAttempts(final int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @param leaseTimeInSeconds how long the outbox lease is held after it was last renewed.
+     */
+    public void setLeaseTimeInSeconds(final int leaseTimeInSeconds) {
+        this.leaseTimeInMillis = leaseTimeInSeconds * 1000L;
+    }
+
+    /**
+     * @param publishIntervalInSeconds how often to drain the outbox.  Zero or less means it is only drained when
+     * {@link #publish()} is called.
+     */
+    public synchronized void setPublishIntervalInSeconds(final int publishIntervalInSeconds) {
+        stopPublishing();
+
+        if (publishIntervalInSeconds <= 0) {
+            return;
+        }
+
+        final long period = publishIntervalInSeconds * 1000L;
+        this.publisher = new Timer("outbox-publisher", true);
+        this.publisher.schedule(new TimerTask() {
+            public void run() {
+                try {
+                    publish();
+                } catch (final Exception e) {
+                    logger.error("Unable to drain the outbox; trying again in the next interval.", e);
+                }
+            }
+        }, period, period);
+    }
+
+    @PreDestroy
+    public synchronized void stopPublishing() {
+        if (this.publisher != null) {
+            this.publisher.cancel();
+            this.publisher = null;
+        }
+        if (this.leaseAcquired) {
+            synchronized (this.publishLock) {
+                this.outboxRepository.releaseLease(this.publisherId);
+                this.leaseAcquired = false;
+            }
+        }
+    }
+
+    /**
+     * Delivers every event that is due, if this publisher holds the outbox lease.
+     *
+     * @return the number of events delivered.
+     */
+    public int publish() {
+        synchronized (this.publishLock) {
+            int delivered = 0;
+
+            while (acquireLease()) {
+                final List<OutboxEvent> events = this.outboxRepository.findPublishableEvents(new Date(), this.batchSize);
+                if (events.isEmpty()) {
+                    break;
+                }
+                final int deliveredInBatch = publish(events);
+                delivered += deliveredInBatch;
+
+                // events skipped behind a failed one are not due anymore, so a batch without deliveries is the last one.
+                if (deliveredInBatch == 0 || events.size() < this.batchSize) {
+                    break;
+                }
+            }
+            return delivered;
+        }
+    }
+
+    private boolean acquireLease() {
+        final long now = System.currentTimeMillis();
+        try {
+            this.leaseAcquired = this.outboxRepository.acquireLease(this.publisherId, new Date(now), new Date(now + this.leaseTimeInMillis));
+        } catch (final RuntimeException e) {
+            // e.g. another node took the lease for the first time at the same moment.
+            logger.warn("Unable to acquire the outbox lease; trying again in the next interval.", e);
+            this.leaseAcquired = false;
+        }
+        return this.leaseAcquired;
+    }
+
+    private int publish(final List<OutboxEvent> events) {
+        final List<OutboxEvent> deliveredEvents = new ArrayList<OutboxEvent>();
+        final Set<String> failedOrderingKeys = new HashSet<String>();
+
+        try {
+            for (final OutboxEvent event : events) {
+                if (failedOrderingKeys.contains(event.getOrderingKey())) {
+                    continue;
+                }
+
+                try {
+                    this.deliveringGateway.dispatch(event.getDestinationId(), event.getMessageBody(), event.getMetadata());
+                    deliveredEvents.add(event);
+                } catch (final Exception e) {
+                    if (this.maxAttempts > 0 && event.getAttempts() + 1 >= this.maxAttempts) {
+                        logger.error("Unable to deliver outbox event [" + event.getId() + "] to [" + event.getDestinationId() + "] in " + this.maxAttempts + " attempts; keeping it as a dead letter.", e);
+                        this.outboxRepository.deadLetter(event, e.toString());
+                        continue;
+                    }
+                    failedOrderingKeys.add(event.getOrderingKey());
+                    final long delay = retryDelay(event.getAttempts());
+                    logger.warn("Unable to deliver outbox event [" + event.getId() + "] to [" + event.getDestinationId() + "]; retrying in " + delay / 1000 + " seconds.", e);
+                    this.outboxRepository.reschedule(event, new Date(System.currentTimeMillis() + delay), e.toString());
+                }
+            }
+        } finally {
+            this.outboxRepository.removeEvents(deliveredEvents);
+        }
+        return deliveredEvents.size();
+    }
+
+    long retryDelay(final int previousAttempts) {
+        final int doublings = Math.min(previousAttempts, 30);
+        return Math.min(this.initialRetryDelayInMillis << doublings, this.maxRetryDelayInMillis);
+    }
+}
@@ -42,12 +42,14 @@ public class DefaultIdentifierChangeEventNotificationService implements Identifi
                                            String changedIdentifierType,
                                            String changedIdentifierValue) {
 
+    //The events of one person are delivered in the order they were sent
     this.integrationGateway.dispatch(
             this.identifierChangeEventDestinationUri,
             buildEventXmlMessage(internalIdentifierType,
                     internalIdentifierValue,
                     changedIdentifierType,
-                    changedIdentifierValue))
+                    changedIdentifierValue),
+            [(IntegrationGateway.ORDERING_KEY): "${internalIdentifierType}:${internalIdentifierValue}".toString()])
   }
 
   private def buildEventXmlMessage(internalIdType, internalId, changedIdType, changedId) {
@@ -20,7 +20,9 @@
 package org.openregistry.core.service;
 
 import org.jasig.openregistry.test.domain.MockPerson;
+import org.jasig.openregistry.test.repository.MockCalculatedPersonViewRepository;
 import org.jasig.openregistry.test.repository.MockPersonRepository;
+import org.jasig.openregistry.test.repository.MockReconciliationCandidateRepository;
 import org.junit.Test;
 import org.junit.Before;
 import static org.junit.Assert.*;
@@ -51,6 +53,26 @@ public class DefaultActivationServiceTests {
 
     // GENERATE KEY TESTS
 
+    @Test
+    public void testSavedPersonGetsBlockingKeys() {
+        final MockReconciliationCandidateRepository reconciliationCandidateRepository = new MockReconciliationCandidateRepository();
+        this.activationService.setReconciliationCandidateRepository(reconciliationCandidateRepository);
+
+        this.activationService.generateActivationKey(this.person);
+
+        assertNotNull(reconciliationCandidateRepository.getBlockingKeys(this.person));
+    }
+
+    @Test
+    public void testSavedPersonGetsView() {
+        final MockCalculatedPersonViewRepository calculatedPersonViewRepository = new MockCalculatedPersonViewRepository();
+        this.activationService.setCalculatedPersonViewRepository(calculatedPersonViewRepository);
+
+        this.activationService.generateActivationKey(this.person);
+
+        assertNotNull(calculatedPersonViewRepository.findByPersonId(this.person.getId()));
+    }
+
     /**
      * Tests whether a new key is generated for a person that replaces the key that came with the person.
      */
@@ -24,7 +24,9 @@ import org.jasig.openregistry.test.domain.MockSorName;
 import org.jasig.openregistry.test.domain.MockIdentifierType;
 import org.jasig.openregistry.test.domain.MockSorRole;
 import org.jasig.openregistry.test.domain.MockType;
+import org.jasig.openregistry.test.repository.MockCalculatedPersonViewRepository;
 import org.jasig.openregistry.test.repository.MockPersonRepository;
+import org.jasig.openregistry.test.repository.MockReconciliationCandidateRepository;
 import org.jasig.openregistry.test.service.MockMailSender;
 import org.junit.Test;
 import org.junit.Before;
@@ -73,6 +75,28 @@ public class DefaultIdentifierNotificationServiceTests {
 		notificationService.sendAccountActivationNotification(person, identifierType);
     }
     
+    @Test
+    public void sendAccountActivationNotificationUpdatesBlockingKeysAndView() {
+    	final MockReconciliationCandidateRepository reconciliationCandidateRepository = new MockReconciliationCandidateRepository();
+    	final MockCalculatedPersonViewRepository calculatedPersonViewRepository = new MockCalculatedPersonViewRepository();
+    	notificationService.setReconciliationCandidateRepository(reconciliationCandidateRepository);
+    	notificationService.setCalculatedPersonViewRepository(calculatedPersonViewRepository);
+    	Person person = new MockPerson("testid", false, false);
+    	person.addName(createMockSorName("Firstname", "Lastname"));
+    	person.getPreferredContactEmailAddress().setAddress("test-preferred@test.test");
+    	IdentifierType identifierType = new MockIdentifierType("testNotifiableId", true);
+    	Identifier id = person.addIdentifier(identifierType, "notifiableId");
+    	id.setPrimary(true);
+
+    	mockPersonRepository.getPersons().clear();
+    	mockPersonRepository.getPersons().add(person);
+
+    	notificationService.sendAccountActivationNotification(person, identifierType);
+
+    	assertNotNull(reconciliationCandidateRepository.getBlockingKeys(person));
+    	assertNotNull(calculatedPersonViewRepository.findByPersonId(person.getId()));
+    }
+
     @Test
     public void sendAccountActivationWithExpiredActivationKey() {
     	// Create a valid person with a name, a notifiable identifier and an expired activation key
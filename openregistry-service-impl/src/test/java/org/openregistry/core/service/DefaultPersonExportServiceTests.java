@@ -0,0 +1,109 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.service;
+
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.repository.PersonExportRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link DefaultPersonExportService}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DefaultPersonExportServiceTests {
+
+    private PersonExportRepository personExportRepository;
+
+    private DefaultPersonExportService personExportService;
+
+    private final List<Long> exportedIds = new ArrayList<Long>();
+
+    private int pages;
+
+    private final PersonExportService.PersonExportHandler handler = new PersonExportService.PersonExportHandler() {
+        public void export(final CalculatedPersonView person) throws IOException {
+            exportedIds.add(person.getPersonId());
+        }
+
+        public void endOfPage() throws IOException {
+            pages++;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        this.personExportRepository = mock(PersonExportRepository.class);
+        this.personExportService = new DefaultPersonExportService(this.personExportRepository, mock(PlatformTransactionManager.class));
+        this.personExportService.setPageSize(2);
+    }
+
+    private static List<CalculatedPersonView> page(final long... ids) {
+        final List<CalculatedPersonView> views = new ArrayList<CalculatedPersonView>();
+        for (final long id : ids) {
+            views.add(new CalculatedPersonView(new MockPerson(id)));
+        }
+        return views;
+    }
+
+    @Test
+    public void testPagesByLastPersonId() throws Exception {
+        when(this.personExportRepository.findPeopleAfter(null, 2)).thenReturn(page(1, 4));
+        when(this.personExportRepository.findPeopleAfter(4L, 2)).thenReturn(page(7, 9));
+        when(this.personExportRepository.findPeopleAfter(9L, 2)).thenReturn(page(12));
+
+        assertEquals(5, this.personExportService.exportPeople(this.handler));
+        assertEquals(Arrays.asList(1L, 4L, 7L, 9L, 12L), this.exportedIds);
+        assertEquals(3, this.pages);
+    }
+
+    @Test
+    public void testStopsOnEmptyPage() throws Exception {
+        when(this.personExportRepository.findPeopleAfter(null, 2)).thenReturn(page(1, 4));
+        when(this.personExportRepository.findPeopleAfter(4L, 2)).thenReturn(Collections.<CalculatedPersonView>emptyList());
+
+        assertEquals(2, this.personExportService.exportPeople(this.handler));
+        assertEquals(1, this.pages);
+        verify(this.personExportRepository).findPeopleAfter(null, 2);
+        verify(this.personExportRepository).findPeopleAfter(4L, 2);
+        verifyNoMoreInteractions(this.personExportRepository);
+    }
+
+    @Test
+    public void testEmptyRegistry() throws Exception {
+        when(this.personExportRepository.findPeopleAfter(null, 2)).thenReturn(Collections.<CalculatedPersonView>emptyList());
+
+        assertEquals(0, this.personExportService.exportPeople(this.handler));
+        assertTrue(this.exportedIds.isEmpty());
+        assertEquals(0, this.pages);
+    }
+}
@@ -133,6 +133,25 @@ public final class DefaultPersonServiceIntegrationTests extends AbstractIntegrat
         assertEquals(1, countRowsInTable("prs_sor_persons"));
 	}
 
+    /**
+     * Adding a person stores its calculated person view, which is then read without loading the person.
+     */
+    @Test
+    public void testFindCalculatedPersonView() throws ReconciliationException, SorPersonAlreadyExistsException {
+        final ReconciliationCriteria reconciliationCriteria = constructReconciliationCriteria(RUDYARD, KIPLING, null, EMAIL_ADDRESS, PHONE_NUMBER, new Date(0), OR_WEBAPP_IDENTIFIER, null);
+        final Person person = this.personService.addPerson(reconciliationCriteria).getTargetObject();
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        assertEquals(1, countRowsInTable("prc_person_views"));
+        final CalculatedPersonView view = this.personService.findCalculatedPersonView(person.getId());
+        assertEquals(person.getId(), view.getPersonId());
+        assertEquals(1, view.getNames().size());
+        assertEquals(RUDYARD, view.getNames().get(0).getGiven());
+        assertEquals(KIPLING, view.getNames().get(0).getFamily());
+        assertEquals(new Date(0), view.getDateOfBirth());
+    }
+
    /**
      * Test 2: Test of adding two new SoR Persons to an empty database (with no matches):
      * Expectations: 2 Sor Person rows
@@ -203,6 +222,32 @@ public final class DefaultPersonServiceIntegrationTests extends AbstractIntegrat
 
     }
 
+    /**
+     * Test of adding a chunk of people at once: two new people, a person who is a possible match of a person added
+     * earlier in the same chunk, and a repeat of an SoR record of the same chunk.
+     */
+    @Test
+    public void testAddPeople() {
+        final List<ReconciliationCriteria> reconciliationCriterias = Arrays.asList(
+                constructReconciliationCriteria(RUDYARD, KIPLING, null, EMAIL_ADDRESS, PHONE_NUMBER, new Date(0), OR_WEBAPP_IDENTIFIER, "1"),
+                constructReconciliationCriteria("Foo", "Bar", null, "la@lao.com", "9085550987", new Date(0), OR_WEBAPP_IDENTIFIER, "2"),
+                constructReconciliationCriteria(RUDY, KIPLING, null, EMAIL_ADDRESS, PHONE_NUMBER, new Date(0), REGISTRAR_IDENTIFIER, "3"),
+                constructReconciliationCriteria(RUDYARD, KIPLING, null, EMAIL_ADDRESS, PHONE_NUMBER, new Date(0), OR_WEBAPP_IDENTIFIER, "1"));
+
+        final List<BatchServiceExecutionResult<Person>> results = this.personService.addPeople(reconciliationCriterias);
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).succeeded());
+        assertNotNull(results.get(0).getTargetObject().getId());
+        assertTrue(results.get(1).succeeded());
+        assertTrue(results.get(2).getFailure() instanceof ReconciliationException);
+        assertEquals(ReconciliationResult.ReconciliationType.MAYBE, ((ReconciliationException) results.get(2).getFailure()).getReconciliationType());
+        assertTrue(results.get(3).getFailure() instanceof SorPersonAlreadyExistsException);
+
+        assertEquals(2, countRowsInTable("prc_persons"));
+        assertEquals(2, countRowsInTable("prs_sor_persons"));
+    }
+
     /**
      * Test 3: Test of adding two new Sor Persons where there is an exact match (same SoR)
      *
@@ -32,6 +32,7 @@ import org.openregistry.core.service.identifier.*;
 import org.openregistry.core.service.reconciliation.*;
 import org.openregistry.core.service.reconciliation.ReconciliationResult.*;
 import org.springframework.beans.factory.*;
+import org.springframework.transaction.support.*;
 
 import java.util.*;
 
@@ -133,6 +134,26 @@ public class DefaultPersonServiceTests {
         this.personService.addPerson(reconciliationCriteria);
      }
 
+    /**
+     * Tests that a MAYBE result kept for the caller to decide on shows in the pending reconciliation counts.
+     */
+    @Test
+    public void testPendingReconciliationCounts() throws SorPersonAlreadyExistsException {
+        this.personService = new DefaultPersonService(personRepository, new MockReferenceRepository(), new MockDisclosureRecalculationStrategyRepository(), new NoOpIdentifierGenerator(), new MockReconciler(ReconciliationType.MAYBE));
+        this.personService.setPersonObjectFactory(this.objectFactory);
+        try {
+            this.personService.addPerson(reconciliationCriteria);
+            fail("ReconciliationException expected");
+        } catch (final ReconciliationException e) {
+            // the result is kept pending
+        }
+
+        final Map<String, Long> counts = this.personService.getPendingReconciliationCounts();
+        assertEquals(Arrays.asList("size", "hits", "misses", "evictions", "expirations"), new ArrayList<String>(counts.keySet()));
+        assertEquals(Long.valueOf(1), counts.get("size"));
+        assertEquals(Long.valueOf(0), counts.get("evictions"));
+    }
+
     @Test(expected=IllegalStateException.class)
     public void testAddPersonAndLinkWithBadCriteria() throws SorPersonAlreadyExistsException {
         this.personService.addPersonAndLink(new MockReconciliationCriteria(), new MockPerson());
@@ -648,4 +669,125 @@ public class DefaultPersonServiceTests {
 
 	}
 
-}
\ No newline at end of file
+    /**
+     * Tests that with the deferred flush a person saved several times in a transaction gets its blocking keys and view
+     * updated once, when the transaction commits.
+     */
+    @Test
+    public void testDeferredFlushUpdatesKeysAndViewOnceAtCommit() {
+        final List<String> events = new ArrayList<String>();
+        setUpDeferredFlush(this.personService, events);
+        final MockPerson person = new MockPerson();
+        person.setId(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.personService.savePerson(person);
+            this.personService.savePerson(person);
+            assertTrue(events.isEmpty());
+
+            commit();
+            assertEquals(Arrays.asList("keys", "view"), events);
+            assertNull(TransactionSynchronizationManager.getResource(this.personService));
+        } finally {
+            clearSynchronization();
+        }
+    }
+
+    /**
+     * Tests that with the deferred flush nothing is updated when the transaction rolls back.
+     */
+    @Test
+    public void testDeferredFlushUpdatesNothingOnRollback() {
+        final List<String> events = new ArrayList<String>();
+        setUpDeferredFlush(this.personService, events);
+        final MockPerson person = new MockPerson();
+        person.setId(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.personService.savePerson(person);
+
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertTrue(events.isEmpty());
+            assertNull(TransactionSynchronizationManager.getResource(this.personService));
+        } finally {
+            clearSynchronization();
+        }
+    }
+
+    /**
+     * Tests that the blocking keys and view are updated before the repository flushes the people saved at commit,
+     * however the synchronizations were registered.
+     */
+    @Test
+    public void testDeferredFlushUpdatesViewBeforeRepositoryFlush() {
+        final List<String> events = new ArrayList<String>();
+        final MockPersonRepository personRepository = new MockPersonRepository(new MockPerson()) {
+            @Override
+            public Person savePersonAtCommit(final Person person) {
+                // registered first, like the repository's flush.
+                if (TransactionSynchronizationManager.getSynchronizations().isEmpty()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void beforeCommit(final boolean readOnly) {
+                            events.add("flush");
+                        }
+                    });
+                }
+                return super.savePersonAtCommit(person);
+            }
+        };
+        this.personService = new DefaultPersonService(personRepository, new MockReferenceRepository(), new MockDisclosureRecalculationStrategyRepository(), new NoOpIdentifierGenerator(), new MockReconciler(ReconciliationType.NONE));
+        setUpDeferredFlush(this.personService, events);
+        final MockPerson person = new MockPerson();
+        person.setId(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.personService.savePerson(person);
+
+            commit();
+            assertEquals(Arrays.asList("keys", "view", "flush"), events);
+        } finally {
+            clearSynchronization();
+        }
+    }
+
+    private void setUpDeferredFlush(final DefaultPersonService personService, final List<String> events) {
+        personService.setDeferredFlush(true);
+        personService.setReconciliationCandidateRepository(new MockReconciliationCandidateRepository() {
+            @Override
+            public void updateBlockingKeys(final Person person, final Set<String> blockingKeys) {
+                events.add("keys");
+                super.updateBlockingKeys(person, blockingKeys);
+            }
+        });
+        personService.setCalculatedPersonViewRepository(new MockCalculatedPersonViewRepository() {
+            @Override
+            public void saveView(final CalculatedPersonView view) {
+                events.add("view");
+                super.saveView(view);
+            }
+        });
+    }
+
+    private void commit() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerBeforeCompletion();
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void complete(final int status) {
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
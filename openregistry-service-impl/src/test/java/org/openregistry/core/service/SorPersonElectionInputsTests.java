@@ -0,0 +1,93 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.service;
+
+import org.jasig.openregistry.test.domain.MockEmailAddress;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.jasig.openregistry.test.domain.MockSorRole;
+import org.jasig.openregistry.test.domain.MockType;
+import org.junit.Test;
+import org.openregistry.core.domain.sor.SorName;
+
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link SorPersonElectionInputs}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SorPersonElectionInputsTests {
+
+    private MockSorPerson constructSorPerson() {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setDateOfBirth(new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime());
+        sorPerson.setGender("F");
+        sorPerson.setSsn("123456789");
+        final SorName name = sorPerson.addName();
+        name.setGiven("Jane");
+        name.setFamily("Smith");
+
+        final MockSorRole role = new MockSorRole();
+        role.setAffiliationType(new MockType("AFFILIATION", "STAFF"));
+        sorPerson.addRole(role);
+        return sorPerson;
+    }
+
+    @Test
+    public void testNothingChanged() {
+        final SorPersonElectionInputs previous = SorPersonElectionInputs.valueOf(SorPersonElectionInputs.forSorPerson(constructSorPerson()).toString());
+
+        assertTrue(SorPersonElectionInputs.forSorPerson(constructSorPerson()).changedSince(previous).isEmpty());
+    }
+
+    @Test
+    public void testEverythingChangedWithoutPrevious() {
+        assertEquals(EnumSet.allOf(SorPersonElectionInputs.Input.class), SorPersonElectionInputs.forSorPerson(constructSorPerson()).changedSince(null));
+        assertNull(SorPersonElectionInputs.valueOf("abc:def"));
+    }
+
+    @Test
+    public void testNameChange() {
+        final SorPersonElectionInputs previous = SorPersonElectionInputs.forSorPerson(constructSorPerson());
+        final MockSorPerson sorPerson = constructSorPerson();
+        sorPerson.getNames().get(0).setFamily("Jones");
+
+        assertEquals(EnumSet.of(SorPersonElectionInputs.Input.NAMES), SorPersonElectionInputs.forSorPerson(sorPerson).changedSince(previous));
+    }
+
+    @Test
+    public void testRoleOnlyChangeDoesNotTouchNamesOrIdentifiers() {
+        final SorPersonElectionInputs previous = SorPersonElectionInputs.forSorPerson(constructSorPerson());
+        final MockSorPerson sorPerson = constructSorPerson();
+        final MockSorRole role = new MockSorRole();
+        role.setAffiliationType(new MockType("AFFILIATION", "FACULTY"));
+        final MockEmailAddress emailAddress = new MockEmailAddress();
+        emailAddress.setAddress("jane@example.edu");
+        role.addEmailAddress(emailAddress);
+        sorPerson.addRole(role);
+
+        assertEquals(EnumSet.of(SorPersonElectionInputs.Input.AFFILIATIONS, SorPersonElectionInputs.Input.CONTACTS),
+                SorPersonElectionInputs.forSorPerson(sorPerson).changedSince(previous));
+    }
+}
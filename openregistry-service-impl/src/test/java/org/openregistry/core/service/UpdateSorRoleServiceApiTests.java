@@ -33,6 +33,7 @@ import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.Role;
 import org.openregistry.core.domain.sor.SorPerson;
 import org.openregistry.core.domain.sor.SorRole;
+import org.openregistry.core.repository.PersonFetchProfile;
 import org.openregistry.core.repository.PersonRepository;
 
 import javax.validation.Validator;
@@ -95,7 +96,7 @@ public class UpdateSorRoleServiceApiTests {
         when(this.mockSorRole.getId()).thenReturn(1L);
         when(this.mockPerson.findRoleBySoRRoleId(eq(1L))).thenReturn(this.mockRole);
         when(this.mockPersonRepository.saveSorRole(eq(this.mockSorRole))).thenReturn(this.mockSorRole);
-        when(this.mockPersonRepository.findByInternalId(eq(1L))).thenReturn(this.mockPerson);
+        when(this.mockPersonRepository.findByInternalId(eq(1L), eq(PersonFetchProfile.RECALCULATION))).thenReturn(this.mockPerson);
 
         final DefaultPersonService ps = new DefaultPersonService(this.mockPersonRepository, null, new MockDisclosureRecalculationStrategyRepository(), null, null);
         ps.setValidator(this.mockValidator);
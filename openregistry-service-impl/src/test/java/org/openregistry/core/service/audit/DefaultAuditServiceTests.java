@@ -0,0 +1,202 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.audit;
+
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.AuditedChange;
+import org.openregistry.core.domain.AuditedChange.Category;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.PersonChange.ChangeType;
+import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.AuditHistoryRepository;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DefaultAuditService}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DefaultAuditServiceTests {
+
+    private StubAuditHistoryRepository auditHistoryRepository;
+
+    private DefaultAuditService auditService;
+
+    private AuditAttributes auditAttributes;
+
+    @Before
+    public void setUp() {
+        this.auditHistoryRepository = new StubAuditHistoryRepository();
+        for (long revision = 1; revision <= 7; revision++) {
+            this.auditHistoryRepository.add(new AuditedChange(Category.NAME, 10L, revision, new Date(revision), "admin", "reason " + revision,
+                    revision == 1 ? ChangeType.ADDED : ChangeType.MODIFIED, Collections.<String, Object>singletonMap("family", "Smith" + revision)));
+        }
+        this.auditHistoryRepository.add(new AuditedChange(Category.ID_CARD, 20L, 7, new Date(7), "admin", null, ChangeType.DELETED, null));
+
+        this.auditService = new DefaultAuditService(this.auditHistoryRepository);
+        this.auditAttributes = new AuditAttributes();
+        this.auditAttributes.setAuditNames(true);
+        this.auditAttributes.setAuditIdCard(true);
+        this.auditAttributes.setPageSize(3);
+    }
+
+    @Test
+    public void testFirstPageHoldsNewestRevisions() {
+        final Map<String, List<Map<String, Object>>> results = this.auditService.getAudit(new MockPerson(1L), this.auditAttributes);
+
+        assertEquals(7, this.auditAttributes.getRevisionCount());
+        assertEquals(3, this.auditAttributes.getPageCount());
+        assertEquals(5, this.auditHistoryRepository.fromRevision);
+        assertEquals(7, this.auditHistoryRepository.toRevision);
+        assertEquals(Arrays.asList("name", "idCard"), new ArrayList<String>(results.keySet()));
+        assertEquals(7L, results.get("name").get(0).get(AuditService.REVISION_NUMBER));
+        assertEquals(5L, results.get("name").get(2).get(AuditService.REVISION_NUMBER));
+    }
+
+    @Test
+    public void testLastPageOldestFirst() {
+        this.auditAttributes.setNewestFirst(false);
+        this.auditAttributes.setPage(2);
+
+        final Map<String, List<Map<String, Object>>> results = this.auditService.getAudit(new MockPerson(1L), this.auditAttributes);
+
+        assertEquals(7, this.auditHistoryRepository.fromRevision);
+        assertEquals(7, this.auditHistoryRepository.toRevision);
+        assertEquals(1, results.get("name").size());
+    }
+
+    @Test
+    public void testPagePastTheEndMovesToLastPage() {
+        this.auditAttributes.setPage(10);
+
+        this.auditService.getAudit(new MockPerson(1L), this.auditAttributes);
+
+        assertEquals(2, this.auditAttributes.getPage());
+        assertEquals(1, this.auditHistoryRepository.fromRevision);
+        assertEquals(1, this.auditHistoryRepository.toRevision);
+    }
+
+    @Test
+    public void testRowsStartWithRevisionDetails() {
+        final Map<String, List<Map<String, Object>>> results = this.auditService.getAudit(new MockPerson(1L), this.auditAttributes);
+
+        final Map<String, Object> row = results.get("name").get(0);
+        assertEquals(Arrays.asList(AuditService.REVISION_NUMBER, AuditService.TIME, AuditService.USER, AuditService.REASON,
+                AuditService.RECORD, AuditService.ACTION, "family"), new ArrayList<String>(row.keySet()));
+        assertEquals("reason 7", row.get(AuditService.REASON));
+        assertEquals("name 10", row.get(AuditService.RECORD));
+        assertEquals("Smith7", row.get("family"));
+        assertEquals("deleted", results.get("idCard").get(0).get(AuditService.ACTION));
+    }
+
+    @Test
+    public void testRowsOfCategoryHaveSameColumns() {
+        this.auditHistoryRepository.add(new AuditedChange(Category.ID_CARD, 20L, 6, new Date(6), "admin", null, ChangeType.MODIFIED,
+                Collections.<String, Object>singletonMap("barCode", "123")));
+        this.auditHistoryRepository.add(new AuditedChange(Category.ID_CARD, 20L, 5, new Date(5), "admin", null, ChangeType.MODIFIED,
+                Collections.<String, Object>singletonMap("proximityNumber", "456")));
+
+        final List<Map<String, Object>> rows = this.auditService.getAudit(new MockPerson(1L), this.auditAttributes).get("idCard");
+
+        assertEquals(3, rows.size());
+        final List<String> columns = Arrays.asList(AuditService.REVISION_NUMBER, AuditService.TIME, AuditService.USER, AuditService.REASON,
+                AuditService.RECORD, AuditService.ACTION, "proximityNumber", "barCode");
+        for (final Map<String, Object> row : rows) {
+            assertEquals(columns, new ArrayList<String>(row.keySet()));
+        }
+        assertNull(rows.get(0).get("barCode"));
+        assertEquals("123", rows.get(1).get("barCode"));
+        assertNull(rows.get(1).get("proximityNumber"));
+    }
+
+    @Test
+    public void testGroupsByRevision() {
+        final Map<String, List<Map<String, Object>>> results = this.auditService.getAudit(new MockPerson(1L), this.auditAttributes);
+
+        final SortedMap<Long, List<Map<String, Object>>> byRevision = this.auditService.getAuditByRev(results);
+        assertEquals(Arrays.asList(5L, 6L, 7L), new ArrayList<Long>(byRevision.keySet()));
+        assertEquals(2, byRevision.get(7L).size());
+        assertEquals(Arrays.asList(7L, 6L, 5L), new ArrayList<Long>(this.auditService.getAuditByRevRevers(byRevision).keySet()));
+        assertEquals(2, this.auditService.getAuditForRev(byRevision, "7").size());
+        assertTrue(this.auditService.getAuditForRev(byRevision, "x").isEmpty());
+    }
+
+    @Test
+    public void testNoCategoriesReadsNothing() {
+        this.auditAttributes.setAuditNames(false);
+        this.auditAttributes.setAuditIdCard(false);
+
+        assertTrue(this.auditService.getAudit(new MockPerson(1L), this.auditAttributes).isEmpty());
+        assertEquals(0, this.auditAttributes.getRevisionCount());
+        assertEquals(0, this.auditHistoryRepository.toRevision);
+    }
+
+    /**
+     * Holds the history of a single person and records the range of revisions the changes were read for.
+     */
+    private static final class StubAuditHistoryRepository implements AuditHistoryRepository {
+
+        private final List<AuditedChange> changes = new ArrayList<AuditedChange>();
+
+        private long fromRevision;
+
+        private long toRevision;
+
+        private void add(final AuditedChange change) {
+            this.changes.add(change);
+        }
+
+        public List<Long> findRevisionNumbers(final Person person, final Set<Category> categories, final Date since, final long fromRevision, final long toRevision) {
+            final SortedSet<Long> revisions = new TreeSet<Long>();
+            for (final AuditedChange change : this.changes) {
+                if (categories.contains(change.getCategory())) {
+                    revisions.add(change.getRevision());
+                }
+            }
+            return new ArrayList<Long>(revisions);
+        }
+
+        public List<Long> findRevisionNumbers(final SorPerson sorPerson, final Set<Category> categories, final Date since, final long fromRevision, final long toRevision) {
+            return findRevisionNumbers((Person) null, categories, since, fromRevision, toRevision);
+        }
+
+        public List<AuditedChange> findChanges(final Person person, final Set<Category> categories, final long fromRevision, final long toRevision) {
+            this.fromRevision = fromRevision;
+            this.toRevision = toRevision;
+            final List<AuditedChange> found = new ArrayList<AuditedChange>();
+            for (final AuditedChange change : this.changes) {
+                if (categories.contains(change.getCategory()) && change.getRevision() >= fromRevision && change.getRevision() <= toRevision) {
+                    found.add(change);
+                }
+            }
+            return found;
+        }
+
+        public List<AuditedChange> findChanges(final SorPerson sorPerson, final Set<Category> categories, final long fromRevision, final long toRevision) {
+            return findChanges((Person) null, categories, fromRevision, toRevision);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.identifier;
+
+import org.junit.Test;
+import org.springframework.jdbc.support.incrementer.AbstractDataFieldMaxValueIncrementer;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DBIdentifierGenerator}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DBIdentifierGeneratorTests {
+
+    private final CountingIncrementer incrementer = new CountingIncrementer();
+
+    @Test
+    public void testUsesIncrementerValuesWithoutBlocks() {
+        final DBIdentifierGenerator generator = new DBIdentifierGenerator(this.incrementer);
+
+        assertEquals(1, generator.generateNextLong());
+        assertEquals(2, generator.generateNextInt());
+        assertEquals("3", generator.generateNextString());
+        assertEquals(3, this.incrementer.getRoundTrips());
+    }
+
+    @Test
+    public void testHandsOutBlocksWithOneRoundTrip() {
+        final DBIdentifierGenerator generator = new DBIdentifierGenerator(this.incrementer);
+        generator.setBlockSize(10);
+
+        for (long expected = 10; expected < 30; expected++) {
+            assertEquals(expected, generator.generateNextLong());
+        }
+        // at this rate, the third block is reserved ahead.
+        assertTrue(this.incrementer.getRoundTrips() <= 3);
+    }
+
+    @Test
+    public void testPadsStrings() {
+        this.incrementer.setPaddingLength(6);
+        final DBIdentifierGenerator generator = new DBIdentifierGenerator(this.incrementer);
+        generator.setBlockSize(100);
+
+        assertEquals("000100", generator.generateNextString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsIntOverflow() {
+        final DBIdentifierGenerator generator = new DBIdentifierGenerator(this.incrementer);
+        generator.setBlockSize(Integer.MAX_VALUE);
+
+        generator.generateNextInt();
+        generator.generateNextInt();
+    }
+
+    @Test
+    public void testGeneratorsSharingIncrementerNeverOverlap() throws Exception {
+        final DBIdentifierGenerator[] generators = {new DBIdentifierGenerator(this.incrementer), new DBIdentifierGenerator(this.incrementer)};
+        for (final DBIdentifierGenerator generator : generators) {
+            generator.setBlockSize(50);
+        }
+
+        final Set<Long> values = Collections.synchronizedSet(new HashSet<Long>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final DBIdentifierGenerator generator = generators[i % 2];
+            threads.add(new Thread() {
+                public void run() {
+                    for (int j = 0; j < 5000; j++) {
+                        if (!values.add(generator.generateNextLong())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(40000, values.size());
+        assertTrue(this.incrementer.getRoundTrips() < 40000 / 50 + 10);
+    }
+
+    /**
+     * A sequence in memory, counting how often it is asked for a value.
+     */
+    private static final class CountingIncrementer extends AbstractDataFieldMaxValueIncrementer {
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        @Override
+        protected long getNextKey() {
+            return this.sequence.incrementAndGet();
+        }
+
+        long getRoundTrips() {
+            return this.sequence.get();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.identitycard;
+
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.jasig.openregistry.test.repository.MockCalculatedPersonViewRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.domain.IdCard;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DefaultIdCardManagementService}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class DefaultIdCardManagementServiceTests {
+
+    private final DefaultIdCardManagementService idCardService = new DefaultIdCardManagementService();
+
+    private final MockCalculatedPersonViewRepository calculatedPersonViewRepository = new MockCalculatedPersonViewRepository();
+
+    private final MockPerson person = new MockPerson(1L);
+
+    @Before
+    public void setUp() {
+        this.idCardService.setCalculatedPersonViewRepository(this.calculatedPersonViewRepository);
+    }
+
+    @Test
+    public void testViewShowsIssuedCard() {
+        final IdCard idCard = this.idCardService.generateNewIdCard(this.person).getTargetObject();
+
+        final CalculatedPersonView view = this.calculatedPersonViewRepository.findByPersonId(this.person.getId());
+        assertEquals(1, view.getIdCards().size());
+        assertEquals(idCard.getCardNumber(), view.getIdCards().get(0).getCardNumber());
+    }
+
+    @Test
+    public void testViewShowsProximityNumberAndExpiration() {
+        this.idCardService.generateNewIdCard(this.person);
+
+        this.idCardService.assignProximityNumber(this.person, "12345");
+        assertEquals("12345", this.calculatedPersonViewRepository.findByPersonId(this.person.getId()).getIdCards().get(0).getProximityNumber());
+
+        this.idCardService.expireIdCard(this.person);
+        assertNotNull(this.calculatedPersonViewRepository.findByPersonId(this.person.getId()).getIdCards().get(0).getExpirationDate());
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.jasig.openregistry.test.domain.MockReconciliationCriteria;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.junit.Test;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.service.reconciliation.ReconciliationResult.ReconciliationType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link BoundedPendingReconciliationStore}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class BoundedPendingReconciliationStoreTests {
+
+    private ReconciliationCriteria constructCriteria(final String sorSource, final String family) {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setSourceSor(sorSource);
+        final SorName name = sorPerson.addName();
+        name.setGiven("Rudyard");
+        name.setFamily(family);
+
+        final MockReconciliationCriteria criteria = new MockReconciliationCriteria();
+        criteria.setSorPerson(sorPerson);
+        criteria.setEmailAddress("test@test.edu");
+        return criteria;
+    }
+
+    private ReconciliationResult constructResult(final int numberOfMatches) {
+        final List<PersonMatch> matches = new ArrayList<PersonMatch>();
+        for (int i = 0; i < numberOfMatches; i++) {
+            matches.add(new PersonMatchImpl(new MockPerson(i), 50, Collections.<FieldMatch>emptyList()));
+        }
+        return new ReconciliationResultImpl(ReconciliationType.MAYBE, matches);
+    }
+
+    @Test
+    public void testLookupByContent() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore();
+        final ReconciliationResult result = constructResult(1);
+
+        store.put(constructCriteria("test", "Kipling"), result);
+
+        assertSame(result, store.get(constructCriteria("test", "Kipling")));
+        assertNull(store.get(constructCriteria("test", "Kipstein")));
+        assertEquals(1, store.getHitCount());
+        assertEquals(1, store.getMissCount());
+
+        assertSame(result, store.remove(constructCriteria("test", "Kipling")));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testExpiration() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore();
+        store.setTimeToLive(0);
+
+        store.put(constructCriteria("test", "Kipling"), constructResult(1));
+
+        assertNull(store.get(constructCriteria("test", "Kipling")));
+        assertEquals(1, store.getExpirationCount());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testSizeBound() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore(10, 1000);
+
+        for (int i = 0; i < 50; i++) {
+            store.put(constructCriteria("test", "Kipling" + i), constructResult(1));
+        }
+
+        assertEquals(10, store.size());
+        assertEquals(40, store.getEvictionCount());
+    }
+
+    @Test
+    public void testWeightBound() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore(100, 5);
+
+        for (int i = 0; i < 3; i++) {
+            store.put(constructCriteria("test", "Kipling" + i), constructResult(2));
+        }
+
+        assertEquals(1, store.size());
+        assertEquals(2, store.getEvictionCount());
+    }
+
+    @Test
+    public void testFrequentlyUsedEntrySurvivesBurst() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore(100, 10000);
+        final ReconciliationResult result = constructResult(1);
+
+        store.put(constructCriteria("test", "Kipling"), result);
+        store.put(constructCriteria("test", "Kipstein"), constructResult(1));
+        assertSame(result, store.get(constructCriteria("test", "Kipling")));
+
+        for (int i = 0; i < 1000; i++) {
+            store.put(constructCriteria("burst", "Burst" + i), constructResult(1));
+        }
+
+        assertSame(result, store.get(constructCriteria("test", "Kipling")));
+        assertEquals(100, store.size());
+    }
+
+    @Test
+    public void testFindBySorSource() {
+        final BoundedPendingReconciliationStore store = new BoundedPendingReconciliationStore();
+
+        store.put(constructCriteria("test", "Kipling"), constructResult(1));
+        store.put(constructCriteria("test", "Kipstein"), constructResult(1));
+        store.put(constructCriteria("other", "Kipling"), constructResult(1));
+
+        assertEquals(2, store.findBySorSource("test").size());
+        assertEquals(1, store.findBySorSource("other").size());
+        assertTrue(store.findBySorSource("none").isEmpty());
+
+        store.remove(constructCriteria("other", "Kipling"));
+        assertTrue(store.findBySorSource("other").isEmpty());
+    }
+}
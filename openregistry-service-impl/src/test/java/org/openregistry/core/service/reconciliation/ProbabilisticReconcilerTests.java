@@ -0,0 +1,146 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.jasig.openregistry.test.domain.MockName;
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.jasig.openregistry.test.domain.MockReconciliationCriteria;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.junit.Test;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorName;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+import org.openregistry.core.service.reconciliation.ReconciliationResult.ReconciliationType;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ProbabilisticReconciler}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class ProbabilisticReconcilerTests {
+
+    private static final Date DATE_OF_BIRTH = new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime();
+
+    private MockReconciliationCriteria constructCriteria(final String given, final String family) {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setDateOfBirth(DATE_OF_BIRTH);
+        sorPerson.setGender("M");
+        final SorName name = sorPerson.addName();
+        name.setGiven(given);
+        name.setFamily(family);
+        final MockReconciliationCriteria criteria = new MockReconciliationCriteria();
+        criteria.setSorPerson(sorPerson);
+        return criteria;
+    }
+
+    private MockPerson constructPerson(final long id, final String given, final String family, final Date dateOfBirth) {
+        final MockPerson person = new MockPerson(id);
+        person.setDateOfBirth(dateOfBirth);
+        person.setGender("M");
+        final MockName name = person.addName();
+        name.setGiven(given);
+        name.setFamily(family);
+        return person;
+    }
+
+    private ProbabilisticReconciler constructReconciler(final Person... candidates) {
+        return new ProbabilisticReconciler(new ReconciliationCandidateRepository() {
+            public List<Person> findCandidates(final Collection<String> blockingKeys, final int maxCandidates) {
+                return Arrays.asList(candidates);
+            }
+
+            public Map<String, List<Person>> findCandidatesByKey(final Collection<String> blockingKeys, final int maxCandidatesPerKey) {
+                final Map<String, List<Person>> candidatesByKey = new LinkedHashMap<String, List<Person>>();
+                for (final String key : blockingKeys) {
+                    candidatesByKey.put(key, Arrays.asList(candidates));
+                }
+                return candidatesByKey;
+            }
+
+            public void updateBlockingKeys(final Person person, final Set<String> blockingKeys) {
+                // nothing to do
+            }
+
+            public void addBlockingKeys(final Person person, final Set<String> blockingKeys) {
+                // nothing to do
+            }
+
+            public void removeBlockingKeys(final Person person) {
+                // nothing to do
+            }
+        });
+    }
+
+    @Test
+    public void testExactMatch() {
+        final ProbabilisticReconciler reconciler = constructReconciler(constructPerson(1L, "Rudyard", "Kipling", DATE_OF_BIRTH));
+        final ReconciliationResult result = reconciler.reconcile(constructCriteria("Rudyard", "Kipling"));
+
+        assertEquals(ReconciliationType.EXACT, result.getReconciliationType());
+        assertEquals(1, result.getMatches().size());
+
+        final PersonMatch match = result.getMatches().get(0);
+        assertEquals(100, match.getConfidenceLevel());
+
+        final Set<String> fieldNames = new HashSet<String>();
+        for (final FieldMatch fieldMatch : match.getFieldMatches()) {
+            assertEquals(FieldMatch.MatchType.EXACT, fieldMatch.getMatchType());
+            fieldNames.add(fieldMatch.getFieldName());
+        }
+        assertTrue(fieldNames.containsAll(Arrays.asList("names.family", "names.given", "dateOfBirth", "gender")));
+    }
+
+    @Test
+    public void testMaybeMatchOnDifferentGivenName() {
+        final ProbabilisticReconciler reconciler = constructReconciler(constructPerson(1L, "Joseph", "Kipling", DATE_OF_BIRTH));
+        final ReconciliationResult result = reconciler.reconcile(constructCriteria("Rudyard", "Kipling"));
+
+        assertEquals(ReconciliationType.MAYBE, result.getReconciliationType());
+        assertEquals(1, result.getMatches().size());
+        assertTrue(result.getMatches().get(0).getConfidenceLevel() < 100);
+    }
+
+    @Test
+    public void testTransposedNamesAreAMaybe() {
+        final ProbabilisticReconciler reconciler = constructReconciler(constructPerson(1L, "Kipling", "Rudyard", DATE_OF_BIRTH));
+        final ReconciliationResult result = reconciler.reconcile(constructCriteria("Rudyard", "Kipling"));
+
+        assertEquals(ReconciliationType.MAYBE, result.getReconciliationType());
+        boolean transposed = false;
+        for (final FieldMatch fieldMatch : result.getMatches().get(0).getFieldMatches()) {
+            transposed |= fieldMatch.getMatchType() == FieldMatch.MatchType.TRANSPOSED;
+        }
+        assertTrue(transposed);
+    }
+
+    @Test
+    public void testNoMatch() {
+        final ProbabilisticReconciler reconciler = constructReconciler(constructPerson(1L, "John", "Smith", new GregorianCalendar(1981, Calendar.JUNE, 2).getTime()));
+        final ReconciliationResult result = reconciler.reconcile(constructCriteria("Rudyard", "Kipling"));
+
+        assertEquals(ReconciliationType.NONE, result.getReconciliationType());
+        assertTrue(result.getMatches().isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.junit.Test;
+import org.openregistry.core.domain.sor.SorName;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ReconciliationBlockingKeys}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class ReconciliationBlockingKeysTests {
+
+    private MockSorPerson constructSorPerson(final String given, final String family, final String ssn) {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setDateOfBirth(new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime());
+        sorPerson.setSsn(ssn);
+        final SorName name = sorPerson.addName();
+        name.setGiven(given);
+        name.setFamily(family);
+        return sorPerson;
+    }
+
+    @Test
+    public void testSameNameProducesSameKeys() {
+        final Set<String> keys1 = ReconciliationBlockingKeys.forSorPerson(constructSorPerson("Rudyard", "Kipling", "123456789"));
+        final Set<String> keys2 = ReconciliationBlockingKeys.forSorPerson(constructSorPerson("rudy", "Kipling", null));
+
+        assertEquals(3, keys1.size());
+        assertEquals(2, keys2.size());
+        assertTrue(keys1.containsAll(keys2));
+    }
+
+    @Test
+    public void testNameChangeStillSharesSsnKey() {
+        final Set<String> keys1 = ReconciliationBlockingKeys.forSorPerson(constructSorPerson("Jane", "Smith", "123-45-6789"));
+        final Set<String> keys2 = ReconciliationBlockingKeys.forSorPerson(constructSorPerson("Jane", "Jones", "987656789"));
+
+        assertFalse(Collections.disjoint(keys1, keys2));
+        assertTrue(keys1.contains("S:6789:19700115"));
+    }
+
+    @Test
+    public void testNoKeysWithoutFamilyName() {
+        final MockSorPerson sorPerson = constructSorPerson("Cher", null, null);
+        sorPerson.setDateOfBirth(null);
+
+        assertTrue(ReconciliationBlockingKeys.forSorPerson(sorPerson).isEmpty());
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.reconciliation;
+
+import org.jasig.openregistry.test.domain.MockPerson;
+import org.jasig.openregistry.test.domain.MockReconciliationCriteria;
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.jasig.openregistry.test.repository.MockReconciliationCandidateRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.ReconciliationCriteria;
+import org.openregistry.core.domain.sor.SorName;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ReconciliationCandidateSet}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class ReconciliationCandidateSetTests {
+
+    private static final Date DATE_OF_BIRTH = new GregorianCalendar(1970, Calendar.JANUARY, 15).getTime();
+
+    private final MockReconciliationCandidateRepository reconciliationCandidateRepository = new MockReconciliationCandidateRepository();
+
+    private MockReconciliationCriteria kipling;
+
+    private MockReconciliationCriteria conrad;
+
+    private String kiplingNameKey;
+
+    private String kiplingBirthKey;
+
+    @Before
+    public void setUp() {
+        this.kipling = constructCriteria("Rudyard", "Kipling");
+        this.conrad = constructCriteria("Joseph", "Conrad");
+
+        for (final String key : ReconciliationBlockingKeys.forSorPerson(this.kipling.getSorPerson())) {
+            if (key.startsWith("N:")) {
+                this.kiplingNameKey = key;
+            } else {
+                this.kiplingBirthKey = key;
+            }
+        }
+        assertNotNull(this.kiplingNameKey);
+        assertNotNull(this.kiplingBirthKey);
+    }
+
+    private MockReconciliationCriteria constructCriteria(final String given, final String family) {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setDateOfBirth(DATE_OF_BIRTH);
+        final SorName name = sorPerson.addName();
+        name.setGiven(given);
+        name.setFamily(family);
+        final MockReconciliationCriteria criteria = new MockReconciliationCriteria();
+        criteria.setSorPerson(sorPerson);
+        return criteria;
+    }
+
+    private Person addPerson(final long id, final String... keys) {
+        final Person person = new MockPerson(id);
+        this.reconciliationCandidateRepository.updateBlockingKeys(person, new HashSet<String>(Arrays.asList(keys)));
+        return person;
+    }
+
+    @Test
+    public void testMostSelectiveKeyFirst() {
+        final Person first = addPerson(1L, this.kiplingBirthKey);
+        addPerson(2L, this.kiplingBirthKey);
+        addPerson(3L, this.kiplingBirthKey);
+        final Person namesake = addPerson(4L, this.kiplingNameKey);
+
+        final ReconciliationCandidateSet candidateSet = new ReconciliationCandidateSet(this.reconciliationCandidateRepository,
+                Arrays.<ReconciliationCriteria>asList(this.kipling), 2);
+
+        assertEquals(Arrays.asList(namesake, first), candidateSet.getCandidates(0));
+    }
+
+    @Test
+    public void testSameCandidatesAsSeparateLookup() {
+        addPerson(1L, this.kiplingBirthKey);
+        addPerson(2L, this.kiplingBirthKey, this.kiplingNameKey);
+        addPerson(3L, this.kiplingNameKey);
+        long id = 10L;
+        for (final String key : ReconciliationBlockingKeys.forSorPerson(this.conrad.getSorPerson())) {
+            addPerson(id++, key);
+        }
+
+        final ReconciliationCandidateSet candidateSet = new ReconciliationCandidateSet(this.reconciliationCandidateRepository,
+                Arrays.<ReconciliationCriteria>asList(this.conrad, this.kipling), 2);
+
+        assertEquals(this.reconciliationCandidateRepository.findCandidates(ReconciliationBlockingKeys.forSorPerson(this.kipling.getSorPerson()), 2),
+                candidateSet.getCandidates(1));
+        assertEquals(this.reconciliationCandidateRepository.findCandidates(ReconciliationBlockingKeys.forSorPerson(this.conrad.getSorPerson()), 2),
+                candidateSet.getCandidates(0));
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.snapshot;
+
+import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.jasig.openregistry.test.repository.MockPersonRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.domain.sor.SorPerson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link SorSnapshotDelta}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SorSnapshotDeltaTests {
+
+    private static final String SOR = "hr";
+
+    private SorSnapshotDelta delta;
+
+    private final List<String> differences = new ArrayList<String>();
+
+    private final SorSnapshotDelta.Handler handler = new SorSnapshotDelta.Handler() {
+        public void added(final int position, final String sorId, final String record) {
+            differences.add("added " + position + " " + sorId + " " + record);
+        }
+
+        public void changed(final int position, final String sorId, final String record) {
+            differences.add("changed " + position + " " + sorId + " " + record);
+        }
+
+        public void duplicated(final int position, final String sorId) {
+            differences.add("duplicated " + position + " " + sorId);
+        }
+
+        public void removed(final String sorId) {
+            differences.add("removed " + sorId);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        final MockPersonRepository personRepository = new MockPersonRepository(new Person[0], new SorPerson[] {
+                constructSorPerson("a", "111111111"), constructSorPerson("b", "222222222"), constructSorPerson("c", "333333333"),
+                constructSorPerson("x", "999999999")});
+        this.delta = new SorSnapshotDelta(personRepository, SOR);
+    }
+
+    private MockSorPerson constructSorPerson(final String sorId, final String ssn) {
+        final MockSorPerson sorPerson = new MockSorPerson();
+        sorPerson.setSourceSor(SOR);
+        sorPerson.setSorId(sorId);
+        sorPerson.setSsn(ssn);
+        return sorPerson;
+    }
+
+    @Test
+    public void testOnlyDifferencesAreReported() throws Exception {
+        this.delta.add(0, constructSorPerson("d", "444444444"), "D");
+        this.delta.add(1, constructSorPerson("c", "333333333"), "C");
+        this.delta.add(2, constructSorPerson("b", "222222223"), "B");
+        this.delta.add(3, constructSorPerson("x", "999999999"), "X");
+        this.delta.add(4, constructSorPerson("d", "444444445"), "D2");
+
+        this.delta.apply(this.handler);
+        this.delta.close();
+
+        assertEquals(Arrays.asList("removed a", "changed 2 b B", "added 0 d D", "duplicated 4 d"), this.differences);
+    }
+
+    @Test
+    public void testCompareOnlyCounts() throws Exception {
+        this.delta.add(0, constructSorPerson("d", "444444444"), "D");
+        this.delta.add(1, constructSorPerson("c", "333333333"), "C");
+        this.delta.add(2, constructSorPerson("b", "222222223"), "B");
+        this.delta.add(3, constructSorPerson("d", "444444445"), "D2");
+
+        final SorSnapshotDelta.Summary summary = this.delta.compare();
+
+        assertTrue(this.differences.isEmpty());
+        assertEquals(1, summary.getAdded());
+        assertEquals(1, summary.getChanged());
+        assertEquals(2, summary.getRemoved());
+        assertEquals(1, summary.getUnchanged());
+        assertEquals(1, summary.getDuplicated());
+        assertEquals(4, summary.getStored());
+
+        final SorSnapshotDelta.Summary applied = this.delta.apply(this.handler);
+        this.delta.close();
+
+        assertEquals(Arrays.asList("removed a", "changed 2 b B", "added 0 d D", "duplicated 3 d", "removed x"), this.differences);
+        assertEquals(summary.getRemoved(), applied.getRemoved());
+        assertEquals(summary.getAdded(), applied.getAdded());
+    }
+
+    @Test
+    public void testEmptySnapshotRemovesEveryone() throws Exception {
+        this.delta.apply(this.handler);
+        this.delta.close();
+
+        assertEquals(0, this.delta.size());
+        assertEquals(Arrays.asList("removed a", "removed b", "removed c", "removed x"), this.differences);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSorIdRequired() throws Exception {
+        this.delta.add(0, constructSorPerson(null, "444444444"), "D");
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.service.snapshot;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link SortedRecordSpool}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SortedRecordSpoolTests {
+
+    private List<String> read(final SortedRecordSpool spool) throws Exception {
+        final List<String> records = new ArrayList<String>();
+        for (final Iterator<SortedRecordSpool.Record> i = spool.sorted(); i.hasNext();) {
+            final SortedRecordSpool.Record record = i.next();
+            records.add(record.key + ":" + record.hash + ":" + record.position + ":" + record.payload);
+        }
+        spool.close();
+        return records;
+    }
+
+    @Test
+    public void testSortsInMemory() throws Exception {
+        final SortedRecordSpool spool = new SortedRecordSpool(10);
+        spool.add("b", "h2", 0, "B");
+        spool.add("a", "h1", 1, null);
+
+        assertEquals(Arrays.asList("a:h1:1:null", "b:h2:0:B"), read(spool));
+    }
+
+    @Test
+    public void testMergesRunsKeepingTheOrderOfEqualKeys() throws Exception {
+        final SortedRecordSpool spool = new SortedRecordSpool(2);
+        spool.add("d", "h4", 0, "D");
+        spool.add("b", "h2", 1, "B\u00e9");
+        spool.add("c", "h3", 2, "C1");
+        spool.add("a", null, 3, "A");
+        spool.add("c", "h3", 4, "C2");
+
+        assertEquals(Arrays.asList("a:null:3:A", "b:h2:1:B\u00e9", "c:h3:2:C1", "c:h3:4:C2", "d:h4:0:D"), read(spool));
+    }
+}
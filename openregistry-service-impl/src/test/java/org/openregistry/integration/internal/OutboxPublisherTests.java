@@ -0,0 +1,182 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.integration.internal;
+
+import org.jasig.openregistry.test.repository.MockOutboxRepository;
+import org.jasig.openregistry.test.service.MockIntegrationGateway;
+import org.junit.Before;
+import org.junit.Test;
+import org.openregistry.integration.IntegrationGateway;
+import org.openregistry.integration.OutboxEvent;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link OutboxIntegrationGateway} and {@link OutboxPublisher}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class OutboxPublisherTests {
+
+    private static final String TOPIC = "activemq:topic:test";
+
+    private static final String OTHER_TOPIC = "activemq:topic:other";
+
+    private MockOutboxRepository outboxRepository;
+
+    private MockIntegrationGateway deliveringGateway;
+
+    private OutboxIntegrationGateway outboxGateway;
+
+    private OutboxPublisher publisher;
+
+    @Before
+    public void setUp() {
+        this.outboxRepository = new MockOutboxRepository();
+        this.deliveringGateway = new MockIntegrationGateway();
+        this.outboxGateway = new OutboxIntegrationGateway(this.outboxRepository, this.deliveringGateway);
+        this.publisher = new OutboxPublisher(this.outboxRepository, this.deliveringGateway);
+        this.publisher.setBatchSize(2);
+    }
+
+    private static Map<String, Object> orderedBy(final String orderingKey) {
+        final Map<String, Object> metadata = new HashMap<String, Object>();
+        metadata.put(IntegrationGateway.ORDERING_KEY, orderingKey);
+        return metadata;
+    }
+
+    @Test
+    public void testDispatchOnlyWritesToOutbox() {
+        this.outboxGateway.dispatch(TOPIC, "1");
+
+        assertTrue(this.deliveringGateway.getDispatchedMessages().isEmpty());
+        final OutboxEvent event = this.outboxRepository.getEvents().get(0);
+        assertEquals(TOPIC, event.getDestinationId());
+        assertEquals("1", event.getMessageBody());
+        assertEquals(TOPIC, event.getOrderingKey());
+    }
+
+    @Test
+    public void testPublishesEveryBatchInOrder() {
+        for (int i = 0; i < 5; i++) {
+            this.outboxGateway.dispatch(TOPIC, Integer.toString(i), orderedBy("person-" + i % 2));
+        }
+
+        assertEquals(5, this.publisher.publish());
+        assertEquals(Arrays.<Object>asList("0", "1", "2", "3", "4"), this.deliveringGateway.getDispatchedMessageBodies(TOPIC));
+        assertEquals("person-0", this.deliveringGateway.getDispatchedMessages().get(0).getMetadata().get(IntegrationGateway.ORDERING_KEY));
+        assertEquals(0, this.outboxRepository.countEvents());
+    }
+
+    @Test
+    public void testFailedEventHoldsBackLaterEventsWithSameKey() {
+        this.publisher.setBatchSize(10);
+        this.outboxGateway.dispatch(TOPIC, "a1", orderedBy("a"));
+        this.outboxGateway.dispatch(OTHER_TOPIC, "b1", orderedBy("b"));
+        this.outboxGateway.dispatch(TOPIC, "a2", orderedBy("a"));
+        this.deliveringGateway.setUnavailable(TOPIC, true);
+
+        assertEquals(1, this.publisher.publish());
+        assertEquals(Arrays.<Object>asList("b1"), this.deliveringGateway.getDispatchedMessageBodies(OTHER_TOPIC));
+
+        final OutboxEvent failed = this.outboxRepository.getEvents().get(0);
+        assertEquals("a1", failed.getMessageBody());
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttemptTime().after(new Date()));
+        assertNotNull(failed.getLastError());
+        assertEquals(0, this.outboxRepository.getEvents().get(1).getAttempts());
+
+        // the later event with the same key waits for the retry.
+        this.deliveringGateway.setUnavailable(TOPIC, false);
+        assertEquals(0, this.publisher.publish());
+        assertTrue(this.deliveringGateway.getDispatchedMessageBodies(TOPIC).isEmpty());
+    }
+
+    @Test
+    public void testDeliversHeldBackEventsInOrderOnceDue() {
+        this.publisher.setInitialRetryDelayInSeconds(0);
+        this.outboxGateway.dispatch(TOPIC, "1");
+        this.outboxGateway.dispatch(TOPIC, "2");
+        this.deliveringGateway.setUnavailable(TOPIC, true);
+        assertEquals(0, this.publisher.publish());
+
+        this.deliveringGateway.setUnavailable(TOPIC, false);
+        assertEquals(2, this.publisher.publish());
+        assertEquals(Arrays.<Object>asList("1", "2"), this.deliveringGateway.getDispatchedMessageBodies(TOPIC));
+    }
+
+    @Test
+    public void testKeepsDeadLetterAfterMaxAttempts() {
+        this.publisher.setInitialRetryDelayInSeconds(0);
+        this.publisher.setMaxAttempts(2);
+        this.outboxGateway.dispatch(TOPIC, "1", orderedBy("a"));
+        this.outboxGateway.dispatch(OTHER_TOPIC, "2", orderedBy("a"));
+        this.deliveringGateway.setUnavailable(TOPIC, true);
+
+        assertEquals(0, this.publisher.publish());
+        assertEquals(2, this.outboxRepository.countEvents());
+
+        // the second attempt gives up, and the later event with the same key goes on.
+        assertEquals(1, this.publisher.publish());
+        assertEquals(Arrays.<Object>asList("2"), this.deliveringGateway.getDispatchedMessageBodies(OTHER_TOPIC));
+        assertEquals(0, this.outboxRepository.countEvents());
+        assertEquals(1, this.outboxRepository.countDeadLetters());
+
+        final OutboxEvent deadLetter = this.outboxRepository.getEvents().get(0);
+        assertTrue(deadLetter.isDeadLetter());
+        assertEquals(2, deadLetter.getAttempts());
+        assertEquals(0, this.publisher.publish());
+    }
+
+    @Test
+    public void testOnlyLeaseHolderPublishes() {
+        final OutboxPublisher otherPublisher = new OutboxPublisher(this.outboxRepository, this.deliveringGateway);
+        this.outboxGateway.dispatch(TOPIC, "1");
+        assertEquals(1, this.publisher.publish());
+
+        this.outboxGateway.dispatch(TOPIC, "2");
+        assertEquals(0, otherPublisher.publish());
+        assertEquals(1, this.outboxRepository.countEvents());
+
+        this.publisher.stopPublishing();
+        assertEquals(1, otherPublisher.publish());
+        assertEquals(Arrays.<Object>asList("1", "2"), this.deliveringGateway.getDispatchedMessageBodies(TOPIC));
+    }
+
+    @Test
+    public void testRetryDelayDoublesUpToMaximum() {
+        this.publisher.setInitialRetryDelayInSeconds(10);
+        this.publisher.setMaxRetryDelayInSeconds(60);
+
+        assertEquals(10000, this.publisher.retryDelay(0));
+        assertEquals(20000, this.publisher.retryDelay(1));
+        assertEquals(40000, this.publisher.retryDelay(2));
+        assertEquals(60000, this.publisher.retryDelay(3));
+        assertEquals(60000, this.publisher.retryDelay(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBodyThatCannotBeStored() {
+        this.outboxGateway.dispatch(TOPIC, new Object());
+    }
+}
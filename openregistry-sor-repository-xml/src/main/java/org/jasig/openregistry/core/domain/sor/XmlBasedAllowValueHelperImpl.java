@@ -53,4 +53,8 @@ public final class XmlBasedAllowValueHelperImpl {
     public boolean supportsProperty(final String property) {
         return this.property.equals(property);
     }
+
+    String getProperty() {
+        return this.property;
+    }
 }
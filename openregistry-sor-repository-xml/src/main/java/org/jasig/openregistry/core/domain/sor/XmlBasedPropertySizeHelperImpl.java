@@ -56,6 +56,10 @@ public final class XmlBasedPropertySizeHelperImpl {
         return this.property.equals(property);
     }
 
+    String getProperty() {
+        return this.property;
+    }
+
     public boolean isWithinRequiredRangeForProperty(final int size) {
         return size >= this.min && size <= this.max;
     }
@@ -21,12 +21,17 @@ package org.jasig.openregistry.core.domain.sor;
 
 import org.openregistry.core.domain.sor.SoRSpecification;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import java.util.*;
 
 /**
+ * The allowed values and collection sizes are indexed by property once the specification is loaded, so the
+ * constraint validators do a single hash lookup per check.
+ *
  * @version $Revision$ $Date$
  * @since 0.1
  */
@@ -65,6 +70,12 @@ public final class XmlBasedSoRSpecificationImpl implements SoRSpecification {
     @XmlElement(name="collection")
     private HashSet<XmlBasedPropertySizeHelperImpl> minMaxPropertySizes = new HashSet<XmlBasedPropertySizeHelperImpl>();
 
+    @XmlTransient
+    private Map<String, XmlBasedAllowValueHelperImpl> allowedValuesByProperty = new HashMap<String, XmlBasedAllowValueHelperImpl>();
+
+    @XmlTransient
+    private Map<String, XmlBasedPropertySizeHelperImpl> sizesByProperty = new HashMap<String, XmlBasedPropertySizeHelperImpl>();
+
     public String getSoR() {
         return this.sor;
     }
@@ -88,13 +99,8 @@ public final class XmlBasedSoRSpecificationImpl implements SoRSpecification {
     }
 
     public boolean isAllowedValueForProperty(final String property, final String value) {
-        for (final XmlBasedAllowValueHelperImpl xml : this.allowedValuesForProperty) {
-            if (xml.supportsProperty(property)) {
-                return xml.isAllowedValueForProperty(property, value);
-            }
-        }
-
-        return true;
+        final XmlBasedAllowValueHelperImpl xml = this.allowedValuesByProperty.get(property);
+        return xml == null || xml.isAllowedValueForProperty(property, value);
     }
 
     public boolean isRequiredProperty(final String property) {
@@ -106,24 +112,42 @@ public final class XmlBasedSoRSpecificationImpl implements SoRSpecification {
     }
 
     public boolean isWithinRequiredSize(final String property, final Collection collection) {
-        for (final XmlBasedPropertySizeHelperImpl helper : this.minMaxPropertySizes) {
-            if (helper.supportsProperty(property)) {
-                return helper.isWithinRequiredRangeForProperty(collection.size());
-            }
-        }
-
-        return true;
+        final XmlBasedPropertySizeHelperImpl helper = this.sizesByProperty.get(property);
+        return helper == null || helper.isWithinRequiredRangeForProperty(collection.size());
     }
 
     @Override
     public boolean isWithinRequiredSize(final String property, final Map map) {
-        for (final XmlBasedPropertySizeHelperImpl helper : this.minMaxPropertySizes) {
-            if (helper.supportsProperty(property)) {
-                return helper.isWithinRequiredRangeForProperty(map.size());
+        final XmlBasedPropertySizeHelperImpl helper = this.sizesByProperty.get(property);
+        return helper == null || helper.isWithinRequiredRangeForProperty(map.size());
+    }
+
+    /**
+     * JAXB callback; the helper sets are populated directly into the fields, so the indexes are built here.
+     */
+    void afterUnmarshal(final Unmarshaller unmarshaller, final Object parent) {
+        indexAllowedValues();
+        indexSizes();
+    }
+
+    private void indexAllowedValues() {
+        final Map<String, XmlBasedAllowValueHelperImpl> allowedValuesByProperty = new HashMap<String, XmlBasedAllowValueHelperImpl>();
+        for (final XmlBasedAllowValueHelperImpl xml : this.allowedValuesForProperty) {
+            if (!allowedValuesByProperty.containsKey(xml.getProperty())) {
+                allowedValuesByProperty.put(xml.getProperty(), xml);
             }
         }
+        this.allowedValuesByProperty = allowedValuesByProperty;
+    }
 
-        return true;
+    private void indexSizes() {
+        final Map<String, XmlBasedPropertySizeHelperImpl> sizesByProperty = new HashMap<String, XmlBasedPropertySizeHelperImpl>();
+        for (final XmlBasedPropertySizeHelperImpl helper : this.minMaxPropertySizes) {
+            if (!sizesByProperty.containsKey(helper.getProperty())) {
+                sizesByProperty.put(helper.getProperty(), helper);
+            }
+        }
+        this.sizesByProperty = sizesByProperty;
     }
 
     public void setSor(final String sor) {
@@ -148,10 +172,12 @@ public final class XmlBasedSoRSpecificationImpl implements SoRSpecification {
 
     public void setAllowedValuesForProperty(final HashSet<XmlBasedAllowValueHelperImpl> allowedValuesForProperty) {
         this.allowedValuesForProperty = allowedValuesForProperty;
+        indexAllowedValues();
     }
 
     public void setMinMaxPropertySizes(final HashSet<XmlBasedPropertySizeHelperImpl> minMaxPropertySizes) {
         this.minMaxPropertySizes = minMaxPropertySizes;
+        indexSizes();
     }
 
     public void setName(final String name) {
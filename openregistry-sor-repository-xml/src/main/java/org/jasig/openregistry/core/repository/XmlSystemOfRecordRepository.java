@@ -27,17 +27,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Named;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Loads the XML files representing the System of Record specifications from a directory on the file system.
  * <p>
  * Note, this simple implementation ASSUMES that you want to replace the entire set with what's in the specified directory.
+ * <p>
+ * The specifications are kept in a map keyed by the lower cased SoR id, which is replaced as a whole on reload.  If a
+ * watch interval is set, the directory is polled and reloaded when an XML file is added, removed or modified.  A
+ * reload triggered by the watcher only takes effect if every file in the directory could be parsed, so a file caught
+ * half written never makes a SoR disappear.
  *
  * @version $Revision$ $Date$
  * @since 0.1
@@ -53,7 +58,11 @@ public final class XmlSystemOfRecordRepository implements SystemOfRecordReposito
 
     private final Unmarshaller unMarshaller = jaxbContext.createUnmarshaller();
 
-    private List<SoRSpecification> soRSpecifications = new ArrayList<SoRSpecification>();
+    private volatile Map<String, SoRSpecification> soRSpecifications = new HashMap<String, SoRSpecification>();
+
+    private String directoryFingerprint;
+
+    private Timer watcher;
 
     /**
      * Creates a new repository using the supplied directory as the starting point.
@@ -69,31 +78,115 @@ public final class XmlSystemOfRecordRepository implements SystemOfRecordReposito
     }
 
     public SoRSpecification findSoRSpecificationById(final String sorSourceId) {
-        for (final SoRSpecification soRSpecification : this.soRSpecifications) {
-            if (soRSpecification.getSoR().equalsIgnoreCase(sorSourceId)) {
-                return soRSpecification;
+        final SoRSpecification soRSpecification = sorSourceId != null ? this.soRSpecifications.get(key(sorSourceId)) : null;
+
+        if (soRSpecification == null) {
+            throw new IllegalStateException("Requested SoR could not be found!");
+        }
+        return soRSpecification;
+    }
+
+    /**
+     * Reloads every specification in the directory.  Files that cannot be parsed are skipped.
+     */
+    public synchronized void reload() {
+        reload(false);
+    }
+
+    /**
+     * Polls the directory every <code>watchIntervalInSeconds</code> seconds and reloads it when it changed.
+     *
+     * @param watchIntervalInSeconds the polling interval.  Zero or less disables the watcher.
+     */
+    public synchronized void setWatchIntervalInSeconds(final int watchIntervalInSeconds) {
+        stopWatching();
+
+        if (watchIntervalInSeconds <= 0) {
+            return;
+        }
+
+        final long period = watchIntervalInSeconds * 1000L;
+        this.watcher = new Timer("sor-specification-watcher", true);
+        this.watcher.schedule(new TimerTask() {
+            public void run() {
+                reloadIfModified();
             }
+        }, period, period);
+    }
+
+    @PreDestroy
+    public synchronized void stopWatching() {
+        if (this.watcher != null) {
+            this.watcher.cancel();
+            this.watcher = null;
         }
-        throw new IllegalStateException("Requested SoR could not be found!");
     }
 
-    public void reload() {
+    synchronized void reloadIfModified() {
+        try {
+            if (!computeDirectoryFingerprint().equals(this.directoryFingerprint)) {
+                logger.info("Contents of [" + this.file.getAbsolutePath() + "] changed.");
+                reload(true);
+            }
+        } catch (final Exception e) {
+            logger.error("Unable to check [" + this.file.getAbsolutePath() + "] for changes.", e);
+        }
+    }
+
+    private void reload(final boolean allOrNothing) {
         logger.info("There are currently [" + soRSpecifications.size() + "] specs loaded.  Reloading now.");
-        final List<SoRSpecification> soRSpecifications = new ArrayList<SoRSpecification>();
+        final String directoryFingerprint = computeDirectoryFingerprint();
+        final Map<String, SoRSpecification> soRSpecifications = new HashMap<String, SoRSpecification>();
 
-        for (final File file : this.file.listFiles(new FileFilter() {
-            public boolean accept(final File file) {
-                return file.getName().endsWith(".xml");
-            }
-        })) {
+        for (final File file : listSpecificationFiles()) {
             final SoRSpecification soRSpecification = loadSoRSpecificationFromFile(file);
 
-            if (soRSpecification != null) {
-                soRSpecifications.add(soRSpecification);
+            if (soRSpecification == null || soRSpecification.getSoR() == null) {
+                if (allOrNothing) {
+                    logger.warn("Keeping the currently loaded specs; will retry on the next check.");
+                    return;
+                }
+                continue;
+            }
+
+            final String key = key(soRSpecification.getSoR());
+            if (soRSpecifications.containsKey(key)) {
+                logger.warn("File [" + file.getName() + "] specifies SoR [" + soRSpecification.getSoR() + "] which is already loaded from another file.  Ignoring it.");
+            } else {
+                soRSpecifications.put(key, soRSpecification);
             }
         }
 
         this.soRSpecifications = soRSpecifications;
+        this.directoryFingerprint = directoryFingerprint;
+        logger.info("Loaded [" + soRSpecifications.size() + "] specs.");
+    }
+
+    private File[] listSpecificationFiles() {
+        final File[] files = this.file.listFiles(new FileFilter() {
+            public boolean accept(final File file) {
+                return file.getName().endsWith(".xml");
+            }
+        });
+
+        if (files == null) {
+            return new File[0];
+        }
+
+        Arrays.sort(files);
+        return files;
+    }
+
+    private String computeDirectoryFingerprint() {
+        final StringBuilder builder = new StringBuilder();
+        for (final File file : listSpecificationFiles()) {
+            builder.append(file.getName()).append(':').append(file.lastModified()).append(':').append(file.length()).append(';');
+        }
+        return builder.toString();
+    }
+
+    private static String key(final String sorSourceId) {
+        return sorSourceId.toLowerCase(Locale.ENGLISH);
     }
 
     private SoRSpecification loadSoRSpecificationFromFile(final File file) {
@@ -102,7 +195,11 @@ public final class XmlSystemOfRecordRepository implements SystemOfRecordReposito
             final FileReader fileReader = new FileReader(file);
             logger.info("File [" + file.getName() + "] successfully loaded.");
 
-            return (SoRSpecification) this.unMarshaller.unmarshal(fileReader);
+            try {
+                return (SoRSpecification) this.unMarshaller.unmarshal(fileReader);
+            } finally {
+                fileReader.close();
+            }
         } catch (final Exception e) {
             logger.error("Cannot complete loading of [" + file.getName() + "] due to error below.");
             logger.error(e.getMessage(),e);
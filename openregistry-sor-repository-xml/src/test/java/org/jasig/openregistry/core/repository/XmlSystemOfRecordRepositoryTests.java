@@ -0,0 +1,103 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.openregistry.core.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link XmlSystemOfRecordRepository}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class XmlSystemOfRecordRepositoryTests {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = File.createTempFile("sors", "");
+        assertTrue(this.directory.delete());
+        assertTrue(this.directory.mkdir());
+        writeSpecification("test.xml", "<specification><id>test</id><name>Test SoR</name><description>This is a test SoR.</description></specification>");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : this.directory.listFiles()) {
+            file.delete();
+        }
+        this.directory.delete();
+    }
+
+    private void writeSpecification(final String fileName, final String contents) throws IOException {
+        final File file = new File(this.directory, fileName);
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+        // make sure the modification is visible even on file systems with a coarse timestamp resolution
+        file.setLastModified(System.currentTimeMillis() + 2000);
+    }
+
+    @Test
+    public void testLookupIgnoresCase() throws Exception {
+        final XmlSystemOfRecordRepository repository = new XmlSystemOfRecordRepository(new FileSystemResource(this.directory));
+
+        assertEquals("Test SoR", repository.findSoRSpecificationById("test").getName());
+        assertEquals("Test SoR", repository.findSoRSpecificationById("TEST").getName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownSoR() throws Exception {
+        new XmlSystemOfRecordRepository(new FileSystemResource(this.directory)).findSoRSpecificationById("unknown");
+    }
+
+    @Test
+    public void testReloadsWhenModified() throws Exception {
+        final XmlSystemOfRecordRepository repository = new XmlSystemOfRecordRepository(new FileSystemResource(this.directory));
+        writeSpecification("other.xml", "<specification><id>other</id><name>Other SoR</name><description>Another SoR.</description></specification>");
+
+        repository.reloadIfModified();
+
+        assertEquals("Other SoR", repository.findSoRSpecificationById("other").getName());
+        assertEquals("Test SoR", repository.findSoRSpecificationById("test").getName());
+    }
+
+    @Test
+    public void testKeepsSpecificationsWhenAFileCannotBeParsed() throws Exception {
+        final XmlSystemOfRecordRepository repository = new XmlSystemOfRecordRepository(new FileSystemResource(this.directory));
+        writeSpecification("test.xml", "<specification><id>test</id><name>Half written");
+
+        repository.reloadIfModified();
+
+        assertEquals("Test SoR", repository.findSoRSpecificationById("test").getName());
+    }
+}
@@ -126,7 +126,7 @@ public class MockPerson implements Person {
         return this.names;
     }
 
-    public Name addName() {
+    public MockName addName() {
         final MockName name = new MockName();
         this.names.add(name);
         return name;
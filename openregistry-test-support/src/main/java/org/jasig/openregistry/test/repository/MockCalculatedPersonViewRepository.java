@@ -0,0 +1,77 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.jasig.openregistry.test.repository;
+
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.repository.CalculatedPersonViewRepository;
+
+import java.util.*;
+
+/**
+ * In-memory {@link CalculatedPersonViewRepository}, holding the views by person id.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class MockCalculatedPersonViewRepository implements CalculatedPersonViewRepository {
+
+    private final Map<Long, CalculatedPersonView> views = new HashMap<Long, CalculatedPersonView>();
+
+    public CalculatedPersonView findByPersonId(final Long personId) {
+        return this.views.get(personId);
+    }
+
+    public Map<Long, CalculatedPersonView> findByPersonIds(final Collection<Long> personIds) {
+        final Map<Long, CalculatedPersonView> found = new HashMap<Long, CalculatedPersonView>();
+        for (final Long personId : personIds) {
+            if (this.views.containsKey(personId)) {
+                found.put(personId, this.views.get(personId));
+            }
+        }
+        return found;
+    }
+
+    public CalculatedPersonView findByIdentifier(final String identifierType, final String identifierValue) {
+        CalculatedPersonView found = null;
+        for (final CalculatedPersonView view : this.views.values()) {
+            for (final CalculatedPersonView.IdentifierView identifier : view.getIdentifiers()) {
+                if (identifier.isPrimary() && !identifier.isDeleted() && identifier.getType().equals(identifierType) && identifier.getValue().equals(identifierValue)) {
+                    if (found != null) {
+                        return null;
+                    }
+                    found = view;
+                }
+            }
+        }
+        return found;
+    }
+
+    public void saveView(final CalculatedPersonView view) {
+        this.views.put(view.getPersonId(), view);
+    }
+
+    public void addView(final CalculatedPersonView view) {
+        saveView(view);
+    }
+
+    public void removeView(final Long personId) {
+        this.views.remove(personId);
+    }
+}
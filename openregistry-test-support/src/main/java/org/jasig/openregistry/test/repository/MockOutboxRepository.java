@@ -0,0 +1,188 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.jasig.openregistry.test.repository;
+
+import org.openregistry.integration.OutboxEvent;
+import org.openregistry.integration.OutboxRepository;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * In-memory {@link OutboxRepository}.  Not transactional; events are visible as soon as they are added.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class MockOutboxRepository implements OutboxRepository {
+
+    private final Map<Long, MockOutboxEvent> events = new TreeMap<Long, MockOutboxEvent>();
+
+    private long nextId = 1;
+
+    private String leaseHolder;
+
+    private Date leaseExpiryTime;
+
+    public synchronized OutboxEvent addEvent(final String destinationId, final Serializable messageBody, final Map<String, Object> metadata, final String orderingKey) {
+        final MockOutboxEvent event = new MockOutboxEvent(this.nextId++, destinationId, messageBody, metadata, orderingKey);
+        this.events.put(event.getId(), event);
+        return event;
+    }
+
+    public synchronized List<OutboxEvent> findPublishableEvents(final Date now, final int maxEvents) {
+        final List<OutboxEvent> publishableEvents = new ArrayList<OutboxEvent>();
+        final Set<String> waitingOrderingKeys = new HashSet<String>();
+
+        for (final MockOutboxEvent event : this.events.values()) {
+            if (event.deadLetter) {
+                continue;
+            }
+            if (event.getNextAttemptTime().after(now)) {
+                waitingOrderingKeys.add(event.getOrderingKey());
+            } else if (!waitingOrderingKeys.contains(event.getOrderingKey()) && publishableEvents.size() < maxEvents) {
+                publishableEvents.add(event);
+            }
+        }
+        return publishableEvents;
+    }
+
+    public synchronized void removeEvents(final Collection<OutboxEvent> events) {
+        for (final OutboxEvent event : events) {
+            this.events.remove(event.getId());
+        }
+    }
+
+    public synchronized void reschedule(final OutboxEvent event, final Date nextAttemptTime, final String error) {
+        final MockOutboxEvent storedEvent = this.events.get(event.getId());
+        if (storedEvent != null) {
+            storedEvent.attempts++;
+            storedEvent.nextAttemptTime = nextAttemptTime;
+            storedEvent.lastError = error;
+        }
+    }
+
+    public synchronized void deadLetter(final OutboxEvent event, final String error) {
+        final MockOutboxEvent storedEvent = this.events.get(event.getId());
+        if (storedEvent != null) {
+            storedEvent.attempts++;
+            storedEvent.deadLetter = true;
+            storedEvent.lastError = error;
+        }
+    }
+
+    public synchronized long countEvents() {
+        return this.events.size() - countDeadLetters();
+    }
+
+    public synchronized long countDeadLetters() {
+        long deadLetters = 0;
+        for (final MockOutboxEvent event : this.events.values()) {
+            if (event.deadLetter) {
+                deadLetters++;
+            }
+        }
+        return deadLetters;
+    }
+
+    public synchronized boolean acquireLease(final String publisherId, final Date now, final Date expiryTime) {
+        if (this.leaseHolder != null && !this.leaseHolder.equals(publisherId) && !this.leaseExpiryTime.before(now)) {
+            return false;
+        }
+        this.leaseHolder = publisherId;
+        this.leaseExpiryTime = expiryTime;
+        return true;
+    }
+
+    public synchronized void releaseLease(final String publisherId) {
+        if (publisherId.equals(this.leaseHolder)) {
+            this.leaseHolder = null;
+        }
+    }
+
+    public synchronized List<OutboxEvent> getEvents() {
+        return new ArrayList<OutboxEvent>(this.events.values());
+    }
+
+    private static final class MockOutboxEvent implements OutboxEvent {
+
+        private final Long id;
+
+        private final String destinationId;
+
+        private final Serializable messageBody;
+
+        private final Map<String, Object> metadata;
+
+        private final String orderingKey;
+
+        private int attempts;
+
+        private Date nextAttemptTime = new Date();
+
+        private String lastError;
+
+        private boolean deadLetter;
+
+        private MockOutboxEvent(final Long id, final String destinationId, final Serializable messageBody, final Map<String, Object> metadata, final String orderingKey) {
+            this.id = id;
+            this.destinationId = destinationId;
+            this.messageBody = messageBody;
+            this.metadata = metadata != null ? new HashMap<String, Object>(metadata) : Collections.<String, Object>emptyMap();
+            this.orderingKey = orderingKey;
+        }
+
+        public Long getId() {
+            return this.id;
+        }
+
+        public String getDestinationId() {
+            return this.destinationId;
+        }
+
+        public Serializable getMessageBody() {
+            return this.messageBody;
+        }
+
+        public Map<String, Object> getMetadata() {
+            return this.metadata;
+        }
+
+        public String getOrderingKey() {
+            return this.orderingKey;
+        }
+
+        public int getAttempts() {
+            return this.attempts;
+        }
+
+        public Date getNextAttemptTime() {
+            return this.nextAttemptTime;
+        }
+
+        public String getLastError() {
+            return this.lastError;
+        }
+
+        public boolean isDeadLetter() {
+            return this.deadLetter;
+        }
+    }
+}
@@ -63,6 +63,10 @@ public class MockPersonRepository implements PersonRepository {
         return null;
     }
 
+    public Person findByInternalId(final Long id, final PersonFetchProfile profile) throws RepositoryAccessException {
+        return findByInternalId(id);
+    }
+
     public Person fetchCompleteCalculatedPerson(Long id){
         for (final Person person : this.persons) {
             if (person.getId().equals(id)) {
@@ -84,6 +88,10 @@ public class MockPersonRepository implements PersonRepository {
         return null;
     }
 
+    public Person findByIdentifier(final String identifierType, final String identifierValue, final PersonFetchProfile profile) throws RepositoryAccessException {
+        return findByIdentifier(identifierType, identifierValue);
+    }
+
     public Person findByIdentifier(final String identifierType, final String identifierValue) throws RepositoryAccessException {
         for (final Person person : this.persons) {
             for (final Identifier identifier : person.getIdentifiers()) {
@@ -119,6 +127,18 @@ public class MockPersonRepository implements PersonRepository {
         return null;
     }
 
+    public List<SorPerson> findBySorIdentifiersAndSource(final String sorSourceIdentifier, final Collection<String> sorIds) {
+        final List<SorPerson> matches = new ArrayList<SorPerson>();
+
+        for (final SorPerson person : this.sorPersons) {
+            if (person.getSourceSor().equals(sorSourceIdentifier) && sorIds.contains(person.getSorId())) {
+                matches.add(person);
+            }
+        }
+
+        return matches;
+    }
+
     public SorPerson findByPersonIdAndSorIdentifier(final Long personId, final String sorSourceIdentifier) {
         for (final SorPerson sorPerson : this.sorPersons) {
             if (sorPerson.getPersonId().equals(personId)  && sorPerson.getSourceSor().equals(sorSourceIdentifier)) {
@@ -165,11 +185,49 @@ public class MockPersonRepository implements PersonRepository {
         return person;
     }
 
+    public Person savePerson(final Person person, final boolean flush) throws RepositoryAccessException {
+        return savePerson(person);
+    }
+
+    public Person savePersonAtCommit(final Person person) throws RepositoryAccessException {
+        return savePerson(person);
+    }
+
+    public void flush() throws RepositoryAccessException {
+        // nothing to do
+    }
+
     public SorPerson saveSorPerson(SorPerson sorPerson) throws RepositoryAccessException {
         this.sorPersons.add(sorPerson);
         return sorPerson;
     }
 
+    public boolean isSorPersonUnchanged(final SorPerson sorPerson) {
+        return false;
+    }
+
+    public String getSnapshotHash(final SorPerson sorPerson) {
+        return String.valueOf(sorPerson.hashCode());
+    }
+
+    public Map<String, String> findSorSnapshotHashes(final String sorSource, final String afterSorId, final int maxResults) {
+        final SortedMap<String, String> snapshotHashes = new TreeMap<String, String>();
+        for (final SorPerson sorPerson : this.sorPersons) {
+            if (sorPerson.getSourceSor().equals(sorSource) && (afterSorId == null || sorPerson.getSorId().compareTo(afterSorId) > 0)) {
+                snapshotHashes.put(sorPerson.getSorId(), getSnapshotHash(sorPerson));
+            }
+        }
+
+        final Map<String, String> page = new LinkedHashMap<String, String>();
+        for (final Map.Entry<String, String> entry : snapshotHashes.entrySet()) {
+            if (page.size() == maxResults) {
+                break;
+            }
+            page.put(entry.getKey(), entry.getValue());
+        }
+        return page;
+    }
+
     public void deleteSorRole(SorPerson person, SorRole role) {
         person.getRoles().remove(role);
     }
@@ -220,6 +278,10 @@ public class MockPersonRepository implements PersonRepository {
         return null;  //To change body of implemented methods use File | Settings | File Templates.
     }
 
+    public boolean isSorRoleUnchanged(final SorRole role) {
+        return false;
+    }
+
     public List<Person> findByEmailAddress(String email) {
         final List<Person> people = new ArrayList<Person>();
         for (final Person person : this.persons) {
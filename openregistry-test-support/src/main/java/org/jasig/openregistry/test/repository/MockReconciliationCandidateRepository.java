@@ -0,0 +1,98 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.jasig.openregistry.test.repository;
+
+import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.ReconciliationCandidateRepository;
+
+import java.util.*;
+
+/**
+ * In-memory {@link ReconciliationCandidateRepository}, holding the blocking keys of each person in the order they were
+ * first stored.  Keys shared by the same number of people are ordered by their value.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class MockReconciliationCandidateRepository implements ReconciliationCandidateRepository {
+
+    private final Map<Person, Set<String>> blockingKeys = new LinkedHashMap<Person, Set<String>>();
+
+    public List<Person> findCandidates(final Collection<String> blockingKeys, final int maxCandidates) {
+        final Set<Person> candidates = new LinkedHashSet<Person>();
+        for (final List<Person> people : findCandidatesByKey(blockingKeys, maxCandidates).values()) {
+            for (final Person person : people) {
+                if (candidates.size() < maxCandidates) {
+                    candidates.add(person);
+                }
+            }
+        }
+        return new ArrayList<Person>(candidates);
+    }
+
+    public Map<String, List<Person>> findCandidatesByKey(final Collection<String> blockingKeys, final int maxCandidatesPerKey) {
+        final Map<String, List<Person>> peopleByKey = new TreeMap<String, List<Person>>();
+        for (final Map.Entry<Person, Set<String>> entry : this.blockingKeys.entrySet()) {
+            for (final String key : entry.getValue()) {
+                if (!blockingKeys.contains(key)) {
+                    continue;
+                }
+                List<Person> people = peopleByKey.get(key);
+                if (people == null) {
+                    people = new ArrayList<Person>();
+                    peopleByKey.put(key, people);
+                }
+                people.add(entry.getKey());
+            }
+        }
+
+        final List<Map.Entry<String, List<Person>>> entries = new ArrayList<Map.Entry<String, List<Person>>>(peopleByKey.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, List<Person>>>() {
+            public int compare(final Map.Entry<String, List<Person>> entry1, final Map.Entry<String, List<Person>> entry2) {
+                return entry1.getValue().size() - entry2.getValue().size();
+            }
+        });
+
+        final Map<String, List<Person>> candidatesByKey = new LinkedHashMap<String, List<Person>>();
+        for (final Map.Entry<String, List<Person>> entry : entries) {
+            candidatesByKey.put(entry.getKey(), entry.getValue().subList(0, Math.min(maxCandidatesPerKey, entry.getValue().size())));
+        }
+        return candidatesByKey;
+    }
+
+    public void updateBlockingKeys(final Person person, final Set<String> blockingKeys) {
+        this.blockingKeys.put(person, new HashSet<String>(blockingKeys));
+    }
+
+    public void addBlockingKeys(final Person person, final Set<String> blockingKeys) {
+        updateBlockingKeys(person, blockingKeys);
+    }
+
+    public void removeBlockingKeys(final Person person) {
+        this.blockingKeys.remove(person);
+    }
+
+    /**
+     * @return the keys stored for the person; null if none were ever stored.
+     */
+    public Set<String> getBlockingKeys(final Person person) {
+        return this.blockingKeys.get(person);
+    }
+}
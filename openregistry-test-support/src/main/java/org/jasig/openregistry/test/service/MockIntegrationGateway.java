@@ -0,0 +1,110 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.jasig.openregistry.test.service;
+
+import org.openregistry.integration.IntegrationGateway;
+import org.openregistry.integration.IntegrationProcessingException;
+
+import java.util.*;
+
+/**
+ * In-memory stand-in for a message broker: records the messages dispatched to it instead of sending them.  Dispatching
+ * to a destination marked as unavailable fails, so delivery failures can be simulated.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public class MockIntegrationGateway implements IntegrationGateway {
+
+    private final List<DispatchedMessage> dispatchedMessages = new ArrayList<DispatchedMessage>();
+
+    private final Set<String> unavailableDestinations = new HashSet<String>();
+
+    public void dispatch(final String destinationId, final Object messageBody) throws IntegrationProcessingException {
+        dispatch(destinationId, messageBody, null);
+    }
+
+    public synchronized void dispatch(final String destinationId, final Object messageBody, final Map<String, Object> metadata) throws IntegrationProcessingException {
+        if (this.unavailableDestinations.contains(destinationId)) {
+            throw new IntegrationProcessingException(new IllegalStateException("Destination [" + destinationId + "] is unavailable."));
+        }
+        this.dispatchedMessages.add(new DispatchedMessage(destinationId, messageBody, metadata));
+    }
+
+    public <T> T sendMessageAndReceiveResponse(final String destinationId, final Object messageBody, final Class<T> requiredType)
+            throws IntegrationProcessingException, IllegalArgumentException {
+        return sendMessageAndReceiveResponse(destinationId, messageBody, null, requiredType);
+    }
+
+    public <T> T sendMessageAndReceiveResponse(final String destinationId, final Object messageBody, final Map<String, Object> metadata, final Class<T> requiredType)
+            throws IntegrationProcessingException, IllegalArgumentException {
+        dispatch(destinationId, messageBody, metadata);
+        return null;
+    }
+
+    public synchronized void setUnavailable(final String destinationId, final boolean unavailable) {
+        if (unavailable) {
+            this.unavailableDestinations.add(destinationId);
+        } else {
+            this.unavailableDestinations.remove(destinationId);
+        }
+    }
+
+    public synchronized List<DispatchedMessage> getDispatchedMessages() {
+        return new ArrayList<DispatchedMessage>(this.dispatchedMessages);
+    }
+
+    public synchronized List<Object> getDispatchedMessageBodies(final String destinationId) {
+        final List<Object> bodies = new ArrayList<Object>();
+        for (final DispatchedMessage message : this.dispatchedMessages) {
+            if (message.getDestinationId().equals(destinationId)) {
+                bodies.add(message.getMessageBody());
+            }
+        }
+        return bodies;
+    }
+
+    public static final class DispatchedMessage {
+
+        private final String destinationId;
+
+        private final Object messageBody;
+
+        private final Map<String, Object> metadata;
+
+        private DispatchedMessage(final String destinationId, final Object messageBody, final Map<String, Object> metadata) {
+            this.destinationId = destinationId;
+            this.messageBody = messageBody;
+            this.metadata = metadata != null ? metadata : Collections.<String, Object>emptyMap();
+        }
+
+        public String getDestinationId() {
+            return this.destinationId;
+        }
+
+        public Object getMessageBody() {
+            return this.messageBody;
+        }
+
+        public Map<String, Object> getMetadata() {
+            return this.metadata;
+        }
+    }
+}
@@ -2,12 +2,14 @@ package org.jasig.openregistry.test.service;
 
 import org.jasig.openregistry.test.domain.MockPerson;
 import org.jasig.openregistry.test.domain.MockSorPerson;
+import org.openregistry.core.domain.CalculatedPersonView;
 import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.PersonNotFoundException;
 import org.openregistry.core.domain.sor.ReconciliationCriteria;
 import org.openregistry.core.domain.sor.SorPerson;
 import org.openregistry.core.domain.sor.SorPersonAlreadyExistsException;
 import org.openregistry.core.domain.sor.SorRole;
+import org.openregistry.core.service.BatchServiceExecutionResult;
 import org.openregistry.core.service.PersonService;
 import org.openregistry.core.service.SearchCriteria;
 import org.openregistry.core.service.ServiceExecutionResult;
@@ -20,6 +22,7 @@ import javax.validation.ConstraintViolation;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -54,6 +57,17 @@ public class MockPersonService implements PersonService {
         return null;
     }
 
+    @Override
+    public CalculatedPersonView findCalculatedPersonView(Long id) {
+        return new CalculatedPersonView(findPersonById(id));
+    }
+
+    @Override
+    public CalculatedPersonView findCalculatedPersonViewByIdentifier(String identifierType, String identifierValue) {
+        final Person person = findPersonByIdentifier(identifierType, identifierValue);
+        return person != null ? new CalculatedPersonView(person) : null;
+    }
+
     @Override
     public SorPerson findByPersonIdAndSorIdentifier(Long id, String sourceSorIdentifier) {
         throw new UnsupportedOperationException("Not yet implemented");
@@ -135,7 +149,7 @@ public class MockPersonService implements PersonService {
     }
 
     @Override
-    public ServiceExecutionResult<Person> addPerson(ReconciliationCriteria reconciliationCriteria) throws ReconciliationException, IllegalArgumentException {
+    public ServiceExecutionResult<Person> addPerson(ReconciliationCriteria reconciliationCriteria) throws ReconciliationException, IllegalArgumentException, SorPersonAlreadyExistsException {
         return null;
     }
 
@@ -149,6 +163,11 @@ public class MockPersonService implements PersonService {
         throw new UnsupportedOperationException("Not yet implemented");
     }
 
+    @Override
+    public List<BatchServiceExecutionResult<Person>> addPeople(List<ReconciliationCriteria> reconciliationCriterias) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("Not yet implemented");
+    }
+
     @Override
     public ServiceExecutionResult<ReconciliationResult> reconcile(ReconciliationCriteria reconciliationCriteria) throws IllegalArgumentException {
         throw new UnsupportedOperationException("Not yet implemented");
@@ -256,4 +275,12 @@ public class MockPersonService implements PersonService {
     public boolean addOrUpdateChosenName(Person person, SorPerson sorPerson, String referredName){
         return true;
     }
+
+    public Map<String, Long> getSkippedUpdateCounts() {
+        return Collections.emptyMap();
+    }
+
+    public Map<String, Long> getPendingReconciliationCounts() {
+        return Collections.emptyMap();
+    }
 }
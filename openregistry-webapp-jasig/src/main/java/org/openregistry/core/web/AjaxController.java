@@ -19,11 +19,15 @@
 
 package org.openregistry.core.web;
 
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
 import org.openregistry.core.domain.Name;
 import org.openregistry.core.domain.Person;
+import org.openregistry.core.repository.NameCompletionIndex;
 import org.openregistry.core.service.MutableSearchCriteriaImpl;
 import org.openregistry.core.service.PersonService;
 import org.openregistry.core.service.reconciliation.PersonMatch;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -32,7 +36,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -43,15 +48,27 @@ import java.util.Set;
 @Controller
 public final class AjaxController {
 
+    private static final int MAX_NAMES = 10;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
     @Inject
     private PersonService personService;
 
+    @Autowired(required = false)
+    private NameCompletionIndex nameCompletionIndex;
+
     @RequestMapping(value="/nameSearch.json", method = RequestMethod.GET)
     public void nameSearch(@RequestParam("term") final String term, final Writer writer) throws IOException {
+        if (this.nameCompletionIndex != null && this.nameCompletionIndex.isAvailable()) {
+            writeNames(this.nameCompletionIndex.complete(term, MAX_NAMES), writer);
+            return;
+        }
+
         final MutableSearchCriteriaImpl searchCriteria = new MutableSearchCriteriaImpl();
         searchCriteria.setName(term);
 
-        final Set<String> names = new HashSet<String>();
+        final Set<String> names = new LinkedHashSet<String>();
 
         final List<PersonMatch> personMatches = this.personService.searchForPersonBy(searchCriteria);
 
@@ -59,26 +76,22 @@ public final class AjaxController {
             final Person person = personMatch.getPerson();
             final Name name = person.getOfficialName();
             names.add(name.getGiven() + " " + name.getFamily());
+            if (names.size() == MAX_NAMES) {
+                break;
+            }
         }
 
-        final StringBuilder stringBuilder = new StringBuilder();
+        writeNames(names, writer);
+    }
 
-        stringBuilder.append("[");
-        boolean pastFirst = false;
+    private void writeNames(final Collection<String> names, final Writer writer) throws IOException {
+        final JsonGenerator generator = this.jsonFactory.createJsonGenerator(writer);
+        generator.writeStartArray();
         for (final String name : names) {
-            if (pastFirst) {
-                stringBuilder.append(",");
-            }
-
-            pastFirst = true;
-
-            stringBuilder.append("\"");
-            stringBuilder.append(name);
-            stringBuilder.append("\"");
+            generator.writeString(name);
         }
-        stringBuilder.append("]");
-
-        writer.write(stringBuilder.toString());
+        generator.writeEndArray();
+        generator.flush();
     }
 
 }
@@ -20,7 +20,7 @@
 package org.openregistry.core.web.resources;
 
 import com.sun.jersey.api.NotFoundException;
-import org.openregistry.core.domain.Identifier;
+import org.openregistry.core.domain.CalculatedPersonView;
 import org.openregistry.core.domain.Person;
 import org.openregistry.core.domain.sor.ReconciliationCriteria;
 import org.openregistry.core.domain.sor.SorPersonAlreadyExistsException;
@@ -43,7 +43,6 @@ import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Root RESTful resource representing <i>canonical</i> view of people in Open Registry.
@@ -81,7 +80,7 @@ public final class PeopleResource {
     public PersonResponseRepresentation showPerson(@PathParam("personId") String personId,
                                                    @PathParam("personIdType") String personIdType) {
 
-        final Person person = findPersonOrThrowNotFoundException(personIdType, personId);
+        final CalculatedPersonView person = findPersonViewOrThrowNotFoundException(personIdType, personId);
         logger.info("Person is found. Building a suitable representation...");
         return new PersonResponseRepresentation(buildPersonIdentifierRepresentations(person.getIdentifiers()));
     }
@@ -111,12 +110,12 @@ public final class PeopleResource {
     }
 
 
-    private List<PersonResponseRepresentation.PersonIdentifierRepresentation> buildPersonIdentifierRepresentations(final Set<? extends Identifier> identifiers) {
+    private List<PersonResponseRepresentation.PersonIdentifierRepresentation> buildPersonIdentifierRepresentations(final List<CalculatedPersonView.IdentifierView> identifiers) {
 
         final List<PersonResponseRepresentation.PersonIdentifierRepresentation> idsRep = new ArrayList<PersonResponseRepresentation.PersonIdentifierRepresentation>();
 
-        for (final Identifier id : identifiers) {
-            idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType().getName(), id.getValue()));
+        for (final CalculatedPersonView.IdentifierView id : identifiers) {
+            idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType(), id.getValue()));
         }
 
         if (idsRep.isEmpty()) {
@@ -126,6 +125,19 @@ public final class PeopleResource {
     }
 
 
+    private CalculatedPersonView findPersonViewOrThrowNotFoundException(final String personIdType, final String personId) {
+        logger.info(String.format("Searching for a person with  {personIdType:%s, personId:%s} ...", personIdType, personId));
+        final CalculatedPersonView person = this.personService.findCalculatedPersonViewByIdentifier(personIdType, personId);
+        if (person == null) {
+            //HTTP 404
+            logger.info("Person is not found.");
+            throw new NotFoundException(
+                    String.format("The person resource identified by /people/%s/%s URI does not exist",
+                            personIdType, personId));
+        }
+        return person;
+    }
+
     private Person findPersonOrThrowNotFoundException(final String personIdType, final String personId) {
         logger.info(String.format("Searching for a person with  {personIdType:%s, personId:%s} ...", personIdType, personId));
         final Person person = this.personService.findPersonByIdentifier(personIdType, personId);
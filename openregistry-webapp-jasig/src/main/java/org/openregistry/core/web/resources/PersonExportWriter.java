@@ -0,0 +1,179 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.web.resources;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openregistry.core.domain.CalculatedPersonView;
+import org.openregistry.core.service.PersonExportService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Writes the exported people to the response body, one line per person.  The output is flushed after every page so
+ * the client receives the export in chunks while it is still being read.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+abstract class PersonExportWriter implements PersonExportService.PersonExportHandler {
+
+    protected final Writer writer;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    protected PersonExportWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    public void endOfPage() throws IOException {
+        this.writer.flush();
+    }
+
+    protected final String formatDate(final Date date) {
+        return date != null ? this.dateFormat.format(date) : null;
+    }
+
+    protected static String formatName(final CalculatedPersonView.NameView name) {
+        if (name == null) {
+            return null;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final String part : new String[] {name.getPrefix(), name.getGiven(), name.getMiddle(), name.getFamily(), name.getSuffix()}) {
+            if (part != null && part.length() > 0) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(part);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Newline delimited JSON: one JSON object per line.
+     */
+    static final class NdJsonPersonExportWriter extends PersonExportWriter {
+
+        private final JsonFactory jsonFactory = new JsonFactory();
+
+        NdJsonPersonExportWriter(final Writer writer) {
+            super(writer);
+            this.jsonFactory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        public void export(final CalculatedPersonView person) throws IOException {
+            final JsonGenerator generator = this.jsonFactory.createJsonGenerator(this.writer);
+            generator.writeStartObject();
+            generator.writeNumberField("id", person.getPersonId());
+            generator.writeStringField("dateOfBirth", formatDate(person.getDateOfBirth()));
+            generator.writeStringField("gender", person.getGender());
+            generator.writeStringField("name", formatName(person.getUniversityName()));
+
+            generator.writeArrayFieldStart("identifiers");
+            for (final CalculatedPersonView.IdentifierView identifier : person.getIdentifiers()) {
+                if (identifier.isPrimary() && !identifier.isDeleted()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", identifier.getType());
+                    generator.writeStringField("value", identifier.getValue());
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("roles");
+            for (final CalculatedPersonView.RoleView role : person.getRoles()) {
+                generator.writeStartObject();
+                generator.writeStringField("affiliation", role.getAffiliationType());
+                generator.writeStringField("title", role.getTitle());
+                generator.writeStringField("organizationalUnit", role.getOrganizationalUnitCode());
+                generator.writeStringField("start", formatDate(role.getStart()));
+                generator.writeStringField("end", formatDate(role.getEnd()));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+            generator.close();
+            this.writer.write('\n');
+        }
+    }
+
+    /**
+     * RFC 4180 comma separated values, with a header line.  Identifiers and roles are flattened into one column each.
+     */
+    static final class CsvPersonExportWriter extends PersonExportWriter {
+
+        private boolean headerWritten = false;
+
+        CsvPersonExportWriter(final Writer writer) {
+            super(writer);
+        }
+
+        public void export(final CalculatedPersonView person) throws IOException {
+            if (!this.headerWritten) {
+                this.writer.write("id,dateOfBirth,gender,name,identifiers,affiliations\r\n");
+                this.headerWritten = true;
+            }
+
+            final StringBuilder identifiers = new StringBuilder();
+            for (final CalculatedPersonView.IdentifierView identifier : person.getIdentifiers()) {
+                if (identifier.isPrimary() && !identifier.isDeleted()) {
+                    if (identifiers.length() > 0) {
+                        identifiers.append(';');
+                    }
+                    identifiers.append(identifier.getType()).append(':').append(identifier.getValue());
+                }
+            }
+
+            final StringBuilder affiliations = new StringBuilder();
+            for (final CalculatedPersonView.RoleView role : person.getRoles()) {
+                if (affiliations.length() > 0) {
+                    affiliations.append(';');
+                }
+                affiliations.append(role.getAffiliationType()).append(':').append(role.getOrganizationalUnitCode());
+            }
+
+            this.writer.write(String.valueOf(person.getPersonId()));
+            writeField(formatDate(person.getDateOfBirth()));
+            writeField(person.getGender());
+            writeField(formatName(person.getUniversityName()));
+            writeField(identifiers.toString());
+            writeField(affiliations.toString());
+            this.writer.write("\r\n");
+        }
+
+        private void writeField(final String value) throws IOException {
+            this.writer.write(',');
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\r') == -1 && value.indexOf('\n') == -1) {
+                this.writer.write(value);
+                return;
+            }
+            this.writer.write('"');
+            this.writer.write(value.replace("\"", "\"\""));
+            this.writer.write('"');
+        }
+    }
+}
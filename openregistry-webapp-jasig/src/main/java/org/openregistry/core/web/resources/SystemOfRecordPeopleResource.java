@@ -27,12 +27,17 @@ import org.openregistry.core.domain.PersonNotFoundException;
 import org.openregistry.core.domain.sor.SorPersonAlreadyExistsException;
 import org.openregistry.core.domain.sor.ReconciliationCriteria;
 import org.openregistry.core.domain.sor.SorPerson;
+import org.openregistry.core.repository.PersonRepository;
 import org.openregistry.core.repository.ReferenceRepository;
+import org.openregistry.core.service.BatchServiceExecutionResult;
 import org.openregistry.core.service.PersonService;
 import org.openregistry.core.service.ServiceExecutionResult;
 import org.openregistry.core.service.reconciliation.PersonMatch;
 import org.openregistry.core.service.reconciliation.ReconciliationException;
+import org.openregistry.core.service.reconciliation.ReconciliationResult.ReconciliationType;
+import org.openregistry.core.service.snapshot.SorSnapshotDelta;
 import org.openregistry.core.utils.ValidationUtils;
+import org.openregistry.core.web.resources.representations.BatchResponseRepresentation;
 import org.openregistry.core.web.resources.representations.ErrorsResponseRepresentation;
 import org.openregistry.core.web.resources.representations.LinkRepresentation;
 import org.openregistry.core.web.resources.representations.PersonRequestRepresentation;
@@ -49,7 +54,12 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -73,6 +83,18 @@ public final class SystemOfRecordPeopleResource {
 
     private static final String FORCE_ADD_FLAG = "y";
 
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int BATCH_CHUNK_SIZE = 100;
+
+    /**
+     * A snapshot removing more than this many people, and more than MAX_SNAPSHOT_REMOVAL_RATIO of the stored people,
+     * is refused unless forced, as it is far more likely to be a truncated extract than a real mass departure.
+     */
+    private static final int MAX_SNAPSHOT_REMOVALS = 100;
+
+    private static final double MAX_SNAPSHOT_REMOVAL_RATIO = 0.05;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     //Jersey specific injection
@@ -83,6 +105,8 @@ public final class SystemOfRecordPeopleResource {
 
     private final ReferenceRepository referenceRepository;
 
+    private final PersonRepository personRepository;
+
     @Resource(name = "reconciliationCriteriaFactory")
     private ObjectFactory<ReconciliationCriteria> reconciliationCriteriaObjectFactory;
 
@@ -93,9 +117,10 @@ public final class SystemOfRecordPeopleResource {
     private String preferredPersonIdentifierType;
 
     @Inject
-    public SystemOfRecordPeopleResource(final PersonService personService, final ReferenceRepository referenceRepository) {
+    public SystemOfRecordPeopleResource(final PersonService personService, final ReferenceRepository referenceRepository, final PersonRepository personRepository) {
         this.personService = personService;
         this.referenceRepository = referenceRepository;
+        this.personRepository = personRepository;
     }
 
     @POST
@@ -161,6 +186,65 @@ public final class SystemOfRecordPeopleResource {
         return response;
     }
 
+    /**
+     * Bulk version of {@link #processIncomingPerson(PersonRequestRepresentation, String, String)} for nightly SoR feeds.
+     * The feed is read as a stream and added in chunks of BATCH_CHUNK_SIZE people, each chunk being reconciled and
+     * persisted in one transaction.  Force adds are not supported; people that result in a 409 can be resubmitted
+     * one at a time.
+     * <p>
+     * The results are streamed to the client chunk by chunk as the feed is processed, rather than built up for the whole
+     * feed, and every record gets its own result: a record that cannot be read, converted or written, or a chunk that
+     * fails as a whole, results in error results for the records concerned while the rest of the feed is processed.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public Response processIncomingPeople(final InputStream people, @PathParam("sorSourceId") final String sorSourceId) {
+        return processIncomingPeople(PersonRequestReader.forXml(people), sorSourceId);
+    }
+
+    @POST
+    @Path("batch")
+    @Consumes(NDJSON_MEDIA_TYPE)
+    @Produces(MediaType.APPLICATION_XML)
+    public Response processIncomingPeopleAsNdjson(final InputStream people, @PathParam("sorSourceId") final String sorSourceId) {
+        return processIncomingPeople(PersonRequestReader.forNdjson(people), sorSourceId);
+    }
+
+    /**
+     * Applies a full snapshot of the people of a SoR, e.g. a nightly extract.  People that are not stored yet are added
+     * as by {@link #processIncomingPeople(InputStream, String)}, people whose content changed are updated as by
+     * {@link #updateIncomingPerson(String, String, PersonRequestRepresentation)}, and stored people that are missing
+     * from the snapshot are deleted.  The unchanged people, usually nearly all of them, are never loaded.
+     * <p>
+     * Results are reported in SoR id order.  Nothing is applied if any record cannot be read, as the person in it would
+     * otherwise be deleted, and an empty snapshot is refused outright.
+     * <p>
+     * A snapshot that would remove more than MAX_SNAPSHOT_REMOVALS people and more than MAX_SNAPSHOT_REMOVAL_RATIO of
+     * the stored people is refused with a 409 unless <code>force=y</code> is given.  With <code>dryRun=true</code>
+     * nothing is applied and only the summary of the differences is returned.
+     */
+    @POST
+    @Path("snapshot")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public BatchResponseRepresentation processPeopleSnapshot(final InputStream people, @PathParam("sorSourceId") final String sorSourceId,
+                                                             @QueryParam("dryRun") @DefaultValue("false") final boolean dryRun,
+                                                             @QueryParam("force") final String force) {
+        return processPeopleSnapshot(PersonRequestReader.forXml(people), sorSourceId, dryRun, FORCE_ADD_FLAG.equals(force));
+    }
+
+    @POST
+    @Path("snapshot")
+    @Consumes(NDJSON_MEDIA_TYPE)
+    @Produces(MediaType.APPLICATION_XML)
+    public BatchResponseRepresentation processPeopleSnapshotAsNdjson(final InputStream people, @PathParam("sorSourceId") final String sorSourceId,
+                                                                     @QueryParam("dryRun") @DefaultValue("false") final boolean dryRun,
+                                                                     @QueryParam("force") final String force) {
+        return processPeopleSnapshot(PersonRequestReader.forNdjson(people), sorSourceId, dryRun, FORCE_ADD_FLAG.equals(force));
+    }
+
     @DELETE
     @Path("{sorPersonId}")
     public Response deletePerson(@PathParam("sorSourceId") final String sorSourceId,
@@ -209,11 +293,300 @@ public final class SystemOfRecordPeopleResource {
         return null;
     }
 
+    private Response processIncomingPeople(final PersonRequestReader reader, final String sorSourceId) {
+        final URI peopleUri = this.uriInfo.getBaseUriBuilder().path(SystemOfRecordPeopleResource.class).build(sorSourceId);
+        final StreamingOutput output = new StreamingOutput() {
+            public void write(final OutputStream outputStream) throws IOException {
+                final BatchResultWriter results = new BatchResultWriter(outputStream);
+                final List<PersonRequestRepresentation> chunk = new ArrayList<PersonRequestRepresentation>(BATCH_CHUNK_SIZE);
+                final List<Integer> positions = new ArrayList<Integer>(BATCH_CHUNK_SIZE);
+                int position = 0;
+
+                while (true) {
+                    final PersonRequestRepresentation personRequestRepresentation;
+                    try {
+                        personRequestRepresentation = reader.next();
+                    }
+                    catch (final IllegalArgumentException e) {
+                        // keep the results in feed order
+                        results.write(processIncomingPeopleChunk(chunk, positions, peopleUri));
+                        results.write(buildErrorResult(position++, 400, null, e.getMessage()));
+                        continue;
+                    }
+
+                    if (personRequestRepresentation == null) {
+                        break;
+                    }
+
+                    personRequestRepresentation.systemOfRecordId = sorSourceId;
+                    chunk.add(personRequestRepresentation);
+                    positions.add(position++);
+
+                    if (chunk.size() == BATCH_CHUNK_SIZE) {
+                        results.write(processIncomingPeopleChunk(chunk, positions, peopleUri));
+                    }
+                }
+
+                results.write(processIncomingPeopleChunk(chunk, positions, peopleUri));
+                results.close();
+                logger.info(String.format("Processed %d incoming people from SoR %s", position, sorSourceId));
+            }
+        };
+        return Response.ok(output, MediaType.APPLICATION_XML).build();
+    }
+
+    /**
+     * Adds a chunk of the feed in one transaction and returns the results of its records in feed order.  Records that
+     * cannot be converted get a 400 and, if the chunk cannot be added as a whole, the other records get a 500, so a
+     * failure never takes the results of the rest of the feed with it.
+     */
+    private List<BatchResponseRepresentation.Result> processIncomingPeopleChunk(final List<PersonRequestRepresentation> chunk, final List<Integer> positions, final URI peopleUri) {
+        final BatchResponseRepresentation.Result[] results = new BatchResponseRepresentation.Result[chunk.size()];
+        final List<ReconciliationCriteria> reconciliationCriterias = new ArrayList<ReconciliationCriteria>(chunk.size());
+        final List<Integer> indexes = new ArrayList<Integer>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                reconciliationCriterias.add(PeopleResourceUtils.buildReconciliationCriteriaFrom(chunk.get(i),
+                        this.reconciliationCriteriaObjectFactory, this.referenceRepository));
+                indexes.add(i);
+            } catch (final IllegalArgumentException e) {
+                results[i] = buildErrorResult(positions.get(i), 400, chunk.get(i).systemOfRecordPersonId, e.getMessage());
+            }
+        }
+
+        if (!reconciliationCriterias.isEmpty()) {
+            List<BatchServiceExecutionResult<Person>> serviceResults = null;
+            try {
+                serviceResults = this.personService.addPeople(reconciliationCriterias);
+            } catch (final RuntimeException e) {
+                logger.error(String.format("Unable to add a chunk of %d people", reconciliationCriterias.size()), e);
+                for (final int i : indexes) {
+                    results[i] = buildErrorResult(positions.get(i), 500, chunk.get(i).systemOfRecordPersonId, "Unable to add the person: " + e.getMessage());
+                }
+            }
+
+            for (int j = 0; serviceResults != null && j < serviceResults.size(); j++) {
+                final int i = indexes.get(j);
+                try {
+                    results[i] = buildBatchResult(positions.get(i), chunk.get(i), serviceResults.get(j), peopleUri);
+                } catch (final RuntimeException e) {
+                    logger.error("Unable to build the result of record " + positions.get(i), e);
+                    results[i] = buildErrorResult(positions.get(i), 500, chunk.get(i).systemOfRecordPersonId, "Unable to build the result of the person: " + e.getMessage());
+                }
+            }
+        }
+
+        chunk.clear();
+        positions.clear();
+        return Arrays.asList(results);
+    }
+
+    private BatchResponseRepresentation processPeopleSnapshot(final PersonRequestReader reader, final String sorSourceId, final boolean dryRun, final boolean force) {
+        final BatchResponseRepresentation response = new BatchResponseRepresentation();
+        final SorSnapshotDelta delta = new SorSnapshotDelta(this.personRepository, sorSourceId);
+
+        try {
+            int position = 0;
+            while (true) {
+                final PersonRequestRepresentation personRequestRepresentation;
+                try {
+                    personRequestRepresentation = reader.next();
+                }
+                catch (final IllegalArgumentException e) {
+                    response.results.add(buildErrorResult(position++, 400, null, e.getMessage()));
+                    continue;
+                }
+
+                if (personRequestRepresentation == null) {
+                    break;
+                }
+
+                personRequestRepresentation.systemOfRecordId = sorSourceId;
+                try {
+                    final ReconciliationCriteria reconciliationCriteria = PeopleResourceUtils.buildReconciliationCriteriaFrom(personRequestRepresentation,
+                            this.reconciliationCriteriaObjectFactory, this.referenceRepository);
+                    delta.add(position, reconciliationCriteria.getSorPerson(), PersonRequestReader.toNdjson(personRequestRepresentation));
+                }
+                catch (final IllegalArgumentException e) {
+                    response.results.add(buildErrorResult(position, 400, personRequestRepresentation.systemOfRecordPersonId, e.getMessage()));
+                }
+                position++;
+            }
+
+            if (!response.results.isEmpty()) {
+                logger.warn(String.format("Snapshot of SoR %s not applied: %d of %d records could not be read", sorSourceId, response.results.size(), position));
+                return response;
+            }
+
+            if (delta.size() == 0) {
+                //HTTP 400
+                throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity(new ErrorsResponseRepresentation(Arrays.asList("The snapshot does not contain any people.")))
+                        .type(MediaType.APPLICATION_XML).build());
+            }
+
+            final SorSnapshotDelta.Summary summary = delta.compare();
+            if (dryRun) {
+                response.summary = buildSummary(summary, false);
+                return response;
+            }
+
+            if (!force && summary.getRemoved() > MAX_SNAPSHOT_REMOVALS && summary.getRemoved() > MAX_SNAPSHOT_REMOVAL_RATIO * summary.getStored()) {
+                logger.warn(String.format("Snapshot of SoR %s not applied: it would remove %d of %d people", sorSourceId, summary.getRemoved(), summary.getStored()));
+                //HTTP 409
+                throw new WebApplicationException(Response.status(Response.Status.CONFLICT)
+                        .entity(new ErrorsResponseRepresentation(Arrays.asList(String.format(
+                                "The snapshot would remove %d of the %d stored people; resubmit it with force=%s to apply it anyway.",
+                                summary.getRemoved(), summary.getStored(), FORCE_ADD_FLAG))))
+                        .type(MediaType.APPLICATION_XML).build());
+            }
+
+            final SnapshotHandler handler = new SnapshotHandler(sorSourceId, response);
+            response.summary = buildSummary(delta.apply(handler), true);
+            handler.flush();
+            return response;
+        }
+        catch (final IOException e) {
+            throw new WebApplicationException(e, 500);
+        }
+        finally {
+            delta.close();
+        }
+    }
+
+    private static BatchResponseRepresentation.Summary buildSummary(final SorSnapshotDelta.Summary summary, final boolean applied) {
+        return new BatchResponseRepresentation.Summary(summary.getAdded(), summary.getChanged(), summary.getRemoved(),
+                summary.getUnchanged(), summary.getDuplicated(), applied);
+    }
+
+    /**
+     * Applies the differences found by a snapshot, adding the new people in chunks of BATCH_CHUNK_SIZE.
+     */
+    private final class SnapshotHandler implements SorSnapshotDelta.Handler {
+
+        private final String sorSourceId;
+
+        private final BatchResponseRepresentation response;
+
+        private final URI peopleUri;
+
+        private final List<PersonRequestRepresentation> chunk = new ArrayList<PersonRequestRepresentation>(BATCH_CHUNK_SIZE);
+
+        private final List<Integer> positions = new ArrayList<Integer>(BATCH_CHUNK_SIZE);
+
+        private SnapshotHandler(final String sorSourceId, final BatchResponseRepresentation response) {
+            this.sorSourceId = sorSourceId;
+            this.response = response;
+            this.peopleUri = uriInfo.getBaseUriBuilder().path(SystemOfRecordPeopleResource.class).build(sorSourceId);
+        }
+
+        public void added(final int position, final String sorId, final String record) {
+            this.chunk.add(PersonRequestReader.fromNdjson(record));
+            this.positions.add(position);
+
+            if (this.chunk.size() == BATCH_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        public void changed(final int position, final String sorId, final String record) {
+            final SorPerson sorPerson = personService.findBySorIdentifierAndSource(this.sorSourceId, sorId);
+            if (sorPerson == null) {
+                this.response.results.add(buildErrorResult(position, 404, sorId, "The person was deleted while the snapshot was applied."));
+                return;
+            }
+            PeopleResourceUtils.buildModifiedSorPerson(PersonRequestReader.fromNdjson(record), sorPerson, referenceRepository);
+
+            try {
+                final ServiceExecutionResult<SorPerson> result = personService.updateSorPerson(sorPerson);
+
+                if (!result.getValidationErrors().isEmpty()) {
+                    final BatchResponseRepresentation.Result batchResult = new BatchResponseRepresentation.Result(position, 400, sorId);
+                    batchResult.errors = ValidationUtils.buildValidationErrorsResponseAsList(result.getValidationErrors());
+                    this.response.results.add(batchResult);
+                    return;
+                }
+            }
+            catch (final IllegalStateException e) {
+                this.response.results.add(buildErrorResult(position, 409, sorId, e.getMessage()));
+                return;
+            }
+            this.response.results.add(new BatchResponseRepresentation.Result(position, 204, sorId));
+        }
+
+        public void duplicated(final int position, final String sorId) {
+            this.response.results.add(buildErrorResult(position, 400, sorId, "The person occurs more than once in the snapshot; only the first occurrence was applied."));
+        }
+
+        public void removed(final String sorId) {
+            try {
+                if (!personService.deleteSystemOfRecordPerson(this.sorSourceId, sorId, false, "UNSPECIFIED")) {
+                    this.response.results.add(buildErrorResult(-1, 500, sorId, "Unable to delete the person."));
+                    return;
+                }
+            }
+            catch (final PersonNotFoundException e) {
+                // already gone
+            }
+            this.response.results.add(new BatchResponseRepresentation.Result(-1, 204, sorId));
+        }
+
+        private void flush() {
+            this.response.results.addAll(processIncomingPeopleChunk(this.chunk, this.positions, this.peopleUri));
+        }
+    }
+
+    private BatchResponseRepresentation.Result buildErrorResult(final int position, final int status, final String systemOfRecordPersonId, final String error) {
+        final BatchResponseRepresentation.Result result = new BatchResponseRepresentation.Result(position, status, systemOfRecordPersonId);
+        result.errors = Arrays.asList(error);
+        return result;
+    }
+
+    /**
+     * Maps the result of one person of the feed to the status and details processIncomingPerson would have returned.
+     */
+    private BatchResponseRepresentation.Result buildBatchResult(final int position, final PersonRequestRepresentation personRequestRepresentation,
+                                                                final BatchServiceExecutionResult<Person> serviceResult, final URI peopleUri) {
+        final Exception failure = serviceResult.getFailure();
+
+        if (failure instanceof ReconciliationException && ((ReconciliationException) failure).getReconciliationType() == ReconciliationType.MAYBE) {
+            final BatchResponseRepresentation.Result result = new BatchResponseRepresentation.Result(position, 409, personRequestRepresentation.systemOfRecordPersonId);
+            result.links = new ArrayList<LinkRepresentation.Link>();
+            for (final PersonMatch match : ((ReconciliationException) failure).getMatches()) {
+                result.links.add(new LinkRepresentation.Link("person", buildPersonResourceUri(UriBuilder.fromUri(peopleUri), match.getPerson()).toString()));
+            }
+            return result;
+        }
+
+        if (failure != null) {
+            final BatchResponseRepresentation.Result result = new BatchResponseRepresentation.Result(position, 409, personRequestRepresentation.systemOfRecordPersonId);
+            result.errors = Arrays.asList(failure.getMessage());
+            return result;
+        }
+
+        if (!serviceResult.succeeded()) {
+            final BatchResponseRepresentation.Result result = new BatchResponseRepresentation.Result(position, 400, personRequestRepresentation.systemOfRecordPersonId);
+            result.errors = ValidationUtils.buildValidationErrorsResponseAsList(serviceResult.getValidationErrors());
+            return result;
+        }
+
+        final Person person = serviceResult.getTargetObject();
+        final BatchResponseRepresentation.Result result = new BatchResponseRepresentation.Result(position, 201, personRequestRepresentation.systemOfRecordPersonId);
+        result.href = buildPersonResourceUri(UriBuilder.fromUri(peopleUri), person).toString();
+        result.activationKey = person.getCurrentActivationKey().asString();
+        return result;
+    }
+
     private URI buildPersonResourceUri(final Person person) {
+        return buildPersonResourceUri(this.uriInfo.getAbsolutePathBuilder(), person);
+    }
+
+    private URI buildPersonResourceUri(final UriBuilder peopleUriBuilder, final Person person) {
         final Identifier identifier = person.getPrimaryIdentifiersByType().get(this.preferredPersonIdentifierType);
 
         Assert.notNull(identifier, "The person must have at least one id of the preferred configured type which is <" + this.preferredPersonIdentifierType + ">");
-        return this.uriInfo.getAbsolutePathBuilder().path(this.preferredPersonIdentifierType).path(identifier.getValue()).build();
+        return peopleUriBuilder.path(this.preferredPersonIdentifierType).path(identifier.getValue()).build();
     }
 
     private LinkRepresentation buildLinksToConflictingPeopleFound(final List<PersonMatch> matches) {
@@ -0,0 +1,74 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openregistry.core.service.PersonService;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ * Administrative RESTful resource reporting, by system of record, how many person and role updates were skipped
+ * because they did not change anything at <code>GET /statistics/updates/skipped</code>.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named
+@Singleton
+@Path("/statistics/updates")
+public final class UpdateStatisticsResource {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final PersonService personService;
+
+    @Inject
+    public UpdateStatisticsResource(final PersonService personService) {
+        this.personService = personService;
+    }
+
+    @GET
+    @Path("skipped")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String showSkippedUpdates() throws IOException {
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = this.jsonFactory.createJsonGenerator(writer);
+
+        generator.writeStartObject();
+        for (final Map.Entry<String, Long> entry : this.personService.getSkippedUpdateCounts().entrySet()) {
+            generator.writeNumberField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+        generator.close();
+
+        return writer.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.jasig.openregistry.test.service.MockPersonService;
+import org.junit.Test;
+import org.openregistry.core.repository.CacheStatisticsRepository;
+
+import javax.ws.rs.WebApplicationException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link CacheStatisticsResource}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class CacheStatisticsResourceTests {
+
+    private final CacheStatisticsRepository cacheStatisticsRepository = mock(CacheStatisticsRepository.class);
+
+    private final CacheStatisticsResource resource = new CacheStatisticsResource(this.cacheStatisticsRepository, new MockPersonService());
+
+    @Test
+    public void testStatisticsOffIsUnavailable() throws Exception {
+        when(this.cacheStatisticsRepository.isStatisticsEnabled()).thenReturn(false);
+
+        try {
+            this.resource.showCacheStatistics();
+            fail("WebApplicationException expected");
+        } catch (final WebApplicationException e) {
+            assertEquals(503, e.getResponse().getStatus());
+        }
+        verify(this.cacheStatisticsRepository, never()).getRegionStatistics();
+    }
+}
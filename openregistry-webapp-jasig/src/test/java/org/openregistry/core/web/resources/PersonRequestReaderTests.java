@@ -0,0 +1,79 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.junit.Test;
+import org.openregistry.core.web.resources.representations.PersonRequestRepresentation;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link PersonRequestReader}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class PersonRequestReaderTests {
+
+    @Test
+    public void testUnparsableNdjsonRecordIsSkipped() throws Exception {
+        final PersonRequestReader reader = PersonRequestReader.forNdjson(new ByteArrayInputStream("not json\n{\"sor-person-id\":\"1\"}\n".getBytes("UTF-8")));
+
+        try {
+            reader.next();
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            // the record is skipped
+        }
+
+        final PersonRequestRepresentation personRequestRepresentation = reader.next();
+        assertEquals("1", personRequestRepresentation.systemOfRecordPersonId);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testBrokenNdjsonStreamEndsFeed() throws Exception {
+        final PersonRequestReader reader = PersonRequestReader.forNdjson(brokenAfter("{\"sor-person-id\":\"1\"}\n"));
+
+        assertEquals("1", reader.next().systemOfRecordPersonId);
+        try {
+            reader.next();
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertNull(reader.next());
+        assertNull(reader.next());
+    }
+
+    /**
+     * @return a stream that fails, like a dropped connection, once the content has been read.
+     */
+    static InputStream brokenAfter(final String content) throws UnsupportedEncodingException {
+        return new SequenceInputStream(new ByteArrayInputStream(content.getBytes("UTF-8")), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+    }
+}
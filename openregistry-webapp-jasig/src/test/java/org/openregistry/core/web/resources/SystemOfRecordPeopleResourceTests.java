@@ -0,0 +1,50 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.jasig.openregistry.test.repository.MockPersonRepository;
+import org.jasig.openregistry.test.repository.MockReferenceRepository;
+import org.jasig.openregistry.test.service.MockPersonService;
+import org.junit.Test;
+import org.openregistry.core.web.resources.representations.BatchResponseRepresentation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the snapshot feed of {@link SystemOfRecordPeopleResource}.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+public final class SystemOfRecordPeopleResourceTests {
+
+    private final SystemOfRecordPeopleResource resource = new SystemOfRecordPeopleResource(new MockPersonService(), new MockReferenceRepository(), new MockPersonRepository());
+
+    @Test
+    public void testBrokenSnapshotStreamIsNotApplied() throws Exception {
+        final BatchResponseRepresentation response = this.resource.processPeopleSnapshotAsNdjson(PersonRequestReaderTests.brokenAfter("not json\n"), "test", false, null);
+
+        assertEquals(2, response.results.size());
+        assertEquals(400, response.results.get(0).status);
+        assertEquals(400, response.results.get(1).status);
+        assertTrue(response.results.get(1).errors.get(0).contains("people feed"));
+        assertNull(response.summary);
+    }
+}
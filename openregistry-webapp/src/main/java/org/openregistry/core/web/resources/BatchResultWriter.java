@@ -0,0 +1,96 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.openregistry.core.web.resources.representations.BatchResponseRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.*;
+import java.util.List;
+
+/**
+ * Writes the results of a bulk SoR feed to the response body as they are produced, as the same
+ * <code>open-registry-batch-results</code> document a {@link BatchResponseRepresentation} is marshalled into.  Each
+ * result is marshalled on its own, so a result that cannot be marshalled is replaced by an error result instead of
+ * ending the document, and the output is flushed after every chunk so the client receives the results in chunks.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+final class BatchResultWriter {
+
+    private static final JAXBContext JAXB_CONTEXT;
+
+    static {
+        try {
+            JAXB_CONTEXT = JAXBContext.newInstance(BatchResponseRepresentation.Result.class);
+        } catch (final JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Writer writer;
+
+    private final Marshaller marshaller;
+
+    BatchResultWriter(final OutputStream outputStream) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+        try {
+            this.marshaller = JAXB_CONTEXT.createMarshaller();
+            this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        } catch (final JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+        this.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><open-registry-batch-results>");
+    }
+
+    void write(final BatchResponseRepresentation.Result result) throws IOException {
+        final StringWriter xml = new StringWriter();
+        try {
+            this.marshaller.marshal(result, xml);
+        } catch (final JAXBException e) {
+            logger.error("Unable to marshal the result of record " + result.position + " of the batch.", e);
+            this.writer.write("<result position=\"" + result.position + "\" status=\"500\"><error>Unable to write the result of the record.</error></result>");
+            return;
+        }
+        this.writer.write(xml.toString());
+    }
+
+    /**
+     * Writes the results of one chunk of the feed and flushes them to the client.
+     */
+    void write(final List<BatchResponseRepresentation.Result> results) throws IOException {
+        for (final BatchResponseRepresentation.Result result : results) {
+            write(result);
+        }
+        this.writer.flush();
+    }
+
+    void close() throws IOException {
+        this.writer.write("</open-registry-batch-results>");
+        this.writer.flush();
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.web.resources;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openregistry.core.repository.CacheStatisticsRepository;
+import org.openregistry.core.service.PersonService;
+import org.openregistry.core.web.resources.representations.ErrorsResponseRepresentation;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Administrative RESTful resource reporting the hit ratio of every second-level cache region at
+ * <code>GET /statistics/cache</code>, so the cache sizes can be tuned against the actual read set, and how the store of
+ * pending reconciliations is doing at <code>GET /statistics/cache/pendingReconciliations</code>.  The cache regions are
+ * only reported while <code>hibernate.generate_statistics</code> is on; otherwise they are a 503 rather than zeros.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named
+@Singleton
+@Path("/statistics")
+public final class CacheStatisticsResource {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final CacheStatisticsRepository cacheStatisticsRepository;
+
+    private final PersonService personService;
+
+    @Inject
+    public CacheStatisticsResource(final CacheStatisticsRepository cacheStatisticsRepository, final PersonService personService) {
+        this.cacheStatisticsRepository = cacheStatisticsRepository;
+        this.personService = personService;
+    }
+
+    @GET
+    @Path("cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String showCacheStatistics() throws IOException {
+        if (!this.cacheStatisticsRepository.isStatisticsEnabled()) {
+            //HTTP 503
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new ErrorsResponseRepresentation(Arrays.asList("Cache statistics are not gathered; set hibernate.generate_statistics to true in the jpaPropertyMap of the entityManagerFactory to gather them.")))
+                    .type(MediaType.APPLICATION_XML).build());
+        }
+
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = this.jsonFactory.createJsonGenerator(writer);
+
+        generator.writeStartArray();
+        for (final CacheStatisticsRepository.RegionStatistics region : this.cacheStatisticsRepository.getRegionStatistics()) {
+            generator.writeStartObject();
+            generator.writeStringField("region", region.getName());
+            generator.writeNumberField("hits", region.getHitCount());
+            generator.writeNumberField("misses", region.getMissCount());
+            generator.writeNumberField("puts", region.getPutCount());
+            generator.writeNumberField("elements", region.getElementCount());
+            generator.writeNumberField("hitRatio", region.getHitRatio());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.close();
+
+        return writer.toString();
+    }
+
+    @GET
+    @Path("cache/pendingReconciliations")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String showPendingReconciliationStatistics() throws IOException {
+        final StringWriter writer = new StringWriter();
+        final JsonGenerator generator = this.jsonFactory.createJsonGenerator(writer);
+
+        generator.writeStartObject();
+        for (final Map.Entry<String, Long> entry : this.personService.getPendingReconciliationCounts().entrySet()) {
+            generator.writeNumberField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+        generator.close();
+
+        return writer.toString();
+    }
+}
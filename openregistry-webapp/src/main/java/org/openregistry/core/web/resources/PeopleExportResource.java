@@ -0,0 +1,84 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.openregistry.core.web.resources;
+
+import org.openregistry.core.service.PersonExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+
+/**
+ * Administrative RESTful resource streaming the whole calculated registry.  <code>GET /export/people</code> returns
+ * newline delimited JSON, or CSV with <code>?format=csv</code>.  The response is written while the registry is being
+ * paged through, so neither the server nor the client ever has to hold the complete export.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named
+@Singleton
+@Path("/export")
+public final class PeopleExportResource {
+
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private static final String CSV_MEDIA_TYPE = "text/csv";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PersonExportService personExportService;
+
+    @Inject
+    public PeopleExportResource(final PersonExportService personExportService) {
+        this.personExportService = personExportService;
+    }
+
+    @GET
+    @Path("people")
+    public Response exportPeople(@QueryParam("format") @DefaultValue("ndjson") final String format) {
+        final boolean csv;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            csv = false;
+        } else if ("csv".equalsIgnoreCase(format)) {
+            csv = true;
+        } else {
+            //HTTP 400
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unsupported export format: " + format).type("text/plain").build();
+        }
+
+        final StreamingOutput output = new StreamingOutput() {
+            public void write(final OutputStream outputStream) throws IOException {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+                final PersonExportWriter exportWriter = csv ? new PersonExportWriter.CsvPersonExportWriter(writer) : new PersonExportWriter.NdJsonPersonExportWriter(writer);
+                logger.info("Exporting all people as " + (csv ? "CSV" : "NDJSON") + "...");
+                personExportService.exportPeople(exportWriter);
+                writer.flush();
+            }
+        };
+
+        return Response.ok(output, csv ? CSV_MEDIA_TYPE + ";charset=UTF-8" : NDJSON_MEDIA_TYPE + ";charset=UTF-8").build();
+    }
+}
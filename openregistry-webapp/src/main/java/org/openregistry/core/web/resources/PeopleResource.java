@@ -80,10 +80,10 @@ public final class PeopleResource {
     public Response showPerson(@PathParam("personId") String personId,
                                                    @PathParam("personIdType") String personIdType) {
 
-        final Person person;
+        final CalculatedPersonView person;
 
         try {
-            person = findPersonOrThrowNotFoundException(personIdType, personId);
+            person = findPersonViewOrThrowNotFoundException(personIdType, personId);
             logger.info("Person is found. Building a suitable representation...");
            //return new PersonResponseRepresentation(buildPersonIdentifierRepresentations(person.getIdentifiers()));
            return Response.ok().entity(buildPersonResponseRepresentation(person)).build();
@@ -135,6 +135,19 @@ public final class PeopleResource {
     }
 
 
+    private CalculatedPersonView findPersonViewOrThrowNotFoundException(final String personIdType, final String personId) {
+        logger.info(String.format("Searching for a person with  {personIdType:%s, personId:%s} ...", personIdType, personId));
+        final CalculatedPersonView person = this.personService.findCalculatedPersonViewByIdentifier(personIdType, personId);
+        if (person == null) {
+            //HTTP 404
+            logger.info("Person is not found.");
+            throw new NotFoundException(
+                    String.format("The person resource identified by /people/%s/%s URI does not exist",
+                            personIdType, personId));
+        }
+        return person;
+    }
+
     private Person findPersonOrThrowNotFoundException(final String personIdType, final String personId) {
         logger.info(String.format("Searching for a person with  {personIdType:%s, personId:%s} ...", personIdType, personId));
         final Person person = this.personService.findPersonByIdentifier(personIdType, personId);
@@ -148,7 +161,7 @@ public final class PeopleResource {
         return person;
     }
 
-    private PersonResponseRepresentation buildPersonResponseRepresentation(Person person) {
+    private PersonResponseRepresentation buildPersonResponseRepresentation(final CalculatedPersonView person) {
 
         PersonResponseRepresentation personResponseRepresentation = new PersonResponseRepresentation();
 
@@ -162,10 +175,9 @@ public final class PeopleResource {
 
 
         // Names
-        Set<? extends Name> names  = person.getNames();
-        //final List<PersonResponseRepresentation.Name> idsRep = new ArrayList<PersonResponseRepresentation.PersonIdentifierRepresentation>();
+        List<CalculatedPersonView.NameView> names  = person.getNames();
         PersonResponseRepresentation.Name responseName = new PersonResponseRepresentation.Name();
-        Name universityName = person.getUniversityName();
+        CalculatedPersonView.NameView universityName = person.getUniversityName();
         responseName.firstName = universityName.getGiven();
         responseName.lastName = universityName.getFamily();
         responseName.middleName = universityName.getMiddle();
@@ -181,14 +193,14 @@ public final class PeopleResource {
                 returnLegalName = true;
         }
 
-        for (final Name name : names) {
+        for (final CalculatedPersonView.NameView name : names) {
                 responseName = new PersonResponseRepresentation.Name();
                 responseName.firstName = name.getGiven();
                 responseName.lastName = name.getFamily();
                 responseName.middleName = name.getMiddle();
                 responseName.prefix = name.getPrefix();
                 responseName.suffix = name.getSuffix();
-                String nameType = name.getType().getDescription();
+                String nameType = name.getType();
 
                 if ("FORMAL".equalsIgnoreCase(nameType) || "LEGAL".equalsIgnoreCase(nameType))
                         responseName.nameType = "Legal";
@@ -220,13 +232,13 @@ public final class PeopleResource {
         }
 
         // identifiers
-        Set<? extends Identifier> identifiers  = person.getIdentifiers();
+        List<CalculatedPersonView.IdentifierView> identifiers  = person.getIdentifiers();
 
         final List<PersonResponseRepresentation.PersonIdentifierRepresentation> idsRep = new ArrayList<PersonResponseRepresentation.PersonIdentifierRepresentation>();
 
-        for (final Identifier id : identifiers) {
+        for (final CalculatedPersonView.IdentifierView id : identifiers) {
             // security for SSN
-            if (id.getType().getName().equalsIgnoreCase("SSN")) {
+            if (id.getType().equalsIgnoreCase("SSN")) {
                 boolean returnSSN = false;
                 for (GrantedAuthority grantedAuthority : grantedAuthorities) {
                     if (grantedAuthority.getAuthority().equalsIgnoreCase("ROLE_VIEW_SSN"))
@@ -234,12 +246,12 @@ public final class PeopleResource {
                 }
                 if (returnSSN) {
                     logger.info("Will return SSN");
-                    idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType().getName(), id.getValue()));
+                    idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType(), id.getValue()));
                 } else {
                     logger.info("Will not return SSN");
                 }
             } else {
-                idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType().getName(), id.getValue()));
+                idsRep.add(new PersonResponseRepresentation.PersonIdentifierRepresentation(id.getType(), id.getValue()));
             }
         }
 
@@ -257,8 +269,8 @@ public final class PeopleResource {
             personResponseRepresentation.phi = "N";
 
         // idcards
-        Set<? extends IdCard> idcards  = person.getIdCards();
-        for (final IdCard icard : idcards) {
+        List<CalculatedPersonView.IdCardView> idcards  = person.getIdCards();
+        for (final CalculatedPersonView.IdCardView icard : idcards) {
             PersonResponseRepresentation.IdcardRepresentation idcardRepresentation
                         = new PersonResponseRepresentation.IdcardRepresentation();
             //security for rcn number
@@ -279,15 +291,15 @@ public final class PeopleResource {
         }
 
         // roles - include the in-active roles and active roles
-        Set<? extends Role> roles  = person.getRoles();
-        for (final Role role : roles) {
+        List<CalculatedPersonView.RoleView> roles  = person.getRoles();
+        for (final CalculatedPersonView.RoleView role : roles) {
             PersonResponseRepresentation.SimpleRoleRepresentation simpleRoleRepresentation
                     = new PersonResponseRepresentation.SimpleRoleRepresentation();
-            simpleRoleRepresentation.roleType = role.getAffiliationType().getDescription();
+            simpleRoleRepresentation.roleType = role.getAffiliationType();
             simpleRoleRepresentation.title = role.getTitle();
             simpleRoleRepresentation.status = role.isActive()? "Active" : "Inactive";
-            simpleRoleRepresentation.department = role.getOrganizationalUnit().getName();
-            simpleRoleRepresentation.organizationCode = role.getOrganizationalUnit().getLocalCode();
+            simpleRoleRepresentation.department = role.getOrganizationalUnitName();
+            simpleRoleRepresentation.organizationCode = role.getOrganizationalUnitCode();
             simpleRoleRepresentation.isRBHS = role.getRBHS();
             simpleRoleRepresentation.startDate = role.getStart();
             simpleRoleRepresentation.endDate = role.getEnd();
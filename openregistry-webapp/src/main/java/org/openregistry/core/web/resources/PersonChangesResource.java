@@ -0,0 +1,137 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openregistry.core.domain.PersonChange;
+import org.openregistry.core.repository.PersonChangeFeedRepository;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+/**
+ * RESTful resource serving the feed of changed people at <code>GET /changes?since=&lt;cursor&gt;&amp;limit=N</code>, so
+ * downstream systems only have to fetch the people that changed.  Changes are returned in revision order, each with the
+ * cursor of its position in the feed and, unless the person was deleted, the link to the person.
+ * <p>
+ * A consumer starts with <code>since=0</code> (or a revision number) and passes the <code>next</code> cursor of each
+ * response to the following request.  A response may hold fewer changes than the limit before the end of the feed is
+ * reached; only an empty response means there are no further changes yet.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named
+@Singleton
+@Path("/changes")
+public final class PersonChangesResource {
+
+    private static final int MAX_LIMIT = 10000;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    //Jersey specific injection
+    @Context
+    UriInfo uriInfo;
+
+    private final PersonChangeFeedRepository personChangeFeedRepository;
+
+    @Resource
+    private String preferredPersonIdentifierType;
+
+    @Inject
+    public PersonChangesResource(final PersonChangeFeedRepository personChangeFeedRepository) {
+        this.personChangeFeedRepository = personChangeFeedRepository;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response showChanges(@QueryParam("since") @DefaultValue("0") final String since, @QueryParam("limit") @DefaultValue("1000") final int limit) {
+        final long afterRevision;
+        final long afterPersonId;
+        try {
+            final int separator = since.indexOf('.');
+            afterRevision = Long.parseLong(separator < 0 ? since : since.substring(0, separator));
+            afterPersonId = separator < 0 ? 0 : Long.parseLong(since.substring(separator + 1));
+        } catch (final NumberFormatException e) {
+            //HTTP 400
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor: " + since).type("text/plain").build();
+        }
+        if (limit <= 0) {
+            //HTTP 400
+            return Response.status(Response.Status.BAD_REQUEST).entity("The limit must be positive.").type("text/plain").build();
+        }
+
+        final List<PersonChange> changes = this.personChangeFeedRepository.findChangesAfter(afterRevision, afterPersonId, Math.min(limit, MAX_LIMIT));
+        final String next = changes.isEmpty() ? since : cursorOf(changes.get(changes.size() - 1));
+
+        final StreamingOutput output = new StreamingOutput() {
+            public void write(final OutputStream outputStream) throws IOException {
+                final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+                final JsonGenerator generator = jsonFactory.createJsonGenerator(outputStream);
+
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("changes");
+                for (final PersonChange change : changes) {
+                    generator.writeStartObject();
+                    generator.writeStringField("cursor", cursorOf(change));
+                    generator.writeNumberField("revision", change.getRevision());
+                    generator.writeNumberField("personId", change.getPersonId());
+                    generator.writeStringField("type", change.getChangeType().name());
+                    if (change.getRevisionDate() != null) {
+                        generator.writeStringField("date", dateFormat.format(change.getRevisionDate()));
+                    }
+                    if (change.getUsername() != null) {
+                        generator.writeStringField("username", change.getUsername());
+                    }
+                    final String identifier = change.getPrimaryIdentifiers().get(preferredPersonIdentifierType);
+                    if (identifier != null) {
+                        generator.writeStringField("href", uriInfo.getBaseUriBuilder().path(PeopleResource.class)
+                                .path(preferredPersonIdentifierType).path(identifier).build().toString());
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeStringField("next", next);
+                generator.writeEndObject();
+                generator.close();
+            }
+        };
+
+        return Response.ok(output, MediaType.APPLICATION_JSON).build();
+    }
+
+    private static String cursorOf(final PersonChange change) {
+        return change.getRevision() + "." + change.getPersonId();
+    }
+}
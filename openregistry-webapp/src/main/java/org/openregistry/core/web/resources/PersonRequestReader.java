@@ -0,0 +1,186 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.openregistry.core.web.resources.representations.PersonRequestRepresentation;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+
+/**
+ * Reads the person records of a bulk SoR feed one at a time, so that the feed never has to be held in memory.
+ * Two formats are supported:
+ * <ul>
+ * <li>XML: an <code>open-registry-people</code> element containing any number of <code>open-registry-person</code> elements</li>
+ * <li>NDJSON: one JSON person record per line, using the same property names as the XML representation</li>
+ * </ul>
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+abstract class PersonRequestReader {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static {
+        OBJECT_MAPPER.getDeserializationConfig().setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+        OBJECT_MAPPER.getSerializationConfig().setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+    }
+
+    /**
+     * Returns the next person record.
+     *
+     * @return the next record, or null if there are no more records.
+     * @throws IllegalArgumentException if the next record cannot be parsed or the feed cannot be read.  For an NDJSON
+     * record that cannot be parsed the reader skips the record; otherwise the rest of the feed cannot be read and
+     * every later call returns null.
+     */
+    abstract PersonRequestRepresentation next() throws IllegalArgumentException;
+
+    static PersonRequestReader forXml(final InputStream inputStream) {
+        return new XmlPersonRequestReader(inputStream);
+    }
+
+    static PersonRequestReader forNdjson(final InputStream inputStream) {
+        return new NdjsonPersonRequestReader(inputStream);
+    }
+
+    /**
+     * Writes a person record as one NDJSON line, e.g. to hold it on disk until it is needed.
+     */
+    static String toNdjson(final PersonRequestRepresentation personRequestRepresentation) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(personRequestRepresentation);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads a person record written by {@link #toNdjson(PersonRequestRepresentation)}.
+     */
+    static PersonRequestRepresentation fromNdjson(final String line) throws IllegalArgumentException {
+        try {
+            return OBJECT_MAPPER.readValue(line, PersonRequestRepresentation.class);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to read person record: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class XmlPersonRequestReader extends PersonRequestReader {
+
+        private static final String PERSON_ELEMENT = "open-registry-person";
+
+        private static final JAXBContext JAXB_CONTEXT;
+
+        static {
+            try {
+                JAXB_CONTEXT = JAXBContext.newInstance(PersonRequestRepresentation.class);
+            } catch (final JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private final InputStream inputStream;
+
+        private XMLStreamReader xmlStreamReader;
+
+        private Unmarshaller unmarshaller;
+
+        private boolean finished;
+
+        private XmlPersonRequestReader(final InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        PersonRequestRepresentation next() throws IllegalArgumentException {
+            if (this.finished) {
+                return null;
+            }
+
+            try {
+                if (this.xmlStreamReader == null) {
+                    this.xmlStreamReader = XMLInputFactory.newInstance().createXMLStreamReader(this.inputStream);
+                    this.unmarshaller = JAXB_CONTEXT.createUnmarshaller();
+                }
+
+                while (this.xmlStreamReader.hasNext()) {
+                    if (this.xmlStreamReader.isStartElement() && PERSON_ELEMENT.equals(this.xmlStreamReader.getLocalName())) {
+                        return this.unmarshaller.unmarshal(this.xmlStreamReader, PersonRequestRepresentation.class).getValue();
+                    }
+                    this.xmlStreamReader.next();
+                }
+                this.finished = true;
+                return null;
+            } catch (final XMLStreamException e) {
+                this.finished = true;
+                throw new IllegalArgumentException("Unable to read the people feed: " + e.getMessage(), e);
+            } catch (final JAXBException e) {
+                this.finished = true;
+                throw new IllegalArgumentException("Unable to read the people feed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class NdjsonPersonRequestReader extends PersonRequestReader {
+
+        private final BufferedReader reader;
+
+        private boolean finished;
+
+        private NdjsonPersonRequestReader(final InputStream inputStream) {
+            try {
+                this.reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            } catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        PersonRequestRepresentation next() throws IllegalArgumentException {
+            if (this.finished) {
+                return null;
+            }
+
+            String line;
+            try {
+                do {
+                    line = this.reader.readLine();
+                } while (line != null && line.trim().length() == 0);
+            } catch (final IOException e) {
+                // e.g. the client went away or the body was cut short; nothing more can be read.
+                this.finished = true;
+                throw new IllegalArgumentException("Unable to read the people feed: " + e.getMessage(), e);
+            }
+
+            if (line == null) {
+                this.finished = true;
+                return null;
+            }
+            return fromNdjson(line);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources;
+
+import com.sun.jersey.api.NotFoundException;
+import org.openregistry.core.repository.ReferenceRepository;
+import org.openregistry.core.repository.RefreshableReferenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+
+/**
+ * Administrative RESTful resource for the cached reference data.  Posting to <code>/referencedata/refresh</code>
+ * reloads the reference data after the reference tables were changed outside of Open Registry.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@Named
+@Singleton
+@Path("/referencedata")
+public final class ReferenceDataResource {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ReferenceRepository referenceRepository;
+
+    @Inject
+    public ReferenceDataResource(final ReferenceRepository referenceRepository) {
+        this.referenceRepository = referenceRepository;
+    }
+
+    @POST
+    @Path("refresh")
+    public void refresh() {
+        if (!(this.referenceRepository instanceof RefreshableReferenceRepository)) {
+            //HTTP 404 - nothing is cached
+            throw new NotFoundException("The reference data is not cached.");
+        }
+        logger.info("Refreshing the cached reference data...");
+        ((RefreshableReferenceRepository) this.referenceRepository).refresh();
+        //HTTP 204 - success
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to Jasig under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Jasig licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.openregistry.core.web.resources.representations;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-record results of a bulk SoR feed.  Each result carries the status code the single person POST would have
+ * returned for the record (201, 400 or 409), along with the same details: the person resource and activation key,
+ * the validation errors, or the links to the conflicting people.  The results of a snapshot also report the people
+ * that were updated or deleted with a 204; deletions have no position as they are not in the snapshot, and carry -1.
+ * A snapshot also carries a summary of the number of people added, changed and removed, and whether it was applied.
+ * This class is marshalled into an XML representation using JAXB.
+ *
+ * @version $Revision$ $Date$
+ * @since 0.9.7
+ */
+@XmlRootElement(name = "open-registry-batch-results")
+public class BatchResponseRepresentation {
+
+    @XmlElement(name = "result")
+    public List<Result> results = new ArrayList<Result>();
+
+    @XmlElement(name = "summary")
+    public Summary summary;
+
+    /**
+     * Required by JAXB
+     */
+    public BatchResponseRepresentation() {
+    }
+
+    @XmlRootElement(name = "result")
+    public static class Result {
+
+        @XmlAttribute
+        public int position;
+
+        @XmlAttribute
+        public int status;
+
+        @XmlAttribute(name = "sor-person-id")
+        public String systemOfRecordPersonId;
+
+        @XmlAttribute
+        public String href;
+
+        @XmlAttribute(name = "activation-key")
+        public String activationKey;
+
+        @XmlElement(name = "link")
+        public List<LinkRepresentation.Link> links;
+
+        @XmlElement(name = "error")
+        public List<String> errors;
+
+        /**
+         * Required by JAXB
+         */
+        public Result() {
+        }
+
+        public Result(final int position, final int status, final String systemOfRecordPersonId) {
+            this.position = position;
+            this.status = status;
+            this.systemOfRecordPersonId = systemOfRecordPersonId;
+        }
+    }
+
+    @XmlRootElement(name = "summary")
+    public static class Summary {
+
+        @XmlAttribute
+        public int added;
+
+        @XmlAttribute
+        public int changed;
+
+        @XmlAttribute
+        public int removed;
+
+        @XmlAttribute
+        public int unchanged;
+
+        @XmlAttribute
+        public int duplicated;
+
+        @XmlAttribute
+        public boolean applied;
+
+        /**
+         * Required by JAXB
+         */
+        public Summary() {
+        }
+
+        public Summary(final int added, final int changed, final int removed, final int unchanged, final int duplicated, final boolean applied) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+            this.unchanged = unchanged;
+            this.duplicated = duplicated;
+            this.applied = applied;
+        }
+    }
+}
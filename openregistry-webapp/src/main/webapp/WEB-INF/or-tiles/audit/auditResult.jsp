@@ -31,6 +31,17 @@
             <a href="${flowExecutionUrl}&_eventId=submitListByTimeRevers"><spring:message code="audit.result.list.byTimeRevers"/></a>
             <a href="${flowExecutionUrl}&_eventId=submitListByEAttr"><spring:message code="audit.result.list.byAttr"/></a>
         </div>
+        <c:if test="${auditAttributes.pageCount > 1}">
+        <div class="row">
+            <c:if test="${auditAttributes.page > 0}">
+                <a href="${flowExecutionUrl}&_eventId=submitPreviousPage&sortBy=${fn:escapeXml(sortBy)}"><spring:message code="audit.result.previousPage"/></a>
+            </c:if>
+            <spring:message code="audit.result.page" arguments="${auditAttributes.page + 1},${auditAttributes.pageCount},${auditAttributes.revisionCount}"/>
+            <c:if test="${auditAttributes.page + 1 < auditAttributes.pageCount}">
+                <a href="${flowExecutionUrl}&_eventId=submitNextPage&sortBy=${fn:escapeXml(sortBy)}"><spring:message code="audit.result.nextPage"/></a>
+            </c:if>
+        </div>
+        </c:if>
         <%--<div class="row">--%>
             <%--<div class="q first">--%>
                 <%--<label></label><input type="radio" name="sortBy" value="attribute" onclick="window.location.reload()"/>List By Attribute</label>--%>